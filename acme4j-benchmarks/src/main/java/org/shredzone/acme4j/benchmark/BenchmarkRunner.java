@@ -0,0 +1,62 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the acme4j benchmarks.
+ * <p>
+ * The GC profiler is always enabled, so the allocation rate per operation
+ * ({@code gc.alloc.rate.norm}) is reported next to the throughput. The results are also
+ * written to {@code jmh-result.json}, so they can be compared between two builds.
+ * <p>
+ * All JMH command line options are accepted. For example, {@code JoseBenchmark} only
+ * runs the JOSE benchmarks, and {@code -p keyType=Ed25519} only runs them with Ed25519
+ * keys.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // utility class without constructor
+    }
+
+    public static void main(String... args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmdOptions);
+        if (cmdOptions.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        builder.addProfiler(GCProfiler.class);
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result("jmh-result.json");
+        }
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+
+}
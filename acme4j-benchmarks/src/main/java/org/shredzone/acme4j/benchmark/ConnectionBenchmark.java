@@ -0,0 +1,148 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.connector.DefaultConnection;
+import org.shredzone.acme4j.connector.HttpConnector;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+
+/**
+ * Benchmarks the evaluation of the response headers in {@link DefaultConnection}.
+ * <p>
+ * The headers are served by a stub {@link HttpURLConnection}, so no network traffic is
+ * involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionBenchmark {
+
+    private StubConnection connection;
+
+    @Setup
+    public void setup() throws MalformedURLException {
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Replay-Nonce", Collections.singletonList("Q_s3MWoqT05TrdkM2MTDcw"));
+        headers.put("Location", Collections.singletonList("/acme/order/TOlocE8rfgo"));
+        headers.put("Retry-After", Collections.singletonList("120"));
+        headers.put("Date", Collections.singletonList("Wed, 04 Mar 2020 14:09:07 GMT"));
+        headers.put("Link", Arrays.asList(
+                "<https://example.com/acme/directory>;rel=\"index\"",
+                "<https://example.com/acme/cert/mAt3xBGaobw/1>;rel=\"alternate\"",
+                "<https://example.com/acme/cert/mAt3xBGaobw/2>;rel=\"alternate\"",
+                "<https://example.com/docs/tos.pdf>;rel=\"terms-of-service\""));
+
+        URL url = new URL("https://example.com/acme/new-order");
+        connection = new StubConnection(new StubHttpURLConnection(url, headers));
+    }
+
+    @Benchmark
+    public String getNonce() {
+        return connection.getNonce();
+    }
+
+    @Benchmark
+    public URL getLocation() {
+        return connection.getLocation();
+    }
+
+    @Benchmark
+    public Collection<URL> getLinks() {
+        return connection.getLinks("alternate");
+    }
+
+    @Benchmark
+    public Object handleRetryAfter() throws AcmeException {
+        try {
+            connection.handleRetryAfter("retry");
+            return null;
+        } catch (AcmeRetryAfterException ex) {
+            return ex.getRetryAfter();
+        }
+    }
+
+    /**
+     * A {@link DefaultConnection} that is connected to a stub connection.
+     */
+    private static class StubConnection extends DefaultConnection {
+        StubConnection(HttpURLConnection stub) {
+            super(new HttpConnector());
+            this.conn = stub;
+        }
+    }
+
+    /**
+     * A {@link HttpURLConnection} that only returns a fixed set of response headers.
+     */
+    private static class StubHttpURLConnection extends HttpURLConnection {
+        private final Map<String, List<String>> headers;
+
+        StubHttpURLConnection(URL url, Map<String, List<String>> headers) {
+            super(url);
+            this.headers = headers;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            List<String> values = headers.get(name);
+            return values != null ? values.get(0) : null;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return headers;
+        }
+
+        @Override
+        public void connect() {
+            // not connected
+        }
+
+        @Override
+        public void disconnect() {
+            // not connected
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.signer.KeyPairSigner;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+import org.shredzone.acme4j.toolbox.JoseSigningContext;
+import org.shredzone.acme4j.toolbox.JoseUtils;
+
+/**
+ * Benchmarks the creation of signed JOSE requests, for each supported key type.
+ * <p>
+ * {@link #createJoseRequest()} measures the uncached path, {@link #signingContext()} the
+ * path that is used by a {@link org.shredzone.acme4j.Login}, and {@link #sign()} the
+ * bare signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoseBenchmark {
+
+    private static final String NONCE = "Q_s3MWoqT05TrdkM2MTDcw";
+
+    @Param({"RSA2048", "P256", "P384", "Ed25519"})
+    public KeyType keyType;
+
+    private KeyPair keyPair;
+    private KeyPairSigner signer;
+    private JoseSigningContext context;
+    private URL url;
+    private JSONBuilder payload;
+    private byte[] signingInput;
+
+    @Setup
+    public void setup() throws MalformedURLException {
+        keyPair = keyType.createKeyPair();
+        signer = new KeyPairSigner(keyPair);
+        context = new JoseSigningContext(signer, "https://example.com/acme/acct/12345");
+        url = new URL("https://example.com/acme/order/TOlocE8rfgo");
+
+        payload = new JSONBuilder();
+        payload.array("identifiers", Arrays.asList(
+                new JSONBuilder().put("type", "dns").put("value", "example.org").toMap(),
+                new JSONBuilder().put("type", "dns").put("value", "www.example.org").toMap()));
+
+        signingInput = ("eyJhbGciOiJSUzI1NiJ9."
+                + "eyJpZGVudGlmaWVycyI6W3sidHlwZSI6ImRucyIsInZhbHVlIjoiZXhhbXBsZS5vcmcifV19")
+                .getBytes(US_ASCII);
+    }
+
+    @Benchmark
+    public JSONBuilder createJoseRequest() {
+        return JoseUtils.createJoseRequest(url, keyPair, payload, NONCE, null);
+    }
+
+    @Benchmark
+    public JSONBuilder signingContext() throws AcmeException {
+        return context.createJoseRequest(url, payload, NONCE);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return signer.sign(signingInput);
+    }
+
+}
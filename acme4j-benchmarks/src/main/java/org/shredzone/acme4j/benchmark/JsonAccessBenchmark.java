@@ -0,0 +1,114 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSON.Value;
+
+/**
+ * Benchmarks the access to values of large parsed JSON documents.
+ * <p>
+ * {@code rawOrders} iterates over the underlying list directly, and is the baseline
+ * for {@code iterateOrders}. The difference of {@code gc.alloc.rate.norm} is the cost
+ * of the {@link Value} API. Compare it with a build before the JSON paths were built
+ * lazily, where each element also allocated its path string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonAccessBenchmark {
+
+    @Param({"1000"})
+    private int orderCount;
+
+    private JSON orders;
+    private JSON authorizations;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"orders\":[");
+        for (int ix = 0; ix < orderCount; ix++) {
+            if (ix > 0) {
+                sb.append(',');
+            }
+            sb.append("\"https://example.com/acme/order/").append(ix).append('"');
+        }
+        sb.append("]}");
+        orders = JSON.parse(sb.toString());
+
+        sb = new StringBuilder("{\"authorizations\":[");
+        for (int ix = 0; ix < orderCount; ix++) {
+            if (ix > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"identifier\":{\"type\":\"dns\",\"value\":\"host").append(ix)
+                    .append(".example.org\"},\"status\":\"pending\",\"challenges\":[")
+                    .append("{\"type\":\"http-01\",\"status\":\"pending\"},")
+                    .append("{\"type\":\"dns-01\",\"status\":\"pending\"}]}");
+        }
+        sb.append("]}");
+        authorizations = JSON.parse(sb.toString());
+    }
+
+    @Benchmark
+    public int rawOrders() {
+        int length = 0;
+        for (Object order : (List<?>) orders.toMap().get("orders")) {
+            length += order.toString().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int iterateOrders() {
+        int length = 0;
+        for (Value order : orders.get("orders").asArray()) {
+            length += order.asString().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int walkAuthorizations() {
+        int count = 0;
+        for (Value auth : authorizations.get("authorizations").asArray()) {
+            JSON authJson = auth.asObject();
+            count += authJson.get("identifier").asObject().get("value").asString().length();
+            for (Value challenge : authJson.get("challenges").asArray()) {
+                Map<String, Object> map = challenge.asObject().toMap();
+                count += map.size();
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+
+/**
+ * Benchmarks the parsing of ACME responses, and the serialization of ACME requests.
+ * <p>
+ * The payloads are realistic order and authorization responses, see the
+ * {@code payloads} resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private String order;
+    private String authorization;
+    private JSONBuilder orderRequest;
+
+    @Setup
+    public void setup() {
+        order = readPayload("order.json");
+        authorization = readPayload("authorization.json");
+
+        List<Map<String, Object>> identifiers = new ArrayList<>();
+        for (int ix = 0; ix < 8; ix++) {
+            identifiers.add(new JSONBuilder()
+                    .put("type", "dns")
+                    .put("value", "host" + ix + ".example.org")
+                    .toMap());
+        }
+        orderRequest = new JSONBuilder();
+        orderRequest.array("identifiers", identifiers);
+        orderRequest.put("notBefore", Instant.parse("2020-03-01T00:00:00Z"));
+        orderRequest.put("notAfter", Instant.parse("2020-05-30T00:00:00Z"));
+    }
+
+    @Benchmark
+    public JSON parseOrder() {
+        return JSON.parse(order);
+    }
+
+    @Benchmark
+    public JSON parseAuthorization() {
+        return JSON.parse(authorization);
+    }
+
+    @Benchmark
+    public String builderToString() {
+        return orderRequest.toString();
+    }
+
+    /**
+     * Reads a payload resource.
+     */
+    private static String readPayload(String name) {
+        try (InputStream in = JsonBenchmark.class.getResourceAsStream("/payloads/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, len);
+            }
+            return new String(out.toByteArray(), UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+}
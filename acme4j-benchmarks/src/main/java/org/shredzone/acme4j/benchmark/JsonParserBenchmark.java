@@ -0,0 +1,122 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jose4j.json.JsonUtil;
+import org.jose4j.lang.JoseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.toolbox.JSON;
+
+/**
+ * Compares the streaming JSON reader with the previous parser, which read the response
+ * line by line into a string and then passed it to jose4j.
+ * <p>
+ * The {@code orders} document is an account's orders list with the given number of
+ * order URLs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonParserBenchmark {
+
+    @Param({"orders", "authorization"})
+    private String document;
+
+    @Param({"1000"})
+    private int orderCount;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        if ("orders".equals(document)) {
+            StringBuilder sb = new StringBuilder("{\n  \"orders\": [\n");
+            for (int ix = 0; ix < orderCount; ix++) {
+                if (ix > 0) {
+                    sb.append(",\n");
+                }
+                sb.append("    \"https://example.com/acme/order/")
+                        .append(Integer.toHexString(0x10000000 + ix * 7919))
+                        .append("\"");
+            }
+            sb.append("\n  ]\n}\n");
+            data = sb.toString().getBytes(UTF_8);
+        } else {
+            data = readPayload(document + ".json");
+        }
+    }
+
+    @Benchmark
+    public JSON streamingFromStream() throws IOException {
+        return JSON.parse(new ByteArrayInputStream(data));
+    }
+
+    @Benchmark
+    public JSON streamingFromBytes() {
+        return JSON.parse(data, 0, data.length);
+    }
+
+    @Benchmark
+    public Map<String, Object> legacy() throws IOException, JoseException {
+        InputStream in = new ByteArrayInputStream(data);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8))) {
+            String json = reader.lines().map(String::trim).collect(joining());
+            return JsonUtil.parseJson(json);
+        }
+    }
+
+    /**
+     * Reads a payload resource.
+     */
+    private static byte[] readPayload(String name) {
+        try (InputStream in = JsonParserBenchmark.class.getResourceAsStream("/payloads/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import java.security.KeyPair;
+import java.security.Security;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.shredzone.acme4j.util.KeyPairUtils;
+
+/**
+ * Key types that are used as benchmark parameter.
+ */
+public enum KeyType {
+
+    RSA2048, P256, P384, Ed25519;
+
+    static {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    /**
+     * Creates a new random {@link KeyPair} of this type.
+     */
+    public KeyPair createKeyPair() {
+        switch (this) {
+            case RSA2048:
+                return KeyPairUtils.createKeyPair(2048);
+
+            case P256:
+                return KeyPairUtils.createECKeyPair("secp256r1");
+
+            case P384:
+                return KeyPairUtils.createECKeyPair("secp384r1");
+
+            case Ed25519:
+                return KeyPairUtils.createEdDSAKeyPair("Ed25519");
+
+            default:
+                throw new IllegalStateException("Unknown key type " + this);
+        }
+    }
+
+}
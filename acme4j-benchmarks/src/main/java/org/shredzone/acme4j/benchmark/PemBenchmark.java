@@ -0,0 +1,70 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.util.KeyPairUtils;
+
+/**
+ * Benchmarks reading and writing key pairs as PEM files, for each supported key type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PemBenchmark {
+
+    @Param({"RSA2048", "P256", "P384", "Ed25519"})
+    public KeyType keyType;
+
+    private KeyPair keyPair;
+    private String pem;
+
+    @Setup
+    public void setup() throws IOException {
+        keyPair = keyType.createKeyPair();
+        pem = writeKeyPair();
+    }
+
+    @Benchmark
+    public String writeKeyPair() throws IOException {
+        StringWriter out = new StringWriter();
+        KeyPairUtils.writeKeyPair(keyPair, out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public KeyPair readKeyPair() throws IOException {
+        return KeyPairUtils.readKeyPair(new StringReader(pem));
+    }
+
+}
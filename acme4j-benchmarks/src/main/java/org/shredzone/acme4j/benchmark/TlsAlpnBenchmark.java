@@ -0,0 +1,67 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.benchmark;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shredzone.acme4j.Identifier;
+import org.shredzone.acme4j.util.CertificateUtils;
+
+/**
+ * Benchmarks the creation of tls-alpn-01 challenge certificates.
+ * <p>
+ * {@link CertificateUtils} signs these certificates with SHA256withRSA, so only RSA
+ * keys are used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsAlpnBenchmark {
+
+    private KeyPair keyPair;
+    private Identifier identifier;
+    private byte[] acmeValidation;
+
+    @Setup
+    public void setup() {
+        keyPair = KeyType.RSA2048.createKeyPair();
+        identifier = Identifier.dns("www.example.org");
+        acmeValidation = new byte[32];
+        for (int ix = 0; ix < acmeValidation.length; ix++) {
+            acmeValidation[ix] = (byte) ix;
+        }
+    }
+
+    @Benchmark
+    public X509Certificate createTlsAlpn01Certificate() throws IOException {
+        return CertificateUtils.createTlsAlpn01Certificate(keyPair, identifier, acmeValidation);
+    }
+
+}
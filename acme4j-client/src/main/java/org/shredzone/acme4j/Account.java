@@ -18,27 +18,30 @@ import static java.util.stream.Collectors.toList;
 import java.net.URI;
 import java.net.URL;
 import java.security.KeyPair;
+import java.security.PublicKey;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.connector.Resource;
-import org.shredzone.acme4j.connector.ResourceIterator;
+import org.shredzone.acme4j.connector.PrefetchingResourceIterator;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.exception.AcmeServerException;
+import org.shredzone.acme4j.signer.JwsSigner;
+import org.shredzone.acme4j.signer.KeyPairSigner;
 import org.shredzone.acme4j.toolbox.AcmeUtils;
 import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.JSON.Value;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
-import org.shredzone.acme4j.toolbox.JoseUtils;
+import org.shredzone.acme4j.toolbox.JoseSigningContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -119,7 +122,8 @@ public class Account extends AcmeJsonResource {
     /**
      * Returns an {@link Iterator} of all {@link Order} belonging to this {@link Account}.
      * <p>
-     * Using the iterator will initiate one or more requests to the ACME server.
+     * Using the iterator will initiate one or more requests to the ACME server. While a
+     * batch of orders is consumed, the next batch is already fetched in the background.
      *
      * @return {@link Iterator} instance that returns {@link Order} objects in no specific
      *         order. {@link Iterator#hasNext()} and {@link Iterator#next()} may throw
@@ -129,7 +133,30 @@ public class Account extends AcmeJsonResource {
      */
     public Iterator<Order> getOrders() {
         URL ordersUrl = getJSON().get(KEY_ORDERS).asURL();
-        return new ResourceIterator<>(getLogin(), KEY_ORDERS, ordersUrl, Login::bindOrder);
+        return new PrefetchingResourceIterator<>(getLogin(), KEY_ORDERS, ordersUrl, Login::bindOrder);
+    }
+
+    /**
+     * Returns a {@link Stream} of all {@link Order} belonging to this {@link Account}.
+     * <p>
+     * The current state of each {@link Order} is fetched in the background, so accessing
+     * it does not initiate another request to the ACME server. While a batch of orders
+     * is consumed, the next batch is already fetched. The requests are run by the
+     * {@link Session#getExecutor()}.
+     *
+     * @param parallelism
+     *            Maximum number of orders that are fetched concurrently, must be
+     *            positive
+     * @return {@link Stream} of {@link Order} objects in no specific order. It may throw
+     *         {@link AcmeProtocolException} if a batch of order URIs could not be
+     *         fetched from the server. If the state of an {@link Order} could not be
+     *         fetched, it is fetched again when it is accessed.
+     * @since 2.9
+     */
+    public Stream<Order> streamOrders(int parallelism) {
+        URL ordersUrl = getJSON().get(KEY_ORDERS).asURL();
+        return new PrefetchingResourceIterator<>(getLogin(), KEY_ORDERS, ordersUrl,
+                Login::bindOrder, Order::update, parallelism).stream();
     }
 
     /**
@@ -219,9 +246,24 @@ public class Account extends AcmeJsonResource {
      */
     public void changeKey(KeyPair newKeyPair) throws AcmeException {
         Objects.requireNonNull(newKeyPair, "newKeyPair");
-        if (Arrays.equals(getLogin().getKeyPair().getPrivate().getEncoded(),
-                        newKeyPair.getPrivate().getEncoded())) {
-            throw new IllegalArgumentException("newKeyPair must actually be a new key pair");
+        changeKey(new KeyPairSigner(newKeyPair));
+    }
+
+    /**
+     * Changes the account key to the key of the given {@link JwsSigner}.
+     * <p>
+     * After a successful call, the new signer is used in the bound {@link Session}, and
+     * the old key can be disposed of.
+     *
+     * @param newSigner
+     *            new {@link JwsSigner} to be used for identifying this account
+     * @since 2.9
+     */
+    public void changeKey(JwsSigner newSigner) throws AcmeException {
+        Objects.requireNonNull(newSigner, "newSigner");
+        PublicKey oldKey = getLogin().getSigner().getPublicKey();
+        if (oldKey.equals(newSigner.getPublicKey())) {
+            throw new IllegalArgumentException("newSigner must actually use a new key");
         }
 
         LOG.debug("key-change");
@@ -231,14 +273,14 @@ public class Account extends AcmeJsonResource {
 
             JSONBuilder payloadClaim = new JSONBuilder();
             payloadClaim.put("account", getLocation());
-            payloadClaim.putKey("oldKey", getLogin().getKeyPair().getPublic());
+            payloadClaim.putKey("oldKey", oldKey);
 
-            JSONBuilder jose = JoseUtils.createJoseRequest(keyChangeUrl, newKeyPair,
-                    payloadClaim, null, null);
+            JSONBuilder jose = new JoseSigningContext(newSigner, null)
+                    .createJoseRequest(keyChangeUrl, payloadClaim, null);
 
             conn.sendSignedRequest(keyChangeUrl, jose, getLogin());
 
-            getLogin().setKeyPair(newKeyPair);
+            getLogin().setSigner(newSigner);
         }
     }
 
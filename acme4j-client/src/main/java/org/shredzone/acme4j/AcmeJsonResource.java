@@ -15,6 +15,9 @@ package org.shredzone.acme4j;
 
 import java.net.URL;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
@@ -35,6 +38,7 @@ public abstract class AcmeJsonResource extends AcmeResource {
     private static final Logger LOG = LoggerFactory.getLogger(AcmeJsonResource.class);
 
     private JSON data = null;
+    private transient volatile Snapshot snapshot = null;
 
     /**
      * Create a new {@link AcmeJsonResource}.
@@ -79,6 +83,36 @@ public abstract class AcmeJsonResource extends AcmeResource {
      */
     protected void setJSON(JSON data) {
         this.data = Objects.requireNonNull(data, "data");
+        this.snapshot = null;
+    }
+
+    /**
+     * Returns the resource data, decoded into a typed snapshot.
+     * <p>
+     * The decoder is invoked only once for each JSON representation of the resource
+     * data. As long as the data is not changed, the same snapshot instance is returned.
+     * If there is no data, {@link #update()} is invoked to fetch it from the server.
+     *
+     * @param type
+     *            Snapshot type
+     * @param decoder
+     *            Decodes this resource's {@link JSON} data into a new snapshot. It is
+     *            invoked with this resource instance, so a constructor reference like
+     *            {@code OrderSnapshot::new} can be used without allocating a lambda on
+     *            each call.
+     * @return Snapshot of the current resource data
+     * @since 2.9
+     */
+    @SuppressWarnings("unchecked")
+    protected <R extends AcmeJsonResource, T> T getSnapshot(Class<T> type,
+                BiFunction<R, JSON, ? extends T> decoder) {
+        JSON json = getJSON();
+        Snapshot current = snapshot;
+        if (current == null || current.json != json || !type.isInstance(current.value)) {
+            current = new Snapshot(json, decoder.apply((R) this, json));
+            snapshot = current;
+        }
+        return type.cast(current.value);
     }
 
     /**
@@ -98,6 +132,7 @@ public abstract class AcmeJsonResource extends AcmeResource {
      */
     protected void invalidate() {
         data = null;
+        snapshot = null;
     }
 
     /**
@@ -122,4 +157,49 @@ public abstract class AcmeJsonResource extends AcmeResource {
         }
     }
 
+    /**
+     * Updates this resource asynchronously. This is the non-blocking variant of
+     * {@link #update()}.
+     *
+     * @return {@link CompletableFuture} that completes when the resource has been
+     *         updated. It completes exceptionally with an {@link AcmeException} if the
+     *         resource could not be fetched, or with an {@link AcmeRetryAfterException}
+     *         if the resource is still being processed. Note that the status of the
+     *         resource is updated even in the latter case.
+     * @since 2.9
+     */
+    public CompletableFuture<Void> updateAsync() {
+        return updateAsync(getSession().getExecutor());
+    }
+
+    /**
+     * Updates this resource asynchronously, using the given {@link Executor}. See
+     * {@link #updateAsync()} for details.
+     *
+     * @param executor
+     *            {@link Executor} that sends the request
+     * @return {@link CompletableFuture} that completes when the resource has been
+     *         updated
+     * @since 2.9
+     */
+    public CompletableFuture<Void> updateAsync(Executor executor) {
+        return invokeAsync(() -> {
+            update();
+            return null;
+        }, executor);
+    }
+
+    /**
+     * A decoded snapshot, and the {@link JSON} it was decoded from.
+     */
+    private static final class Snapshot {
+        private final JSON json;
+        private final Object value;
+
+        private Snapshot(JSON json, Object value) {
+            this.json = json;
+            this.value = value;
+        }
+    }
+
 }
@@ -16,9 +16,14 @@ package org.shredzone.acme4j;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
+import org.shredzone.acme4j.toolbox.AcmeUtils;
+
 /**
  * A generic ACME resource.
  */
@@ -83,4 +88,39 @@ public abstract class AcmeResource implements Serializable {
         return location;
     }
 
+    /**
+     * Invokes a blocking operation asynchronously, using the {@link Session#getExecutor()}
+     * of the bound {@link Session}.
+     *
+     * @param operation
+     *            Operation to invoke
+     * @return {@link CompletableFuture} that completes with the result of the operation.
+     *         If the operation failed, it completes exceptionally with the thrown
+     *         exception.
+     * @since 2.9
+     */
+    protected <T> CompletableFuture<T> invokeAsync(Callable<T> operation) {
+        return invokeAsync(operation, getSession().getExecutor());
+    }
+
+    /**
+     * Invokes a blocking operation asynchronously, using the given {@link Executor}.
+     * <p>
+     * The operation occupies a thread of the executor while it waits for the server.
+     * The number of operations in flight is therefore limited by the number of threads
+     * of the executor. Further operations are queued until a thread is available.
+     *
+     * @param operation
+     *            Operation to invoke
+     * @param executor
+     *            {@link Executor} that invokes the operation
+     * @return {@link CompletableFuture} that completes with the result of the operation.
+     *         If the operation failed, it completes exceptionally with the thrown
+     *         exception.
+     * @since 2.9
+     */
+    protected <T> CompletableFuture<T> invokeAsync(Callable<T> operation, Executor executor) {
+        return AcmeUtils.invokeAsync(operation, executor);
+    }
+
 }
@@ -13,22 +13,20 @@
  */
 package org.shredzone.acme4j;
 
-import static java.util.stream.Collectors.toList;
-
 import java.net.URL;
 import java.time.Instant;
-import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.connector.AuthorizationCache;
+import org.shredzone.acme4j.connector.CachedAuthorization;
 import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
-import org.shredzone.acme4j.toolbox.AcmeUtils;
-import org.shredzone.acme4j.toolbox.JSON.Value;
+import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +43,19 @@ public class Authorization extends AcmeJsonResource {
         super(login, location);
     }
 
+    /**
+     * Returns an immutable snapshot of the current authorization state.
+     * <p>
+     * The authorization data is decoded only once, and the same snapshot is returned
+     * until the authorization is updated. All getters of this class are served from the
+     * snapshot.
+     *
+     * @since 2.9
+     */
+    public AuthorizationSnapshot getSnapshot() {
+        return getSnapshot(AuthorizationSnapshot.class, AuthorizationSnapshot::new);
+    }
+
     /**
      * Gets the {@link Identifier} to be authorized.
      * <p>
@@ -55,7 +66,7 @@ public class Authorization extends AcmeJsonResource {
      * @since 2.3
      */
     public Identifier getIdentifier() {
-        return getJSON().get("identifier").asIdentifier();
+        return getSnapshot().getIdentifier();
     }
 
     /**
@@ -66,7 +77,7 @@ public class Authorization extends AcmeJsonResource {
      * {@link Status#REVOKED}.
      */
     public Status getStatus() {
-        return getJSON().get("status").asStatus();
+        return getSnapshot().getStatus();
     }
 
     /**
@@ -74,10 +85,7 @@ public class Authorization extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getExpires() {
-        return getJSON().get("expires")
-                    .map(Value::asString)
-                    .map(AcmeUtils::parseTimestamp)
-                    .orElse(null);
+        return getSnapshot().getExpires();
     }
 
     /**
@@ -85,23 +93,14 @@ public class Authorization extends AcmeJsonResource {
      * {@code false} otherwise.
      */
     public boolean isWildcard() {
-        return getJSON().get("wildcard")
-                    .map(Value::asBoolean)
-                    .orElse(false);
+        return getSnapshot().isWildcard();
     }
 
     /**
      * Gets a list of all challenges offered by the server, in no specific order.
      */
     public List<Challenge> getChallenges() {
-        Login login = getLogin();
-
-        return Collections.unmodifiableList(getJSON().get("challenges")
-                    .asArray()
-                    .stream()
-                    .map(Value::asObject)
-                    .map(login::createChallenge)
-                    .collect(toList()));
+        return getSnapshot().getChallenges();
     }
 
     /**
@@ -120,10 +119,7 @@ public class Authorization extends AcmeJsonResource {
      */
     @CheckForNull
     public <T extends Challenge> T findChallenge(final String type) {
-        return (T) getChallenges().stream()
-                .filter(ch -> type.equals(ch.getType()))
-                .reduce((a, b) -> {throw new AcmeProtocolException("Found more than one challenge of type " + type);})
-                .orElse(null);
+        return (T) getSnapshot().findChallenge(type);
     }
 
     /**
@@ -138,11 +134,7 @@ public class Authorization extends AcmeJsonResource {
      */
     @CheckForNull
     public <T extends Challenge> T findChallenge(Class<T> type) {
-        return getChallenges().stream()
-                .filter(type::isInstance)
-                .map(type::cast)
-                .reduce((a, b) -> {throw new AcmeProtocolException("Found more than one challenge of type " + type.getName());})
-                .orElse(null);
+        return getSnapshot().findChallenge(type);
     }
 
     /**
@@ -159,4 +151,51 @@ public class Authorization extends AcmeJsonResource {
         }
     }
 
+    /**
+     * Sets the JSON representation of the authorization, and keeps the
+     * {@link AuthorizationCache} of the session up to date.
+     */
+    @Override
+    protected void setJSON(JSON data) {
+        super.setJSON(data);
+        try {
+            updateCache();
+        } catch (AcmeProtocolException ex) {
+            LOG.debug("Authorization {} cannot be cached", getLocation(), ex);
+        }
+    }
+
+    /**
+     * Stores this authorization in the {@link AuthorizationCache} if it is valid. If it
+     * is not valid, but was cached before, it is removed from the cache.
+     *
+     * @throws AcmeProtocolException
+     *             if a field that is required for caching could not be decoded
+     */
+    private void updateCache() {
+        AuthorizationSnapshot snapshot = getSnapshot();
+        Identifier identifier = snapshot.getIdentifier();
+        Status status = snapshot.getStatus();
+
+        if (snapshot.isWildcard()) {
+            identifier = new Identifier(identifier.getType(), "*." + identifier.getValue());
+        }
+
+        AuthorizationCache cache = getSession().getAuthorizationCache();
+        URL account = getLogin().getAccountLocation();
+
+        if (status == Status.VALID) {
+            Instant expires = snapshot.getExpires();
+            if (expires != null) {
+                cache.put(account, new CachedAuthorization(identifier, getLocation(), expires));
+            }
+        } else if (status != Status.PENDING) {
+            CachedAuthorization cached = cache.get(account, identifier);
+            if (cached != null && cached.isLocatedAt(getLocation())) {
+                LOG.debug("Authorization of {} is {}, removing it from cache", identifier, status);
+                cache.remove(account, identifier);
+            }
+        }
+    }
+
 }
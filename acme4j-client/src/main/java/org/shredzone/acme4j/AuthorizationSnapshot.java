@@ -0,0 +1,169 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+import static org.shredzone.acme4j.toolbox.DecodedValue.decode;
+
+import java.time.Instant;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.toolbox.DecodedValue;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSON.Value;
+
+/**
+ * A snapshot of the state of an {@link Authorization}.
+ * <p>
+ * The authorization's JSON data is decoded only once, when the snapshot is created. The
+ * {@link Challenge} instances are also created only once, so all getters and finders
+ * return the same instances. If a field cannot be decoded, only its getter throws an
+ * {@link AcmeProtocolException}.
+ * <p>
+ * Only the snapshot itself is immutable. The {@link Challenge} instances it returns are
+ * the usual, mutable resources, which are shared with everyone else who is using the
+ * snapshot.
+ *
+ * @see Authorization#getSnapshot()
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public final class AuthorizationSnapshot {
+
+    private final DecodedValue<Identifier> identifier;
+    private final DecodedValue<Status> status;
+    private final DecodedValue<Instant> expires;
+    private final DecodedValue<Boolean> wildcard;
+    private final DecodedValue<List<Challenge>> challenges;
+
+    /**
+     * Decodes the authorization's JSON data.
+     *
+     * @param auth
+     *            {@link Authorization} the data belongs to
+     * @param json
+     *            {@link JSON} data of the authorization
+     */
+    AuthorizationSnapshot(Authorization auth, JSON json) {
+        Login login = auth.getLogin();
+
+        identifier = decode("identifier",
+                    () -> json.get("identifier").map(Value::asIdentifier).orElse(null));
+        status = decode("status",
+                    () -> json.get("status").map(Value::asStatus).orElse(null));
+        expires = decode("expires",
+                    () -> json.get("expires").map(Value::asInstant).orElse(null));
+        wildcard = decode("wildcard",
+                    () -> json.get("wildcard").map(Value::asBoolean).orElse(false));
+        challenges = decode("challenges", () -> unmodifiableList(json.get("challenges")
+                    .asArray()
+                    .stream()
+                    .map(Value::asObject)
+                    .map(login::createChallenge)
+                    .collect(toList())));
+    }
+
+    /**
+     * Gets the {@link Identifier} to be authorized.
+     */
+    public Identifier getIdentifier() {
+        return identifier.getRequired();
+    }
+
+    /**
+     * Gets the authorization status.
+     */
+    public Status getStatus() {
+        return status.getRequired();
+    }
+
+    /**
+     * Gets the expiry date of the authorization, if set by the server.
+     */
+    @CheckForNull
+    public Instant getExpires() {
+        return expires.get();
+    }
+
+    /**
+     * Returns {@code true} if the authorization is related to a wildcard domain.
+     */
+    public boolean isWildcard() {
+        return wildcard.getRequired();
+    }
+
+    /**
+     * Gets a list of all challenges offered by the server, in no specific order.
+     */
+    public List<Challenge> getChallenges() {
+        return challenges.get();
+    }
+
+    /**
+     * Finds a {@link Challenge} of the given type name.
+     *
+     * @param type
+     *            Challenge name (e.g. "http-01")
+     * @return {@link Challenge} matching that name, or {@code null} if there is no such
+     *         challenge
+     * @throws AcmeProtocolException
+     *             if there is more than one challenge of that type
+     */
+    @CheckForNull
+    public Challenge findChallenge(String type) {
+        Challenge result = null;
+        for (Challenge challenge : getChallenges()) {
+            if (type.equals(challenge.getType())) {
+                if (result != null) {
+                    throw new AcmeProtocolException("Found more than one challenge of type " + type);
+                }
+                result = challenge;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds a {@link Challenge} of the given class type.
+     *
+     * @param type
+     *            Challenge type (e.g. "Http01Challenge.class")
+     * @return {@link Challenge} of that type, or {@code null} if there is no such
+     *         challenge
+     * @throws AcmeProtocolException
+     *             if there is more than one challenge of that type
+     */
+    @CheckForNull
+    public <T extends Challenge> T findChallenge(Class<T> type) {
+        T result = null;
+        for (Challenge challenge : getChallenges()) {
+            if (type.isInstance(challenge)) {
+                if (result != null) {
+                    throw new AcmeProtocolException("Found more than one challenge of type " + type.getName());
+                }
+                result = type.cast(challenge);
+            }
+        }
+        return result;
+    }
+
+}
@@ -24,6 +24,8 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -34,6 +36,8 @@ import org.shredzone.acme4j.connector.Resource;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeLazyLoadingException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.jfr.CertificateDownloadEvent;
+import org.shredzone.acme4j.jfr.JfrSupport;
 import org.shredzone.acme4j.toolbox.AcmeUtils;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
 import org.slf4j.Logger;
@@ -70,14 +74,54 @@ public class Certificate extends AcmeResource {
     public void download() throws AcmeException {
         if (certChain == null) {
             LOG.debug("download");
+            CertificateDownloadEvent event =
+                    JfrSupport.isAvailable() ? new CertificateDownloadEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+
             try (Connection conn = getSession().connect()) {
                 conn.sendCertificateRequest(getLocation(), getLogin());
                 alternates = new ArrayList<>(conn.getLinks("alternate"));
                 certChain = new ArrayList<>(conn.readCertificates());
             }
+
+            if (event != null && event.shouldCommit()) {
+                event.commit(getLocation(), certChain.size());
+            }
         }
     }
 
+    /**
+     * Downloads the certificate chain asynchronously. This is the non-blocking variant
+     * of {@link #download()}.
+     *
+     * @return {@link CompletableFuture} that completes with the downloaded certificate
+     *         chain, or completes exceptionally with an {@link AcmeException} if the
+     *         certificate could not be downloaded.
+     * @since 2.9
+     */
+    public CompletableFuture<List<X509Certificate>> downloadAsync() {
+        return downloadAsync(getSession().getExecutor());
+    }
+
+    /**
+     * Downloads the certificate chain asynchronously, using the given {@link Executor}.
+     * See {@link #downloadAsync()} for details.
+     *
+     * @param executor
+     *            {@link Executor} that sends the request
+     * @return {@link CompletableFuture} that completes with the downloaded certificate
+     *         chain
+     * @since 2.9
+     */
+    public CompletableFuture<List<X509Certificate>> downloadAsync(Executor executor) {
+        return invokeAsync(() -> {
+            download();
+            return getCertificateChain();
+        }, executor);
+    }
+
     /**
      * Returns the created certificate.
      *
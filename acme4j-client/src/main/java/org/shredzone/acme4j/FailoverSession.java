@@ -0,0 +1,238 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URI;
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.connector.CircuitBreaker;
+import org.shredzone.acme4j.exception.AcmeCircuitOpenException;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeHttpException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
+import org.shredzone.acme4j.exception.AcmeServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distributes new orders over the accounts at several ACME servers, for example
+ * <em>Let's Encrypt</em> as primary CA and another CA as secondary.
+ * <p>
+ * New orders are sent to the first CA that is available, that is, the
+ * {@link CircuitBreaker} of its {@link Session} is not open. If the CA fails with a
+ * network error, a {@code serverInternal} problem, or an HTTP 500, 502, 503 or 504
+ * response, the order is sent to the next available CA.
+ * <p>
+ * Existing orders, authorizations and certificates are pinned to the CA they were
+ * created at. Use {@link #getLogin(URL)} to find the {@link Login} of a resource.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class FailoverSession {
+    private static final Logger LOG = LoggerFactory.getLogger(FailoverSession.class);
+
+    private static final URI SERVER_INTERNAL_ERROR = URI.create("urn:ietf:params:acme:error:serverInternal");
+
+    private final List<Login> logins;
+
+    /**
+     * An operation that is executed with the {@link Login} of a CA.
+     *
+     * @param <T>
+     *            Result type
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+
+        /**
+         * Executes the operation.
+         *
+         * @param login
+         *            {@link Login} of the CA to be used
+         * @return Result of the operation
+         */
+        T execute(Login login) throws AcmeException;
+
+    }
+
+    /**
+     * Creates a new {@link FailoverSession}.
+     *
+     * @param primary
+     *            {@link Login} at the primary CA
+     * @param secondaries
+     *            {@link Login} at the secondary CAs, in the order of preference
+     */
+    public FailoverSession(Login primary, Login... secondaries) {
+        List<Login> list = new ArrayList<>();
+        list.add(requireNonNull(primary, "primary"));
+        list.addAll(Arrays.asList(secondaries));
+        this.logins = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns all {@link Login}s, in the order of preference.
+     */
+    public List<Login> getLogins() {
+        return logins;
+    }
+
+    /**
+     * Returns the {@link Login} of the first CA that is available.
+     *
+     * @return {@link Login}
+     * @throws AcmeCircuitOpenException
+     *             if none of the CAs is available
+     */
+    public Login getLogin() throws AcmeCircuitOpenException {
+        return logins.stream()
+                .filter(FailoverSession::isAvailable)
+                .findFirst()
+                .orElseThrow(this::unavailable);
+    }
+
+    /**
+     * Returns the {@link Login} of the CA that a resource belongs to. The CA is
+     * identified by the scheme, host and port of the resource's location.
+     *
+     * @param location
+     *            Location {@link URL} of an order, authorization, challenge or
+     *            certificate
+     * @return {@link Login} of the CA that created the resource
+     * @throws IllegalArgumentException
+     *             if none of the CAs is responsible for the resource
+     */
+    public Login getLogin(URL location) {
+        for (Login login : logins) {
+            URL account = login.getAccountLocation();
+            if (account.getProtocol().equals(location.getProtocol())
+                    && account.getAuthority().equalsIgnoreCase(location.getAuthority())) {
+                return login;
+            }
+        }
+        throw new IllegalArgumentException("No CA found for " + location);
+    }
+
+    /**
+     * Binds an existing {@link Order} to the {@link Login} of its CA.
+     *
+     * @param location
+     *            Location {@link URL} of the order
+     * @return {@link Order} bound to the CA that created it
+     */
+    public Order bindOrder(URL location) {
+        return getLogin(location).bindOrder(location);
+    }
+
+    /**
+     * Executes an operation with the {@link Login} of the first CA that is available.
+     * If the operation fails because the CA is unavailable, it is repeated with the next
+     * available CA.
+     * <p>
+     * Note that the operation might have been processed by a CA even if it failed, e.g.
+     * if the connection broke before the response was received. Only pass operations
+     * that do no harm if they are executed at more than one CA, like creating a new
+     * order.
+     *
+     * @param operation
+     *            {@link Operation} to execute
+     * @return Result of the operation
+     * @throws AcmeException
+     *             if the operation failed at all CAs, or failed for a reason that is not
+     *             caused by the CA being unavailable. If it failed at several CAs, the
+     *             exceptions of the other CAs are added as suppressed exceptions.
+     */
+    public <T> T execute(Operation<T> operation) throws AcmeException {
+        AcmeException failure = null;
+        for (Login login : logins) {
+            if (!isAvailable(login)) {
+                continue;
+            }
+
+            try {
+                return operation.execute(login);
+            } catch (AcmeException ex) {
+                if (!isUnavailable(ex)) {
+                    throw ex;
+                }
+
+                LOG.warn("CA {} is unavailable, trying next CA", login.getSession().getServerUri(), ex);
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        throw unavailable();
+    }
+
+    /**
+     * Checks if an {@link AcmeException} shows that the CA is unavailable, so the
+     * operation is to be repeated with the next CA.
+     *
+     * @param ex
+     *            {@link AcmeException} to check
+     * @return {@code true} if the CA is unavailable
+     */
+    protected boolean isUnavailable(AcmeException ex) {
+        if (ex instanceof AcmeNetworkException || ex instanceof AcmeCircuitOpenException) {
+            return true;
+        }
+
+        if (ex instanceof AcmeHttpException) {
+            return ((AcmeHttpException) ex).isServerUnavailable();
+        }
+
+        return ex instanceof AcmeServerException
+                && SERVER_INTERNAL_ERROR.equals(((AcmeServerException) ex).getType());
+    }
+
+    /**
+     * Checks if the CA of the {@link Login} is available.
+     */
+    private static boolean isAvailable(Login login) {
+        return login.getSession().getCircuitBreaker().isAvailable();
+    }
+
+    /**
+     * Creates an {@link AcmeCircuitOpenException} for the case that no CA is available.
+     */
+    private AcmeCircuitOpenException unavailable() {
+        Instant retryAfter = logins.stream()
+                .map(login -> login.getSession().getCircuitBreaker().getOpenUntil())
+                .filter(Objects::nonNull)
+                .min(Instant::compareTo)
+                .orElseGet(Instant::now);
+        return new AcmeCircuitOpenException("None of the CAs is available", retryAfter);
+    }
+
+}
@@ -27,12 +27,15 @@ import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeLazyLoadingException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.signer.JwsSigner;
+import org.shredzone.acme4j.signer.KeyPairSigner;
 import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JoseSigningContext;
 
 /**
  * A {@link Login} is a {@link Session} that is connected to an {@link Account} at the
- * ACME server. It contains the account's {@link KeyPair} and the {@link URL} of the
- * account.
+ * ACME server. It contains the account's {@link JwsSigner} (usually a {@link KeyPair})
+ * and the {@link URL} of the account.
  * <p>
  * Note that {@link Login} objects are not serializable, as they contain a keypair and
  * volatile data.
@@ -44,7 +47,8 @@ public class Login {
     private final Session session;
     private final URL accountLocation;
     private final Account account;
-    private KeyPair keyPair;
+    private volatile JwsSigner signer;
+    private volatile JoseSigningContext signingContext;
 
     /**
      * Creates a new {@link Login}.
@@ -57,8 +61,24 @@ public class Login {
      *            {@link Session} to be used
      */
     public Login(URL accountLocation, KeyPair keyPair, Session session) {
+        this(accountLocation, new KeyPairSigner(Objects.requireNonNull(keyPair, "keyPair")),
+                session);
+    }
+
+    /**
+     * Creates a new {@link Login} that signs its requests with a {@link JwsSigner}.
+     *
+     * @param accountLocation
+     *            Account location {@link URL}
+     * @param signer
+     *            {@link JwsSigner} of the account
+     * @param session
+     *            {@link Session} to be used
+     * @since 2.9
+     */
+    public Login(URL accountLocation, JwsSigner signer, Session session) {
         this.accountLocation = Objects.requireNonNull(accountLocation, "accountLocation");
-        this.keyPair = Objects.requireNonNull(keyPair, "keyPair");
+        this.signer = Objects.requireNonNull(signer, "signer");
         this.session = Objects.requireNonNull(session, "session");
         this.account = new Account(this);
     }
@@ -72,9 +92,42 @@ public class Login {
 
     /**
      * Gets the {@link KeyPair} of the ACME account.
+     *
+     * @throws IllegalStateException
+     *             if the login uses a {@link JwsSigner} that does not expose its key pair
      */
     public KeyPair getKeyPair() {
-        return keyPair;
+        JwsSigner currentSigner = signer;
+        if (!(currentSigner instanceof KeyPairSigner)) {
+            throw new IllegalStateException("Login does not use a KeyPairSigner");
+        }
+        return ((KeyPairSigner) currentSigner).getKeyPair();
+    }
+
+    /**
+     * Gets the {@link JwsSigner} that signs the requests of the ACME account.
+     *
+     * @since 2.9
+     */
+    public JwsSigner getSigner() {
+        return signer;
+    }
+
+    /**
+     * Gets the {@link JoseSigningContext} that signs the requests of this login with the
+     * account's {@link JwsSigner}. It is created on first use, and then reused until the
+     * signer is changed.
+     *
+     * @since 2.9
+     */
+    public JoseSigningContext getSigningContext() {
+        JwsSigner currentSigner = signer;
+        JoseSigningContext context = signingContext;
+        if (context == null || context.getSigner() != currentSigner) {
+            context = new JoseSigningContext(currentSigner, accountLocation.toString());
+            signingContext = context;
+        }
+        return context;
     }
 
     /**
@@ -163,7 +216,17 @@ public class Login {
      * Sets a different {@link KeyPair}.
      */
     protected void setKeyPair(KeyPair keyPair) {
-        this.keyPair = Objects.requireNonNull(keyPair, "keyPair");
+        setSigner(new KeyPairSigner(Objects.requireNonNull(keyPair, "keyPair")));
+    }
+
+    /**
+     * Sets a different {@link JwsSigner}.
+     *
+     * @since 2.9
+     */
+    protected void setSigner(JwsSigner signer) {
+        this.signer = Objects.requireNonNull(signer, "signer");
+        this.signingContext = null;
     }
 
 }
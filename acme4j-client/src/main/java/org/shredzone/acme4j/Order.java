@@ -18,15 +18,26 @@ import static java.util.stream.Collectors.toList;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.ParametersAreNonnullByDefault;
 
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.connector.AuthorizationCache;
+import org.shredzone.acme4j.connector.CachedAuthorization;
 import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.exception.AcmeException;
-import org.shredzone.acme4j.toolbox.JSON.Value;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +54,18 @@ public class Order extends AcmeJsonResource {
         super(login, location);
     }
 
+    /**
+     * Returns an immutable snapshot of the current order state.
+     * <p>
+     * The order data is decoded only once, and the same snapshot is returned until the
+     * order is updated. All getters of this class are served from the snapshot.
+     *
+     * @since 2.9
+     */
+    public OrderSnapshot getSnapshot() {
+        return getSnapshot(OrderSnapshot.class, OrderSnapshot::new);
+    }
+
     /**
      * Returns the current status of the order.
      * <p>
@@ -50,7 +73,7 @@ public class Order extends AcmeJsonResource {
      * {@link Status#PROCESSING}, {@link Status#VALID}, {@link Status#INVALID}.
      */
     public Status getStatus() {
-        return getJSON().get("status").asStatus();
+        return getSnapshot().getStatus();
     }
 
     /**
@@ -58,7 +81,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Problem getError() {
-        return getJSON().get("error").map(v -> v.asProblem(getLocation())).orElse(null);
+        return getSnapshot().getError();
     }
 
     /**
@@ -66,7 +89,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getExpires() {
-        return getJSON().get("expires").map(Value::asInstant).orElse(null);
+        return getSnapshot().getExpires();
     }
 
     /**
@@ -75,11 +98,7 @@ public class Order extends AcmeJsonResource {
      * @since 2.3
      */
     public List<Identifier> getIdentifiers() {
-        return Collections.unmodifiableList(getJSON().get("identifiers")
-                    .asArray()
-                    .stream()
-                    .map(Value::asIdentifier)
-                    .collect(toList()));
+        return getSnapshot().getIdentifiers();
     }
 
     /**
@@ -87,7 +106,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getNotBefore() {
-        return getJSON().get("notBefore").map(Value::asInstant).orElse(null);
+        return getSnapshot().getNotBefore();
     }
 
     /**
@@ -95,20 +114,119 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getNotAfter() {
-        return getJSON().get("notAfter").map(Value::asInstant).orElse(null);
+        return getSnapshot().getNotAfter();
     }
 
     /**
      * Gets the {@link Authorization} required for this order, in no specific order.
      */
     public List<Authorization> getAuthorizations() {
-        Login login = getLogin();
-        return Collections.unmodifiableList(getJSON().get("authorizations")
-                    .asArray()
-                    .stream()
-                    .map(Value::asURL)
-                    .map(login::bindAuthorization)
-                    .collect(toList()));
+        return getSnapshot().getAuthorizations();
+    }
+
+    /**
+     * Returns the {@link Identifier} of this order that are already authorized. They are
+     * looked up in the {@link AuthorizationCache} of the session, so the authorizations
+     * are not fetched from the server.
+     * <p>
+     * An identifier is only regarded as authorized if the CA has reused the cached
+     * valid authorization for this order.
+     *
+     * @return List of the authorized {@link Identifier}
+     * @since 2.9
+     */
+    public List<Identifier> getAuthorizedIdentifiers() {
+        return Collections.unmodifiableList(findCachedAuthorizations().stream()
+                .map(CachedAuthorization::getIdentifier)
+                .collect(toList()));
+    }
+
+    /**
+     * Returns the {@link Authorization} of this order that may need to be validated.
+     * These are all authorizations except the ones that are known to be valid by the
+     * {@link AuthorizationCache} of the session.
+     * <p>
+     * The authorizations are not fetched from the server. Their state still needs to be
+     * checked before a challenge is prepared.
+     *
+     * @return List of the {@link Authorization} that may need to be validated
+     * @since 2.9
+     */
+    public List<Authorization> getAuthorizationsToValidate() {
+        List<CachedAuthorization> valid = findCachedAuthorizations();
+        return Collections.unmodifiableList(getAuthorizations().stream()
+                .filter(auth -> valid.stream().noneMatch(cached -> cached.isLocatedAt(auth.getLocation())))
+                .collect(toList()));
+    }
+
+    /**
+     * Fetches the current state of all {@link Authorization} of this order, so they
+     * can be used without further requests to the server. The authorizations are
+     * fetched concurrently by the invoking thread and the {@link Session#getExecutor()}.
+     * This method returns when all authorizations have been fetched. It may also be
+     * invoked by a thread of the executor.
+     *
+     * @param parallelism
+     *            Maximum number of authorizations that are fetched concurrently, must
+     *            be positive
+     * @return List of the fetched {@link Authorization}, same as
+     *         {@link #getAuthorizations()}
+     * @throws AcmeException
+     *             if an authorization could not be fetched. If several authorizations
+     *             failed, the other exceptions are added as suppressed exceptions.
+     * @since 2.9
+     */
+    public List<Authorization> fetchAuthorizations(int parallelism) throws AcmeException {
+        List<Authorization> authorizations = getAuthorizations();
+        forEachConcurrently(authorizations, parallelism, Order::fetch);
+        return authorizations;
+    }
+
+    /**
+     * Fetches all {@link Authorization} of this order, and triggers a {@link Challenge}
+     * of each pending authorization. The requests are sent concurrently by the invoking
+     * thread and the {@link Session#getExecutor()}. This method returns when all
+     * challenges have been triggered. It may also be invoked by a thread of the executor.
+     * <p>
+     * Authorizations that are known to be valid by the {@link AuthorizationCache} of the
+     * session are skipped, see {@link #getAuthorizationsToValidate()}.
+     * <p>
+     * The selector is invoked for each pending authorization, one after another and
+     * before any challenge is triggered. It returns the {@link Challenge} to be
+     * triggered, after the response to the challenge has been prepared (e.g. the token
+     * has been deployed on the web server). If it returns {@code null}, no challenge is
+     * triggered for that authorization.
+     *
+     * @param parallelism
+     *            Maximum number of requests that are sent concurrently, must be positive
+     * @param selector
+     *            Selects the {@link Challenge} of an {@link Authorization}
+     * @return List of the triggered {@link Challenge}
+     * @throws AcmeException
+     *             if an authorization could not be fetched, or a challenge could not be
+     *             triggered. If several requests failed, the other exceptions are added
+     *             as suppressed exceptions.
+     * @since 2.9
+     */
+    public List<Challenge> triggerChallenges(int parallelism,
+                Function<Authorization, ? extends Challenge> selector) throws AcmeException {
+        List<Authorization> authorizations = getAuthorizationsToValidate();
+        forEachConcurrently(authorizations, parallelism, Order::fetch);
+
+        List<Challenge> challenges = new ArrayList<>();
+        for (Authorization auth : authorizations) {
+            if (auth.getStatus() != Status.PENDING) {
+                continue;
+            }
+
+            Challenge challenge = selector.apply(auth);
+            if (challenge != null && challenge.getStatus() == Status.PENDING) {
+                challenges.add(challenge);
+            }
+        }
+
+        forEachConcurrently(challenges, parallelism, Challenge::trigger);
+        return Collections.unmodifiableList(challenges);
     }
 
     /**
@@ -117,7 +235,7 @@ public class Order extends AcmeJsonResource {
      * For internal purposes. Use {@link #execute(byte[])} to finalize an order.
      */
     public URL getFinalizeLocation() {
-        return getJSON().get("finalize").asURL();
+        return getSnapshot().getFinalizeLocation();
     }
 
     /**
@@ -125,10 +243,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Certificate getCertificate() {
-        return getJSON().get("certificate")
-                    .map(Value::asURL)
-                    .map(getLogin()::bindCertificate)
-                    .orElse(null);
+        return getSnapshot().getCertificate();
     }
 
     /**
@@ -139,10 +254,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Certificate getStarCertificate() {
-        return getJSON().get("star-certificate")
-                    .map(Value::asURL)
-                    .map(getLogin()::bindCertificate)
-                    .orElse(null);
+        return getSnapshot().getStarCertificate();
     }
 
     /**
@@ -170,16 +282,48 @@ public class Order extends AcmeJsonResource {
         invalidate();
     }
 
+    /**
+     * Finalizes the order asynchronously. This is the non-blocking variant of
+     * {@link #execute(byte[])}.
+     *
+     * @param csr
+     *            CSR containing the parameters for the certificate being requested, in
+     *            DER format
+     * @return {@link CompletableFuture} that completes when the order was finalized, or
+     *         completes exceptionally with an {@link AcmeException} if the finalization
+     *         failed.
+     * @since 2.9
+     */
+    public CompletableFuture<Void> executeAsync(byte[] csr) {
+        return executeAsync(csr, getSession().getExecutor());
+    }
+
+    /**
+     * Finalizes the order asynchronously, using the given {@link Executor}. See
+     * {@link #executeAsync(byte[])} for details.
+     *
+     * @param csr
+     *            CSR containing the parameters for the certificate being requested, in
+     *            DER format
+     * @param executor
+     *            {@link Executor} that sends the request
+     * @return {@link CompletableFuture} that completes when the order was finalized
+     * @since 2.9
+     */
+    public CompletableFuture<Void> executeAsync(byte[] csr, Executor executor) {
+        return invokeAsync(() -> {
+            execute(csr);
+            return null;
+        }, executor);
+    }
+
     /**
      * Checks if this order is recurrent, according to the ACME STAR specifications.
      *
      * @since 2.3
      */
     public boolean isRecurrent() {
-        return getJSON().get("recurrent")
-                    .optional()
-                    .map(Value::asBoolean)
-                    .orElse(false);
+        return getSnapshot().isRecurrent();
     }
 
     /**
@@ -190,10 +334,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getRecurrentStart() {
-        return getJSON().get("recurrent-start-date")
-                    .optional()
-                    .map(Value::asInstant)
-                    .orElse(null);
+        return getSnapshot().getRecurrentStart();
     }
 
     /**
@@ -204,10 +345,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getRecurrentEnd() {
-        return getJSON().get("recurrent-end-date")
-                    .optional()
-                    .map(Value::asInstant)
-                    .orElse(null);
+        return getSnapshot().getRecurrentEnd();
     }
 
     /**
@@ -217,10 +355,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Duration getRecurrentCertificateValidity() {
-        return getJSON().get("recurrent-certificate-validity")
-                    .optional()
-                    .map(Value::asDuration)
-                    .orElse(null);
+        return getSnapshot().getRecurrentCertificateValidity();
     }
 
     /**
@@ -230,10 +365,7 @@ public class Order extends AcmeJsonResource {
      */
     @CheckForNull
     public Duration getRecurrentCertificatePredate() {
-        return getJSON().get("recurrent-certificate-predate")
-                .optional()
-                .map(Value::asDuration)
-                .orElse(null);
+        return getSnapshot().getRecurrentCertificatePredate();
     }
 
     /**
@@ -243,10 +375,7 @@ public class Order extends AcmeJsonResource {
      * @since 2.6
      */
     public boolean isRecurrentGetEnabled() {
-        return getJSON().get("recurrent-certificate-get")
-                    .optional()
-                    .map(Value::asBoolean)
-                    .orElse(false);
+        return getSnapshot().isRecurrentGetEnabled();
     }
 
     /**
@@ -269,4 +398,123 @@ public class Order extends AcmeJsonResource {
         }
     }
 
+    /**
+     * Invokes an operation on each of the given resources. The invoking thread processes
+     * resources itself, and up to {@code parallelism - 1} helpers of the
+     * {@link Session#getExecutor()} join in. Each of them takes the next pending resource
+     * until all resources are processed. Returns when all resources are processed.
+     * <p>
+     * The invoking thread only waits for resources that are currently processed by a
+     * helper, but never for helpers that are still queued in the executor. For this
+     * reason, this method can safely be invoked by a thread of the executor, even if all
+     * of its threads are busy.
+     *
+     * @param resources
+     *            Resources to process
+     * @param parallelism
+     *            Maximum number of resources that are processed concurrently, must be
+     *            positive
+     * @param operation
+     *            Operation to invoke on each resource
+     * @throws AcmeException
+     *             if the operation failed on any of the resources
+     */
+    private <T extends AcmeResource> void forEachConcurrently(List<T> resources,
+                int parallelism, ResourceOperation<T> operation) throws AcmeException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (resources.isEmpty()) {
+            return;
+        }
+
+        Queue<T> pending = new ConcurrentLinkedQueue<>(resources);
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger remaining = new AtomicInteger(resources.size());
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Runnable worker = () -> {
+            T resource;
+            while ((resource = pending.poll()) != null) {
+                try {
+                    operation.invoke(resource);
+                } catch (AcmeException | RuntimeException ex) {
+                    failures.add(ex);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                }
+            }
+        };
+
+        Executor executor = getSession().getExecutor();
+        int helpers = Math.min(parallelism, resources.size()) - 1;
+        for (int ix = 0; ix < helpers; ix++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException ex) {
+                LOG.debug("Executor is saturated, processing resources in the caller thread", ex);
+                break;
+            }
+        }
+
+        worker.run();
+        done.join();
+
+        Exception failure = failures.poll();
+        if (failure != null) {
+            failures.forEach(failure::addSuppressed);
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw (AcmeException) failure;
+        }
+    }
+
+    /**
+     * Finds the authorizations of this order that are known to be valid by the
+     * {@link AuthorizationCache} of the session.
+     *
+     * @return List of {@link CachedAuthorization} that have been reused for this order
+     */
+    private List<CachedAuthorization> findCachedAuthorizations() {
+        AuthorizationCache cache = getSession().getAuthorizationCache();
+        URL account = getLogin().getAccountLocation();
+        List<Authorization> authorizations = getAuthorizations();
+
+        List<CachedAuthorization> result = new ArrayList<>();
+        for (Identifier identifier : getIdentifiers()) {
+            CachedAuthorization cached = cache.get(account, identifier);
+            if (cached != null && authorizations.stream()
+                        .anyMatch(auth -> cached.isLocatedAt(auth.getLocation()))) {
+                result.add(cached);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fetches the current state of an {@link Authorization}.
+     */
+    private static void fetch(Authorization auth) throws AcmeException {
+        try {
+            auth.update();
+        } catch (AcmeRetryAfterException ex) {
+            // ignore... The authorization was still updated.
+            LOG.debug("Retry-After", ex);
+        }
+    }
+
+    /**
+     * An operation on a resource.
+     *
+     * @param <T>
+     *            {@link AcmeResource} type
+     */
+    @FunctionalInterface
+    private interface ResourceOperation<T extends AcmeResource> {
+        void invoke(T resource) throws AcmeException;
+    }
+
 }
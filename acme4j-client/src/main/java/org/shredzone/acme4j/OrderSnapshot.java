@@ -0,0 +1,264 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+import static org.shredzone.acme4j.toolbox.DecodedValue.decode;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.toolbox.DecodedValue;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSON.Value;
+
+/**
+ * A snapshot of the state of an {@link Order}.
+ * <p>
+ * The order's JSON data is decoded only once, when the snapshot is created. All getters
+ * just return the decoded values, and always return the same {@link Authorization} and
+ * {@link Certificate} instances. If a field cannot be decoded, only its getter throws an
+ * {@link org.shredzone.acme4j.exception.AcmeProtocolException}.
+ * <p>
+ * Only the snapshot itself is immutable. The {@link Authorization} and
+ * {@link Certificate} instances it returns are the usual, mutable resources, which are
+ * shared with everyone else who is using the snapshot.
+ *
+ * @see Order#getSnapshot()
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public final class OrderSnapshot {
+
+    private final DecodedValue<Status> status;
+    private final DecodedValue<Problem> error;
+    private final DecodedValue<Instant> expires;
+    private final DecodedValue<List<Identifier>> identifiers;
+    private final DecodedValue<Instant> notBefore;
+    private final DecodedValue<Instant> notAfter;
+    private final DecodedValue<List<Authorization>> authorizations;
+    private final DecodedValue<URL> finalizeLocation;
+    private final DecodedValue<Certificate> certificate;
+    private final DecodedValue<Certificate> starCertificate;
+    private final DecodedValue<Boolean> recurrent;
+    private final DecodedValue<Instant> recurrentStart;
+    private final DecodedValue<Instant> recurrentEnd;
+    private final DecodedValue<Duration> recurrentCertificateValidity;
+    private final DecodedValue<Duration> recurrentCertificatePredate;
+    private final DecodedValue<Boolean> recurrentGetEnabled;
+
+    /**
+     * Decodes the order's JSON data.
+     *
+     * @param order
+     *            {@link Order} the data belongs to
+     * @param json
+     *            {@link JSON} data of the order
+     */
+    OrderSnapshot(Order order, JSON json) {
+        Login login = order.getLogin();
+        URL location = order.getLocation();
+
+        status = decode("status",
+                    () -> json.get("status").map(Value::asStatus).orElse(null));
+        error = decode("error",
+                    () -> json.get("error").map(v -> v.asProblem(location)).orElse(null));
+        expires = decode("expires",
+                    () -> json.get("expires").map(Value::asInstant).orElse(null));
+        identifiers = decode("identifiers", () -> unmodifiableList(json.get("identifiers")
+                    .asArray()
+                    .stream()
+                    .map(Value::asIdentifier)
+                    .collect(toList())));
+        notBefore = decode("notBefore",
+                    () -> json.get("notBefore").map(Value::asInstant).orElse(null));
+        notAfter = decode("notAfter",
+                    () -> json.get("notAfter").map(Value::asInstant).orElse(null));
+        authorizations = decode("authorizations",
+                    () -> unmodifiableList(json.get("authorizations")
+                    .asArray()
+                    .stream()
+                    .map(Value::asURL)
+                    .map(login::bindAuthorization)
+                    .collect(toList())));
+        finalizeLocation = decode("finalize",
+                    () -> json.get("finalize").map(Value::asURL).orElse(null));
+        certificate = decode("certificate", () -> json.get("certificate")
+                    .map(Value::asURL)
+                    .map(login::bindCertificate)
+                    .orElse(null));
+        starCertificate = decode("star-certificate", () -> json.get("star-certificate")
+                    .map(Value::asURL)
+                    .map(login::bindCertificate)
+                    .orElse(null));
+        recurrent = decode("recurrent",
+                    () -> json.get("recurrent").map(Value::asBoolean).orElse(false));
+        recurrentStart = decode("recurrent-start-date",
+                    () -> json.get("recurrent-start-date")
+                    .map(Value::asInstant)
+                    .orElse(null));
+        recurrentEnd = decode("recurrent-end-date", () -> json.get("recurrent-end-date")
+                    .map(Value::asInstant)
+                    .orElse(null));
+        recurrentCertificateValidity = decode("recurrent-certificate-validity",
+                    () -> json.get("recurrent-certificate-validity")
+                    .map(Value::asDuration)
+                    .orElse(null));
+        recurrentCertificatePredate = decode("recurrent-certificate-predate",
+                    () -> json.get("recurrent-certificate-predate")
+                    .map(Value::asDuration)
+                    .orElse(null));
+        recurrentGetEnabled = decode("recurrent-certificate-get",
+                    () -> json.get("recurrent-certificate-get")
+                    .map(Value::asBoolean)
+                    .orElse(false));
+    }
+
+    /**
+     * Returns the status of the order.
+     *
+     * @see Order#getStatus()
+     */
+    public Status getStatus() {
+        return status.getRequired();
+    }
+
+    /**
+     * Returns a {@link Problem} document if the order failed.
+     */
+    @CheckForNull
+    public Problem getError() {
+        return error.get();
+    }
+
+    /**
+     * Gets the expiry date of the order, if set by the server.
+     */
+    @CheckForNull
+    public Instant getExpires() {
+        return expires.get();
+    }
+
+    /**
+     * Gets the list of {@link Identifier} to be ordered.
+     */
+    public List<Identifier> getIdentifiers() {
+        return identifiers.get();
+    }
+
+    /**
+     * Gets the "not before" date that was used for the order, or {@code null}.
+     */
+    @CheckForNull
+    public Instant getNotBefore() {
+        return notBefore.get();
+    }
+
+    /**
+     * Gets the "not after" date that was used for the order, or {@code null}.
+     */
+    @CheckForNull
+    public Instant getNotAfter() {
+        return notAfter.get();
+    }
+
+    /**
+     * Gets the {@link Authorization} required for this order, in no specific order.
+     */
+    public List<Authorization> getAuthorizations() {
+        return authorizations.get();
+    }
+
+    /**
+     * Gets the location {@link URL} of where to send the finalization call to.
+     */
+    public URL getFinalizeLocation() {
+        return finalizeLocation.getRequired();
+    }
+
+    /**
+     * Gets the {@link Certificate} if it is available. {@code null} otherwise.
+     */
+    @CheckForNull
+    public Certificate getCertificate() {
+        return certificate.get();
+    }
+
+    /**
+     * Gets the STAR extension's {@link Certificate} if it is available. {@code null}
+     * otherwise.
+     */
+    @CheckForNull
+    public Certificate getStarCertificate() {
+        return starCertificate.get();
+    }
+
+    /**
+     * Checks if the order is recurrent, according to the ACME STAR specifications.
+     */
+    public boolean isRecurrent() {
+        return recurrent.getRequired();
+    }
+
+    /**
+     * Returns the earliest date of validity of the first certificate issued, or
+     * {@code null}.
+     */
+    @CheckForNull
+    public Instant getRecurrentStart() {
+        return recurrentStart.get();
+    }
+
+    /**
+     * Returns the latest date of validity of the last certificate issued, or
+     * {@code null}.
+     */
+    @CheckForNull
+    public Instant getRecurrentEnd() {
+        return recurrentEnd.get();
+    }
+
+    /**
+     * Returns the maximum validity period of each certificate, or {@code null}.
+     */
+    @CheckForNull
+    public Duration getRecurrentCertificateValidity() {
+        return recurrentCertificateValidity.get();
+    }
+
+    /**
+     * Returns the predate period of each certificate, or {@code null}.
+     */
+    @CheckForNull
+    public Duration getRecurrentCertificatePredate() {
+        return recurrentCertificatePredate.get();
+    }
+
+    /**
+     * Returns {@code true} if STAR certificates from this order can also be fetched via
+     * GET requests.
+     */
+    public boolean isRecurrentGetEnabled() {
+        return recurrentGetEnabled.getRequired();
+    }
+
+}
@@ -19,11 +19,20 @@ import java.net.URL;
 import java.security.KeyPair;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.StreamSupport;
 
@@ -32,33 +41,67 @@ import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.ThreadSafe;
 
+import org.shredzone.acme4j.connector.AuthorizationCache;
+import org.shredzone.acme4j.connector.CachedDirectory;
+import org.shredzone.acme4j.connector.CircuitBreaker;
 import org.shredzone.acme4j.connector.Connection;
+import org.shredzone.acme4j.connector.DirectoryCache;
+import org.shredzone.acme4j.connector.MemoryAuthorizationCache;
+import org.shredzone.acme4j.connector.MemoryDirectoryCache;
+import org.shredzone.acme4j.connector.MetricsListener;
 import org.shredzone.acme4j.connector.NetworkSettings;
+import org.shredzone.acme4j.connector.NoncePool;
+import org.shredzone.acme4j.connector.RateLimiter;
 import org.shredzone.acme4j.connector.Resource;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.provider.AcmeProvider;
 import org.shredzone.acme4j.provider.GenericAcmeProvider;
+import org.shredzone.acme4j.signer.JwsSigner;
+import org.shredzone.acme4j.toolbox.AcmeUtils;
 import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.JSON.Value;
 
 /**
  * A session stores the ACME server URI. It also tracks communication parameters.
+ * <p>
+ * A session can be shared by any number of threads. Reading the resource map and the
+ * metadata is lock-free, and no lock is held while communicating with the server.
  */
 @ParametersAreNonnullByDefault
 @ThreadSafe
 public class Session {
 
     private static final GenericAcmeProvider GENERIC_PROVIDER = new GenericAcmeProvider();
+    private static final Duration DEFAULT_DIRECTORY_EXPIRY = Duration.ofHours(1);
 
     private final AtomicReference<Map<Resource, URL>> resourceMap = new AtomicReference<>();
     private final AtomicReference<Metadata> metadata = new AtomicReference<>();
     private final NetworkSettings networkSettings = new NetworkSettings();
+    private final NoncePool noncePool = new NoncePool(this);
     private final URI serverUri;
     private final AcmeProvider provider;
 
-    private String nonce;
-    private Locale locale = Locale.getDefault();
-    protected Instant directoryCacheExpiry;
+    private final AtomicReference<CompletableFuture<Void>> directoryFetch = new AtomicReference<>();
+    private volatile Locale locale = Locale.getDefault();
+    private volatile Executor executor;
+    private volatile DirectoryCache directoryCache = new MemoryDirectoryCache();
+    private volatile AuthorizationCache authorizationCache = new MemoryAuthorizationCache();
+    private volatile JSON appliedDirectory;
+    private volatile Instant appliedExpiry;
+    private volatile RateLimiter rateLimiter;
+    private volatile CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private volatile MetricsListener metricsListener = MetricsListener.NONE;
+
+    /**
+     * Expiry of the directory that is currently used by this session. Subclasses may set
+     * it to an instant in the past to force the directory to be read again.
+     *
+     * @deprecated The expiry is managed by the {@link DirectoryCache}. To force the
+     *             directory to be read again, remove it from {@link #getDirectoryCache()}.
+     *             This field will be removed in the next major release.
+     */
+    @Deprecated
+    protected volatile Instant directoryCacheExpiry;
 
     /**
      * Creates a new {@link Session}.
@@ -133,6 +176,20 @@ public class Session {
         return new Login(accountLocation, accountKeyPair, this);
     }
 
+    /**
+     * Logs into an existing account, using a {@link JwsSigner} for signing the requests.
+     *
+     * @param accountLocation
+     *            Location {@link URL} of the account
+     * @param signer
+     *            {@link JwsSigner} of the account key
+     * @return {@link Login} to this account
+     * @since 2.9
+     */
+    public Login login(URL accountLocation, JwsSigner signer) {
+        return new Login(accountLocation, signer, this);
+    }
+
     /**
      * Gets the ACME server {@link URI} of this session.
      */
@@ -141,18 +198,34 @@ public class Session {
     }
 
     /**
-     * Gets the last base64 encoded nonce, or {@code null} if the session is new.
+     * Gets the most recent base64 encoded nonce, or {@code null} if there is no nonce
+     * available. The nonce is not removed from the {@link NoncePool}.
      */
     @CheckForNull
     public String getNonce() {
-        return nonce;
+        return noncePool.peek();
     }
 
     /**
-     * Sets the base64 encoded nonce received by the server.
+     * Adds a base64 encoded nonce received by the server to the {@link NoncePool}. If
+     * {@code null}, all nonces are removed from the pool.
      */
     public void setNonce(@Nullable String nonce) {
-        this.nonce = nonce;
+        if (nonce != null) {
+            noncePool.offer(nonce);
+        } else {
+            noncePool.clear();
+        }
+    }
+
+    /**
+     * Returns the {@link NoncePool} of this session.
+     *
+     * @return {@link NoncePool}
+     * @since 2.9
+     */
+    public NoncePool noncePool() {
+        return noncePool;
     }
 
     /**
@@ -201,6 +274,170 @@ public class Session {
         return networkSettings;
     }
 
+    /**
+     * Returns the {@link Executor} that is used for background tasks of this session.
+     * <p>
+     * Unless set otherwise, a shared executor with a bounded number of daemon threads is
+     * used. It has as many threads as there are processors, but at least 4, and an
+     * unbounded queue.
+     * <p>
+     * Note that the asynchronous operations still use a blocking
+     * {@link java.net.HttpURLConnection}, so every request that is in flight occupies a
+     * thread of the executor. With the default executor, at most 4 requests (or one per
+     * processor) are in flight at the same time, and further requests are queued. If
+     * you need more requests in flight, set an executor with more threads, or pass an
+     * executor to the asynchronous operations.
+     *
+     * @return {@link Executor}
+     * @since 2.9
+     */
+    public Executor getExecutor() {
+        Executor result = executor;
+        return result != null ? result : DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Sets the {@link Executor} that is used for background tasks of this session.
+     *
+     * @param executor
+     *         {@link Executor} to be used, or {@code null} to use the default executor
+     * @since 2.9
+     */
+    public void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the {@link DirectoryCache} that is used for caching the directory of the
+     * ACME server. By default, every session has its own {@link MemoryDirectoryCache}.
+     *
+     * @return {@link DirectoryCache}
+     * @since 2.9
+     */
+    public DirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
+    /**
+     * Sets the {@link DirectoryCache} to be used for caching the directory of the ACME
+     * server. Share a cache between sessions to read the directory only once, or use a
+     * {@link org.shredzone.acme4j.connector.FileDirectoryCache} to keep the directory
+     * across restarts.
+     *
+     * @param directoryCache
+     *            {@link DirectoryCache} to be used
+     * @since 2.9
+     */
+    public void setDirectoryCache(DirectoryCache directoryCache) {
+        this.directoryCache = Objects.requireNonNull(directoryCache, "directoryCache");
+    }
+
+    /**
+     * Returns the {@link AuthorizationCache} that keeps the valid authorizations of the
+     * accounts. By default, every session has its own {@link MemoryAuthorizationCache}.
+     *
+     * @return {@link AuthorizationCache}
+     * @since 2.9
+     */
+    public AuthorizationCache getAuthorizationCache() {
+        return authorizationCache;
+    }
+
+    /**
+     * Sets the {@link AuthorizationCache} that keeps the valid authorizations of the
+     * accounts. Every {@link Authorization} that is fetched from the server is stored in
+     * the cache while it is valid.
+     *
+     * @param authorizationCache
+     *            {@link AuthorizationCache} to be used
+     * @since 2.9
+     */
+    public void setAuthorizationCache(AuthorizationCache authorizationCache) {
+        this.authorizationCache = Objects.requireNonNull(authorizationCache, "authorizationCache");
+    }
+
+    /**
+     * Returns the {@link RateLimiter} that enforces the rate limits of the ACME server
+     * on client side. Unless set otherwise, a limiter with the
+     * {@link AcmeProvider#getRateLimits()} of the provider is used.
+     *
+     * @return {@link RateLimiter}
+     * @since 2.9
+     */
+    public RateLimiter getRateLimiter() {
+        RateLimiter result = rateLimiter;
+        if (result == null) {
+            synchronized (this) {
+                result = rateLimiter;
+                if (result == null) {
+                    result = new RateLimiter(provider().getRateLimits());
+                    rateLimiter = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the {@link RateLimiter} to be used. Share a limiter between sessions, so the
+     * limits are enforced for all of them.
+     *
+     * @param rateLimiter
+     *            {@link RateLimiter} to be used
+     * @since 2.9
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = Objects.requireNonNull(rateLimiter, "rateLimiter");
+    }
+
+    /**
+     * Returns the {@link CircuitBreaker} that guards the connections to the ACME server.
+     * By default, every session has its own circuit breaker.
+     *
+     * @return {@link CircuitBreaker}
+     * @since 2.9
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the {@link CircuitBreaker} to be used. Share a circuit breaker between
+     * sessions to the same ACME server, so all of them stop sending requests if the
+     * server becomes unavailable.
+     *
+     * @param circuitBreaker
+     *            {@link CircuitBreaker} to be used
+     * @since 2.9
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+    }
+
+    /**
+     * Returns the {@link MetricsListener} that receives the metrics of all requests to
+     * the ACME server.
+     *
+     * @return {@link MetricsListener}, {@link MetricsListener#NONE} by default
+     * @since 2.9
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the {@link MetricsListener} that receives the metrics of all requests to the
+     * ACME server.
+     *
+     * @param metricsListener
+     *            {@link MetricsListener} to be used, or {@code null} to stop collecting
+     *            metrics
+     * @since 2.9
+     */
+    public void setMetricsListener(@Nullable MetricsListener metricsListener) {
+        this.metricsListener = metricsListener != null ? metricsListener : MetricsListener.NONE;
+    }
+
     /**
      * Returns the {@link AcmeProvider} that is used for this session.
      *
@@ -216,7 +453,7 @@ public class Session {
      * @return {@link Connection}
      */
     public Connection connect() {
-        return provider.connect(getServerUri());
+        return provider().connect(getServerUri());
     }
 
     /**
@@ -238,6 +475,30 @@ public class Session {
         return result;
     }
 
+    /**
+     * Finds the {@link Resource} of the directory that has the given {@link URL}. Unlike
+     * {@link #resourceUrl(Resource)}, the directory is never fetched.
+     *
+     * @param url
+     *            {@link URL} to find
+     * @return {@link Resource}, or {@code null} if the directory has not been read yet,
+     *         or the URL is not a resource of the directory
+     * @since 2.9
+     */
+    @CheckForNull
+    public Resource findResource(URL url) {
+        Map<Resource, URL> map = resourceMap.get();
+        if (map != null) {
+            String location = url.toExternalForm();
+            for (Map.Entry<Resource, URL> entry : map.entrySet()) {
+                if (entry.getValue().toExternalForm().equals(location)) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Gets the metadata of the provider's directory. This may involve connecting to the
      * server and getting a directory. The result is cached.
@@ -249,21 +510,209 @@ public class Session {
         return metadata.get();
     }
 
+    /**
+     * Warms up the session, so the first request to the ACME server does not need to
+     * wait for the directory, a nonce, and a connection.
+     * <p>
+     * The directory is read first, as it contains the URL for fetching new nonces. After
+     * that, the given number of nonces are fetched in parallel, using the session's
+     * {@link #getExecutor()}. Each of these requests opens a connection to the server,
+     * which is then kept alive for the subsequent requests. The nonces are stored in
+     * the {@link #noncePool()}.
+     * <p>
+     * Note that the JRE keeps at most {@code http.maxConnections} (default: 5) idle
+     * connections per server.
+     * <p>
+     * This method blocks until the warm-up is completed. It must not be invoked by a
+     * thread of the {@link #getExecutor()}, because it waits for other tasks of the same
+     * executor, and might deadlock if all threads are busy. Use
+     * {@link #warmUpAsync(int)} there.
+     *
+     * @param connections
+     *            Number of connections to open, must be positive
+     * @return {@link WarmUpReport} with the timings of the warm-up
+     * @since 2.9
+     */
+    public WarmUpReport warmUp(int connections) throws AcmeException {
+        return await(warmUpAsync(connections), "Could not warm up session");
+    }
+
+    /**
+     * Warms up the session asynchronously. See {@link #warmUp(int)} for details.
+     *
+     * @param connections
+     *            Number of connections to open, must be positive
+     * @return {@link CompletableFuture} that completes with the {@link WarmUpReport}.
+     *         If the warm-up failed, it completes exceptionally.
+     * @since 2.9
+     */
+    public CompletableFuture<WarmUpReport> warmUpAsync(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be positive");
+        }
+
+        long start = System.nanoTime();
+        return invokeAsync(() -> {
+            readDirectory();
+            return System.nanoTime();
+        }).thenCompose(directoryDone -> {
+            CompletableFuture<?>[] fetches = new CompletableFuture<?>[connections];
+            for (int ix = 0; ix < connections; ix++) {
+                fetches[ix] = invokeAsync(() -> {
+                    try (Connection conn = connect()) {
+                        conn.resetNonce(this);
+                    }
+                    return null;
+                });
+            }
+
+            return CompletableFuture.allOf(fetches).thenApply(v -> new WarmUpReport(
+                    Duration.ofNanos(directoryDone - start),
+                    Duration.ofNanos(System.nanoTime() - directoryDone),
+                    connections,
+                    noncePool.size()));
+        });
+    }
+
+    /**
+     * Invokes a blocking operation asynchronously, using the {@link #getExecutor()}.
+     *
+     * @param operation
+     *            Operation to invoke
+     * @return {@link CompletableFuture} that completes with the result of the operation
+     */
+    private <T> CompletableFuture<T> invokeAsync(Callable<T> operation) {
+        return AcmeUtils.invokeAsync(operation, getExecutor());
+    }
+
     /**
      * Reads the provider's directory, then rebuild the resource map. The response is
      * cached.
+     * <p>
+     * If several threads need to read the directory at the same time, it is only fetched
+     * once. While an expired directory is refreshed, the other threads keep using the
+     * expired one instead of waiting for the refresh.
      */
     private void readDirectory() throws AcmeException {
-        synchronized (this) {
-            Instant now = Instant.now();
-            if (directoryCacheExpiry != null && directoryCacheExpiry.isAfter(now)) {
-                return;
+        if (isDirectoryValid()) {
+            return;
+        }
+
+        CompletableFuture<Void> ownFetch = new CompletableFuture<>();
+        CompletableFuture<Void> runningFetch;
+        do {
+            runningFetch = directoryFetch.get();
+        } while (runningFetch == null && !directoryFetch.compareAndSet(null, ownFetch));
+
+        if (runningFetch != null) {
+            if (resourceMap.get() == null) {
+                awaitDirectory(runningFetch);
             }
-            directoryCacheExpiry = now.plus(Duration.ofHours(1));
+            return;
         }
 
+        try {
+            // Another thread might have completed a fetch in the meantime
+            if (!isDirectoryValid()) {
+                fetchDirectory();
+            }
+            ownFetch.complete(null);
+        } catch (AcmeException | RuntimeException ex) {
+            ownFetch.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            directoryFetch.set(null);
+        }
+    }
+
+    /**
+     * Checks if the directory cache holds a directory that is not expired yet. If the
+     * directory has been changed in the meantime (e.g. by another session sharing the
+     * same cache), the resource map and metadata are rebuilt.
+     */
+    private boolean isDirectoryValid() {
+        CachedDirectory cached = directoryCache.get(getServerUri());
+        if (cached == null || cached.isExpired() || isDirectoryExpiryReached()) {
+            return false;
+        }
+        if (cached.getDirectory() != appliedDirectory || cached.getExpires() != appliedExpiry) {
+            applyDirectory(cached);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a subclass has changed the deprecated {@link #directoryCacheExpiry} to an
+     * instant that has been reached.
+     */
+    @SuppressWarnings("deprecation")
+    private boolean isDirectoryExpiryReached() {
+        Instant expiry = directoryCacheExpiry;
+        return expiry != null && expiry != appliedExpiry && !expiry.isAfter(Instant.now());
+    }
+
+    /**
+     * Waits for a directory fetch of another thread to complete.
+     *
+     * @param fetch
+     *            {@link CompletableFuture} of the running fetch
+     */
+    private void awaitDirectory(CompletableFuture<Void> fetch) throws AcmeException {
+        await(fetch, "Could not read directory");
+    }
+
+    /**
+     * Waits for a {@link CompletableFuture} to complete, and rethrows the exception it
+     * was completed with.
+     *
+     * @param future
+     *            {@link CompletableFuture} to wait for
+     * @param message
+     *            Message of the {@link AcmeException} if the cause is a checked
+     *            exception other than {@link AcmeException}
+     * @return Result of the future
+     */
+    private static <T> T await(CompletableFuture<T> future, String message) throws AcmeException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof AcmeException) {
+                throw (AcmeException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AcmeException(message, cause);
+        }
+    }
+
+    /**
+     * Fetches the provider's directory, and rebuilds the resource map and metadata.
+     */
+    private void fetchDirectory() throws AcmeException {
         JSON directoryJson = provider().directory(this, getServerUri());
 
+        // Providers that do not use the directory cache themselves
+        CachedDirectory cached = directoryCache.get(getServerUri());
+        if (cached == null || cached.getDirectory() != directoryJson || cached.isExpired()) {
+            cached = new CachedDirectory(directoryJson,
+                    Instant.now().plus(DEFAULT_DIRECTORY_EXPIRY), null, null);
+            directoryCache.put(getServerUri(), cached);
+        }
+
+        applyDirectory(cached);
+    }
+
+    /**
+     * Rebuilds the resource map and metadata from the given directory.
+     *
+     * @param cached
+     *            {@link CachedDirectory} containing the directory
+     */
+    @SuppressWarnings("deprecation")
+    private void applyDirectory(CachedDirectory cached) {
+        JSON directoryJson = cached.getDirectory();
         Value meta = directoryJson.get("meta");
         if (meta.isPresent()) {
             metadata.set(new Metadata(meta.asObject()));
@@ -278,7 +727,30 @@ public class Session {
                     .ifPresent(url -> map.put(res, url));
         }
 
-        resourceMap.set(map);
+        resourceMap.set(Collections.unmodifiableMap(map));
+        appliedDirectory = directoryJson;
+        appliedExpiry = cached.getExpires();
+        directoryCacheExpiry = appliedExpiry;
+    }
+
+    /**
+     * Holder of the default {@link Executor}. It is only created when needed.
+     */
+    private static final class DefaultExecutor {
+        private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+        private static final Executor INSTANCE = createExecutor();
+
+        private static Executor createExecutor() {
+            ThreadPoolExecutor result = new ThreadPoolExecutor(THREADS, THREADS,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "acme4j-worker-" + COUNTER.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            result.allowCoreThreadTimeOut(true);
+            return result;
+        }
     }
 
 }
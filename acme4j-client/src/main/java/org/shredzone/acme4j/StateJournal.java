@@ -0,0 +1,305 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.toolbox.MappedJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the state of {@link Login}s and their resources in a {@link MappedJournal}, so
+ * the processing of orders can be resumed after a restart without fetching all resources
+ * from the server again.
+ * <p>
+ * For each {@link Login}, the server and account location are stored. The key pair is
+ * not stored, it must be provided when the {@link Login} is restored. For each
+ * {@link Order}, {@link Authorization} and {@link Certificate} (or any other
+ * {@link AcmeResource}), the current state is stored, replacing any previous state of
+ * the same resource. Restored resources are bound to the restored {@link Login}.
+ * <p>
+ * Resources that have been put into the journal survive a crash of the process. Use
+ * {@link #sync()} to make sure they also survive a crash of the operating system.
+ * <p>
+ * When the resources are restored, only acme4j classes and the JDK classes they contain
+ * are deserialized. Other classes are rejected, so a tampered journal cannot be used to
+ * instantiate arbitrary classes.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class StateJournal implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(StateJournal.class);
+
+    private static final String LOGIN_PREFIX = "login ";
+    private static final String RESOURCE_PREFIX = "resource ";
+
+    private final MappedJournal journal;
+
+    /**
+     * Opens a {@link StateJournal}. If the file does not exist, a new journal is
+     * created.
+     *
+     * @param file
+     *            {@link Path} of the journal file
+     */
+    public StateJournal(Path file) throws IOException {
+        this.journal = new MappedJournal(file);
+    }
+
+    /**
+     * Stores the server and account location of a {@link Login}.
+     *
+     * @param login
+     *            {@link Login} to store
+     */
+    public void putLogin(Login login) throws IOException {
+        String serverUri = login.getSession().getServerUri().toString();
+        journal.put(LOGIN_PREFIX + login.getAccountLocation(), serverUri.getBytes(UTF_8));
+    }
+
+    /**
+     * Returns the account locations of all stored {@link Login}s.
+     */
+    public List<URL> getAccounts() {
+        List<URL> result = new ArrayList<>();
+        for (String key : journal.keys()) {
+            if (key.startsWith(LOGIN_PREFIX)) {
+                result.add(toURL(key.substring(LOGIN_PREFIX.length())));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the server {@link URI} of a stored {@link Login}.
+     *
+     * @param account
+     *            Account location {@link URL}
+     * @return Server {@link URI}, or {@code null} if there is no such {@link Login}
+     */
+    @CheckForNull
+    public URI getServerUri(URL account) {
+        byte[] value = journal.get(LOGIN_PREFIX + account);
+        return value != null ? URI.create(new String(value, UTF_8)) : null;
+    }
+
+    /**
+     * Restores a {@link Login}, with a new {@link Session} to the stored server.
+     *
+     * @param account
+     *            Account location {@link URL}
+     * @param keyPair
+     *            {@link KeyPair} of the account
+     * @return Restored {@link Login}
+     * @throws IllegalArgumentException
+     *             if there is no such {@link Login} in the journal
+     */
+    public Login restoreLogin(URL account, KeyPair keyPair) {
+        URI serverUri = getServerUri(account);
+        if (serverUri == null) {
+            throw new IllegalArgumentException("No login of account " + account);
+        }
+        return new Session(serverUri).login(account, keyPair);
+    }
+
+    /**
+     * Stores the current state of a resource, replacing any previous state.
+     *
+     * @param resource
+     *            {@link AcmeResource} to store
+     */
+    public void put(AcmeResource resource) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeUTF(resource.getLogin().getAccountLocation().toString());
+            oos.writeObject(resource);
+        }
+        journal.put(RESOURCE_PREFIX + resource.getLocation(), out.toByteArray());
+    }
+
+    /**
+     * Removes a resource, e.g. because it has been completed.
+     *
+     * @param location
+     *            Location {@link URL} of the resource
+     */
+    public void remove(URL location) throws IOException {
+        journal.remove(RESOURCE_PREFIX + location);
+    }
+
+    /**
+     * Restores all resources of the account of the given {@link Login}. The resources
+     * are bound to that {@link Login}.
+     * <p>
+     * Resources that cannot be restored (e.g. because they were stored by an
+     * incompatible version of acme4j) are logged and skipped.
+     *
+     * @param login
+     *            {@link Login} of the account
+     * @return List of the restored {@link AcmeResource}, in no specific order
+     */
+    public List<AcmeResource> restore(Login login) {
+        return restore(login, AcmeResource.class);
+    }
+
+    /**
+     * Restores all resources of the given type of the account of the given
+     * {@link Login}. The resources are bound to that {@link Login}.
+     *
+     * @param login
+     *            {@link Login} of the account
+     * @param type
+     *            {@link AcmeResource} type, e.g. {@code Order.class}
+     * @return List of the restored resources, in no specific order
+     */
+    public <T extends AcmeResource> List<T> restore(Login login, Class<T> type) {
+        String account = login.getAccountLocation().toString();
+        List<T> result = new ArrayList<>();
+        for (String key : journal.keys()) {
+            if (!key.startsWith(RESOURCE_PREFIX)) {
+                continue;
+            }
+
+            byte[] value = journal.get(key);
+            if (value == null) {
+                continue;
+            }
+
+            try (ObjectInputStream ois = new ResourceInputStream(new ByteArrayInputStream(value))) {
+                if (!account.equals(ois.readUTF())) {
+                    continue;
+                }
+
+                Object resource = ois.readObject();
+                if (type.isInstance(resource)) {
+                    T restored = type.cast(resource);
+                    restored.rebind(login);
+                    result.add(restored);
+                }
+            } catch (IOException | ClassNotFoundException | RuntimeException ex) {
+                LOG.warn("Could not restore {}", key.substring(RESOURCE_PREFIX.length()), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forces all changes to be written to the storage device.
+     */
+    public void sync() {
+        journal.sync();
+    }
+
+    /**
+     * Compacts the journal, by removing all outdated states. This is also done
+     * automatically from time to time.
+     */
+    public void compact() throws IOException {
+        journal.compact();
+    }
+
+    /**
+     * Closes the journal. All changes are written to the storage device.
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private static URL toURL(String url) {
+        try {
+            return new URL(url);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Bad URL in journal: " + url, ex);
+        }
+    }
+
+    /**
+     * An {@link ObjectInputStream} that only resolves the classes of acme4j resources,
+     * and the JDK classes they contain.
+     */
+    static class ResourceInputStream extends ObjectInputStream {
+        ResourceInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                    throws IOException, ClassNotFoundException {
+            if (!isAccepted(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not accepted in journal");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxy classes are not accepted in journal");
+        }
+
+        /**
+         * Checks if the class of the given name may be deserialized.
+         */
+        private static boolean isAccepted(String name) {
+            String className = name;
+            if (className.startsWith("[")) {
+                className = className.substring(className.lastIndexOf('[') + 1);
+                if (!className.startsWith("L")) {
+                    return true; // array of primitives
+                }
+                className = className.substring(1, className.length() - 1);
+            }
+
+            return className.startsWith("org.shredzone.acme4j.")
+                    || isInPackage(className, "java.lang.")
+                    || isInPackage(className, "java.time.")
+                    || isInPackage(className, "java.util.")
+                    || className.equals("java.net.URL")
+                    || className.equals("java.net.URI")
+                    || className.equals("java.security.cert.Certificate$CertificateRep");
+        }
+
+        /**
+         * Checks if the class is a member of the given package, but not of a sub
+         * package.
+         */
+        private static boolean isInPackage(String className, String pkg) {
+            return className.startsWith(pkg) && className.indexOf('.', pkg.length()) < 0;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import java.time.Duration;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The result of a {@link Session#warmUp(int)}. It contains the time that was spent on
+ * each step of the warm-up.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class WarmUpReport {
+
+    private final Duration directoryTime;
+    private final Duration connectionTime;
+    private final int connections;
+    private final int nonces;
+
+    /**
+     * Creates a new {@link WarmUpReport}.
+     *
+     * @param directoryTime
+     *            Time spent on reading the directory
+     * @param connectionTime
+     *            Time spent on opening the connections and fetching nonces
+     * @param connections
+     *            Number of connections that were opened
+     * @param nonces
+     *            Number of nonces in the pool after the warm-up
+     */
+    WarmUpReport(Duration directoryTime, Duration connectionTime, int connections, int nonces) {
+        this.directoryTime = directoryTime;
+        this.connectionTime = connectionTime;
+        this.connections = connections;
+        this.nonces = nonces;
+    }
+
+    /**
+     * Returns the time that was spent on reading the directory. It is close to zero if
+     * the directory was already cached.
+     */
+    public Duration getDirectoryTime() {
+        return directoryTime;
+    }
+
+    /**
+     * Returns the time that was spent on opening the connections and fetching the
+     * nonces. As the connections are opened in parallel, it is about the time of the
+     * slowest connection.
+     */
+    public Duration getConnectionTime() {
+        return connectionTime;
+    }
+
+    /**
+     * Returns the total time of the warm-up.
+     */
+    public Duration getTotalTime() {
+        return directoryTime.plus(connectionTime);
+    }
+
+    /**
+     * Returns the number of connections that were opened to the ACME server.
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the number of nonces that were in the session's {@link
+     * org.shredzone.acme4j.connector.NoncePool} after the warm-up.
+     */
+    public int getNonces() {
+        return nonces;
+    }
+
+    @Override
+    public String toString() {
+        return "directory " + directoryTime.toMillis() + " ms, "
+                + connections + " connections " + connectionTime.toMillis() + " ms, "
+                + nonces + " nonces, total " + getTotalTime().toMillis() + " ms";
+    }
+
+}
@@ -14,6 +14,8 @@
 package org.shredzone.acme4j.challenge;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -26,7 +28,6 @@ import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.toolbox.JSON;
-import org.shredzone.acme4j.toolbox.JSON.Value;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,11 +65,23 @@ public class Challenge extends AcmeJsonResource {
         setJSON(data);
     }
 
+    /**
+     * Returns an immutable snapshot of the current challenge state.
+     * <p>
+     * The challenge data is decoded only once, and the same snapshot is returned until
+     * the challenge is updated.
+     *
+     * @since 2.9
+     */
+    public ChallengeSnapshot getSnapshot() {
+        return getSnapshot(ChallengeSnapshot.class, ChallengeSnapshot::new);
+    }
+
     /**
      * Returns the challenge type by name (e.g. "http-01").
      */
     public String getType() {
-        return getJSON().get(KEY_TYPE).asString();
+        return getSnapshot().getType();
     }
 
     /**
@@ -78,7 +91,7 @@ public class Challenge extends AcmeJsonResource {
      * {@link Status#VALID}, {@link Status#INVALID}.
      */
     public Status getStatus() {
-        return getJSON().get(KEY_STATUS).asStatus();
+        return getSnapshot().getStatus();
     }
 
     /**
@@ -86,7 +99,7 @@ public class Challenge extends AcmeJsonResource {
      */
     @CheckForNull
     public Instant getValidated() {
-        return getJSON().get(KEY_VALIDATED).map(Value::asInstant).orElse(null);
+        return getSnapshot().getValidated();
     }
 
     /**
@@ -96,9 +109,7 @@ public class Challenge extends AcmeJsonResource {
      */
     @CheckForNull
     public Problem getError() {
-        return getJSON().get(KEY_ERROR)
-                    .map(it -> it.asProblem(getLocation()))
-                    .orElse(null);
+        return getSnapshot().getError();
     }
 
     /**
@@ -157,4 +168,34 @@ public class Challenge extends AcmeJsonResource {
         }
     }
 
+    /**
+     * Triggers this {@link Challenge} asynchronously. This is the non-blocking variant
+     * of {@link #trigger()}.
+     *
+     * @return {@link CompletableFuture} that completes when the challenge has been
+     *         triggered, or completes exceptionally with an {@link AcmeException} if
+     *         the challenge could not be triggered.
+     * @since 2.9
+     */
+    public CompletableFuture<Void> triggerAsync() {
+        return triggerAsync(getSession().getExecutor());
+    }
+
+    /**
+     * Triggers this {@link Challenge} asynchronously, using the given {@link Executor}.
+     * See {@link #triggerAsync()} for details.
+     *
+     * @param executor
+     *            {@link Executor} that sends the request
+     * @return {@link CompletableFuture} that completes when the challenge has been
+     *         triggered
+     * @since 2.9
+     */
+    public CompletableFuture<Void> triggerAsync(Executor executor) {
+        return invokeAsync(() -> {
+            trigger();
+            return null;
+        }, executor);
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.challenge;
+
+import static org.shredzone.acme4j.toolbox.DecodedValue.decode;
+
+import java.time.Instant;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.toolbox.DecodedValue;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSON.Value;
+
+/**
+ * An immutable snapshot of the common state of a {@link Challenge}.
+ * <p>
+ * The challenge's JSON data is decoded only once, when the snapshot is created. If a
+ * field cannot be decoded, only its getter throws an
+ * {@link org.shredzone.acme4j.exception.AcmeProtocolException}.
+ *
+ * @see Challenge#getSnapshot()
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public final class ChallengeSnapshot {
+
+    private final DecodedValue<String> type;
+    private final DecodedValue<Status> status;
+    private final DecodedValue<Instant> validated;
+    private final DecodedValue<Problem> error;
+
+    /**
+     * Decodes the challenge's JSON data.
+     *
+     * @param challenge
+     *            {@link Challenge} the data belongs to
+     * @param json
+     *            {@link JSON} data of the challenge
+     */
+    ChallengeSnapshot(Challenge challenge, JSON json) {
+        type = decode(Challenge.KEY_TYPE,
+                    () -> json.get(Challenge.KEY_TYPE).map(Value::asString).orElse(null));
+        status = decode(Challenge.KEY_STATUS, () -> json.get(Challenge.KEY_STATUS)
+                    .map(Value::asStatus)
+                    .orElse(null));
+        validated = decode(Challenge.KEY_VALIDATED, () -> json.get(Challenge.KEY_VALIDATED)
+                    .map(Value::asInstant)
+                    .orElse(null));
+        error = decode(Challenge.KEY_ERROR, () -> json.get(Challenge.KEY_ERROR)
+                    .map(it -> it.asProblem(challenge.getLocation()))
+                    .orElse(null));
+    }
+
+    /**
+     * Returns the challenge type by name (e.g. "http-01").
+     */
+    public String getType() {
+        return type.getRequired();
+    }
+
+    /**
+     * Returns the status of the challenge.
+     */
+    public Status getStatus() {
+        return status.getRequired();
+    }
+
+    /**
+     * Returns the validation date, if returned by the server.
+     */
+    @CheckForNull
+    public Instant getValidated() {
+        return validated.get();
+    }
+
+    /**
+     * Returns a reason why the challenge has failed in the past, if returned by the
+     * server.
+     */
+    @CheckForNull
+    public Problem getError() {
+        return error.get();
+    }
+
+}
@@ -65,7 +65,7 @@ public class TokenChallenge extends Challenge {
      * override this method if a different algorithm is used.
      */
     public String getAuthorization() {
-        PublicKey pk = getLogin().getKeyPair().getPublic();
+        PublicKey pk = getLogin().getSigner().getPublicKey();
         return getToken() + '.' + base64UrlEncode(JoseUtils.thumbprint(pk));
     }
 
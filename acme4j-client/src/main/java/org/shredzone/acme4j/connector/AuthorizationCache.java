@@ -0,0 +1,73 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.net.URL;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.shredzone.acme4j.Identifier;
+
+/**
+ * Caches the valid authorizations of ACME accounts.
+ * <p>
+ * An authorization stays valid until it expires, and the CA may reuse it for further
+ * orders of the same account. The cache remembers which identifiers are authorized, so
+ * their challenges do not need to be prepared again.
+ * <p>
+ * A cache can be shared by any number of {@link org.shredzone.acme4j.Session}
+ * instances, and must be thread-safe.
+ *
+ * @see MemoryAuthorizationCache
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+public interface AuthorizationCache {
+
+    /**
+     * Returns the cached authorization of an identifier.
+     *
+     * @param account
+     *            Location {@link URL} of the account
+     * @param identifier
+     *            {@link Identifier} that was authorized. Wildcard domains have a
+     *            {@code *.} prefix.
+     * @return {@link CachedAuthorization}, or {@code null} if there is no authorization
+     *         in the cache, or if it has expired
+     */
+    @CheckForNull
+    CachedAuthorization get(URL account, Identifier identifier);
+
+    /**
+     * Stores a valid authorization, replacing any previous one of the same identifier.
+     *
+     * @param account
+     *            Location {@link URL} of the account
+     * @param authorization
+     *            {@link CachedAuthorization} to store
+     */
+    void put(URL account, CachedAuthorization authorization);
+
+    /**
+     * Removes the authorization of an identifier, e.g. because it was deactivated.
+     *
+     * @param account
+     *            Location {@link URL} of the account
+     * @param identifier
+     *            {@link Identifier} that was authorized
+     */
+    void remove(URL account, Identifier identifier);
+
+}
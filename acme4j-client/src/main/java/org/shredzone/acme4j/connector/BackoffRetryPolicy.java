@@ -0,0 +1,314 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
+import org.shredzone.acme4j.exception.AcmeServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RetryPolicy} that retries requests after transient failures, with an
+ * exponential backoff and jitter.
+ * <p>
+ * A request is retried if it failed because of a network error, a {@code 500},
+ * {@code 502}, {@code 503} or {@code 504} response, or a {@code serverInternal} problem.
+ * Requests that are not idempotent (like creating a new order) are only retried if the
+ * server has surely not processed them, that is if the connection could not be
+ * established, or the server responded with {@code 503 Service Unavailable}.
+ * <p>
+ * The delay doubles with every attempt, and is randomized so that many clients do not
+ * retry at the same moment. If the server sent a {@code Retry-After} header, the request
+ * is retried after that instant, unless it is too far in the future.
+ * <p>
+ * All retries share a retry budget. If the budget is exhausted, failed requests are not
+ * retried anymore until it has recovered, so an outage of the server does not multiply
+ * the load on it.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class BackoffRetryPolicy implements RetryPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(BackoffRetryPolicy.class);
+
+    private static final URI SERVER_INTERNAL_ERROR = URI.create("urn:ietf:params:acme:error:serverInternal");
+
+    private volatile int maxAttempts = 4;
+    private volatile Duration initialDelay = Duration.ofMillis(500);
+    private volatile Duration maxDelay = Duration.ofSeconds(30);
+    private volatile Duration maxRetryAfter = Duration.ofMinutes(1);
+
+    @GuardedBy("this")
+    private int budget = 20;
+
+    @GuardedBy("this")
+    private Duration budgetPeriod = Duration.ofMinutes(1);
+
+    @GuardedBy("this")
+    private double budgetTokens = budget;
+
+    @GuardedBy("this")
+    private long budgetUpdated = System.nanoTime();
+
+    /**
+     * Returns the maximum number of attempts of a request.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Sets the maximum number of attempts of a request, including the first one.
+     * Defaults to 4.
+     *
+     * @param maxAttempts
+     *            Maximum number of attempts, must be positive
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns the delay before the first retry.
+     */
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * Sets the delay before the first retry. It is doubled for every further retry.
+     * Defaults to 500 ms.
+     *
+     * @param initialDelay
+     *            Initial delay, must be positive
+     */
+    public void setInitialDelay(Duration initialDelay) {
+        this.initialDelay = positive(initialDelay, "initialDelay");
+    }
+
+    /**
+     * Returns the maximum delay between two attempts.
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Sets the maximum delay between two attempts. Defaults to 30 seconds.
+     *
+     * @param maxDelay
+     *            Maximum delay, must be positive
+     */
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = positive(maxDelay, "maxDelay");
+    }
+
+    /**
+     * Returns the maximum time to wait for a {@code Retry-After} instant.
+     */
+    public Duration getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    /**
+     * Sets the maximum time to wait for a {@code Retry-After} instant. If the server
+     * asks to retry later than that, the request is not retried. Defaults to 1 minute.
+     *
+     * @param maxRetryAfter
+     *            Maximum time to wait, must be positive
+     */
+    public void setMaxRetryAfter(Duration maxRetryAfter) {
+        this.maxRetryAfter = positive(maxRetryAfter, "maxRetryAfter");
+    }
+
+    /**
+     * Sets the retry budget. At most the given number of retries are permitted per
+     * period, for all requests that use this policy. Defaults to 20 retries per minute.
+     *
+     * @param retries
+     *            Number of retries per period, must not be negative
+     * @param period
+     *            Period, must be positive
+     */
+    public synchronized void setRetryBudget(int retries, Duration period) {
+        if (retries < 0) {
+            throw new IllegalArgumentException("retries must not be negative");
+        }
+        this.budgetPeriod = positive(period, "period");
+        this.budget = retries;
+        this.budgetTokens = retries;
+        this.budgetUpdated = System.nanoTime();
+    }
+
+    @Override
+    @CheckForNull
+    public Duration getRetryDelay(FailedRequest request) {
+        if (request.getAttempt() >= maxAttempts) {
+            return null;
+        }
+
+        if (!isTransient(request)) {
+            return null;
+        }
+
+        if (!request.isIdempotent() && !isUnprocessed(request)) {
+            LOG.debug("Not retrying non-idempotent request {}", request);
+            return null;
+        }
+
+        Duration delay;
+        Instant retryAfter = request.getRetryAfter();
+        if (retryAfter != null) {
+            Duration wait = Duration.between(Instant.now(), retryAfter);
+            if (wait.compareTo(maxRetryAfter) > 0) {
+                LOG.debug("Not retrying {}, server asks to retry after {}", request, retryAfter);
+                return null;
+            }
+            delay = (wait.isNegative() ? Duration.ZERO : wait).plus(jitter(initialDelay));
+        } else {
+            delay = backoff(request.getAttempt());
+        }
+
+        if (!takeFromBudget()) {
+            LOG.debug("Retry budget is exhausted, not retrying {}", request);
+            return null;
+        }
+
+        return delay;
+    }
+
+    /**
+     * Checks if the request failed because of a transient failure that might be gone on
+     * the next attempt.
+     *
+     * @param request
+     *            {@link FailedRequest} to check
+     * @return {@code true} if the failure is transient
+     */
+    protected boolean isTransient(FailedRequest request) {
+        AcmeException failure = request.getFailure();
+        if (failure instanceof AcmeNetworkException) {
+            return true;
+        }
+
+        if (failure instanceof AcmeServerException
+                && SERVER_INTERNAL_ERROR.equals(((AcmeServerException) failure).getType())) {
+            return true;
+        }
+
+        switch (request.getStatus()) {
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if the request has surely not been processed by the server, so it can be
+     * retried even if it is not idempotent.
+     *
+     * @param request
+     *            {@link FailedRequest} to check
+     * @return {@code true} if the request has not been processed
+     */
+    protected boolean isUnprocessed(FailedRequest request) {
+        if (request.getStatus() == HttpURLConnection.HTTP_UNAVAILABLE) {
+            return true;
+        }
+
+        Throwable cause = request.getFailure().getCause();
+        return request.getStatus() == 0
+                && (cause instanceof ConnectException || cause instanceof UnknownHostException);
+    }
+
+    /**
+     * Computes the delay before the next attempt, if the server did not send a
+     * {@code Retry-After} header.
+     * <p>
+     * The delay doubles with every attempt, up to the maximum delay. Half of the delay
+     * is randomized.
+     *
+     * @param attempt
+     *            Number of the failed attempt, starting from 1
+     * @return Delay before the next attempt
+     */
+    protected Duration backoff(int attempt) {
+        Duration delay = initialDelay.multipliedBy(1L << Math.min(attempt - 1, 30));
+        if (delay.compareTo(maxDelay) > 0 || delay.isNegative()) {
+            delay = maxDelay;
+        }
+        Duration half = delay.dividedBy(2L);
+        return half.plus(jitter(half));
+    }
+
+    /**
+     * Returns a random {@link Duration} between zero and the given maximum.
+     */
+    private static Duration jitter(Duration max) {
+        long nanos = max.toNanos();
+        return nanos > 0L ? Duration.ofNanos(ThreadLocalRandom.current().nextLong(nanos)) : Duration.ZERO;
+    }
+
+    /**
+     * Takes a retry from the budget.
+     *
+     * @return {@code true} if the retry is permitted, {@code false} if the budget is
+     *         exhausted
+     */
+    private synchronized boolean takeFromBudget() {
+        long now = System.nanoTime();
+        double refill = (double) (now - budgetUpdated) * budget / budgetPeriod.toNanos();
+        budgetTokens = Math.min(budget, budgetTokens + refill);
+        budgetUpdated = now;
+
+        if (budgetTokens < 1.0) {
+            return false;
+        }
+        budgetTokens -= 1.0;
+        return true;
+    }
+
+    private static Duration positive(Duration duration, String name) {
+        if (requireNonNull(duration, name).isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return duration;
+    }
+
+}
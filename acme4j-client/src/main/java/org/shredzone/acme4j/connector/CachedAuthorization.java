@@ -0,0 +1,102 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URL;
+import java.time.Instant;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.shredzone.acme4j.Identifier;
+
+/**
+ * A valid authorization that is stored in an {@link AuthorizationCache}.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public final class CachedAuthorization {
+
+    private final Identifier identifier;
+    private final URL location;
+    private final Instant expires;
+
+    /**
+     * Creates a new {@link CachedAuthorization}.
+     *
+     * @param identifier
+     *            {@link Identifier} that was authorized. Wildcard domains have a
+     *            {@code *.} prefix.
+     * @param location
+     *            Location {@link URL} of the authorization
+     * @param expires
+     *            Date when the authorization expires
+     */
+    public CachedAuthorization(Identifier identifier, URL location, Instant expires) {
+        this.identifier = requireNonNull(identifier, "identifier");
+        this.location = requireNonNull(location, "location");
+        this.expires = requireNonNull(expires, "expires");
+    }
+
+    /**
+     * Returns the {@link Identifier} that was authorized.
+     */
+    public Identifier getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Returns the location {@link URL} of the authorization.
+     */
+    public URL getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the date when the authorization expires.
+     */
+    public Instant getExpires() {
+        return expires;
+    }
+
+    /**
+     * Checks if the authorization is expired.
+     *
+     * @return {@code true} if the authorization is not valid anymore
+     */
+    public boolean isExpired() {
+        return !expires.isAfter(Instant.now());
+    }
+
+    /**
+     * Checks if this is the authorization at the given location.
+     *
+     * @param url
+     *            Location {@link URL} of an authorization
+     * @return {@code true} if the location matches
+     */
+    public boolean isLocatedAt(URL url) {
+        return location.toExternalForm().equals(url.toExternalForm());
+    }
+
+    @Override
+    public String toString() {
+        return identifier + " at " + location + " (expires " + expires + ")";
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.shredzone.acme4j.toolbox.JSON;
+
+/**
+ * A directory that is stored in a {@link DirectoryCache}.
+ * <p>
+ * Besides the directory itself, it contains the date when the directory expires, and the
+ * validators that are needed for revalidating the directory with the server.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public final class CachedDirectory {
+
+    private final JSON directory;
+    private final Instant expires;
+    private final String eTag;
+    private final Instant lastModified;
+
+    /**
+     * Creates a new {@link CachedDirectory}.
+     *
+     * @param directory
+     *            Directory {@link JSON}
+     * @param expires
+     *            Date when the directory expires and needs to be revalidated
+     * @param eTag
+     *            Entity tag of the directory, or {@code null} if unknown
+     * @param lastModified
+     *            Modification date of the directory, or {@code null} if unknown
+     */
+    public CachedDirectory(JSON directory, Instant expires, @Nullable String eTag,
+                @Nullable Instant lastModified) {
+        this.directory = requireNonNull(directory, "directory");
+        this.expires = requireNonNull(expires, "expires");
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the directory {@link JSON}.
+     */
+    public JSON getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the date when the directory expires.
+     */
+    public Instant getExpires() {
+        return expires;
+    }
+
+    /**
+     * Returns the entity tag of the directory, or {@code null} if unknown.
+     */
+    @CheckForNull
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Returns the modification date of the directory, or {@code null} if unknown.
+     */
+    @CheckForNull
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Checks if the directory is expired.
+     *
+     * @return {@code true} if the directory must be revalidated before use
+     */
+    public boolean isExpired() {
+        return !expires.isAfter(Instant.now());
+    }
+
+    /**
+     * Returns a copy of this directory with a new expiration date. It is used after the
+     * server has confirmed that the directory was not modified.
+     *
+     * @param newExpires
+     *            New expiration date
+     * @param newETag
+     *            New entity tag, or {@code null} to keep the current one
+     * @return New {@link CachedDirectory} with the same directory {@link JSON}
+     */
+    public CachedDirectory revalidated(Instant newExpires, @Nullable String newETag) {
+        return new CachedDirectory(directory, newExpires,
+                newETag != null ? newETag : eTag, lastModified);
+    }
+
+}
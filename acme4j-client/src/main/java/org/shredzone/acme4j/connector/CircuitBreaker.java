@@ -0,0 +1,222 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.exception.AcmeCircuitOpenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A circuit breaker for the connections to an ACME server.
+ * <p>
+ * If requests to the server fail repeatedly because of network errors or server
+ * errors, the circuit is opened. While it is open, requests fail immediately with an
+ * {@link AcmeCircuitOpenException} instead of waiting for the network timeout. After a
+ * while, the circuit is half-opened, and a single trial request is sent to the server.
+ * Other requests are rejected while the trial request is in progress. If it succeeds,
+ * the circuit is closed. If it fails, the circuit is opened again. If the trial request
+ * does not report its outcome within the open duration, another trial request is
+ * permitted.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class CircuitBreaker {
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The state of a {@link CircuitBreaker}.
+     */
+    public enum State {
+
+        /**
+         * The server is available, requests are sent.
+         */
+        CLOSED,
+
+        /**
+         * The server is unavailable, requests fail immediately.
+         */
+        OPEN,
+
+        /**
+         * The server was unavailable, a single request is sent on trial.
+         */
+        HALF_OPEN;
+
+    }
+
+    private volatile int failureThreshold = 5;
+    private volatile Duration openDuration = Duration.ofSeconds(30);
+
+    @GuardedBy("this")
+    private State state = State.CLOSED;
+
+    @GuardedBy("this")
+    private int failures = 0;
+
+    @GuardedBy("this")
+    private Instant openUntil = Instant.MIN;
+
+    @GuardedBy("this")
+    private boolean probeInFlight = false;
+
+    @GuardedBy("this")
+    private Instant probeUntil = Instant.MIN;
+
+    /**
+     * Returns the number of consecutive failures that open the circuit.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Sets the number of consecutive failures that open the circuit. Defaults to 5.
+     *
+     * @param failureThreshold
+     *            Number of failures, must be positive
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Returns how long the circuit stays open before requests are tried again.
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Sets how long the circuit stays open before requests are tried again. Defaults to
+     * 30 seconds.
+     *
+     * @param openDuration
+     *            Duration, must be positive
+     */
+    public void setOpenDuration(Duration openDuration) {
+        if (requireNonNull(openDuration, "openDuration").isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("openDuration must be positive");
+        }
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns the current {@link State} of the circuit.
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && !openUntil.isAfter(Instant.now())) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Returns the moment when the open circuit is half-opened, so requests are sent to
+     * the server again.
+     *
+     * @return Instant, or {@code null} if the circuit is not open
+     */
+    @CheckForNull
+    public synchronized Instant getOpenUntil() {
+        return getState() == State.OPEN ? openUntil : null;
+    }
+
+    /**
+     * Checks if requests are currently sent to the server, that is if the circuit is
+     * not open.
+     */
+    public boolean isAvailable() {
+        return getState() != State.OPEN;
+    }
+
+    /**
+     * Checks if a request may be sent to the server. If the circuit is half-open, only
+     * the first caller may send a trial request. It must report the outcome via
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @throws AcmeCircuitOpenException
+     *             if the circuit is open, or if it is half-open and a trial request is
+     *             already in progress
+     */
+    public synchronized void acquire() throws AcmeCircuitOpenException {
+        State current = getState();
+        if (current == State.OPEN) {
+            throw new AcmeCircuitOpenException("Server is unavailable after " + failures
+                    + " failures, not retrying before " + openUntil, openUntil);
+        }
+
+        if (current == State.HALF_OPEN) {
+            Instant now = Instant.now();
+            if (probeInFlight && probeUntil.isAfter(now)) {
+                throw new AcmeCircuitOpenException("Server is unavailable after " + failures
+                        + " failures, waiting for the trial request", probeUntil);
+            }
+            probeInFlight = true;
+            probeUntil = now.plus(openDuration);
+        }
+    }
+
+    /**
+     * Records a request that was answered by the server. A half-open circuit is closed.
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            LOG.info("Server is available again, closing circuit");
+        }
+        state = State.CLOSED;
+        failures = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * Records a request that failed because of a network error or a server error. The
+     * circuit is opened if the threshold of consecutive failures is reached, or if it was
+     * half-open.
+     */
+    public synchronized void onFailure() {
+        failures++;
+        if (getState() == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            openUntil = Instant.now().plus(openDuration);
+            state = State.OPEN;
+            probeInFlight = false;
+            LOG.warn("Server is unavailable after {} failures, opening circuit until {}",
+                    failures, openUntil);
+        }
+    }
+
+    /**
+     * Records a request that was aborted without an outcome. The state of the circuit is
+     * not changed, but if it was a trial request, another trial request is permitted.
+     */
+    synchronized void onAbort() {
+        probeInFlight = false;
+    }
+
+}
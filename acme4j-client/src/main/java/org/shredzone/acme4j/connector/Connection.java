@@ -17,10 +17,12 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.KeyPair;
 import java.security.cert.X509Certificate;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 import org.shredzone.acme4j.Login;
@@ -38,7 +40,8 @@ import org.shredzone.acme4j.toolbox.JSONBuilder;
 public interface Connection extends AutoCloseable {
 
     /**
-     * Resets the session nonce, by fetching a new one.
+     * Resets the session nonce, by fetching a new one. The new nonce is added to the
+     * session's {@link NoncePool}.
      *
      * @param session
      *            {@link Session} instance to fetch a nonce for
@@ -58,6 +61,35 @@ public interface Connection extends AutoCloseable {
      */
     void sendRequest(URL url, Session session) throws AcmeException;
 
+    /**
+     * Sends a conditional GET request. If an entity tag or a modification date is given,
+     * the server may respond with {@link HttpURLConnection#HTTP_NOT_MODIFIED} if the
+     * resource has not been changed since.
+     * <p>
+     * If the response code was neither {@link HttpURLConnection#HTTP_OK} nor
+     * {@link HttpURLConnection#HTTP_NOT_MODIFIED}, an {@link AcmeException} matching the
+     * error is raised.
+     * <p>
+     * The default implementation ignores the cache validators, and just sends a simple
+     * GET request via {@link #sendRequest(URL, Session)}.
+     *
+     * @param url
+     *            {@link URL} to send the request to.
+     * @param session
+     *            {@link Session} instance to be used for tracking
+     * @param eTag
+     *            Entity tag of the cached resource, or {@code null}
+     * @param lastModified
+     *            Modification date of the cached resource, or {@code null}
+     * @return HTTP status that was returned
+     * @since 2.9
+     */
+    default int sendConditionalRequest(URL url, Session session, @Nullable String eTag,
+                @Nullable Instant lastModified) throws AcmeException {
+        sendRequest(url, session);
+        return HttpURLConnection.HTTP_OK;
+    }
+
     /**
      * Sends a signed POST-as-GET request for a certificate resource. Requires a
      * {@link Login} for the session and {@link KeyPair}. The {@link Login} account
@@ -171,6 +203,44 @@ public interface Connection extends AutoCloseable {
     @CheckForNull
     URL getLocation();
 
+    /**
+     * Gets the entity tag from the {@code ETag} header.
+     *
+     * @return Entity tag, or {@code null} if no ETag header was set. The default
+     *         implementation always returns {@code null}.
+     * @since 2.9
+     */
+    @CheckForNull
+    default String getETag() {
+        return null;
+    }
+
+    /**
+     * Gets the modification date from the {@code Last-Modified} header.
+     *
+     * @return Modification date, or {@code null} if no valid Last-Modified header was
+     *         set. The default implementation always returns {@code null}.
+     * @since 2.9
+     */
+    @CheckForNull
+    default Instant getLastModified() {
+        return null;
+    }
+
+    /**
+     * Gets the date when the response expires, according to the {@code Cache-Control}
+     * and {@code Expires} headers.
+     *
+     * @return Expiration date, or {@code null} if the server did not give any caching
+     *         information. If the response must not be cached, the current date is
+     *         returned. The default implementation always returns {@code null}.
+     * @since 2.9
+     */
+    @CheckForNull
+    default Instant getExpiration() {
+        return null;
+    }
+
     /**
      * Gets one or more relation links from the header. The result is expected to be an URL.
      * <p>
@@ -28,10 +28,12 @@ import java.security.KeyPair;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Matcher;
@@ -44,7 +46,9 @@ import javax.annotation.ParametersAreNonnullByDefault;
 import org.shredzone.acme4j.Login;
 import org.shredzone.acme4j.Problem;
 import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.exception.AcmeCircuitOpenException;
 import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeHttpException;
 import org.shredzone.acme4j.exception.AcmeNetworkException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.exception.AcmeRateLimitedException;
@@ -52,10 +56,13 @@ import org.shredzone.acme4j.exception.AcmeRetryAfterException;
 import org.shredzone.acme4j.exception.AcmeServerException;
 import org.shredzone.acme4j.exception.AcmeUnauthorizedException;
 import org.shredzone.acme4j.exception.AcmeUserActionRequiredException;
+import org.shredzone.acme4j.jfr.JfrSupport;
+import org.shredzone.acme4j.jfr.NonceFetchEvent;
+import org.shredzone.acme4j.jfr.RequestEvent;
 import org.shredzone.acme4j.toolbox.AcmeUtils;
 import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
-import org.shredzone.acme4j.toolbox.JoseUtils;
+import org.shredzone.acme4j.toolbox.JoseSigningContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -69,8 +76,13 @@ public class DefaultConnection implements Connection {
     private static final String ACCEPT_HEADER = "Accept";
     private static final String ACCEPT_CHARSET_HEADER = "Accept-Charset";
     private static final String ACCEPT_LANGUAGE_HEADER = "Accept-Language";
+    private static final String CACHE_CONTROL_HEADER = "Cache-Control";
     private static final String CONTENT_TYPE_HEADER = "Content-Type";
     private static final String DATE_HEADER = "Date";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String EXPIRES_HEADER = "Expires";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
     private static final String LINK_HEADER = "Link";
     private static final String LOCATION_HEADER = "Location";
     private static final String REPLAY_NONCE_HEADER = "Replay-Nonce";
@@ -86,6 +98,11 @@ public class DefaultConnection implements Connection {
     protected final HttpConnector httpConnector;
     protected HttpURLConnection conn;
 
+    private int failedStatus;
+    private @Nullable Instant failedRetryAfter;
+    private @Nullable RequestSample sample;
+    private boolean retrying = false;
+
     /**
      * Creates a new {@link DefaultConnection}.
      *
@@ -100,21 +117,38 @@ public class DefaultConnection implements Connection {
     public void resetNonce(Session session) throws AcmeException {
         assertConnectionIsClosed();
 
-        try {
-            session.setNonce(null);
-
-            URL newNonceUrl = session.resourceUrl(Resource.NEW_NONCE);
+        URL newNonceUrl = session.resourceUrl(Resource.NEW_NONCE);
+        withRetry(newNonceUrl, "HEAD", null, true, session, () -> {
+            performNonceRequest(newNonceUrl, session);
+            return HttpURLConnection.HTTP_OK;
+        });
+    }
 
+    /**
+     * Performs a HEAD request for a new nonce.
+     *
+     * @param newNonceUrl
+     *            {@link URL} of the newNonce resource
+     * @param session
+     *            {@link Session} instance to store the nonce in
+     */
+    private void performNonceRequest(URL newNonceUrl, Session session) throws AcmeException {
+        try {
             LOG.debug("HEAD {}", newNonceUrl);
 
             conn = httpConnector.openConnection(newNonceUrl, session.networkSettings());
             conn.setRequestMethod("HEAD");
             conn.setRequestProperty(ACCEPT_LANGUAGE_HEADER, session.getLocale().toLanguageTag());
+
+            long connectStart = System.nanoTime();
             conn.connect();
+            long connected = System.nanoTime();
+
+            int rc = conn.getResponseCode();
+            recordExchange(connectStart, connected, 0L);
 
             logHeaders();
 
-            int rc = conn.getResponseCode();
             if (rc != HttpURLConnection.HTTP_OK && rc != HttpURLConnection.HTTP_NO_CONTENT) {
                 throwAcmeException();
             }
@@ -125,9 +159,10 @@ public class DefaultConnection implements Connection {
             }
             session.setNonce(nonce);
         } catch (IOException ex) {
+            conn = null;
             throw new AcmeNetworkException(ex);
         } finally {
-            conn = null;
+            close();
         }
     }
 
@@ -136,22 +171,28 @@ public class DefaultConnection implements Connection {
         sendRequest(url, session, MIME_JSON);
     }
 
+    @Override
+    public int sendConditionalRequest(URL url, Session session, @Nullable String eTag,
+                @Nullable Instant lastModified) throws AcmeException {
+        return sendRequest(url, session, MIME_JSON, eTag, lastModified);
+    }
+
     @Override
     public int sendCertificateRequest(URL url, Login login) throws AcmeException {
-        return sendSignedRequest(url, null, login.getSession(), login.getKeyPair(),
-                login.getAccountLocation(), MIME_CERTIFICATE_CHAIN);
+        return sendSignedRequest(url, null, login.getSession(), login.getSigningContext(),
+                MIME_CERTIFICATE_CHAIN);
     }
 
     @Override
     public int sendSignedPostAsGetRequest(URL url, Login login) throws AcmeException {
-        return sendSignedRequest(url, null, login.getSession(), login.getKeyPair(),
-                login.getAccountLocation(), MIME_JSON);
+        return sendSignedRequest(url, null, login.getSession(), login.getSigningContext(),
+                MIME_JSON);
     }
 
     @Override
     public int sendSignedRequest(URL url, JSONBuilder claims, Login login) throws AcmeException {
-        return sendSignedRequest(url, claims, login.getSession(), login.getKeyPair(),
-                login.getAccountLocation(), MIME_JSON);
+        return sendSignedRequest(url, claims, login.getSession(), login.getSigningContext(),
+                MIME_JSON);
     }
 
     @Override
@@ -252,6 +293,71 @@ public class DefaultConnection implements Connection {
         return resolveRelative(location);
     }
 
+    @Override
+    @CheckForNull
+    public String getETag() {
+        assertConnectionIsOpen();
+
+        String eTag = conn.getHeaderField(ETAG_HEADER);
+        if (eTag == null || eTag.trim().isEmpty()) {
+            return null;
+        }
+        return eTag.trim();
+    }
+
+    @Override
+    @CheckForNull
+    public Instant getLastModified() {
+        assertConnectionIsOpen();
+
+        long date = conn.getHeaderFieldDate(LAST_MODIFIED_HEADER, 0L);
+        return date != 0L ? Instant.ofEpochMilli(date) : null;
+    }
+
+    @Override
+    @CheckForNull
+    public Instant getExpiration() {
+        assertConnectionIsOpen();
+
+        // See RFC 7234 section 4.2.1
+        String cacheControl = conn.getHeaderField(CACHE_CONTROL_HEADER);
+        if (cacheControl != null) {
+            Long maxAge = null;
+            for (String directive : cacheControl.split(",")) {
+                String dir = directive.trim().toLowerCase(Locale.ENGLISH);
+                if ("no-cache".equals(dir) || "no-store".equals(dir)) {
+                    return Instant.now();
+                }
+                if (dir.startsWith("max-age=")) {
+                    try {
+                        maxAge = Long.parseLong(dir.substring(8).replace("\"", ""));
+                    } catch (NumberFormatException ex) {
+                        LOG.debug("Bad max-age directive: {}", directive);
+                        return Instant.now();
+                    }
+                }
+            }
+            if (maxAge != null) {
+                return Instant.now().plusSeconds(Math.max(maxAge, 0L));
+            }
+        }
+
+        if (conn.getHeaderField(EXPIRES_HEADER) != null) {
+            long expires = conn.getHeaderFieldDate(EXPIRES_HEADER, 0L);
+            if (expires == 0L) {
+                // An invalid date means that the response is already expired
+                return Instant.now();
+            }
+
+            // Use the server's date as reference, to compensate for clock skew
+            long now = System.currentTimeMillis();
+            long date = conn.getHeaderFieldDate(DATE_HEADER, now);
+            return Instant.ofEpochMilli(now + Math.max(expires - date, 0L));
+        }
+
+        return null;
+    }
+
     @Override
     public Collection<URL> getLinks(String relation) {
         return collectLinks(relation).stream()
@@ -259,9 +365,18 @@ public class DefaultConnection implements Connection {
                 .collect(toList());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The underlying {@link HttpURLConnection} is released to the {@link HttpConnector},
+     * so the connection to the server can be reused by the next request.
+     */
     @Override
     public void close() {
-        conn = null;
+        if (conn != null) {
+            httpConnector.release(conn);
+            conn = null;
+        }
     }
 
     /**
@@ -276,11 +391,54 @@ public class DefaultConnection implements Connection {
      * @return HTTP 200 class status that was returned
      */
     protected int sendRequest(URL url, Session session, String accept) throws AcmeException {
+        return sendRequest(url, session, accept, null, null);
+    }
+
+    /**
+     * Sends an unsigned GET request, which may be conditional.
+     *
+     * @param url
+     *            {@link URL} to send the request to.
+     * @param session
+     *            {@link Session} instance to be used for signing and tracking
+     * @param accept
+     *            Accept header
+     * @param eTag
+     *            If set, it is sent as If-None-Match header
+     * @param lastModified
+     *            If set, it is sent as If-Modified-Since header
+     * @return HTTP 200 class status that was returned, or 304 if the resource was not
+     *         modified
+     */
+    private int sendRequest(URL url, Session session, String accept, @Nullable String eTag,
+                @Nullable Instant lastModified) throws AcmeException {
         Objects.requireNonNull(url, "url");
         Objects.requireNonNull(session, "session");
         Objects.requireNonNull(accept, "accept");
         assertConnectionIsClosed();
 
+        return withRetry(url, "GET", accept, true, session,
+                () -> performGetRequest(url, session, accept, eTag, lastModified));
+    }
+
+    /**
+     * Performs an unsigned GET request.
+     *
+     * @param url
+     *            {@link URL} to send the request to.
+     * @param session
+     *            {@link Session} instance to be used for tracking
+     * @param accept
+     *            Accept header
+     * @param eTag
+     *            If set, it is sent as If-None-Match header
+     * @param lastModified
+     *            If set, it is sent as If-Modified-Since header
+     * @return HTTP 200 class status that was returned, or 304 if the resource was not
+     *         modified
+     */
+    private int performGetRequest(URL url, Session session, String accept,
+                @Nullable String eTag, @Nullable Instant lastModified) throws AcmeException {
         LOG.debug("GET {}", url);
 
         try {
@@ -289,9 +447,20 @@ public class DefaultConnection implements Connection {
             conn.setRequestProperty(ACCEPT_HEADER, accept);
             conn.setRequestProperty(ACCEPT_CHARSET_HEADER, DEFAULT_CHARSET);
             conn.setRequestProperty(ACCEPT_LANGUAGE_HEADER, session.getLocale().toLanguageTag());
+            if (eTag != null) {
+                conn.setRequestProperty(IF_NONE_MATCH_HEADER, eTag);
+            }
+            if (lastModified != null) {
+                conn.setIfModifiedSince(lastModified.toEpochMilli());
+            }
             conn.setDoOutput(false);
 
+            long connectStart = System.nanoTime();
             conn.connect();
+            long connected = System.nanoTime();
+
+            int rc = conn.getResponseCode();
+            recordExchange(connectStart, connected, 0L);
 
             logHeaders();
 
@@ -300,12 +469,14 @@ public class DefaultConnection implements Connection {
                 session.setNonce(nonce);
             }
 
-            int rc = conn.getResponseCode();
-            if (rc != HttpURLConnection.HTTP_OK && rc != HttpURLConnection.HTTP_CREATED) {
+            boolean conditional = eTag != null || lastModified != null;
+            if (rc != HttpURLConnection.HTTP_OK && rc != HttpURLConnection.HTTP_CREATED
+                    && !(conditional && rc == HttpURLConnection.HTTP_NOT_MODIFIED)) {
                 throwAcmeException();
             }
             return rc;
         } catch (IOException ex) {
+            conn = null;
             throw new AcmeNetworkException(ex);
         }
     }
@@ -331,16 +502,74 @@ public class DefaultConnection implements Connection {
      */
     protected int sendSignedRequest(URL url, @Nullable JSONBuilder claims, Session session,
                 KeyPair keypair, @Nullable URL accountLocation, String accept) throws AcmeException {
+        Objects.requireNonNull(keypair, "keypair");
+        JoseSigningContext context = new JoseSigningContext(keypair,
+                accountLocation != null ? accountLocation.toString() : null);
+        return sendSignedRequest(url, claims, session, context, accept);
+    }
+
+    /**
+     * Sends a signed POST request. The request is subject to the {@link RateLimiter}
+     * of the session.
+     *
+     * @param url
+     *            {@link URL} to send the request to.
+     * @param claims
+     *            {@link JSONBuilder} containing claims. {@code null} for POST-as-GET
+     *            request.
+     * @param session
+     *            {@link Session} instance to be used for tracking
+     * @param context
+     *            {@link JoseSigningContext} to be used for signing
+     * @param accept
+     *            Accept header
+     * @return HTTP 200 class status that was returned
+     * @since 2.9
+     */
+    protected int sendSignedRequest(URL url, @Nullable JSONBuilder claims, Session session,
+                JoseSigningContext context, String accept) throws AcmeException {
         Objects.requireNonNull(url, "url");
         Objects.requireNonNull(session, "session");
-        Objects.requireNonNull(keypair, "keypair");
+        Objects.requireNonNull(context, "context");
         Objects.requireNonNull(accept, "accept");
         assertConnectionIsClosed();
 
+        RateLimiter limiter = session.getRateLimiter();
+        String account = context.getKeyIdentifier();
+        limiter.acquire(session, url, account, claims);
+
+        try {
+            return withRetry(url, "POST", accept, claims == null, session,
+                    () -> performSignedRequest(url, claims, session, context, accept));
+        } catch (AcmeRateLimitedException ex) {
+            limiter.rateLimited(session, url, account, claims, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Performs a signed POST request. If the server rejects the nonce, the request is
+     * repeated with a fresh nonce.
+     *
+     * @param url
+     *            {@link URL} to send the request to.
+     * @param claims
+     *            {@link JSONBuilder} containing claims. {@code null} for POST-as-GET
+     *            request.
+     * @param session
+     *            {@link Session} instance to be used for tracking
+     * @param context
+     *            {@link JoseSigningContext} to be used for signing
+     * @param accept
+     *            Accept header
+     * @return HTTP 200 class status that was returned
+     */
+    private int performSignedRequest(URL url, @Nullable JSONBuilder claims, Session session,
+                JoseSigningContext context, String accept) throws AcmeException {
         int attempt = 1;
         while (true) {
             try {
-                return performRequest(url, claims, session, keypair, accountLocation, accept);
+                return performRequest(url, claims, session, context, accept);
             } catch (AcmeServerException ex) {
                 if (!BAD_NONCE_ERROR.equals(ex.getType())) {
                     throw ex;
@@ -349,11 +578,199 @@ public class DefaultConnection implements Connection {
                     throw ex;
                 }
                 LOG.info("Bad Replay Nonce, trying again (attempt {}/{})", attempt, MAX_ATTEMPTS);
+                JfrSupport.badNonce(url, attempt);
+                if (sample != null) {
+                    sample.addBadNonceRetry();
+                }
+                close();
                 attempt++;
             }
         }
     }
 
+    /**
+     * Performs a request, and retries it on failure as long as the {@link RetryPolicy}
+     * of the session permits. The outcome of every attempt is recorded by the
+     * {@link CircuitBreaker} of the session, and reported to its {@link MetricsListener}.
+     * Every attempt also emits a {@link RequestEvent}.
+     * <p>
+     * Requests that are nested in another request, like fetching a new nonce for a
+     * signed request, are performed only once, and bypass the {@link CircuitBreaker}.
+     * Their failure is a failure of the outer request, which is then retried as a whole.
+     *
+     * @param url
+     *            {@link URL} the request is sent to
+     * @param method
+     *            HTTP method of the request
+     * @param accept
+     *            Accept header of the request, or {@code null} if there is none
+     * @param idempotent
+     *            {@code true} if the request can safely be sent again
+     * @param session
+     *            {@link Session} instance to be used
+     * @param request
+     *            Performs a single attempt of the request
+     * @return HTTP status that was returned
+     */
+    private int withRetry(URL url, String method, @Nullable String accept, boolean idempotent,
+                Session session, RequestAttempt request) throws AcmeException {
+        RetryPolicy policy = session.networkSettings().getRetryPolicy();
+        CircuitBreaker breaker = session.getCircuitBreaker();
+        MetricsListener listener = session.getMetricsListener();
+
+        RequestSample current = null;
+        RequestKind kind = RequestKind.OTHER;
+        if (listener != MetricsListener.NONE) {
+            current = new RequestSample();
+            kind = RequestKind.of(session, url, method, accept);
+        }
+
+        RequestSample parent = sample;
+        boolean nested = retrying;
+        retrying = true;
+        try {
+            int attempt = 1;
+            while (true) {
+                if (!nested) {
+                    breaker.acquire();
+                }
+                failedStatus = 0;
+                failedRetryAfter = null;
+                long start = System.nanoTime();
+                if (current != null) {
+                    current.start(kind, url, method, attempt);
+                }
+                sample = current;
+                RequestEvent event = JfrSupport.isAvailable() ? new RequestEvent() : null;
+                if (event != null) {
+                    event.begin();
+                }
+                try {
+                    int rc = request.perform();
+                    if (!nested) {
+                        breaker.onSuccess();
+                    }
+                    report(listener, current, rc, false, start);
+                    commitEvent(event, session, url, method, accept, rc, attempt);
+                    return rc;
+                } catch (AcmeCircuitOpenException | RuntimeException ex) {
+                    report(listener, current, failedStatus, true, start);
+                    commitEvent(event, session, url, method, accept, failedStatus, attempt);
+                    if (!nested) {
+                        breaker.onAbort();
+                    }
+                    throw ex;
+                } catch (AcmeException ex) {
+                    report(listener, current, failedStatus, true, start);
+                    commitEvent(event, session, url, method, accept, failedStatus, attempt);
+                    if (nested) {
+                        throw ex;
+                    }
+                    if (ex instanceof AcmeNetworkException
+                            || failedStatus >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                        breaker.onFailure();
+                    } else {
+                        breaker.onSuccess();
+                    }
+
+                    FailedRequest failed = new FailedRequest(url, method, idempotent, attempt,
+                            failedStatus, failedRetryAfter, ex);
+                    Duration delay = policy.getRetryDelay(failed);
+                    if (delay == null) {
+                        throw ex;
+                    }
+
+                    LOG.info("{}, trying again in {} ms", failed, delay.toMillis());
+                    close();
+                    try {
+                        Thread.sleep(delay.toMillis());
+                    } catch (InterruptedException iex) {
+                        Thread.currentThread().interrupt();
+                        throw ex;
+                    }
+                    attempt++;
+                }
+            }
+        } finally {
+            sample = parent;
+            retrying = nested;
+        }
+    }
+
+    /**
+     * Records an exchange with the server in the current {@link RequestSample}, if
+     * metrics are collected.
+     *
+     * @param connectStart
+     *            {@link System#nanoTime()} before connecting
+     * @param connected
+     *            {@link System#nanoTime()} after the connection was established
+     * @param bytesOut
+     *            Number of bytes that were sent
+     */
+    private void recordExchange(long connectStart, long connected, long bytesOut) {
+        if (sample != null) {
+            sample.addExchange(connected - connectStart, System.nanoTime() - connected,
+                    bytesOut, conn.getContentLengthLong());
+        }
+    }
+
+    /**
+     * Commits a {@link RequestEvent}, if the Flight Recorder is recording it.
+     *
+     * @param event
+     *            {@link RequestEvent} to commit, or {@code null} if the Flight Recorder
+     *            is not available
+     * @param session
+     *            {@link Session} the request belongs to
+     * @param url
+     *            {@link URL} the request was sent to
+     * @param method
+     *            HTTP method of the request
+     * @param accept
+     *            Accept header of the request, or {@code null} if there is none
+     * @param status
+     *            HTTP status of the response, or 0 if there was none
+     * @param attempt
+     *            Number of the attempt, starting from 1
+     */
+    private static void commitEvent(@Nullable RequestEvent event, Session session, URL url,
+                String method, @Nullable String accept, int status, int attempt) {
+        if (event != null && event.shouldCommit()) {
+            event.commit(url, RequestKind.of(session, url, method, accept).name(), method,
+                    status, attempt);
+        }
+    }
+
+    /**
+     * Finishes a {@link RequestSample} and passes it to the {@link MetricsListener}.
+     *
+     * @param listener
+     *            {@link MetricsListener} to pass the sample to
+     * @param sample
+     *            {@link RequestSample} to finish, or {@code null} if no metrics are
+     *            collected
+     * @param status
+     *            HTTP status of the response, or 0 if there was none
+     * @param failed
+     *            {@code true} if the request has failed
+     * @param start
+     *            {@link System#nanoTime()} when the attempt was started
+     */
+    private static void report(MetricsListener listener, @Nullable RequestSample sample,
+                int status, boolean failed, long start) {
+        if (sample == null) {
+            return;
+        }
+
+        sample.finish(status, failed, System.nanoTime() - start);
+        try {
+            listener.onRequest(sample);
+        } catch (RuntimeException ex) {
+            LOG.warn("Metrics listener failed", ex);
+        }
+    }
+
     /**
      * Performs the POST request.
      *
@@ -363,23 +780,17 @@ public class DefaultConnection implements Connection {
      *            {@link JSONBuilder} containing claims. {@code null} for POST-as-GET
      *            request.
      * @param session
-     *            {@link Session} instance to be used for signing and tracking
-     * @param keypair
-     *            {@link KeyPair} to be used for signing
-     * @param accountLocation
-     *            If set, the account location is set as "kid" header. If {@code null},
-     *            the public key is set as "jwk" header.
+     *            {@link Session} instance to be used for tracking
+     * @param context
+     *            {@link JoseSigningContext} to be used for signing
      * @param accept
      *            Accept header
      * @return HTTP 200 class status that was returned
      */
     private int performRequest(URL url, @Nullable JSONBuilder claims, Session session,
-                KeyPair keypair, @Nullable URL accountLocation, String accept)
-                throws AcmeException {
+                JoseSigningContext context, String accept) throws AcmeException {
         try {
-            if (session.getNonce() == null) {
-                resetNonce(session);
-            }
+            String nonce = takeNonce(url, session);
 
             conn = httpConnector.openConnection(url, session.networkSettings());
             conn.setRequestMethod("POST");
@@ -389,37 +800,76 @@ public class DefaultConnection implements Connection {
             conn.setRequestProperty(CONTENT_TYPE_HEADER, "application/jose+json");
             conn.setDoOutput(true);
 
-            JSONBuilder jose = JoseUtils.createJoseRequest(
-                    url,
-                    keypair,
-                    claims,
-                    session.getNonce(),
-                    accountLocation != null ? accountLocation.toString() : null
-            );
+            long signStart = System.nanoTime();
+            JSONBuilder jose = context.createJoseRequest(url, claims, nonce);
+            if (sample != null) {
+                sample.addSigning(System.nanoTime() - signStart);
+            }
 
             byte[] outputData = jose.toString().getBytes(StandardCharsets.UTF_8);
 
             conn.setFixedLengthStreamingMode(outputData.length);
+
+            long connectStart = System.nanoTime();
             conn.connect();
+            long connected = System.nanoTime();
 
             try (OutputStream out = conn.getOutputStream()) {
                 out.write(outputData);
             }
 
+            int rc = conn.getResponseCode();
+            recordExchange(connectStart, connected, outputData.length);
+
             logHeaders();
 
-            session.setNonce(getNonce());
+            String newNonce = getNonce();
+            if (newNonce != null) {
+                session.setNonce(newNonce);
+            }
 
-            int rc = conn.getResponseCode();
             if (rc != HttpURLConnection.HTTP_OK && rc != HttpURLConnection.HTTP_CREATED) {
                 throwAcmeException();
             }
             return rc;
         } catch (IOException ex) {
+            conn = null;
             throw new AcmeNetworkException(ex);
         }
     }
 
+    /**
+     * Takes a nonce from the session's {@link NoncePool}. If the pool is empty, a new
+     * nonce is fetched from the server. A {@link NonceFetchEvent} is emitted.
+     *
+     * @param url
+     *            {@link URL} of the request that needs the nonce
+     * @param session
+     *            {@link Session} instance to take the nonce from
+     * @return Nonce to be used for the next request
+     */
+    private String takeNonce(URL url, Session session) throws AcmeException {
+        NonceFetchEvent event = JfrSupport.isAvailable() ? new NonceFetchEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
+        NoncePool pool = session.noncePool();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            String nonce = pool.poll();
+            if (nonce != null) {
+                if (event != null && event.shouldCommit()) {
+                    event.commit(url, attempt - 1);
+                }
+                return nonce;
+            }
+
+            // The nonce may have been taken by another thread in the meantime
+            resetNonce(session);
+        }
+        throw new AcmeProtocolException("Could not get a nonce from the server");
+    }
+
     /**
      * Gets the instant sent with the Retry-After header.
      */
@@ -454,12 +904,24 @@ public class DefaultConnection implements Connection {
      */
     private void throwAcmeException() throws AcmeException {
         try {
+            failedStatus = conn.getResponseCode();
+            try {
+                failedRetryAfter = getRetryAfterHeader().orElse(null);
+            } catch (AcmeProtocolException ex) {
+                LOG.debug("Ignoring invalid Retry-After header", ex);
+            }
+
             String contentType = AcmeUtils.getContentType(conn.getHeaderField(CONTENT_TYPE_HEADER));
             if (!MIME_JSON_PROBLEM.equals(contentType)) {
-                throw new AcmeException("HTTP " + conn.getResponseCode() + ": " + conn.getResponseMessage());
+                throw new AcmeHttpException(conn.getResponseCode(), conn.getResponseMessage());
             }
 
-            Problem problem = new Problem(readJsonResponse(), conn.getURL());
+            URL problemUrl = conn.getURL();
+            Problem problem = new Problem(readJsonResponse(), problemUrl);
+            if (sample != null) {
+                sample.setProblemType(problem.getType());
+            }
+            JfrSupport.problem(problemUrl, failedStatus, problem);
 
             String error = AcmeUtils.stripErrorPrefix(problem.getType().toString());
 
@@ -476,9 +938,8 @@ public class DefaultConnection implements Connection {
             }
 
             if ("rateLimited".equals(error)) {
-                Optional<Instant> retryAfter = getRetryAfterHeader();
                 Collection<URL> rateLimits = getLinks("help");
-                throw new AcmeRateLimitedException(problem, retryAfter.orElse(null), rateLimits);
+                throw new AcmeRateLimitedException(problem, failedRetryAfter, rateLimits);
             }
 
             throw new AcmeServerException(problem);
@@ -592,4 +1053,12 @@ public class DefaultConnection implements Connection {
         }
     }
 
+    /**
+     * A single attempt of a request.
+     */
+    @FunctionalInterface
+    private interface RequestAttempt {
+        int perform() throws AcmeException;
+    }
+
 }
@@ -0,0 +1,65 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.net.URI;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Caches the directories of ACME servers.
+ * <p>
+ * A cache can be shared by any number of {@link org.shredzone.acme4j.Session}
+ * instances, and must be thread-safe. The cache should always return the same
+ * {@link CachedDirectory} instance as long as the directory has not been replaced.
+ *
+ * @see MemoryDirectoryCache
+ * @see FileDirectoryCache
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+public interface DirectoryCache {
+
+    /**
+     * Returns the cached directory of an ACME server.
+     *
+     * @param serverUri
+     *            {@link URI} of the ACME server
+     * @return {@link CachedDirectory}, or {@code null} if there is no directory in the
+     *         cache. The returned directory may be expired.
+     */
+    @CheckForNull
+    CachedDirectory get(URI serverUri);
+
+    /**
+     * Stores the directory of an ACME server, replacing any previous one.
+     *
+     * @param serverUri
+     *            {@link URI} of the ACME server
+     * @param directory
+     *            {@link CachedDirectory} to store
+     */
+    void put(URI serverUri, CachedDirectory directory);
+
+    /**
+     * Removes the directory of an ACME server. The next access will fetch the directory
+     * from the server again.
+     *
+     * @param serverUri
+     *            {@link URI} of the ACME server
+     */
+    void remove(URI serverUri);
+
+}
@@ -0,0 +1,136 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URL;
+import java.time.Instant;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.shredzone.acme4j.exception.AcmeException;
+
+/**
+ * Describes a request that has failed, so a {@link RetryPolicy} can decide whether to
+ * retry it.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class FailedRequest {
+
+    private final URL url;
+    private final String method;
+    private final boolean idempotent;
+    private final int attempt;
+    private final int status;
+    private final @Nullable Instant retryAfter;
+    private final AcmeException failure;
+
+    /**
+     * Creates a new {@link FailedRequest}.
+     *
+     * @param url
+     *            {@link URL} the request was sent to
+     * @param method
+     *            HTTP method of the request
+     * @param idempotent
+     *            {@code true} if the request can safely be sent again
+     * @param attempt
+     *            Number of the failed attempt, starting from 1
+     * @param status
+     *            HTTP status of the response, or 0 if there was no response
+     * @param retryAfter
+     *            Instant of the {@code Retry-After} header, or {@code null} if there
+     *            was none
+     * @param failure
+     *            {@link AcmeException} that was caused by the request
+     */
+    public FailedRequest(URL url, String method, boolean idempotent, int attempt, int status,
+                @Nullable Instant retryAfter, AcmeException failure) {
+        this.url = requireNonNull(url, "url");
+        this.method = requireNonNull(method, "method");
+        this.idempotent = idempotent;
+        this.attempt = attempt;
+        this.status = status;
+        this.retryAfter = retryAfter;
+        this.failure = requireNonNull(failure, "failure");
+    }
+
+    /**
+     * Returns the {@link URL} the request was sent to.
+     */
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns the HTTP method of the request, e.g. {@code "POST"}.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns {@code true} if the request can safely be sent again, because it does not
+     * change the state of the server. This is the case for GET and HEAD requests, and
+     * for POST-as-GET requests.
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Returns the number of the attempt that has failed. The first attempt is 1.
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * Returns the HTTP status of the response, or 0 if no response was received (e.g.
+     * because of a network error).
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the instant of the {@code Retry-After} header of the response, or
+     * {@code null} if there was none.
+     */
+    @CheckForNull
+    public Instant getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Returns the {@link AcmeException} that was caused by the request.
+     */
+    public AcmeException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + url + " (attempt " + attempt
+                + (status != 0 ? ", HTTP " + status : "") + "): " + failure.getMessage();
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+import static org.shredzone.acme4j.toolbox.AcmeUtils.hexEncode;
+import static org.shredzone.acme4j.toolbox.AcmeUtils.sha256hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSON.Value;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DirectoryCache} that persists the directories in a local directory, so they
+ * survive a restart of the JVM.
+ * <p>
+ * Each ACME server is stored in a separate file. The directories are also kept in
+ * memory, so the file is only read once. Errors while reading or writing the files are
+ * logged, but otherwise ignored. In the worst case, the directory is just fetched from
+ * the server again.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class FileDirectoryCache implements DirectoryCache {
+    private static final Logger LOG = LoggerFactory.getLogger(FileDirectoryCache.class);
+
+    private static final String KEY_SERVER = "server";
+    private static final String KEY_EXPIRES = "expires";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_DIRECTORY = "directory";
+
+    private final Path cacheDir;
+    private final ConcurrentMap<URI, CachedDirectory> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@link FileDirectoryCache}.
+     *
+     * @param cacheDir
+     *            Local directory to store the cache files in. It is created if it does
+     *            not exist yet.
+     */
+    public FileDirectoryCache(Path cacheDir) {
+        this.cacheDir = requireNonNull(cacheDir, "cacheDir");
+    }
+
+    @Override
+    @CheckForNull
+    public CachedDirectory get(URI serverUri) {
+        CachedDirectory result = cache.get(serverUri);
+        if (result == null) {
+            result = read(serverUri);
+            if (result != null) {
+                CachedDirectory previous = cache.putIfAbsent(serverUri, result);
+                if (previous != null) {
+                    result = previous;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(URI serverUri, CachedDirectory directory) {
+        requireNonNull(directory, "directory");
+        if (cache.put(serverUri, directory) != directory) {
+            write(serverUri, directory);
+        }
+    }
+
+    @Override
+    public void remove(URI serverUri) {
+        cache.remove(serverUri);
+        try {
+            Files.deleteIfExists(getCacheFile(serverUri));
+        } catch (IOException ex) {
+            LOG.warn("Could not delete cached directory of {}", serverUri, ex);
+        }
+    }
+
+    /**
+     * Returns the cache file of the given ACME server.
+     *
+     * @param serverUri
+     *            {@link URI} of the ACME server
+     * @return {@link Path} of the cache file
+     */
+    protected Path getCacheFile(URI serverUri) {
+        return cacheDir.resolve(hexEncode(sha256hash(serverUri.toString())) + ".json");
+    }
+
+    /**
+     * Reads the cache file of the given ACME server.
+     *
+     * @return {@link CachedDirectory}, or {@code null} if there is no readable cache
+     *         file
+     */
+    @CheckForNull
+    private CachedDirectory read(URI serverUri) {
+        Path file = getCacheFile(serverUri);
+        try (InputStream in = Files.newInputStream(file)) {
+            JSON json = JSON.parse(in);
+
+            // Protect against hash collisions and files that were copied around
+            if (!serverUri.toString().equals(json.get(KEY_SERVER).asString())) {
+                LOG.debug("Ignoring cache file {} of a different server", file);
+                return null;
+            }
+
+            return new CachedDirectory(
+                    json.get(KEY_DIRECTORY).asObject(),
+                    json.get(KEY_EXPIRES).asInstant(),
+                    json.get(KEY_ETAG).map(Value::asString).orElse(null),
+                    json.get(KEY_LAST_MODIFIED).map(Value::asInstant).orElse(null));
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | AcmeProtocolException ex) {
+            LOG.warn("Could not read cached directory of {}", serverUri, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cache file of the given ACME server. The file is replaced atomically,
+     * so concurrent readers will never see a partially written file.
+     */
+    private void write(URI serverUri, CachedDirectory directory) {
+        JSONBuilder jb = new JSONBuilder();
+        jb.put(KEY_SERVER, serverUri.toString());
+        jb.put(KEY_EXPIRES, directory.getExpires());
+        jb.put(KEY_ETAG, directory.getETag());
+        jb.put(KEY_LAST_MODIFIED, directory.getLastModified());
+        jb.put(KEY_DIRECTORY, directory.getDirectory().toMap());
+
+        Path file = getCacheFile(serverUri);
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmp = Files.createTempFile(cacheDir, "directory", ".tmp");
+            try {
+                Files.write(tmp, jb.toString().getBytes(UTF_8));
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException ex) {
+            LOG.warn("Could not write cached directory of {}", serverUri, ex);
+        }
+    }
+
+}
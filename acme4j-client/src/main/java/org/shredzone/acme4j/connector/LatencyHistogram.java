@@ -0,0 +1,182 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A histogram of durations, in the style of HdrHistogram.
+ * <p>
+ * Durations are recorded with a resolution of one microsecond. Durations up to 64 µs
+ * are counted exactly. Longer durations are counted in buckets that are at most 1/64
+ * (about 1.6%) of their value wide, up to about 19 hours. Longer durations are counted
+ * as 19 hours.
+ * <p>
+ * Recording a duration is lock-free and does not allocate memory, so it can be done on
+ * every request. Reading the histogram while durations are recorded gives an
+ * approximation.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long HIGHEST_VALUE = (1L << MAX_MAGNITUDE) - 1L;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(HIGHEST_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos
+     *            Duration in nanoseconds. Negative durations are ignored.
+     */
+    public void record(long nanos) {
+        if (nanos < 0L) {
+            return;
+        }
+
+        long micros = Math.min(nanos / 1000L, HIGHEST_VALUE);
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        sum.add(micros);
+
+        long current = max.get();
+        while (micros > current && !max.compareAndSet(current, micros)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the longest recorded duration, or {@link Duration#ZERO} if nothing was
+     * recorded.
+     */
+    public Duration getMax() {
+        return micros(max.get());
+    }
+
+    /**
+     * Returns the mean of the recorded durations, or {@link Duration#ZERO} if nothing
+     * was recorded.
+     */
+    public Duration getMean() {
+        long n = count.sum();
+        return n > 0L ? micros(sum.sum() / n) : Duration.ZERO;
+    }
+
+    /**
+     * Returns the duration that the given percentage of the recorded durations did not
+     * exceed.
+     *
+     * @param percentile
+     *            Percentile, between 0.0 and 100.0. For example, 99.0 returns the
+     *            duration that 99% of the recorded durations did not exceed.
+     * @return Duration at that percentile, or {@link Duration#ZERO} if nothing was
+     *         recorded
+     */
+    public Duration getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        long total = 0L;
+        for (int ix = 0; ix < counts.length(); ix++) {
+            total += counts.get(ix);
+        }
+        if (total == 0L) {
+            return Duration.ZERO;
+        }
+
+        long target = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0L;
+        for (int ix = 0; ix < counts.length(); ix++) {
+            seen += counts.get(ix);
+            if (seen >= target) {
+                return micros(Math.min(highestValueOf(ix), max.get()));
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Removes all recorded durations. Durations that are recorded while the histogram
+     * is reset may be lost.
+     */
+    public void reset() {
+        for (int ix = 0; ix < counts.length(); ix++) {
+            counts.set(ix, 0L);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCount()
+                + " mean=" + getMean().toMillis() + "ms"
+                + " p50=" + getPercentile(50.0).toMillis() + "ms"
+                + " p90=" + getPercentile(90.0).toMillis() + "ms"
+                + " p99=" + getPercentile(99.0).toMillis() + "ms"
+                + " max=" + getMax().toMillis() + "ms";
+    }
+
+    /**
+     * Returns the index of the bucket that counts the given value.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the highest value that is counted by the given bucket.
+     */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index & (SUB_BUCKET_COUNT - 1);
+        return ((SUB_BUCKET_COUNT + subBucket) << shift) + (1L << shift) - 1L;
+    }
+
+    private static Duration micros(long micros) {
+        return Duration.ofNanos(micros * 1000L);
+    }
+
+}
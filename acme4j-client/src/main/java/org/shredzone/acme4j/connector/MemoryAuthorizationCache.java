@@ -0,0 +1,118 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.Identifier;
+
+/**
+ * An {@link AuthorizationCache} that keeps the authorizations in memory.
+ * <p>
+ * This is the default cache of a {@link org.shredzone.acme4j.Session}. Expired
+ * authorizations are evicted when they are accessed, and from time to time when new
+ * authorizations are stored.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class MemoryAuthorizationCache implements AuthorizationCache {
+
+    private static final int EVICTION_INTERVAL = 256;
+
+    private final ConcurrentMap<Key, CachedAuthorization> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger puts = new AtomicInteger();
+
+    @Override
+    @CheckForNull
+    public CachedAuthorization get(URL account, Identifier identifier) {
+        Key key = new Key(account, identifier);
+        CachedAuthorization result = cache.get(key);
+        if (result != null && result.isExpired()) {
+            cache.remove(key, result);
+            return null;
+        }
+        return result;
+    }
+
+    @Override
+    public void put(URL account, CachedAuthorization authorization) {
+        requireNonNull(authorization, "authorization");
+        cache.put(new Key(account, authorization.getIdentifier()), authorization);
+        if (puts.incrementAndGet() % EVICTION_INTERVAL == 0) {
+            evictExpired();
+        }
+    }
+
+    @Override
+    public void remove(URL account, Identifier identifier) {
+        cache.remove(new Key(account, identifier));
+    }
+
+    /**
+     * Returns the number of authorizations in the cache, including the expired ones
+     * that have not been evicted yet.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Evicts all expired authorizations.
+     */
+    public void evictExpired() {
+        cache.values().removeIf(CachedAuthorization::isExpired);
+    }
+
+    /**
+     * The key of a cached authorization.
+     */
+    @Immutable
+    private static final class Key {
+        private final String account;
+        private final Identifier identifier;
+
+        private Key(URL account, Identifier identifier) {
+            this.account = account.toExternalForm();
+            this.identifier = requireNonNull(identifier, "identifier");
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return account.equals(k.account) && identifier.equals(k.identifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(account, identifier);
+        }
+    }
+
+}
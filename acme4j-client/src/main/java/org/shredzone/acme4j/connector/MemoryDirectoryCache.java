@@ -0,0 +1,56 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link DirectoryCache} that keeps the directories in memory.
+ * <p>
+ * This is the default cache of a {@link org.shredzone.acme4j.Session}. Share a single
+ * instance between sessions to fetch the directory only once per JVM.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class MemoryDirectoryCache implements DirectoryCache {
+
+    private final ConcurrentMap<URI, CachedDirectory> cache = new ConcurrentHashMap<>();
+
+    @Override
+    @CheckForNull
+    public CachedDirectory get(URI serverUri) {
+        return cache.get(serverUri);
+    }
+
+    @Override
+    public void put(URI serverUri, CachedDirectory directory) {
+        cache.put(serverUri, requireNonNull(directory, "directory"));
+    }
+
+    @Override
+    public void remove(URI serverUri) {
+        cache.remove(serverUri);
+    }
+
+}
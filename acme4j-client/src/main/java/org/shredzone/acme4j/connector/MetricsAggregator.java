@@ -0,0 +1,273 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link MetricsListener} that aggregates the metrics of all requests in memory, per
+ * {@link RequestKind}.
+ * <p>
+ * For every kind of request, it counts the requests, failures, HTTP status classes,
+ * problem types, transferred bytes and {@code badNonce} retries. The total, connect,
+ * server and signing times are recorded in {@link LatencyHistogram}s. Apart from the
+ * first request of a kind, recording does not allocate memory.
+ * <p>
+ * An aggregator can be shared by several sessions.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class MetricsAggregator implements MetricsListener {
+
+    private static final int MAX_PROBLEM_TYPES = 100;
+
+    private final AtomicReferenceArray<RequestMetrics> metrics =
+            new AtomicReferenceArray<>(RequestKind.values().length);
+
+    @Override
+    public void onRequest(RequestSample sample) {
+        RequestMetrics m = get(sample.getKind());
+        m.requests.increment();
+        if (sample.isFailed()) {
+            m.failures.increment();
+        }
+        m.statusClasses[Math.min(sample.getStatus() / 100, 5)].increment();
+        m.bytesOut.add(sample.getBytesOut());
+        m.bytesIn.add(sample.getBytesIn());
+        m.badNonceRetries.add(sample.getBadNonceRetries());
+
+        m.totalTime.record(sample.getTotalNanos());
+        m.connectTime.record(sample.getConnectNanos());
+        m.serverTime.record(sample.getServerNanos());
+        if (sample.getSigningNanos() > 0L) {
+            m.signingTime.record(sample.getSigningNanos());
+        }
+
+        URI problemType = sample.getProblemType();
+        if (problemType != null) {
+            m.countProblem(problemType);
+        }
+    }
+
+    /**
+     * Returns the {@link RequestMetrics} of a {@link RequestKind}.
+     *
+     * @param kind
+     *            {@link RequestKind}
+     * @return {@link RequestMetrics}. If no request of that kind was recorded yet, all
+     *         counters are zero.
+     */
+    public RequestMetrics get(RequestKind kind) {
+        int ix = kind.ordinal();
+        RequestMetrics result = metrics.get(ix);
+        if (result == null) {
+            metrics.compareAndSet(ix, null, new RequestMetrics());
+            result = metrics.get(ix);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all {@link RequestKind} that requests were recorded for.
+     */
+    public Set<RequestKind> getKinds() {
+        Set<RequestKind> result = EnumSet.noneOf(RequestKind.class);
+        for (RequestKind kind : RequestKind.values()) {
+            RequestMetrics m = metrics.get(kind.ordinal());
+            if (m != null && m.getRequests() > 0L) {
+                result.add(kind);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all recorded metrics.
+     */
+    public void reset() {
+        for (int ix = 0; ix < metrics.length(); ix++) {
+            metrics.set(ix, null);
+        }
+    }
+
+    /**
+     * Returns a human-readable report of all recorded metrics, one line per
+     * {@link RequestKind}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (RequestKind kind : getKinds()) {
+            sb.append(kind).append(": ").append(get(kind)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The metrics of all requests of a {@link RequestKind}.
+     */
+    @ThreadSafe
+    public static final class RequestMetrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder[] statusClasses = new LongAdder[6];
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder badNonceRetries = new LongAdder();
+        private final ConcurrentMap<URI, LongAdder> problems = new ConcurrentHashMap<>();
+        private final LatencyHistogram totalTime = new LatencyHistogram();
+        private final LatencyHistogram connectTime = new LatencyHistogram();
+        private final LatencyHistogram serverTime = new LatencyHistogram();
+        private final LatencyHistogram signingTime = new LatencyHistogram();
+
+        private RequestMetrics() {
+            for (int ix = 0; ix < statusClasses.length; ix++) {
+                statusClasses[ix] = new LongAdder();
+            }
+        }
+
+        /**
+         * Returns the number of requests.
+         */
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        /**
+         * Returns the number of failed requests.
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * Returns the number of responses of a HTTP status class.
+         *
+         * @param statusClass
+         *            Status class, e.g. 2 for all {@code 2xx} responses, or 0 for
+         *            requests that did not receive a response
+         * @return Number of responses
+         */
+        public long getStatusClassCount(int statusClass) {
+            if (statusClass < 0 || statusClass >= statusClasses.length) {
+                throw new IllegalArgumentException("Invalid status class: " + statusClass);
+            }
+            return statusClasses[statusClass].sum();
+        }
+
+        /**
+         * Returns how often each problem type was returned by the server.
+         */
+        public Map<URI, Long> getProblems() {
+            Map<URI, Long> result = new LinkedHashMap<>();
+            problems.forEach((type, counter) -> result.put(type, counter.sum()));
+            return unmodifiableMap(result);
+        }
+
+        /**
+         * Returns the number of bytes that were sent.
+         */
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        /**
+         * Returns the number of bytes that were received, as announced by the server.
+         */
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        /**
+         * Returns how often requests were repeated because of a bad nonce.
+         */
+        public long getBadNonceRetries() {
+            return badNonceRetries.sum();
+        }
+
+        /**
+         * Returns the {@link LatencyHistogram} of the total request times.
+         */
+        public LatencyHistogram getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Returns the {@link LatencyHistogram} of the times for connecting to the server.
+         */
+        public LatencyHistogram getConnectTime() {
+            return connectTime;
+        }
+
+        /**
+         * Returns the {@link LatencyHistogram} of the times from sending the request
+         * until the response was received.
+         */
+        public LatencyHistogram getServerTime() {
+            return serverTime;
+        }
+
+        /**
+         * Returns the {@link LatencyHistogram} of the times for signing the requests.
+         * Unsigned requests are not recorded.
+         */
+        public LatencyHistogram getSigningTime() {
+            return signingTime;
+        }
+
+        /**
+         * Counts a problem type. The number of distinct types is limited, so a
+         * misbehaving server cannot exhaust the memory.
+         */
+        private void countProblem(URI type) {
+            LongAdder counter = problems.get(type);
+            if (counter == null) {
+                if (problems.size() >= MAX_PROBLEM_TYPES) {
+                    return;
+                }
+                counter = problems.computeIfAbsent(type, t -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + getRequests()
+                    + " failures=" + getFailures()
+                    + " badNonce=" + getBadNonceRetries()
+                    + " out=" + getBytesOut() + "B"
+                    + " in=" + getBytesIn() + "B"
+                    + " total=[" + totalTime + "]"
+                    + " connect=[" + connectTime + "]"
+                    + " server=[" + serverTime + "]"
+                    + (signingTime.getCount() > 0L ? " signing=[" + signingTime + "]" : "");
+        }
+    }
+
+}
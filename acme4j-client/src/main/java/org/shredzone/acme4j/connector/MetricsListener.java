@@ -0,0 +1,49 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Receives the metrics of every request to the ACME server.
+ * <p>
+ * The listener is invoked synchronously by the thread that sent the request, so
+ * implementations must be thread-safe and should return quickly. Exceptions thrown by
+ * the listener are logged and otherwise ignored.
+ *
+ * @see MetricsAggregator
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@FunctionalInterface
+public interface MetricsListener {
+
+    /**
+     * A {@link MetricsListener} that ignores all samples. Connections do not collect
+     * metrics at all if this listener is set.
+     */
+    MetricsListener NONE = sample -> {
+        // ignores all samples
+    };
+
+    /**
+     * Invoked after every attempt of a request.
+     *
+     * @param sample
+     *            {@link RequestSample} with the metrics of the attempt. It is only
+     *            valid while this method is running.
+     */
+    void onRequest(RequestSample sample);
+
+}
@@ -29,6 +29,7 @@ public class NetworkSettings {
 
     private Proxy proxy = Proxy.NO_PROXY;
     private Duration timeout = Duration.ofSeconds(10);
+    private RetryPolicy retryPolicy = new BackoffRetryPolicy();
 
     /**
      * Gets the {@link Proxy} to be used for connections.
@@ -69,4 +70,26 @@ public class NetworkSettings {
         this.timeout = timeout;
     }
 
+    /**
+     * Gets the {@link RetryPolicy} that decides if failed requests are retried.
+     *
+     * @since 2.9
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the {@link RetryPolicy} that decides if failed requests are retried. If
+     * {@code null}, {@link RetryPolicy#NONE} is used, so requests are never retried.
+     * Defaults to a {@link BackoffRetryPolicy}.
+     *
+     * @param retryPolicy
+     *         {@link RetryPolicy} to be used
+     * @since 2.9
+     */
+    public void setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.NONE;
+    }
+
 }
@@ -0,0 +1,223 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of replay nonces of a {@link Session}.
+ * <p>
+ * Every nonce that is sent by the ACME server is added to the pool. Each nonce is handed
+ * out only once, so concurrent requests of the same {@link Session} never use the same
+ * nonce. The most recent nonce is handed out first, as it is least likely to have been
+ * expired by the server.
+ * <p>
+ * If a low-water mark is set, the pool is topped up with fresh nonces in the background
+ * whenever it falls below that mark. The {@link Session#getExecutor()} is used for
+ * fetching them. By default, the low-water mark is 0, so nonces are only fetched on
+ * demand.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class NoncePool {
+    private static final Logger LOG = LoggerFactory.getLogger(NoncePool.class);
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private final Session session;
+
+    @GuardedBy("this")
+    private final Deque<String> nonces = new ArrayDeque<>();
+
+    @GuardedBy("this")
+    private int capacity = DEFAULT_CAPACITY;
+
+    @GuardedBy("this")
+    private int lowWaterMark = 0;
+
+    @GuardedBy("this")
+    private int pending = 0;
+
+    /**
+     * Creates a new {@link NoncePool}.
+     *
+     * @param session
+     *         {@link Session} this pool is used for. It is used for fetching nonces in
+     *         the background.
+     */
+    public NoncePool(Session session) {
+        this.session = Objects.requireNonNull(session, "session");
+    }
+
+    /**
+     * Adds a nonce to the pool. If the pool exceeds its capacity, the oldest nonce is
+     * discarded.
+     *
+     * @param nonce
+     *         Base64 encoded nonce that was received from the server
+     */
+    public synchronized void offer(String nonce) {
+        nonces.addFirst(Objects.requireNonNull(nonce, "nonce"));
+        while (nonces.size() > capacity) {
+            nonces.removeLast();
+        }
+    }
+
+    /**
+     * Takes the most recent nonce from the pool. The nonce is removed from the pool, so
+     * it won't be handed out again.
+     * <p>
+     * If the pool falls below the low-water mark, fetching new nonces is triggered in
+     * the background.
+     *
+     * @return Base64 encoded nonce, or {@code null} if the pool is empty
+     */
+    @CheckForNull
+    public String poll() {
+        String nonce;
+        synchronized (this) {
+            nonce = nonces.pollFirst();
+        }
+        refill();
+        return nonce;
+    }
+
+    /**
+     * Returns the most recent nonce without removing it from the pool.
+     *
+     * @return Base64 encoded nonce, or {@code null} if the pool is empty
+     */
+    @CheckForNull
+    public synchronized String peek() {
+        return nonces.peekFirst();
+    }
+
+    /**
+     * Removes all nonces from the pool.
+     */
+    public synchronized void clear() {
+        nonces.clear();
+    }
+
+    /**
+     * Returns the number of nonces that are currently in the pool.
+     */
+    public synchronized int size() {
+        return nonces.size();
+    }
+
+    /**
+     * Returns the maximum number of nonces that are kept in the pool.
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of nonces that are kept in the pool. Defaults to 32.
+     *
+     * @param capacity
+     *         Maximum number of nonces, must be positive
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        while (nonces.size() > capacity) {
+            nonces.removeLast();
+        }
+        lowWaterMark = Math.min(lowWaterMark, capacity);
+    }
+
+    /**
+     * Returns the low-water mark of the pool.
+     */
+    public synchronized int getLowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * Sets the low-water mark of the pool. If there are fewer nonces in the pool, new
+     * nonces are fetched from the server in the background. 0 disables fetching nonces
+     * in the background, which is also the default.
+     *
+     * @param lowWaterMark
+     *         Low-water mark, must not be negative or exceed the capacity
+     */
+    public synchronized void setLowWaterMark(int lowWaterMark) {
+        if (lowWaterMark < 0 || lowWaterMark > capacity) {
+            throw new IllegalArgumentException("lowWaterMark must be between 0 and " + capacity);
+        }
+        this.lowWaterMark = lowWaterMark;
+    }
+
+    /**
+     * Fetches new nonces in the background until the pool reaches the low-water mark.
+     * Nonces that are currently being fetched are taken into account. Does nothing if
+     * the pool is already filled up to the low-water mark.
+     */
+    public void refill() {
+        int missing;
+        synchronized (this) {
+            missing = lowWaterMark - nonces.size() - pending;
+            if (missing <= 0) {
+                return;
+            }
+            pending += missing;
+        }
+
+        for (int ix = 0; ix < missing; ix++) {
+            try {
+                session.getExecutor().execute(this::fetch);
+            } catch (RejectedExecutionException ex) {
+                LOG.debug("Could not prefetch a nonce", ex);
+                synchronized (this) {
+                    pending--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches a single nonce from the server, and adds it to the pool.
+     */
+    private void fetch() {
+        try (Connection conn = session.connect()) {
+            conn.resetNonce(session);
+        } catch (AcmeException | RuntimeException ex) {
+            LOG.debug("Could not prefetch a nonce", ex);
+        } finally {
+            synchronized (this) {
+                pending--;
+            }
+        }
+    }
+
+}
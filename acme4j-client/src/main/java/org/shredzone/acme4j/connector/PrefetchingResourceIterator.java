@@ -0,0 +1,331 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.shredzone.acme4j.AcmeResource;
+import org.shredzone.acme4j.Login;
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+import org.shredzone.acme4j.toolbox.AcmeUtils;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link Iterator} that fetches a batch of URLs from the ACME server, and generates
+ * {@link AcmeResource} instances. Unlike {@link ResourceIterator}, the next batch is
+ * already fetched in the background while the current batch is consumed.
+ * <p>
+ * Optionally, the resources of each batch can be hydrated in the background, that is,
+ * their state is fetched from the server before they are returned. Up to the given
+ * number of resources are hydrated concurrently.
+ * <p>
+ * The background tasks are run by the {@link Session#getExecutor()}. Like
+ * {@link ResourceIterator}, no request is sent before {@link #hasNext()} or
+ * {@link #next()} is invoked for the first time. The first batch is then fetched, and
+ * whenever a batch is taken, the batch after it is fetched ahead. At most one batch is
+ * fetched ahead.
+ *
+ * @param <T>
+ *            {@link AcmeResource} type to iterate over
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@NotThreadSafe
+public class PrefetchingResourceIterator<T extends AcmeResource> implements Iterator<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(PrefetchingResourceIterator.class);
+
+    private final Login login;
+    private final String field;
+    private final BiFunction<Login, URL, T> creator;
+    private final @Nullable Hydrator<? super T> hydrator;
+    private final int parallelism;
+    private final Deque<T> resources = new ArrayDeque<>();
+    private @Nullable URL start;
+    private @Nullable CompletableFuture<Batch<T>> nextBatch;
+
+    /**
+     * Hydrates a resource, by fetching its current state from the server.
+     *
+     * @param <T>
+     *            {@link AcmeResource} type
+     */
+    @FunctionalInterface
+    public interface Hydrator<T extends AcmeResource> {
+
+        /**
+         * Hydrates the given resource.
+         *
+         * @param resource
+         *            Resource to hydrate
+         */
+        void hydrate(T resource) throws AcmeException;
+
+    }
+
+    /**
+     * Creates a new {@link PrefetchingResourceIterator} that does not hydrate the
+     * resources.
+     *
+     * @param login
+     *            {@link Login} to bind this iterator to
+     * @param field
+     *            Field name to be used in the JSON response
+     * @param start
+     *            URL of the first JSON array, may be {@code null} for an empty iterator
+     * @param creator
+     *            Creator for an {@link AcmeResource} that is bound to the given
+     *            {@link Login} and {@link URL}.
+     */
+    public PrefetchingResourceIterator(Login login, String field, @Nullable URL start,
+                BiFunction<Login, URL, T> creator) {
+        this(login, field, start, creator, null, 1);
+    }
+
+    /**
+     * Creates a new {@link PrefetchingResourceIterator} that hydrates the resources.
+     *
+     * @param login
+     *            {@link Login} to bind this iterator to
+     * @param field
+     *            Field name to be used in the JSON response
+     * @param start
+     *            URL of the first JSON array, may be {@code null} for an empty iterator
+     * @param creator
+     *            Creator for an {@link AcmeResource} that is bound to the given
+     *            {@link Login} and {@link URL}.
+     * @param hydrator
+     *            {@link Hydrator} that fetches the state of a resource, or {@code null}
+     *            if the resources are not to be hydrated
+     * @param parallelism
+     *            Maximum number of resources that are hydrated concurrently, must be
+     *            positive
+     */
+    public PrefetchingResourceIterator(Login login, String field, @Nullable URL start,
+                BiFunction<Login, URL, T> creator, @Nullable Hydrator<? super T> hydrator,
+                int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.login = requireNonNull(login, "login");
+        this.field = requireNonNull(field, "field");
+        this.creator = requireNonNull(creator, "creator");
+        this.hydrator = hydrator;
+        this.parallelism = parallelism;
+        this.start = start;
+    }
+
+    /**
+     * Checks if there is another object in the result.
+     *
+     * @throws AcmeProtocolException
+     *             if the next batch of URLs could not be fetched from the server
+     */
+    @Override
+    public boolean hasNext() {
+        if (start != null) {
+            nextBatch = fetchAsync(start);
+            start = null;
+        }
+        while (resources.isEmpty() && nextBatch != null) {
+            takeBatch();
+        }
+        return !resources.isEmpty();
+    }
+
+    /**
+     * Returns the next object of the result.
+     *
+     * @throws AcmeProtocolException
+     *             if the next batch of URLs could not be fetched from the server
+     * @throws NoSuchElementException
+     *             if there are no more entries
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("no more " + field);
+        }
+        return resources.poll();
+    }
+
+    /**
+     * Unsupported operation, only here to satisfy the {@link Iterator} interface.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("cannot remove " + field);
+    }
+
+    /**
+     * Returns a sequential {@link Stream} of the remaining objects of the result. The
+     * stream consumes this iterator.
+     *
+     * @return {@link Stream} of the resources, in the order returned by the server
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Waits for the prefetched batch, and queues its resources. If there is another
+     * batch, it is prefetched now.
+     */
+    private void takeBatch() {
+        CompletableFuture<Batch<T>> future = requireNonNull(nextBatch);
+        nextBatch = null;
+
+        Batch<T> batch;
+        try {
+            batch = future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AcmeProtocolException("failed to read next set of " + field, cause);
+        }
+
+        if (batch.next != null) {
+            nextBatch = fetchAsync(batch.next);
+        }
+        resources.addAll(batch.resources);
+    }
+
+    /**
+     * Fetches a batch in the background, and hydrates its resources.
+     *
+     * @param url
+     *            {@link URL} of the batch
+     * @return {@link CompletableFuture} that completes with the {@link Batch}
+     */
+    private CompletableFuture<Batch<T>> fetchAsync(URL url) {
+        CompletableFuture<Batch<T>> batch = invokeAsync(() -> fetch(url));
+        return hydrator != null ? batch.thenCompose(this::hydrateAsync) : batch;
+    }
+
+    /**
+     * Reads a batch of URLs from the server, and creates the resources. If there is a
+     * "next" header, it is used for the next batch of URLs.
+     */
+    private Batch<T> fetch(URL url) throws AcmeException {
+        Session session = login.getSession();
+        try (Connection conn = session.connect()) {
+            conn.sendSignedPostAsGetRequest(url, login);
+            JSON json = conn.readJsonResponse();
+
+            List<T> list = new ArrayList<>();
+            json.get(field).asArray().stream()
+                    .map(JSON.Value::asURL)
+                    .map(u -> creator.apply(login, u))
+                    .forEach(list::add);
+
+            URL next = conn.getLinks("next").stream().findFirst().orElse(null);
+            return new Batch<>(list, next);
+        }
+    }
+
+    /**
+     * Hydrates all resources of the batch. Each worker takes the next pending resource
+     * until all resources are hydrated.
+     *
+     * @param batch
+     *            {@link Batch} to hydrate
+     * @return {@link CompletableFuture} that completes with the hydrated {@link Batch}
+     */
+    private CompletableFuture<Batch<T>> hydrateAsync(Batch<T> batch) {
+        Queue<T> pending = new ConcurrentLinkedQueue<>(batch.resources);
+        int workers = Math.min(parallelism, batch.resources.size());
+
+        CompletableFuture<?>[] running = new CompletableFuture<?>[workers];
+        for (int ix = 0; ix < workers; ix++) {
+            running[ix] = invokeAsync(() -> {
+                T resource;
+                while ((resource = pending.poll()) != null) {
+                    hydrate(resource);
+                }
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(running).thenApply(v -> batch);
+    }
+
+    /**
+     * Hydrates a single resource. If it fails, the resource is left unhydrated, so its
+     * state is fetched again when it is accessed.
+     */
+    private void hydrate(T resource) {
+        try {
+            requireNonNull(hydrator).hydrate(resource);
+        } catch (AcmeRetryAfterException ex) {
+            // ignore... The resource was still hydrated.
+            LOG.debug("Retry-After", ex);
+        } catch (AcmeException | RuntimeException ex) {
+            LOG.warn("Could not hydrate {}", resource.getLocation(), ex);
+        }
+    }
+
+    /**
+     * Invokes a blocking operation asynchronously, using the {@link Session#getExecutor()}.
+     *
+     * @param operation
+     *            Operation to invoke
+     * @return {@link CompletableFuture} that completes with the result of the operation
+     */
+    private <R> CompletableFuture<R> invokeAsync(Callable<R> operation) {
+        return AcmeUtils.invokeAsync(operation, login.getSession().getExecutor());
+    }
+
+    /**
+     * A batch of resources, and the {@link URL} of the next batch.
+     */
+    private static final class Batch<T> {
+        private final List<T> resources;
+        private final @Nullable URL next;
+
+        private Batch(List<T> resources, @Nullable URL next) {
+            this.resources = Collections.unmodifiableList(resources);
+            this.next = next;
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A rate limit that is enforced on client side by the {@link RateLimiter}, before a
+ * request is sent to the ACME server.
+ * <p>
+ * A rate limit permits a number of requests to a {@link Resource} per period. The
+ * {@link Scope} defines whether the requests are counted per endpoint, per account, or
+ * per domain name.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class RateLimit {
+
+    /**
+     * Defines what the requests of a {@link RateLimit} are counted for.
+     */
+    public enum Scope {
+
+        /**
+         * All requests to the endpoint are counted, regardless of the account.
+         */
+        ENDPOINT,
+
+        /**
+         * Requests are counted per account.
+         */
+        ACCOUNT,
+
+        /**
+         * Requests are counted per domain name of the {@code dns} identifiers that are
+         * contained in the request.
+         * <p>
+         * The public suffix list is not consulted, so the registered domain of a domain
+         * name is unknown. For this reason, {@code www.example.org} and
+         * {@code mail.example.org} are counted separately, even if the CA counts them
+         * for {@code example.org}.
+         */
+        DOMAIN;
+
+    }
+
+    private final Resource resource;
+    private final Scope scope;
+    private final int permits;
+    private final Duration period;
+
+    /**
+     * Creates a new {@link RateLimit}.
+     *
+     * @param resource
+     *            {@link Resource} the limit applies to
+     * @param scope
+     *            {@link Scope} of the limit
+     * @param permits
+     *            Number of requests that are permitted per period, must be positive
+     * @param period
+     *            Period, must be positive
+     */
+    public RateLimit(Resource resource, Scope scope, int permits, Duration period) {
+        this.resource = requireNonNull(resource, "resource");
+        this.scope = requireNonNull(scope, "scope");
+        this.period = requireNonNull(period, "period");
+
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+
+        this.permits = permits;
+    }
+
+    /**
+     * Returns the {@link Resource} the limit applies to.
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Returns the {@link Scope} of the limit.
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns the number of requests that are permitted per period.
+     */
+    public int getPermits() {
+        return permits;
+    }
+
+    /**
+     * Returns the period.
+     */
+    public Duration getPeriod() {
+        return period;
+    }
+
+    @Override
+    public String toString() {
+        return permits + " " + resource.path() + " per " + period
+                + " and " + scope.name().toLowerCase();
+    }
+
+}
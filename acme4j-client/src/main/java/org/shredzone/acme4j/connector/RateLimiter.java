@@ -0,0 +1,470 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.Identifier;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+import org.shredzone.acme4j.toolbox.AcmeUtils;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enforces {@link RateLimit}s on client side, so requests that would exceed a rate limit
+ * of the CA are not sent to the server in the first place.
+ * <p>
+ * Every rate limit is a token bucket that holds up to the permitted number of requests,
+ * and is refilled continuously over the period. If a request would exceed a limit, the
+ * invoking thread waits until a token is available. If the wait would take longer than
+ * the maximum waiting time, an {@link AcmeRateLimitedException} is thrown instead,
+ * without sending the request.
+ * <p>
+ * If the server rejects a request with a {@code rateLimited} error anyway, the limiter
+ * learns from it. Further requests to the same endpoint are held back until the
+ * {@code Retry-After} instant, either for the domain that is named in the problem
+ * document and all of its subdomains, or for the entire account.
+ * <p>
+ * A limiter can be shared between sessions. The buckets are kept per server.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class RateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiter.class);
+
+    private static final String RATE_LIMITED_ERROR = "urn:ietf:params:acme:error:rateLimited";
+    private static final String ANONYMOUS = "-";
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private final List<RateLimit> limits;
+
+    @GuardedBy("this")
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    @GuardedBy("this")
+    private final Map<String, Instant> blocked = new HashMap<>();
+
+    private volatile Duration maxWait = Duration.ofSeconds(10);
+
+    /**
+     * Creates a {@link RateLimiter} without any limits. It only respects the
+     * {@code Retry-After} instants of rate limited requests.
+     */
+    public RateLimiter() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * Creates a {@link RateLimiter} that enforces the given limits.
+     *
+     * @param limits
+     *            {@link RateLimit}s to be enforced
+     */
+    public RateLimiter(Collection<RateLimit> limits) {
+        this.limits = Collections.unmodifiableList(new ArrayList<>(requireNonNull(limits, "limits")));
+    }
+
+    /**
+     * Returns the {@link RateLimit}s that are enforced by this limiter.
+     */
+    public List<RateLimit> getLimits() {
+        return limits;
+    }
+
+    /**
+     * Returns the maximum time a request waits for a rate limit.
+     */
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * Sets the maximum time a request waits for a rate limit. If a request would have to
+     * wait longer, it fails immediately. Defaults to 10 seconds.
+     *
+     * @param maxWait
+     *            Maximum waiting time, must not be negative
+     */
+    public void setMaxWait(Duration maxWait) {
+        if (requireNonNull(maxWait, "maxWait").isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative");
+        }
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Acquires a permit for sending a request. If a rate limit is exhausted, the
+     * invoking thread waits until the request can be sent.
+     *
+     * @param session
+     *            {@link Session} the request is sent with
+     * @param url
+     *            {@link URL} the request is sent to
+     * @param account
+     *            Account location, or {@code null} if the request is not signed with an
+     *            account
+     * @param claims
+     *            Claims of the request, or {@code null} for POST-as-GET requests
+     * @throws AcmeRateLimitedException
+     *             if the request would have to wait longer than the maximum waiting time
+     */
+    public void acquire(Session session, URL url, @Nullable String account,
+                @Nullable JSONBuilder claims) throws AcmeException {
+        Request request = new Request(session, url, account, claims);
+
+        while (true) {
+            Wait wait;
+            synchronized (this) {
+                List<Bucket> buckets = request.buckets();
+                wait = request.waitTime(buckets);
+                if (wait.nanos == 0L) {
+                    buckets.forEach(Bucket::consume);
+                    return;
+                }
+            }
+
+            if (wait.nanos > maxWait.toNanos()) {
+                throw wait.toException(url);
+            }
+
+            LOG.debug("Rate limit reached, waiting {} ms", wait.nanos / 1_000_000L);
+            try {
+                Thread.sleep(wait.nanos / 1_000_000L, (int) (wait.nanos % 1_000_000L));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new AcmeException("Interrupted while waiting for rate limit", ex);
+            }
+        }
+    }
+
+    /**
+     * Informs the limiter that the server has rejected a request because of a rate
+     * limit. The buckets of the request are drained, and further requests are held back
+     * until the {@code Retry-After} instant.
+     *
+     * @param session
+     *            {@link Session} the request was sent with
+     * @param url
+     *            {@link URL} the request was sent to
+     * @param account
+     *            Account location, or {@code null} if the request was not signed with
+     *            an account
+     * @param claims
+     *            Claims of the request, or {@code null} for POST-as-GET requests
+     * @param ex
+     *            {@link AcmeRateLimitedException} that was returned by the server
+     */
+    public void rateLimited(Session session, URL url, @Nullable String account,
+                @Nullable JSONBuilder claims, AcmeRateLimitedException ex) {
+        Request request = new Request(session, url, account, claims);
+
+        String key = request.blockKey(account != null ? account : ANONYMOUS);
+        Identifier identifier = ex.getProblem().getIdentifier();
+        if (identifier != null && Identifier.TYPE_DNS.equals(identifier.getType())) {
+            key = request.blockKey(identifier.getDomain());
+        }
+
+        synchronized (this) {
+            request.buckets().forEach(Bucket::drain);
+
+            Instant retryAfter = ex.getRetryAfter();
+            if (retryAfter != null && retryAfter.isAfter(Instant.now())) {
+                LOG.debug("Rate limited by server, holding back requests until {}", retryAfter);
+                blocked.merge(key, retryAfter, (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+    }
+
+    /**
+     * Returns the bucket of the given key, creating a new one if necessary.
+     */
+    @GuardedBy("this")
+    private Bucket bucket(String key, RateLimit limit) {
+        return buckets.computeIfAbsent(key, k -> new Bucket(limit));
+    }
+
+    /**
+     * A single request that is checked against the limits.
+     */
+    private class Request {
+        private final Map<String, String> blockKeys = new LinkedHashMap<>();
+        private final List<String> bucketKeys = new ArrayList<>();
+        private final List<RateLimit> bucketLimits = new ArrayList<>();
+        private final List<String> bucketDomains = new ArrayList<>();
+        private final String prefix;
+
+        public Request(Session session, URL url, @Nullable String account,
+                    @Nullable JSONBuilder claims) {
+            this.prefix = session.getServerUri() + "|" + url.toExternalForm() + "|";
+
+            String accountKey = account != null ? account : ANONYMOUS;
+            List<String> domains = domains(claims);
+
+            blockKeys.put(blockKey(accountKey), null);
+            for (String domain : domains) {
+                for (String parent : AcmeUtils.domainHierarchy(domain)) {
+                    blockKeys.put(blockKey(parent), parent);
+                }
+            }
+
+            Map<Resource, Boolean> matches = new EnumMap<>(Resource.class);
+            for (RateLimit limit : limits) {
+                if (!matches.computeIfAbsent(limit.getResource(), r -> isResource(session, url, r))) {
+                    continue;
+                }
+
+                String key = session.getServerUri() + "|" + limit.getResource().path()
+                        + "|" + limit.getPermits() + "/" + limit.getPeriod()
+                        + "|" + limit.getScope() + "|";
+                switch (limit.getScope()) {
+                    case ENDPOINT:
+                        add(key, limit, null);
+                        break;
+
+                    case ACCOUNT:
+                        add(key + accountKey, limit, null);
+                        break;
+
+                    case DOMAIN:
+                        domains.forEach(domain -> add(key + domain, limit, domain));
+                        break;
+
+                    default:
+                        throw new IllegalStateException("Unknown scope " + limit.getScope());
+                }
+            }
+        }
+
+        /**
+         * Returns the key for holding back requests of the given account or domain.
+         */
+        public String blockKey(String accountOrDomain) {
+            return prefix + accountOrDomain;
+        }
+
+        /**
+         * Returns the buckets of this request.
+         */
+        @GuardedBy("RateLimiter.this")
+        public List<Bucket> buckets() {
+            if (RateLimiter.this.buckets.size() > PURGE_THRESHOLD) {
+                // Full buckets are dropped, they are identical to new buckets
+                long now = System.nanoTime();
+                RateLimiter.this.buckets.values().removeIf(b -> b.isFull(now));
+            }
+
+            List<Bucket> result = new ArrayList<>(bucketKeys.size());
+            for (int ix = 0; ix < bucketKeys.size(); ix++) {
+                result.add(bucket(bucketKeys.get(ix), bucketLimits.get(ix)));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the time to wait until the request can be sent.
+         *
+         * @param buckets
+         *            Buckets of this request, as returned by {@link #buckets()}
+         */
+        @GuardedBy("RateLimiter.this")
+        public Wait waitTime(List<Bucket> buckets) {
+            Instant now = Instant.now();
+            Wait result = new Wait(0L, null, null);
+
+            for (Map.Entry<String, String> entry : blockKeys.entrySet()) {
+                String key = entry.getKey();
+                Instant until = blocked.get(key);
+                if (until == null) {
+                    continue;
+                }
+                if (!until.isAfter(now)) {
+                    blocked.remove(key);
+                    continue;
+                }
+                long nanos = Duration.between(now, until).toNanos();
+                if (nanos > result.nanos) {
+                    result = new Wait(nanos, null, entry.getValue());
+                }
+            }
+
+            long nanoTime = System.nanoTime();
+            for (int ix = 0; ix < buckets.size(); ix++) {
+                long nanos = buckets.get(ix).waitNanos(nanoTime);
+                if (nanos > result.nanos) {
+                    result = new Wait(nanos, bucketLimits.get(ix), bucketDomains.get(ix));
+                }
+            }
+
+            return result;
+        }
+
+        private void add(String key, RateLimit limit, @Nullable String domain) {
+            bucketKeys.add(key);
+            bucketLimits.add(limit);
+            bucketDomains.add(domain);
+        }
+    }
+
+    /**
+     * The time to wait for a request, and the reason for it.
+     */
+    private static class Wait {
+        private final long nanos;
+        private final @Nullable RateLimit limit;
+        private final @Nullable String domain;
+
+        public Wait(long nanos, @Nullable RateLimit limit, @Nullable String domain) {
+            this.nanos = nanos;
+            this.limit = limit;
+            this.domain = domain;
+        }
+
+        /**
+         * Creates an {@link AcmeRateLimitedException} for a request that is not sent.
+         */
+        public AcmeRateLimitedException toException(URL url) {
+            String detail = limit != null
+                    ? "Client-side rate limit of " + limit + " exceeded"
+                    : "Rate limited by server";
+
+            JSONBuilder jb = new JSONBuilder();
+            jb.put("type", RATE_LIMITED_ERROR);
+            jb.put("detail", detail);
+            if (domain != null) {
+                jb.put("identifier", Identifier.dns(domain).toMap());
+            }
+
+            Instant retryAfter = Instant.now().plusNanos(nanos);
+            return new AcmeRateLimitedException(new Problem(jb.toJSON(), url), retryAfter, null);
+        }
+    }
+
+    /**
+     * A token bucket of a {@link RateLimit}.
+     */
+    private static class Bucket {
+        private final RateLimit limit;
+        private final long periodNanos;
+        private double tokens;
+        private long updated;
+
+        public Bucket(RateLimit limit) {
+            this.limit = limit;
+            this.periodNanos = limit.getPeriod().toNanos();
+            this.tokens = limit.getPermits();
+            this.updated = System.nanoTime();
+        }
+
+        /**
+         * Returns the nanoseconds until a token is available.
+         */
+        public long waitNanos(long now) {
+            refill(now);
+            if (tokens >= 1.0) {
+                return 0L;
+            }
+            return Math.max(1L, (long) Math.ceil((1.0 - tokens) * periodNanos / limit.getPermits()));
+        }
+
+        /**
+         * Checks if the bucket is full, so it can be dropped.
+         */
+        public boolean isFull(long now) {
+            refill(now);
+            return tokens >= limit.getPermits();
+        }
+
+        public void consume() {
+            tokens -= 1.0;
+        }
+
+        public void drain() {
+            tokens = Math.min(tokens, 0.0);
+        }
+
+        private void refill(long now) {
+            long elapsed = now - updated;
+            if (elapsed > 0L) {
+                tokens = Math.min(limit.getPermits(),
+                        tokens + (double) elapsed * limit.getPermits() / periodNanos);
+                updated = now;
+            }
+        }
+    }
+
+    /**
+     * Returns the ACE encoded domain names of all {@code dns} identifiers in the claims.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String> domains(@Nullable JSONBuilder claims) {
+        if (claims == null) {
+            return Collections.emptyList();
+        }
+
+        Object identifiers = claims.toMap().get("identifiers");
+        if (!(identifiers instanceof Collection)) {
+            return Collections.emptyList();
+        }
+
+        Set<String> result = new LinkedHashSet<>();
+        for (Object identifier : (Collection<Object>) identifiers) {
+            if (identifier instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) identifier;
+                Object value = map.get("value");
+                if (Identifier.TYPE_DNS.equals(map.get("type")) && value != null) {
+                    result.add(AcmeUtils.toAce(value.toString()));
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Checks if the URL is the URL of the given {@link Resource}.
+     */
+    private static boolean isResource(Session session, URL url, Resource resource) {
+        try {
+            return session.resourceUrl(resource).toExternalForm().equals(url.toExternalForm());
+        } catch (AcmeException ex) {
+            LOG.debug("Could not resolve resource {}", resource, ex);
+            return false;
+        }
+    }
+
+}
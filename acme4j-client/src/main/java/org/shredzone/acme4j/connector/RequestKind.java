@@ -0,0 +1,110 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.net.URL;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.shredzone.acme4j.Session;
+
+/**
+ * Kinds of requests to the ACME server, for collecting metrics.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public enum RequestKind {
+
+    DIRECTORY,
+    NEW_NONCE,
+    NEW_ACCOUNT,
+    NEW_ORDER,
+    NEW_AUTHZ,
+    REVOKE_CERT,
+    KEY_CHANGE,
+    ACCOUNT,
+    ORDER,
+    FINALIZE,
+    AUTHORIZATION,
+    CHALLENGE,
+    CERTIFICATE,
+    OTHER;
+
+    /**
+     * Finds the kind of a request.
+     * <p>
+     * Requests to the resources of the directory are identified exactly. ACME does not
+     * define the locations of accounts, orders, authorizations, challenges and
+     * certificates, so they are identified by common keywords in their paths, like
+     * {@code authz} or {@code chall}. Requests that cannot be identified are
+     * {@link #OTHER}.
+     *
+     * @param session
+     *            {@link Session} the request belongs to
+     * @param url
+     *            {@link URL} the request is sent to
+     * @param method
+     *            HTTP method of the request
+     * @param accept
+     *            Accept header of the request, or {@code null} if there is none
+     * @return {@link RequestKind}
+     */
+    static RequestKind of(Session session, URL url, String method, @Nullable String accept) {
+        if ("HEAD".equals(method)) {
+            return NEW_NONCE;
+        }
+
+        if ("GET".equals(method)) {
+            // Unsigned GET requests are only used for fetching the directory
+            return DIRECTORY;
+        }
+
+        if ("application/pem-certificate-chain".equals(accept)) {
+            return CERTIFICATE;
+        }
+
+        Resource resource = session.findResource(url);
+        if (resource != null) {
+            // The directory resources have a kind of the same name
+            return valueOf(resource.name());
+        }
+
+        String path = url.getPath().toLowerCase(Locale.ENGLISH);
+        if (path.contains("finalize")) {
+            return FINALIZE;
+        }
+        if (path.contains("authz")) {
+            return AUTHORIZATION;
+        }
+        if (path.contains("chal")) {
+            return CHALLENGE;
+        }
+        if (path.contains("cert")) {
+            return CERTIFICATE;
+        }
+        if (path.contains("order")) {
+            return ORDER;
+        }
+        if (path.contains("acct") || path.contains("account")) {
+            return ACCOUNT;
+        }
+        return OTHER;
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.net.URI;
+import java.net.URL;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * The metrics of a single attempt of a request to the ACME server, as passed to a
+ * {@link MetricsListener}.
+ * <p>
+ * If the request was repeated because the server rejected the nonce, the sample covers
+ * all of these exchanges, and the times and sizes are summed up. If the request is
+ * retried by the {@link RetryPolicy}, every attempt gives a separate sample.
+ * <p>
+ * Instances are reused by the connection. A listener must not keep a reference to the
+ * sample after it has returned, but copy the values it needs instead.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@NotThreadSafe
+public final class RequestSample {
+
+    private RequestKind kind = RequestKind.OTHER;
+    private @Nullable URL url;
+    private String method = "";
+    private int attempt;
+    private int status;
+    private @Nullable URI problemType;
+    private boolean failed;
+    private long bytesOut;
+    private long bytesIn;
+    private long connectNanos;
+    private long serverNanos;
+    private long signingNanos;
+    private long totalNanos;
+    private int badNonceRetries;
+
+    /**
+     * Returns the {@link RequestKind} of the request.
+     */
+    public RequestKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the {@link URL} the request was sent to.
+     */
+    public URL getUrl() {
+        if (url == null) {
+            throw new IllegalStateException("sample was not started");
+        }
+        return url;
+    }
+
+    /**
+     * Returns the HTTP method of the request, e.g. {@code "POST"}.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the number of the attempt, starting from 1. It is higher than 1 if the
+     * request was retried by the {@link RetryPolicy}.
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * Returns the HTTP status of the response, or 0 if no response was received.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the type of the problem document that was returned by the server, or
+     * {@code null} if there was none.
+     */
+    @CheckForNull
+    public URI getProblemType() {
+        return problemType;
+    }
+
+    /**
+     * Returns {@code true} if the request has failed.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of bytes of the request bodies that were sent.
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Returns the number of bytes of the response bodies, as announced by the server.
+     * Responses without a {@code Content-Length} header are not counted.
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Returns the time in nanoseconds that was spent for resolving the server's address,
+     * connecting to the server, and the TLS handshake. It is close to zero if a
+     * connection was reused.
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds from sending the request until the response
+     * header was received.
+     */
+    public long getServerNanos() {
+        return serverNanos;
+    }
+
+    /**
+     * Returns the time in nanoseconds that was spent for signing the request.
+     */
+    public long getSigningNanos() {
+        return signingNanos;
+    }
+
+    /**
+     * Returns the total time of the attempt in nanoseconds. Besides connecting, signing
+     * and waiting for the server, it also contains the time for fetching a fresh nonce
+     * and for parsing the response.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns how often the request was repeated because the server rejected the
+     * nonce.
+     */
+    public int getBadNonceRetries() {
+        return badNonceRetries;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + method + " " + url + " (attempt " + attempt + ", HTTP " + status
+                + (problemType != null ? ", " + problemType : "")
+                + ", " + totalNanos / 1_000_000L + " ms)";
+    }
+
+    /**
+     * Starts a new sample, and resets all values.
+     */
+    void start(RequestKind kind, URL url, String method, int attempt) {
+        this.kind = kind;
+        this.url = url;
+        this.method = method;
+        this.attempt = attempt;
+        this.status = 0;
+        this.problemType = null;
+        this.failed = false;
+        this.bytesOut = 0L;
+        this.bytesIn = 0L;
+        this.connectNanos = 0L;
+        this.serverNanos = 0L;
+        this.signingNanos = 0L;
+        this.totalNanos = 0L;
+        this.badNonceRetries = 0;
+    }
+
+    /**
+     * Adds an exchange with the server. The problem type of a previous exchange is
+     * cleared.
+     */
+    void addExchange(long connectNanos, long serverNanos, long bytesOut, long bytesIn) {
+        this.problemType = null;
+        this.connectNanos += connectNanos;
+        this.serverNanos += serverNanos;
+        this.bytesOut += bytesOut;
+        if (bytesIn > 0L) {
+            this.bytesIn += bytesIn;
+        }
+    }
+
+    /**
+     * Adds the time for signing a request.
+     */
+    void addSigning(long signingNanos) {
+        this.signingNanos += signingNanos;
+    }
+
+    /**
+     * Counts a retry because of a bad nonce.
+     */
+    void addBadNonceRetry() {
+        badNonceRetries++;
+    }
+
+    /**
+     * Sets the problem type of the response.
+     */
+    void setProblemType(@Nullable URI problemType) {
+        this.problemType = problemType;
+    }
+
+    /**
+     * Finishes the sample.
+     */
+    void finish(int status, boolean failed, long totalNanos) {
+        this.status = status;
+        this.failed = failed;
+        this.totalNanos = totalNanos;
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import java.time.Duration;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Decides if and when a failed request to the ACME server is retried.
+ * <p>
+ * Implementations must be thread safe, as a policy is shared by all connections of a
+ * session.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@FunctionalInterface
+public interface RetryPolicy {
+
+    /**
+     * A {@link RetryPolicy} that never retries a request.
+     */
+    RetryPolicy NONE = request -> null;
+
+    /**
+     * Decides if a failed request is retried.
+     *
+     * @param request
+     *            {@link FailedRequest} that describes the request and its failure
+     * @return {@link Duration} to wait before the request is retried, or {@code null} if
+     *         the request is not to be retried
+     */
+    @CheckForNull
+    Duration getRetryDelay(FailedRequest request);
+
+}
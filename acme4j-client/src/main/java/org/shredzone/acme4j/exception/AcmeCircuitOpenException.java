@@ -0,0 +1,55 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.exception;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * This exception is thrown when a request was not sent, because the ACME server failed
+ * repeatedly and is considered to be unavailable.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class AcmeCircuitOpenException extends AcmeException {
+    private static final long serialVersionUID = -3157386236434542271L;
+
+    private final Instant retryAfter;
+
+    /**
+     * Creates a new {@link AcmeCircuitOpenException}.
+     *
+     * @param msg
+     *            Error details
+     * @param retryAfter
+     *            The moment when requests are sent to the server again
+     */
+    public AcmeCircuitOpenException(String msg, Instant retryAfter) {
+        super(msg);
+        this.retryAfter = Objects.requireNonNull(retryAfter);
+    }
+
+    /**
+     * Returns the moment when requests are sent to the server again.
+     */
+    public Instant getRetryAfter() {
+        return retryAfter;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.exception;
+
+import java.net.HttpURLConnection;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * This exception is thrown when the server responded with an HTTP error, but did not
+ * send a problem document that explains the error. This is usually the case if the
+ * server is unavailable, and a proxy or load balancer responded instead.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class AcmeHttpException extends AcmeException {
+    private static final long serialVersionUID = 6713402591638153187L;
+
+    private final int status;
+
+    /**
+     * Creates a new {@link AcmeHttpException}.
+     *
+     * @param status
+     *            HTTP status code of the response
+     * @param message
+     *            HTTP status message of the response
+     */
+    public AcmeHttpException(int status, String message) {
+        super("HTTP " + status + ": " + message);
+        this.status = status;
+    }
+
+    /**
+     * Returns the HTTP status code of the response.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks if the HTTP status shows that the server is unavailable (500, 502, 503 or
+     * 504), so a later attempt or another server might succeed.
+     *
+     * @return {@code true} if the server is unavailable
+     */
+    public boolean isServerUnavailable() {
+        switch (status) {
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+}
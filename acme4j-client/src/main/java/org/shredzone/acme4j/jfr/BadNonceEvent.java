@@ -0,0 +1,61 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import java.net.URL;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by {@link org.shredzone.acme4j.connector.DefaultConnection} when the server
+ * rejected the nonce of a request.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Name("org.shredzone.acme4j.BadNonce")
+@Label("ACME Bad Nonce")
+@Description("The server rejected the nonce of a request, so the request is repeated")
+@Category("acme4j")
+public final class BadNonceEvent extends Event {
+
+    @Label("URL")
+    @Description("URL of the rejected request")
+    private String url;
+
+    @Label("Attempt")
+    @Description("Number of the rejected attempt, starting from 1")
+    private int attempt;
+
+    /**
+     * Sets the fields of the event, and commits it.
+     *
+     * @param url
+     *            URL of the rejected request
+     * @param attempt
+     *            Number of the rejected attempt, starting from 1
+     */
+    public void commit(URL url, int attempt) {
+        this.url = url.toString();
+        this.attempt = attempt;
+        commit();
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import java.net.URL;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by {@link org.shredzone.acme4j.Certificate} when a certificate chain is
+ * downloaded.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Name("org.shredzone.acme4j.CertificateDownload")
+@Label("ACME Certificate Download")
+@Description("Downloading a certificate chain")
+@Category("acme4j")
+@StackTrace(false)
+public final class CertificateDownloadEvent extends Event {
+
+    @Label("URL")
+    @Description("URL of the certificate")
+    private String url;
+
+    @Label("Certificates")
+    @Description("Number of certificates in the chain")
+    private int certificates;
+
+    /**
+     * Sets the fields of the event, and commits it.
+     *
+     * @param url
+     *            URL of the certificate
+     * @param certificates
+     *            Number of certificates in the chain
+     */
+    public void commit(URL url, int certificates) {
+        this.url = url.toString();
+        this.certificates = certificates;
+        commit();
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import java.net.URL;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.shredzone.acme4j.Problem;
+
+/**
+ * Support for Java Flight Recorder events.
+ * <p>
+ * The events of this package are only emitted if the JVM supports the
+ * {@code jdk.jfr} API, which is the case since Java 11, and since Java 8u262 for
+ * OpenJDK. On other JVMs, the event classes are never loaded. Code that creates an
+ * event must check {@link #isAvailable()} first. If the Flight Recorder is available
+ * but not recording, the events are discarded by the JVM at almost no cost.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+public final class JfrSupport {
+
+    private static final boolean AVAILABLE = detect();
+
+    private JfrSupport() {
+        // utility class without constructor
+    }
+
+    /**
+     * Returns {@code true} if the JVM supports Java Flight Recorder events.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Emits a {@link BadNonceEvent}.
+     *
+     * @param url
+     *            {@link URL} of the rejected request
+     * @param attempt
+     *            Number of the rejected attempt, starting from 1
+     */
+    public static void badNonce(URL url, int attempt) {
+        if (AVAILABLE) {
+            BadNonceEvent event = new BadNonceEvent();
+            if (event.shouldCommit()) {
+                event.commit(url, attempt);
+            }
+        }
+    }
+
+    /**
+     * Emits a {@link ProblemEvent}.
+     *
+     * @param url
+     *            {@link URL} of the failed request
+     * @param status
+     *            HTTP status of the response
+     * @param problem
+     *            {@link Problem} that was returned by the server
+     */
+    public static void problem(URL url, int status, Problem problem) {
+        if (AVAILABLE) {
+            ProblemEvent event = new ProblemEvent();
+            if (event.shouldCommit()) {
+                event.commit(url, status, problem.getType().toString(), problem.getDetail());
+            }
+        }
+    }
+
+    /**
+     * Checks if the {@code jdk.jfr} API is present.
+     */
+    private static boolean detect() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by {@link org.shredzone.acme4j.toolbox.JSON} when a JSON document is parsed.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Name("org.shredzone.acme4j.JsonParse")
+@Label("ACME JSON Parse")
+@Description("Parsing a JSON document")
+@Category("acme4j")
+@StackTrace(false)
+public final class JsonParseEvent extends Event {
+
+    @Label("Size")
+    @Description("Number of bytes that were parsed")
+    private long size;
+
+    /**
+     * Sets the fields of the event, and commits it.
+     *
+     * @param size
+     *            Number of bytes that were parsed
+     */
+    public void commit(long size) {
+        this.size = size;
+        commit();
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import java.net.URL;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by {@link org.shredzone.acme4j.connector.DefaultConnection} when a nonce is taken
+ * for a signed request.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Name("org.shredzone.acme4j.NonceFetch")
+@Label("ACME Nonce Fetch")
+@Description("Taking a nonce for a signed request, from the nonce pool or from the server")
+@Category("acme4j")
+@StackTrace(false)
+public final class NonceFetchEvent extends Event {
+
+    @Label("URL")
+    @Description("URL of the signed request that needs the nonce")
+    private String url;
+
+    @Label("Fetches")
+    @Description("Number of nonces that were fetched from the server, 0 if the nonce was taken from the pool")
+    private int fetches;
+
+    /**
+     * Sets the fields of the event, and commits it.
+     *
+     * @param url
+     *            URL of the signed request that needs the nonce
+     * @param fetches
+     *            Number of nonces that were fetched from the server, 0 if the nonce was taken from the pool
+     */
+    public void commit(URL url, int fetches) {
+        this.url = url.toString();
+        this.fetches = fetches;
+        commit();
+    }
+
+}
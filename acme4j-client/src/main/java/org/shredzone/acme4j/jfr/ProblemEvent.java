@@ -0,0 +1,76 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import java.net.URL;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by {@link org.shredzone.acme4j.connector.DefaultConnection} when the server
+ * responded with a problem document.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Name("org.shredzone.acme4j.Problem")
+@Label("ACME Problem")
+@Description("The server responded with a problem document")
+@Category("acme4j")
+public final class ProblemEvent extends Event {
+
+    @Label("URL")
+    @Description("URL of the failed request")
+    private String url;
+
+    @Label("Status")
+    @Description("HTTP status of the response")
+    private int status;
+
+    @Label("Type")
+    @Description("Type of the problem")
+    private String type;
+
+    @Label("Detail")
+    @Description("Human-readable detail of the problem")
+    private @Nullable String detail;
+
+    /**
+     * Sets the fields of the event, and commits it.
+     *
+     * @param url
+     *            URL of the failed request
+     * @param status
+     *            HTTP status of the response
+     * @param type
+     *            Type of the problem
+     * @param detail
+     *            Human-readable detail of the problem
+     */
+    public void commit(URL url, int status, String type, @Nullable String detail) {
+        this.url = url.toString();
+        this.status = status;
+        this.type = type;
+        this.detail = detail;
+        commit();
+    }
+
+}
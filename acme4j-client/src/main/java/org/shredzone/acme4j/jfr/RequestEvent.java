@@ -0,0 +1,84 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import java.net.URL;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by {@link org.shredzone.acme4j.connector.DefaultConnection} for every attempt of a
+ * request to the ACME server.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Name("org.shredzone.acme4j.Request")
+@Label("ACME Request")
+@Description("A request to the ACME server, including retries after a bad nonce")
+@Category("acme4j")
+@StackTrace(false)
+public final class RequestEvent extends Event {
+
+    @Label("URL")
+    @Description("URL the request was sent to")
+    private String url;
+
+    @Label("Kind")
+    @Description("Kind of the request, see RequestKind")
+    private String kind;
+
+    @Label("Method")
+    @Description("HTTP method of the request")
+    private String method;
+
+    @Label("Status")
+    @Description("HTTP status of the response, or 0 if no response was received")
+    private int status;
+
+    @Label("Attempt")
+    @Description("Number of the attempt, starting from 1")
+    private int attempt;
+
+    /**
+     * Sets the fields of the event, and commits it.
+     *
+     * @param url
+     *            URL the request was sent to
+     * @param kind
+     *            Kind of the request, see RequestKind
+     * @param method
+     *            HTTP method of the request
+     * @param status
+     *            HTTP status of the response, or 0 if no response was received
+     * @param attempt
+     *            Number of the attempt, starting from 1
+     */
+    public void commit(URL url, String kind, String method, int status, int attempt) {
+        this.url = url.toString();
+        this.kind = kind;
+        this.method = method;
+        this.status = status;
+        this.attempt = attempt;
+        commit();
+    }
+
+}
@@ -0,0 +1,642 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.Account;
+import org.shredzone.acme4j.Certificate;
+import org.shredzone.acme4j.Identifier;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+import org.shredzone.acme4j.toolbox.AcmeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Issues a large number of certificates for an {@link Account}, using an
+ * {@link OrderPipeline}.
+ * <p>
+ * The requests are taken from a {@link Stream}, but only as many requests as the
+ * parallelism permits are processed at the same time. The results are passed to a
+ * consumer as soon as they are completed.
+ * <p>
+ * If an order hits a rate limit of the CA, the limit is remembered until the
+ * {@code Retry-After} instant, and the order is retried after that. Further requests
+ * are held back in the meantime. If the CA's problem document names a domain, only
+ * requests for that domain and its subdomains are held back. Otherwise it is assumed
+ * that the limit applies to the entire account. The held back requests are scheduled on
+ * the timer of the {@link OrderPipeline}, so the issuer does not start a thread of its
+ * own.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class BulkIssuer implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIssuer.class);
+
+    private final Account account;
+    private final ChallengeHandler handler;
+    private final OrderPipeline pipeline;
+    private final boolean ownPipeline;
+    private final TimerWheel wheel;
+    private final Set<Task> deferred = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Instant> domainLimits = new ConcurrentHashMap<>();
+    private final AtomicReference<Instant> accountLimit = new AtomicReference<>(Instant.MIN);
+
+    private final AtomicLong startNanos = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private volatile int parallelism;
+    private volatile int maxRateLimitRetries = 5;
+    private volatile Duration rateLimitBackoff = Duration.ofMinutes(1);
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new {@link BulkIssuer} with its own {@link OrderPipeline}. The pipeline
+     * is closed when the issuer is closed.
+     *
+     * @param account
+     *         {@link Account} to order the certificates for
+     * @param handler
+     *         {@link ChallengeHandler} that prepares and cleans up the challenges
+     */
+    public BulkIssuer(Account account, ChallengeHandler handler) {
+        this(account, handler, new OrderPipeline(), true);
+    }
+
+    /**
+     * Creates a new {@link BulkIssuer} that uses the given {@link OrderPipeline}.
+     *
+     * @param account
+     *         {@link Account} to order the certificates for
+     * @param handler
+     *         {@link ChallengeHandler} that prepares and cleans up the challenges
+     * @param pipeline
+     *         {@link OrderPipeline} that processes the orders. It is not closed when
+     *         the issuer is closed.
+     */
+    public BulkIssuer(Account account, ChallengeHandler handler, OrderPipeline pipeline) {
+        this(account, handler, pipeline, false);
+    }
+
+    private BulkIssuer(Account account, ChallengeHandler handler, OrderPipeline pipeline,
+                       boolean ownPipeline) {
+        this.account = requireNonNull(account, "account");
+        this.handler = requireNonNull(handler, "handler");
+        this.pipeline = requireNonNull(pipeline, "pipeline");
+        this.ownPipeline = ownPipeline;
+        this.wheel = pipeline.getWheel();
+        this.parallelism = pipeline.getMaxConcurrentOrders();
+    }
+
+    /**
+     * Returns the maximum number of requests that are processed at the same time.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the maximum number of requests that are processed at the same time. Requests
+     * that are waiting for a rate limit to expire are counted as well. Defaults to the
+     * maximum number of concurrent orders of the {@link OrderPipeline}.
+     *
+     * @param parallelism
+     *         Parallelism, must be positive
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns how often a request is retried after hitting a rate limit.
+     */
+    public int getMaxRateLimitRetries() {
+        return maxRateLimitRetries;
+    }
+
+    /**
+     * Sets how often a request is retried after hitting a rate limit. If the request
+     * still hits a rate limit after that, it fails. Defaults to 5.
+     *
+     * @param maxRateLimitRetries
+     *         Number of retries, must not be negative
+     */
+    public void setMaxRateLimitRetries(int maxRateLimitRetries) {
+        if (maxRateLimitRetries < 0) {
+            throw new IllegalArgumentException("maxRateLimitRetries must not be negative");
+        }
+        this.maxRateLimitRetries = maxRateLimitRetries;
+    }
+
+    /**
+     * Returns the time to wait after hitting a rate limit, if the CA did not send a
+     * {@code Retry-After} header.
+     */
+    public Duration getRateLimitBackoff() {
+        return rateLimitBackoff;
+    }
+
+    /**
+     * Sets the time to wait after hitting a rate limit, if the CA did not send a
+     * {@code Retry-After} header. Defaults to 1 minute.
+     *
+     * @param rateLimitBackoff
+     *         Backoff time, must not be negative
+     */
+    public void setRateLimitBackoff(Duration rateLimitBackoff) {
+        if (rateLimitBackoff.isNegative()) {
+            throw new IllegalArgumentException("rateLimitBackoff must not be negative");
+        }
+        this.rateLimitBackoff = rateLimitBackoff;
+    }
+
+    /**
+     * Issues certificates for all requests of the given stream.
+     * <p>
+     * The requests are taken from the stream only when there is capacity to process
+     * them, so the stream may be lazily generated and of any size. The stream is closed
+     * when all requests have been completed.
+     *
+     * @param requests
+     *         {@link Stream} of {@link IssuanceRequest}
+     * @param consumer
+     *         Consumer that receives the {@link IssuanceResult} of each request as soon
+     *         as it is completed. It is invoked concurrently by different threads, so it
+     *         must be thread-safe, and should return quickly.
+     * @return {@link CompletableFuture} that is completed with the {@link BulkMetrics}
+     * when all requests of the stream have been completed. It is completed
+     * exceptionally if the stream itself failed.
+     * @throws IllegalStateException
+     *         if the issuer has already been closed
+     */
+    public CompletableFuture<BulkMetrics> issue(Stream<IssuanceRequest> requests,
+                Consumer<IssuanceResult> consumer) {
+        if (closed) {
+            throw new IllegalStateException("bulk issuer is closed");
+        }
+        Run run = new Run(requireNonNull(requests, "requests"), requireNonNull(consumer, "consumer"));
+        run.fill();
+        return run.future;
+    }
+
+    /**
+     * Returns the current metrics of all requests that were processed by this issuer.
+     *
+     * @return {@link BulkMetrics}
+     */
+    public BulkMetrics getMetrics() {
+        long start = startNanos.get();
+        Duration elapsed = start != 0L ? Duration.ofNanos(System.nanoTime() - start) : Duration.ZERO;
+        return new BulkMetrics(accepted.get(), succeeded.get(), failed.get(),
+                rateLimited.get(), inFlight.get(), elapsed, Duration.ofNanos(totalNanos.sum()));
+    }
+
+    /**
+     * Returns the instant until requests for the given domain are held back because of
+     * a rate limit. A rate limit of any of its parent domains is also taken into account.
+     *
+     * @param domain
+     *         Domain name
+     * @return Instant when the rate limit is expected to expire, or {@code null} if the
+     * domain is not rate limited
+     */
+    @CheckForNull
+    public Instant getRateLimitedUntil(String domain) {
+        Instant now = Instant.now();
+        Instant result = null;
+        Instant account = accountLimit.get();
+        if (account.isAfter(now)) {
+            result = account;
+        }
+        for (String parent : AcmeUtils.domainHierarchy(domain)) {
+            Instant limit = domainLimits.get(parent);
+            if (limit != null && limit.isAfter(now)) {
+                result = latest(result, limit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes the issuer. No further requests are taken from the streams. Requests that
+     * are waiting for a rate limit to expire fail with a {@link CancellationException}.
+     * If the issuer uses its own {@link OrderPipeline}, it is closed as well, which
+     * cancels all running orders.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Task task : new ArrayList<>(deferred)) {
+            if (deferred.remove(task)) {
+                task.cancelWakeUp();
+                task.complete(null, new CancellationException("bulk issuer is closed"));
+            }
+        }
+        if (ownPipeline) {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Returns the instant until the request must be held back because of a rate limit,
+     * or {@code null} if it can be processed right away.
+     */
+    @CheckForNull
+    private Instant blockedUntil(IssuanceRequest request) {
+        Instant result = null;
+        for (Identifier identifier : request.getIdentifiers()) {
+            if (Identifier.TYPE_DNS.equals(identifier.getType())) {
+                result = latest(result, getRateLimitedUntil(identifier.getDomain()));
+            }
+        }
+        if (result == null) {
+            Instant now = Instant.now();
+            Instant account = accountLimit.get();
+            if (account.isAfter(now)) {
+                result = account;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remembers a rate limit that was hit by a request.
+     */
+    private void learn(IssuanceRequest request, AcmeRateLimitedException ex) {
+        Instant retryAfter = ex.getRetryAfter();
+        Instant until = retryAfter != null ? retryAfter : Instant.now().plus(rateLimitBackoff);
+
+        Set<String> domains = limitedDomains(request, ex.getProblem());
+        if (domains.isEmpty()) {
+            LOG.debug("Account is rate limited until {}", until);
+            accountLimit.accumulateAndGet(until, BulkIssuer::latest);
+        } else {
+            for (String domain : domains) {
+                LOG.debug("Domain {} is rate limited until {}", domain, until);
+                domainLimits.merge(domain, until, BulkIssuer::latest);
+            }
+        }
+    }
+
+    /**
+     * Finds the domains that are named by the rate limit problem. If the problem does
+     * not contain an identifier, the detail message is searched for the domains of the
+     * request and their parent domains.
+     */
+    private static Set<String> limitedDomains(IssuanceRequest request, Problem problem) {
+        Set<String> result = new LinkedHashSet<>();
+
+        Identifier identifier = problem.getIdentifier();
+        if (identifier != null && Identifier.TYPE_DNS.equals(identifier.getType())) {
+            result.add(identifier.getDomain());
+            return result;
+        }
+
+        String detail = problem.getDetail();
+        if (detail != null) {
+            for (Identifier id : request.getIdentifiers()) {
+                if (Identifier.TYPE_DNS.equals(id.getType())) {
+                    AcmeUtils.domainHierarchy(id.getDomain()).stream()
+                            .filter(domain -> containsDomain(detail, domain))
+                            .findFirst()
+                            .ifPresent(result::add);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the text contains the domain name, and not just a part of a longer
+     * domain name. A dot after the domain name is accepted if it ends the sentence.
+     */
+    private static boolean containsDomain(String text, String domain) {
+        int pos = text.indexOf(domain);
+        while (pos >= 0) {
+            int end = pos + domain.length();
+            boolean before = isDomainChar(text, pos - 1);
+            boolean after = isDomainChar(text, end)
+                    && (text.charAt(end) != '.' || isDomainChar(text, end + 1));
+            if (!before && !after) {
+                return true;
+            }
+            pos = text.indexOf(domain, pos + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the character at the given position may be part of a domain name.
+     * Positions outside of the text are never part of a domain name.
+     */
+    private static boolean isDomainChar(String text, int pos) {
+        if (pos < 0 || pos >= text.length()) {
+            return false;
+        }
+        char ch = text.charAt(pos);
+        return Character.isLetterOrDigit(ch) || ch == '-' || ch == '.';
+    }
+
+    /**
+     * Returns the later one of two instants.
+     */
+    @CheckForNull
+    private static Instant latest(@Nullable Instant a, @Nullable Instant b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * A single invocation of {@link #issue(Stream, Consumer)}.
+     */
+    private final class Run {
+        private final Stream<IssuanceRequest> stream;
+        private final Iterator<IssuanceRequest> source;
+        private final Consumer<IssuanceResult> consumer;
+        private final CompletableFuture<BulkMetrics> future = new CompletableFuture<>();
+
+        @GuardedBy("this")
+        private int running = 0;
+
+        @GuardedBy("this")
+        private boolean exhausted = false;
+
+        @GuardedBy("this")
+        private RuntimeException failure;
+
+        @GuardedBy("this")
+        private boolean filling = false;
+
+        @GuardedBy("this")
+        private boolean refill = false;
+
+        private Run(Stream<IssuanceRequest> stream, Consumer<IssuanceResult> consumer) {
+            this.stream = stream;
+            this.source = stream.iterator();
+            this.consumer = consumer;
+        }
+
+        /**
+         * Takes as many requests from the stream as the parallelism permits, and starts
+         * them.
+         * <p>
+         * Tasks that fail synchronously invoke this method again while they are started.
+         * In that case, the invoking thread only marks that a refill is needed, and the
+         * thread that is already filling takes further requests in its loop. This way,
+         * the stack depth does not grow with the number of failing requests.
+         */
+        private void fill() {
+            synchronized (this) {
+                if (filling) {
+                    refill = true;
+                    return;
+                }
+                filling = true;
+            }
+
+            boolean again = true;
+            try {
+                while (again) {
+                    List<Task> ready = take();
+                    startNanos.compareAndSet(0L, System.nanoTime());
+                    ready.forEach(Task::start);
+
+                    synchronized (this) {
+                        again = refill;
+                        refill = false;
+                        filling = again;
+                    }
+                }
+            } finally {
+                if (again) {
+                    synchronized (this) {
+                        filling = false;
+                    }
+                }
+            }
+            checkCompleted();
+        }
+
+        /**
+         * Takes as many requests from the stream as the parallelism permits.
+         */
+        private synchronized List<Task> take() {
+            List<Task> ready = new ArrayList<>();
+            try {
+                while (!exhausted && running < parallelism) {
+                    if (closed || !source.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    ready.add(new Task(this, requireNonNull(source.next(), "request")));
+                    running++;
+                }
+            } catch (RuntimeException ex) {
+                LOG.warn("Could not read the request stream", ex);
+                exhausted = true;
+                failure = ex;
+            }
+            return ready;
+        }
+
+        /**
+         * Passes the result of a task to the consumer, and starts the next request.
+         */
+        private void completed(IssuanceResult result) {
+            try {
+                consumer.accept(result);
+            } catch (RuntimeException ex) {
+                LOG.warn("Result consumer failed", ex);
+            }
+
+            synchronized (this) {
+                running--;
+            }
+            fill();
+        }
+
+        /**
+         * Completes the future if all requests of the stream have been completed.
+         */
+        private void checkCompleted() {
+            RuntimeException ex;
+            synchronized (this) {
+                if (!exhausted || running > 0 || future.isDone()) {
+                    return;
+                }
+                ex = failure;
+            }
+
+            stream.close();
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(getMetrics());
+            }
+        }
+    }
+
+    /**
+     * A single request that is processed, and retried if it hits a rate limit.
+     */
+    private final class Task {
+        private final Run run;
+        private final IssuanceRequest request;
+        private final long created = System.nanoTime();
+        private volatile int attempts = 0;
+        private volatile TimerWheel.Timeout wakeUp;
+
+        private Task(Run run, IssuanceRequest request) {
+            this.run = run;
+            this.request = request;
+            accepted.incrementAndGet();
+            inFlight.incrementAndGet();
+        }
+
+        /**
+         * Submits the order to the pipeline, or defers it if a rate limit applies.
+         */
+        private void start() {
+            if (closed) {
+                complete(null, new CancellationException("bulk issuer is closed"));
+                return;
+            }
+
+            Instant until = blockedUntil(request);
+            if (until != null) {
+                defer(until);
+                return;
+            }
+
+            attempts++;
+            try {
+                pipeline.submit(account.newOrder().identifiers(request.getIdentifiers()),
+                        request.getCsr(), handler)
+                        .whenComplete(this::orderCompleted);
+            } catch (RuntimeException ex) {
+                complete(null, ex);
+            }
+        }
+
+        /**
+         * Starts the request again when the rate limit has expired.
+         */
+        private void defer(Instant until) {
+            deferred.add(this);
+            try {
+                wakeUp = wheel.schedule(() -> {
+                    if (deferred.remove(this)) {
+                        start();
+                    }
+                }, Duration.between(Instant.now(), until));
+            } catch (IllegalStateException ex) {
+                if (deferred.remove(this)) {
+                    complete(null, new CancellationException(closed
+                            ? "bulk issuer is closed" : "pipeline is closed"));
+                }
+            }
+        }
+
+        /**
+         * Cancels the scheduled start, so the shared timer wheel does not keep the task
+         * until the rate limit has expired.
+         */
+        private void cancelWakeUp() {
+            TimerWheel.Timeout current = wakeUp;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        /**
+         * Evaluates the outcome of an order.
+         */
+        private void orderCompleted(@Nullable Certificate certificate, @Nullable Throwable ex) {
+            if (ex == null) {
+                complete(certificate, null);
+                return;
+            }
+
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null
+                    ? ex.getCause() : ex;
+            if (cause instanceof AcmeRateLimitedException) {
+                rateLimited.incrementAndGet();
+                learn(request, (AcmeRateLimitedException) cause);
+                if (attempts <= maxRateLimitRetries && !closed) {
+                    start();
+                    return;
+                }
+            }
+            complete(null, cause);
+        }
+
+        /**
+         * Completes the request.
+         */
+        private void complete(@Nullable Certificate certificate, @Nullable Throwable failure) {
+            Duration duration = Duration.ofNanos(System.nanoTime() - created);
+            totalNanos.add(duration.toNanos());
+            if (certificate != null) {
+                succeeded.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+
+            run.completed(new IssuanceResult(request, certificate, failure, attempts, duration));
+        }
+    }
+
+}
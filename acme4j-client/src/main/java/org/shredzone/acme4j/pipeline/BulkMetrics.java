@@ -0,0 +1,118 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A snapshot of the throughput metrics of a {@link BulkIssuer}.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class BulkMetrics {
+
+    private final long accepted;
+    private final long succeeded;
+    private final long failed;
+    private final long rateLimited;
+    private final int inFlight;
+    private final Duration elapsed;
+    private final Duration totalDuration;
+
+    BulkMetrics(long accepted, long succeeded, long failed, long rateLimited, int inFlight,
+                Duration elapsed, Duration totalDuration) {
+        this.accepted = accepted;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.rateLimited = rateLimited;
+        this.inFlight = inFlight;
+        this.elapsed = elapsed;
+        this.totalDuration = totalDuration;
+    }
+
+    /**
+     * Returns the number of requests that have been taken from the request stream.
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the number of certificates that have been issued.
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Returns the number of requests that have failed.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns how often an order hit a rate limit of the CA.
+     */
+    public long getRateLimited() {
+        return rateLimited;
+    }
+
+    /**
+     * Returns the number of requests that are currently processed, or are waiting for a
+     * rate limit to expire.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the time since the first request was accepted.
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the number of issued certificates per second.
+     */
+    public double getThroughput() {
+        long millis = elapsed.toMillis();
+        return millis > 0 ? succeeded * 1000.0 / millis : 0.0;
+    }
+
+    /**
+     * Returns the average time from accepting a request to its completion. It is zero
+     * if no request has been completed yet.
+     */
+    public Duration getAverageDuration() {
+        long completed = succeeded + failed;
+        return completed > 0 ? totalDuration.dividedBy(completed) : Duration.ZERO;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d accepted, %d succeeded, %d failed, %d rate limited, "
+                + "%d in flight, %.1f/s, avg %d ms",
+                accepted, succeeded, failed, rateLimited, inFlight,
+                getThroughput(), getAverageDuration().toMillis());
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.shredzone.acme4j.Authorization;
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.exception.AcmeException;
+
+/**
+ * Prepares and cleans up the challenges of the authorizations that are processed by an
+ * {@link OrderPipeline}.
+ * <p>
+ * Implementations must be thread-safe, as the methods are invoked concurrently for
+ * different authorizations.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@FunctionalInterface
+public interface ChallengeHandler {
+
+    /**
+     * Selects a challenge of the given {@link Authorization}, and prepares it for
+     * validation. For example, a {@link org.shredzone.acme4j.challenge.Http01Challenge}
+     * would require that the challenge resource is published on the web server.
+     * <p>
+     * The challenge must be ready for validation when this method returns. It is then
+     * triggered by the {@link OrderPipeline}.
+     *
+     * @param auth
+     *         {@link Authorization} to be authorized
+     * @return {@link Challenge} that was prepared
+     * @throws AcmeException
+     *         if no suitable challenge was found, or if it could not be prepared
+     */
+    Challenge prepare(Authorization auth) throws AcmeException;
+
+    /**
+     * Removes everything that was set up for the challenge by
+     * {@link #prepare(Authorization)}. It is invoked after the authorization has been
+     * completed, whether it was successful or not.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param challenge
+     *         {@link Challenge} that was returned by {@link #prepare(Authorization)}
+     */
+    default void cleanup(Challenge challenge) {
+        // does nothing by default
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.shredzone.acme4j.Identifier;
+
+/**
+ * A single certificate to be issued by a {@link BulkIssuer}.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class IssuanceRequest {
+
+    private final List<Identifier> identifiers;
+    private final byte[] csr;
+
+    /**
+     * Creates a new {@link IssuanceRequest}.
+     *
+     * @param identifiers
+     *         {@link Identifier} of the certificate, must not be empty
+     * @param csr
+     *         Binary representation of a PKCS#10 CSR containing the identifiers. The
+     *         array must not be modified afterwards.
+     */
+    public IssuanceRequest(Collection<Identifier> identifiers, byte[] csr) {
+        if (requireNonNull(identifiers, "identifiers").isEmpty()) {
+            throw new IllegalArgumentException("identifiers must not be empty");
+        }
+        this.identifiers = unmodifiableList(new ArrayList<>(identifiers));
+        this.csr = requireNonNull(csr, "csr");
+    }
+
+    /**
+     * Returns the {@link Identifier} of the certificate.
+     */
+    public List<Identifier> getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * Returns the binary representation of the CSR.
+     */
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public byte[] getCsr() {
+        return csr;
+    }
+
+    @Override
+    public String toString() {
+        return identifiers.toString();
+    }
+
+}
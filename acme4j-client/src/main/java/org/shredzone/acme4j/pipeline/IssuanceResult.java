@@ -0,0 +1,103 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import java.time.Duration;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.shredzone.acme4j.Certificate;
+
+/**
+ * The outcome of an {@link IssuanceRequest} that was processed by a {@link BulkIssuer}.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class IssuanceResult {
+
+    private final IssuanceRequest request;
+    private final Certificate certificate;
+    private final Throwable failure;
+    private final int attempts;
+    private final Duration duration;
+
+    IssuanceResult(IssuanceRequest request, @Nullable Certificate certificate,
+                @Nullable Throwable failure, int attempts, Duration duration) {
+        this.request = request;
+        this.certificate = certificate;
+        this.failure = failure;
+        this.attempts = attempts;
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the {@link IssuanceRequest} this is the result of.
+     */
+    public IssuanceRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns {@code true} if the certificate was issued.
+     */
+    public boolean isSuccessful() {
+        return certificate != null;
+    }
+
+    /**
+     * Returns the issued {@link Certificate}, or {@code null} if the issuance failed.
+     * The certificate has already been downloaded.
+     */
+    @CheckForNull
+    public Certificate getCertificate() {
+        return certificate;
+    }
+
+    /**
+     * Returns the exception that made the issuance fail, or {@code null} if it was
+     * successful.
+     */
+    @CheckForNull
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the number of orders that were submitted for this request. It is greater
+     * than 1 if the order was retried after hitting a rate limit.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the time from the first attempt to the completion of the request,
+     * including the time spent waiting for rate limits.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return request + (certificate != null ? " issued" : " failed: " + failure)
+                + " after " + attempts + " attempt(s), " + duration.toMillis() + " ms";
+    }
+
+}
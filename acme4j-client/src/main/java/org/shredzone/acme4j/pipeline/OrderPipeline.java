@@ -0,0 +1,686 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.AcmeJsonResource;
+import org.shredzone.acme4j.Authorization;
+import org.shredzone.acme4j.Certificate;
+import org.shredzone.acme4j.Order;
+import org.shredzone.acme4j.OrderBuilder;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+import org.shredzone.acme4j.exception.AcmeServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives orders through their entire life cycle, from creating the order to downloading
+ * the certificate.
+ * <p>
+ * Every submitted order is processed by a state machine whose steps are run by an
+ * {@link Executor}. Instead of sleeping while the CA is busy, the next step is scheduled
+ * on a timer wheel, for the instant given by the server's {@code Retry-After} header, or
+ * after the poll interval if there was none. This way, a large number of orders can be
+ * processed in parallel by a small number of threads.
+ * <p>
+ * The number of orders that are processed at the same time is limited. Further orders
+ * are queued until a running order has been completed or cancelled.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class OrderPipeline implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(OrderPipeline.class);
+
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_MAX_CONCURRENT_ORDERS = 64;
+    private static final Duration TICK_DURATION = Duration.ofMillis(10);
+    private static final int TICKS_PER_WHEEL = 512;
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final TimerWheel wheel = new TimerWheel(TICK_DURATION, TICKS_PER_WHEEL);
+    private final int maxConcurrentOrders;
+    private final Set<Job> jobs = ConcurrentHashMap.newKeySet();
+    private volatile Duration pollInterval = Duration.ofSeconds(3);
+    private volatile Duration timeout = Duration.ofMinutes(10);
+
+    @GuardedBy("this")
+    private final Deque<Job> queue = new ArrayDeque<>();
+
+    @GuardedBy("this")
+    private int running = 0;
+
+    @GuardedBy("this")
+    private boolean closed = false;
+
+    /**
+     * Creates a new {@link OrderPipeline} with its own executor, that processes up to
+     * 64 orders at the same time. The executor is shut down when the pipeline is
+     * closed.
+     */
+    public OrderPipeline() {
+        this(createExecutor(), DEFAULT_MAX_CONCURRENT_ORDERS, true);
+    }
+
+    /**
+     * Creates a new {@link OrderPipeline} that uses the given executor.
+     *
+     * @param executor
+     *         {@link Executor} that executes the order steps. It is not shut down when
+     *         the pipeline is closed.
+     * @param maxConcurrentOrders
+     *         Maximum number of orders that are processed at the same time
+     */
+    public OrderPipeline(Executor executor, int maxConcurrentOrders) {
+        this(executor, maxConcurrentOrders, false);
+    }
+
+    private OrderPipeline(Executor executor, int maxConcurrentOrders, boolean ownExecutor) {
+        if (maxConcurrentOrders < 1) {
+            throw new IllegalArgumentException("maxConcurrentOrders must be positive");
+        }
+        this.executor = requireNonNull(executor, "executor");
+        this.ownExecutor = ownExecutor ? (ExecutorService) executor : null;
+        this.maxConcurrentOrders = maxConcurrentOrders;
+    }
+
+    /**
+     * Returns the interval for polling the status of a resource, if the server did not
+     * send a {@code Retry-After} header.
+     */
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * Sets the interval for polling the status of a resource, if the server did not
+     * send a {@code Retry-After} header. Defaults to 3 seconds.
+     *
+     * @param pollInterval
+     *         Poll interval, must be positive
+     */
+    public void setPollInterval(Duration pollInterval) {
+        if (pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("pollInterval must be positive");
+        }
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Returns the maximum time an order may take from the moment its processing has
+     * started.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the maximum time an order may take from the moment its processing has
+     * started. If the order is not completed by then, it fails. Defaults to 10 minutes.
+     *
+     * @param timeout
+     *         Timeout, must be positive
+     */
+    public void setTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the maximum number of orders that are processed at the same time.
+     */
+    public int getMaxConcurrentOrders() {
+        return maxConcurrentOrders;
+    }
+
+    /**
+     * Returns the {@link TimerWheel} of this pipeline, so other components can share its
+     * worker thread. It is closed when the pipeline is closed.
+     */
+    TimerWheel getWheel() {
+        return wheel;
+    }
+
+    /**
+     * Returns the number of orders that are currently processed.
+     */
+    public synchronized int getRunningOrders() {
+        return running;
+    }
+
+    /**
+     * Returns the number of orders that are waiting to be processed.
+     */
+    public synchronized int getQueuedOrders() {
+        return queue.size();
+    }
+
+    /**
+     * Submits a new order to the pipeline.
+     * <p>
+     * The order is created, all pending authorizations are authorized by the challenges
+     * that are provided by the {@link ChallengeHandler}, the order is finalized, and the
+     * certificate is downloaded.
+     *
+     * @param builder
+     *         {@link OrderBuilder} that is used for creating the order
+     * @param csr
+     *         Binary representation of a PKCS#10 CSR for the order
+     * @param handler
+     *         {@link ChallengeHandler} that prepares and cleans up the challenges
+     * @return {@link CompletableFuture} that is completed with the downloaded
+     * {@link Certificate}, or is completed exceptionally with the {@link AcmeException}
+     * that made the order fail. Cancelling the future aborts the order.
+     * @throws IllegalStateException
+     *         if the pipeline has already been closed
+     */
+    public CompletableFuture<Certificate> submit(OrderBuilder builder, byte[] csr,
+                ChallengeHandler handler) {
+        Job job = new Job(requireNonNull(builder, "builder"), requireNonNull(csr, "csr"),
+                requireNonNull(handler, "handler"));
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("pipeline is closed");
+            }
+            jobs.add(job);
+            queue.addLast(job);
+        }
+        dispatch();
+        return job.future;
+    }
+
+    /**
+     * Closes the pipeline. All orders that are still queued or running are cancelled,
+     * and the challenges that have been prepared so far are cleaned up. If the pipeline
+     * uses its own executor, it is shut down.
+     * <p>
+     * This method does not wait for requests that are currently sent to the CA. The
+     * challenges of such an order are cleaned up as soon as the request is completed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+
+        for (Job job : new ArrayList<>(jobs)) {
+            job.future.cancel(false);
+            job.finish();
+        }
+
+        wheel.close();
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts as many queued orders as the concurrency limit permits.
+     */
+    private void dispatch() {
+        List<Job> ready = new ArrayList<>();
+        synchronized (this) {
+            while (!closed && running < maxConcurrentOrders && !queue.isEmpty()) {
+                ready.add(queue.removeFirst());
+                running++;
+            }
+        }
+        ready.forEach(Job::start);
+    }
+
+    /**
+     * Releases the concurrency slot of a completed order, and starts the next one.
+     */
+    private void release() {
+        synchronized (this) {
+            running--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Creates the default executor, using daemon threads.
+     */
+    private static ExecutorService createExecutor() {
+        return new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "acme4j-pipeline-" + COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * The steps of the order life cycle.
+     */
+    private enum Step {
+        CREATE, AUTHORIZE, VALIDATE, FINALIZE, ISSUE, DOWNLOAD
+    }
+
+    /**
+     * The state machine of a single order.
+     * <p>
+     * The steps are run one after another, so the state of the order is only accessed
+     * by one thread at a time. No lock is held while a step communicates with the CA.
+     * The {@code busy} flag is set while a step is running, so a concurrent
+     * {@link #finish()} leaves the cleanup of the challenges to the running step.
+     */
+    private final class Job implements Runnable {
+        private final OrderBuilder builder;
+        private final byte[] csr;
+        private final ChallengeHandler handler;
+        private final CompletableFuture<Certificate> future = new CompletableFuture<>();
+        private final List<Authorization> pending = new ArrayList<>();
+        private final List<Challenge> challenges = new ArrayList<>();
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile TimerWheel.Timeout wakeUp;
+        private volatile Certificate certificate;
+        private volatile Exception failure;
+        private Step step = Step.CREATE;
+        private Instant deadline;
+        private Order order;
+
+        private Job(OrderBuilder builder, byte[] csr, ChallengeHandler handler) {
+            this.builder = builder;
+            this.csr = csr;
+            this.handler = handler;
+
+            // Cancelling the future releases the concurrency slot right away
+            future.whenComplete((result, ex) -> {
+                if (future.isCancelled()) {
+                    finish();
+                }
+            });
+        }
+
+        /**
+         * Starts processing the order. Does nothing if the order has been cancelled in
+         * the meantime.
+         */
+        private void start() {
+            if (finished.get()) {
+                return;
+            }
+            deadline = Instant.now().plus(timeout);
+            execute();
+        }
+
+        /**
+         * Hands over the next step to the executor.
+         */
+        private void execute() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                failure = ex;
+                finish();
+            }
+        }
+
+        /**
+         * Schedules the next step for the given instant.
+         */
+        private void schedule(Instant next) {
+            try {
+                wakeUp = wheel.schedule(this::execute, Duration.between(Instant.now(), next));
+            } catch (IllegalStateException ex) {
+                LOG.debug("Pipeline is closed", ex);
+                finish();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!busy.compareAndSet(false, true)) {
+                // the finished job is being cleaned up
+                return;
+            }
+
+            boolean done = true;
+            try {
+                while (certificate == null && !finished.get()) {
+                    Instant next = advance();
+                    if (next != null) {
+                        schedule(next);
+                        done = false;
+                        break;
+                    }
+                }
+            } catch (AcmeException | RuntimeException ex) {
+                LOG.debug("Order failed at step {}", step, ex);
+                failure = ex;
+            } finally {
+                busy.set(false);
+                if (done) {
+                    finish();
+                }
+                if (finished.get()) {
+                    cleanupIfIdle();
+                }
+            }
+        }
+
+        /**
+         * Performs the current step.
+         *
+         * @return Instant when the current step is to be repeated, or {@code null} if
+         * the next step can be performed right away.
+         */
+        @CheckForNull
+        private Instant advance() throws AcmeException {
+            switch (step) {
+                case CREATE:
+                    order = builder.create();
+                    LOG.debug("Created order {}", order.getLocation());
+                    step = Step.AUTHORIZE;
+                    return null;
+
+                case AUTHORIZE:
+                    authorize();
+                    step = Step.VALIDATE;
+                    return null;
+
+                case VALIDATE:
+                    return validate();
+
+                case FINALIZE:
+                    return finalizeOrder();
+
+                case ISSUE:
+                    return issue();
+
+                case DOWNLOAD:
+                    Certificate downloaded = order.getCertificate();
+                    downloaded.download();
+                    certificate = downloaded;
+                    return null;
+
+                default:
+                    throw new IllegalStateException("unknown step " + step);
+            }
+        }
+
+        /**
+         * Prepares and triggers a challenge for each pending authorization.
+         * Authorizations that are known to be valid are skipped without fetching them.
+         */
+        private void authorize() throws AcmeException {
+            for (Authorization auth : order.getAuthorizationsToValidate()) {
+                Status status = auth.getStatus();
+                if (status == Status.VALID) {
+                    continue;
+                }
+                if (status != Status.PENDING) {
+                    throw new AcmeException("Authorization of " + auth.getIdentifier()
+                            + " is " + status);
+                }
+
+                Challenge challenge = handler.prepare(auth);
+                challenges.add(challenge);
+                if (challenge.getStatus() == Status.PENDING) {
+                    challenge.trigger();
+                }
+                pending.add(auth);
+            }
+        }
+
+        /**
+         * Polls the pending authorizations until all of them are valid.
+         */
+        @CheckForNull
+        private Instant validate() throws AcmeException {
+            Instant retryAfter = null;
+            for (Iterator<Authorization> it = pending.iterator(); it.hasNext();) {
+                Authorization auth = it.next();
+                retryAfter = latest(retryAfter, update(auth));
+
+                Status status = auth.getStatus();
+                if (status == Status.VALID) {
+                    it.remove();
+                } else if (status != Status.PENDING) {
+                    throw authorizationFailed(auth);
+                }
+            }
+
+            if (!pending.isEmpty()) {
+                return nextPoll(retryAfter);
+            }
+
+            cleanup();
+            step = Step.FINALIZE;
+            return null;
+        }
+
+        /**
+         * Finalizes the order as soon as it is ready.
+         */
+        @CheckForNull
+        private Instant finalizeOrder() throws AcmeException {
+            Instant retryAfter = update(order);
+            switch (order.getStatus()) {
+                case READY:
+                    order.execute(csr);
+                    step = Step.ISSUE;
+                    return null;
+
+                case PROCESSING:
+                    step = Step.ISSUE;
+                    return nextPoll(retryAfter);
+
+                case VALID:
+                    step = Step.DOWNLOAD;
+                    return null;
+
+                case PENDING:
+                    return nextPoll(retryAfter);
+
+                default:
+                    throw orderFailed();
+            }
+        }
+
+        /**
+         * Polls the order until the certificate has been issued.
+         */
+        @CheckForNull
+        private Instant issue() throws AcmeException {
+            Instant retryAfter = update(order);
+            switch (order.getStatus()) {
+                case VALID:
+                    step = Step.DOWNLOAD;
+                    return null;
+
+                case READY:
+                case PROCESSING:
+                    return nextPoll(retryAfter);
+
+                default:
+                    throw orderFailed();
+            }
+        }
+
+        /**
+         * Updates the resource.
+         *
+         * @return Retry-After instant sent by the server, or {@code null} if there was
+         * none
+         */
+        @CheckForNull
+        private Instant update(AcmeJsonResource resource) throws AcmeException {
+            try {
+                resource.update();
+                return null;
+            } catch (AcmeRetryAfterException ex) {
+                return ex.getRetryAfter();
+            }
+        }
+
+        /**
+         * Returns the instant of the next poll. It is either the Retry-After instant, or
+         * the poll interval if the server did not send one.
+         *
+         * @throws AcmeException
+         *         if the order would not be completed before the deadline
+         */
+        private Instant nextPoll(@Nullable Instant retryAfter) throws AcmeException {
+            Instant next = retryAfter != null ? retryAfter : Instant.now().plus(pollInterval);
+            if (next.isAfter(deadline)) {
+                throw new AcmeException("Order was not completed within " + timeout);
+            }
+            return next;
+        }
+
+        /**
+         * Creates an exception for a failed authorization.
+         */
+        private AcmeException authorizationFailed(Authorization auth) {
+            for (Challenge challenge : auth.getChallenges()) {
+                Problem problem = challenge.getError();
+                if (problem != null) {
+                    return new AcmeServerException(problem);
+                }
+            }
+            return new AcmeException("Authorization of " + auth.getIdentifier()
+                    + " is " + auth.getStatus());
+        }
+
+        /**
+         * Creates an exception for a failed order.
+         */
+        private AcmeException orderFailed() {
+            Problem problem = order.getError();
+            if (problem != null) {
+                return new AcmeServerException(problem);
+            }
+            return new AcmeException("Order is " + order.getStatus());
+        }
+
+        /**
+         * Cleans up all challenges that have been prepared.
+         */
+        private void cleanup() {
+            for (Challenge challenge : challenges) {
+                try {
+                    handler.cleanup(challenge);
+                } catch (RuntimeException ex) {
+                    LOG.warn("Could not clean up challenge", ex);
+                }
+            }
+            challenges.clear();
+        }
+
+        /**
+         * Cleans up all challenges, unless a step is currently running. In that case,
+         * the step cleans up when it is completed.
+         */
+        private void cleanupIfIdle() {
+            if (busy.compareAndSet(false, true)) {
+                try {
+                    cleanup();
+                } finally {
+                    busy.set(false);
+                }
+            }
+        }
+
+        /**
+         * Finishes the job, releases its concurrency slot, and then completes the future.
+         * Does nothing if the job was already finished.
+         * <p>
+         * This method may be invoked by any thread, and never waits for a running step.
+         */
+        private void finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+
+            TimerWheel.Timeout current = wakeUp;
+            if (current != null) {
+                current.cancel();
+            }
+
+            jobs.remove(this);
+            boolean queued;
+            synchronized (OrderPipeline.this) {
+                queued = queue.remove(this);
+            }
+            if (!queued) {
+                release();
+            }
+
+            cleanupIfIdle();
+
+            Exception ex = failure;
+            Certificate cert = certificate;
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else if (cert != null) {
+                future.complete(cert);
+            } else {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the later one of two instants.
+     */
+    @CheckForNull
+    private static Instant latest(@Nullable Instant a, @Nullable Instant b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+}
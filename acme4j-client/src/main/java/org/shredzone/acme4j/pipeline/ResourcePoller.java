@@ -0,0 +1,347 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.AcmeJsonResource;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the status of resources like {@link org.shredzone.acme4j.Order},
+ * {@link org.shredzone.acme4j.Authorization} or
+ * {@link org.shredzone.acme4j.challenge.Challenge}, and notifies the
+ * {@link StatusListener}s when it changes.
+ * <p>
+ * Each watched resource is updated at the instant given by the server's
+ * {@code Retry-After} header. If there was no such header, the poll interval starts at
+ * the minimum interval, and is doubled on every update that did not change the status,
+ * up to the maximum interval. A resource is watched as long as its status is
+ * {@link Status#PENDING} or {@link Status#PROCESSING}, or until it is unwatched.
+ * <p>
+ * All wake-ups are coalesced on a single hashed timer wheel, so no thread is blocked
+ * per watched resource. The updates themselves are performed by
+ * {@link AcmeJsonResource#updateAsync()}, on the executor of the resource's
+ * {@link org.shredzone.acme4j.Session}.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class ResourcePoller implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ResourcePoller.class);
+
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final TimerWheel wheel;
+    private final Map<AcmeJsonResource, Watch> watches = new ConcurrentHashMap<>();
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Duration minInterval = Duration.ofSeconds(1);
+    private volatile Duration maxInterval = Duration.ofMinutes(1);
+
+    /**
+     * Creates a new {@link ResourcePoller} with a timer resolution of 100 ms.
+     */
+    public ResourcePoller() {
+        this(Duration.ofMillis(100));
+    }
+
+    /**
+     * Creates a new {@link ResourcePoller}.
+     *
+     * @param tickDuration
+     *         Timer resolution. Updates that are due within the same tick are started
+     *         together. Must be at least 1 ms.
+     */
+    public ResourcePoller(Duration tickDuration) {
+        this.wheel = new TimerWheel(tickDuration, TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Adds a {@link StatusListener} that is notified about status changes of all
+     * watched resources.
+     */
+    public void addStatusListener(StatusListener listener) {
+        listeners.add(requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Removes a {@link StatusListener}.
+     */
+    public void removeStatusListener(StatusListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the minimum poll interval.
+     */
+    public Duration getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Sets the minimum poll interval. It is used for the first update, and after every
+     * status change. Defaults to 1 second.
+     *
+     * @param minInterval
+     *         Minimum interval, must be positive and must not exceed the maximum interval
+     */
+    public void setMinInterval(Duration minInterval) {
+        if (minInterval.isNegative() || minInterval.isZero()
+                || minInterval.compareTo(maxInterval) > 0) {
+            throw new IllegalArgumentException("minInterval must be between 0 and " + maxInterval);
+        }
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Returns the maximum poll interval.
+     */
+    public Duration getMaxInterval() {
+        return maxInterval;
+    }
+
+    /**
+     * Sets the maximum poll interval. The backoff stops growing at this interval.
+     * Defaults to 1 minute.
+     *
+     * @param maxInterval
+     *         Maximum interval, must not be shorter than the minimum interval
+     */
+    public void setMaxInterval(Duration maxInterval) {
+        if (maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException("maxInterval must not be shorter than " + minInterval);
+        }
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Starts watching a resource. Does nothing if the resource is already watched.
+     * <p>
+     * The current status of the resource is used as reference for detecting status
+     * changes. If the resource has not been loaded yet, it is fetched from the server.
+     *
+     * @param resource
+     *         {@link AcmeJsonResource} to watch
+     */
+    public void watch(AcmeJsonResource resource) {
+        Watch watch = new Watch(resource, statusOf(resource));
+        if (watches.putIfAbsent(resource, watch) == null) {
+            watch.schedule(minInterval);
+        }
+    }
+
+    /**
+     * Stops watching a resource. Does nothing if the resource is not watched.
+     *
+     * @param resource
+     *         {@link AcmeJsonResource} to stop watching
+     */
+    public void unwatch(AcmeJsonResource resource) {
+        Watch watch = watches.remove(resource);
+        if (watch != null) {
+            watch.cancel();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given resource is currently watched.
+     */
+    public boolean isWatching(AcmeJsonResource resource) {
+        return watches.containsKey(resource);
+    }
+
+    /**
+     * Returns the number of resources that are currently watched.
+     */
+    public int getWatchCount() {
+        return watches.size();
+    }
+
+    /**
+     * Stops watching all resources, and stops the timer.
+     */
+    @Override
+    public void close() {
+        wheel.close();
+        watches.values().forEach(Watch::cancel);
+        watches.clear();
+    }
+
+    /**
+     * Returns the current status of the resource.
+     */
+    private static Status statusOf(AcmeJsonResource resource) {
+        return resource.getJSON().get("status").asStatus();
+    }
+
+    /**
+     * Checks if the status may still change without any action of the client.
+     */
+    private static boolean isPending(Status status) {
+        return status == Status.PENDING || status == Status.PROCESSING;
+    }
+
+    /**
+     * The watch state of a single resource.
+     */
+    private final class Watch {
+        private final AcmeJsonResource resource;
+        private Status status;
+        private volatile Duration interval;
+        private volatile TimerWheel.Timeout timeout;
+
+        private Watch(AcmeJsonResource resource, Status status) {
+            this.resource = resource;
+            this.status = status;
+            this.interval = minInterval;
+        }
+
+        /**
+         * Schedules the next update.
+         */
+        private void schedule(Duration delay) {
+            try {
+                timeout = wheel.schedule(this::dispatch, delay);
+            } catch (IllegalStateException ex) {
+                LOG.debug("Poller is closed", ex);
+                watches.remove(resource, this);
+            }
+        }
+
+        /**
+         * Cancels the next update.
+         */
+        private void cancel() {
+            TimerWheel.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        /**
+         * Starts an asynchronous update of the resource. Invoked by the timer thread.
+         */
+        private void dispatch() {
+            if (watches.get(resource) != this) {
+                return;
+            }
+            resource.updateAsync().whenComplete((result, ex) -> updated(ex));
+        }
+
+        /**
+         * Evaluates the update, notifies the listeners, and schedules the next update.
+         *
+         * @param failure
+         *         Exception that was thrown by the update, or {@code null} if the update
+         *         was successful
+         */
+        private synchronized void updated(@Nullable Throwable failure) {
+            if (watches.get(resource) != this) {
+                return;
+            }
+
+            Instant retryAfter = null;
+            if (failure instanceof AcmeRetryAfterException) {
+                retryAfter = ((AcmeRetryAfterException) failure).getRetryAfter();
+            } else if (failure instanceof RejectedExecutionException) {
+                LOG.debug("Update was rejected, trying again later", failure);
+                schedule(interval);
+                return;
+            } else if (failure != null) {
+                LOG.debug("Could not update {}", resource.getLocation(), failure);
+                if (watches.remove(resource, this)) {
+                    fireFailure(failure instanceof AcmeException
+                            ? (AcmeException) failure
+                            : new AcmeException("Could not update resource", failure));
+                }
+                return;
+            }
+
+            Status oldStatus = status;
+            status = statusOf(resource);
+            if (status != oldStatus) {
+                interval = minInterval;
+            } else {
+                interval = backoff(interval);
+            }
+
+            boolean pending = isPending(status);
+            if (!pending) {
+                watches.remove(resource, this);
+            }
+
+            if (status != oldStatus) {
+                fireStatusChanged(oldStatus, status);
+            }
+
+            if (pending) {
+                schedule(retryAfter != null ? delayUntil(retryAfter) : interval);
+            }
+        }
+
+        private void fireStatusChanged(Status oldStatus, Status newStatus) {
+            for (StatusListener listener : listeners) {
+                try {
+                    listener.onStatusChanged(resource, oldStatus, newStatus);
+                } catch (RuntimeException ex) {
+                    LOG.warn("Status listener failed", ex);
+                }
+            }
+        }
+
+        private void fireFailure(AcmeException failure) {
+            for (StatusListener listener : listeners) {
+                try {
+                    listener.onFailure(resource, failure);
+                } catch (RuntimeException ex) {
+                    LOG.warn("Status listener failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubles the interval, limited to the maximum interval.
+     */
+    private Duration backoff(Duration current) {
+        Duration next = current.multipliedBy(2);
+        return next.compareTo(maxInterval) > 0 ? maxInterval : next;
+    }
+
+    /**
+     * Returns the delay until the given instant, or zero if it has passed.
+     */
+    private static Duration delayUntil(Instant instant) {
+        Duration delay = Duration.between(Instant.now(), instant);
+        return delay.isNegative() ? Duration.ZERO : delay;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.shredzone.acme4j.AcmeJsonResource;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.exception.AcmeException;
+
+/**
+ * Listens to status changes of resources that are watched by a {@link ResourcePoller}.
+ * <p>
+ * The methods are invoked by the executor of the resource's
+ * {@link org.shredzone.acme4j.Session}. Implementations must be thread-safe.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@FunctionalInterface
+public interface StatusListener {
+
+    /**
+     * Invoked when the status of a watched resource has changed.
+     *
+     * @param resource
+     *         {@link AcmeJsonResource} that has changed
+     * @param oldStatus
+     *         Previous {@link Status} of the resource
+     * @param newStatus
+     *         Current {@link Status} of the resource
+     */
+    void onStatusChanged(AcmeJsonResource resource, Status oldStatus, Status newStatus);
+
+    /**
+     * Invoked when a watched resource could not be updated. The resource is not watched
+     * any longer.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param resource
+     *         {@link AcmeJsonResource} that could not be updated
+     * @param ex
+     *         {@link AcmeException} that was thrown
+     */
+    default void onFailure(AcmeJsonResource resource, AcmeException ex) {
+        // does nothing by default
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel.
+ * <p>
+ * Timeouts are sorted into a fixed number of buckets, according to the tick they expire
+ * at. A single worker thread wakes up once per tick, and runs all expired tasks of the
+ * current bucket. Timeouts that are more than one wheel revolution away just stay in
+ * their bucket for the required number of rounds. This way, a vast number of timeouts
+ * can be handled with constant effort per tick, and all timeouts that expire within the
+ * same tick share a single wake-up.
+ * <p>
+ * While no timeouts are scheduled, the worker thread does not tick, but parks until
+ * the next timeout is scheduled. An idle wheel therefore costs no CPU time.
+ * <p>
+ * Tasks are executed by the worker thread. They must return quickly, and should hand
+ * over any long running work to an executor.
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+final class TimerWheel implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(TimerWheel.class);
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] buckets;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean closed = false;
+    private volatile boolean idle = false;
+    private long tick = 0;
+    private int size = 0;
+
+    /**
+     * Creates and starts a new {@link TimerWheel}.
+     *
+     * @param tickDuration
+     *         Duration of a single tick. This is the resolution of the timer.
+     * @param ticksPerWheel
+     *         Number of buckets. It is rounded up to the next power of two.
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(Duration tickDuration, int ticksPerWheel) {
+        if (tickDuration.toMillis() < 1) {
+            throw new IllegalArgumentException("tickDuration must be at least 1 ms");
+        }
+        if (ticksPerWheel < 1 || ticksPerWheel > (1 << 20)) {
+            throw new IllegalArgumentException("ticksPerWheel is out of range");
+        }
+
+        int size = Integer.highestOneBit(ticksPerWheel);
+        if (size < ticksPerWheel) {
+            size <<= 1;
+        }
+
+        this.tickNanos = tickDuration.toNanos();
+        this.mask = size - 1;
+        this.buckets = new ArrayDeque[size];
+        for (int ix = 0; ix < size; ix++) {
+            buckets[ix] = new ArrayDeque<>();
+        }
+
+        worker = new Thread(this::work, "acme4j-timer-" + COUNTER.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task
+     *         Task to be executed by the worker thread
+     * @param delay
+     *         Delay after which the task is executed. The task is never executed
+     *         earlier, but may be executed up to one tick later.
+     * @return {@link Timeout} that can be used for cancelling the task
+     * @throws IllegalStateException
+     *         if the timer wheel has been closed
+     */
+    Timeout schedule(Runnable task, Duration delay) {
+        if (closed) {
+            throw new IllegalStateException("timer wheel is closed");
+        }
+        long delayNanos = Math.max(0L, delay.toNanos());
+        Timeout timeout = new Timeout(requireNonNull(task, "task"),
+                System.nanoTime() - startNanos + delayNanos);
+        incoming.add(timeout);
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops the worker thread. Pending tasks are not executed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Returns {@code true} if the worker thread is parked because no timeouts are
+     * scheduled.
+     */
+    boolean isIdle() {
+        return idle;
+    }
+
+    /**
+     * The worker loop.
+     */
+    private void work() {
+        while (!closed) {
+            if (size == 0 && incoming.isEmpty()) {
+                awaitIncoming();
+                continue;
+            }
+
+            long sleepNanos = tickNanos * (tick + 1) - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+
+            transferIncoming();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+
+        incoming.clear();
+        for (ArrayDeque<Timeout> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Parks the worker thread until a timeout is scheduled or the wheel is closed. As
+     * all buckets are empty, the ticks that passed in the meantime are skipped.
+     */
+    private void awaitIncoming() {
+        idle = true;
+        // schedule() checks the idle flag after adding to the queue, so a timeout that
+        // is added after this check is sure to unpark the worker
+        if (incoming.isEmpty() && !closed) {
+            LockSupport.park(this);
+        }
+        idle = false;
+        tick = Math.max(tick, (System.nanoTime() - startNanos) / tickNanos);
+    }
+
+    /**
+     * Moves all newly scheduled timeouts to their buckets.
+     */
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long expiryTick = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0L, expiryTick - tick) / buckets.length;
+            buckets[(int) (Math.max(expiryTick, tick) & mask)].add(timeout);
+            size++;
+        }
+    }
+
+    /**
+     * Runs all tasks of the bucket that have expired, and removes cancelled timeouts.
+     */
+    private void expire(ArrayDeque<Timeout> bucket) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext();) {
+            Timeout timeout = it.next();
+            if (timeout.isCancelled()) {
+                it.remove();
+                size--;
+            } else if (timeout.rounds <= 0) {
+                it.remove();
+                size--;
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException ex) {
+                    LOG.warn("Timer task failed", ex);
+                }
+            } else {
+                timeout.rounds--;
+            }
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private volatile boolean cancelled = false;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task. It won't be executed if it has not been executed yet.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Returns {@code true} if the task has been cancelled.
+         */
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+}
@@ -13,13 +13,17 @@
  */
 package org.shredzone.acme4j.provider;
 
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiFunction;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 import org.shredzone.acme4j.Login;
@@ -29,8 +33,10 @@ import org.shredzone.acme4j.challenge.Dns01Challenge;
 import org.shredzone.acme4j.challenge.Http01Challenge;
 import org.shredzone.acme4j.challenge.TlsAlpn01Challenge;
 import org.shredzone.acme4j.challenge.TokenChallenge;
+import org.shredzone.acme4j.connector.CachedDirectory;
 import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.connector.DefaultConnection;
+import org.shredzone.acme4j.connector.DirectoryCache;
 import org.shredzone.acme4j.connector.HttpConnector;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.toolbox.JSON;
@@ -46,16 +52,36 @@ import org.shredzone.acme4j.toolbox.JSON;
 public abstract class AbstractAcmeProvider implements AcmeProvider {
 
     private static final Map<String, BiFunction<Login, JSON, Challenge>> CHALLENGES = challengeMap();
+    private static final Duration DIRECTORY_DEFAULT_EXPIRY = Duration.ofHours(1);
+    private static final Duration DIRECTORY_MIN_EXPIRY = Duration.ofMinutes(10);
+    private static final Duration DIRECTORY_MAX_EXPIRY = Duration.ofDays(7);
+
+    private HttpConnector httpConnector;
 
     @Override
     public Connection connect(URI serverUri) {
-        return new DefaultConnection(createHttpConnector());
+        return new DefaultConnection(getHttpConnector());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation stores the directory in the session's {@link DirectoryCache}.
+     * If a cached directory has expired, it is revalidated with a conditional request,
+     * so an unchanged directory is not transferred again. The expiration date is taken
+     * from the {@code Cache-Control} and {@code Expires} headers, but is kept between
+     * 10 minutes and 7 days. If the server sends no caching headers, the directory
+     * expires after one hour.
+     */
     @Override
     public JSON directory(Session session, URI serverUri) throws AcmeException {
+        DirectoryCache cache = session.getDirectoryCache();
+        CachedDirectory cached = cache.get(serverUri);
+
         try (Connection conn = connect(serverUri)) {
-            conn.sendRequest(resolve(serverUri), session);
+            int rc = conn.sendConditionalRequest(resolve(serverUri), session,
+                    cached != null ? cached.getETag() : null,
+                    cached != null ? cached.getLastModified() : null);
 
             // use nonce header if there is one, saves a HEAD request...
             String nonce = conn.getNonce();
@@ -63,10 +89,47 @@ public abstract class AbstractAcmeProvider implements AcmeProvider {
                 session.setNonce(nonce);
             }
 
-            return conn.readJsonResponse();
+            Instant expires = directoryExpiration(conn.getExpiration());
+
+            CachedDirectory result;
+            if (rc == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                result = cached.revalidated(expires, conn.getETag());
+            } else {
+                result = new CachedDirectory(conn.readJsonResponse(), expires,
+                        conn.getETag(), conn.getLastModified());
+            }
+
+            cache.put(serverUri, result);
+            return result.getDirectory();
         }
     }
 
+    /**
+     * Returns the expiration date of a directory.
+     *
+     * @param expiration
+     *            Expiration date sent by the server, or {@code null} if unknown
+     * @return Expiration date to be used
+     */
+    private static Instant directoryExpiration(@Nullable Instant expiration) {
+        Instant now = Instant.now();
+        if (expiration == null) {
+            return now.plus(DIRECTORY_DEFAULT_EXPIRY);
+        }
+
+        Instant min = now.plus(DIRECTORY_MIN_EXPIRY);
+        if (expiration.isBefore(min)) {
+            return min;
+        }
+
+        Instant max = now.plus(DIRECTORY_MAX_EXPIRY);
+        if (expiration.isAfter(max)) {
+            return max;
+        }
+
+        return expiration;
+    }
+
     private static Map<String, BiFunction<Login, JSON, Challenge>> challengeMap() {
         Map<String, BiFunction<Login, JSON, Challenge>> map = new HashMap<>();
 
@@ -106,7 +169,25 @@ public abstract class AbstractAcmeProvider implements AcmeProvider {
     }
 
     /**
-     * Creates a {@link HttpConnector}.
+     * Returns the {@link HttpConnector} that is shared by all connections of this
+     * provider. It is created on first invocation.
+     * <p>
+     * Sharing the connector permits the connections to the ACME server to be kept alive
+     * and reused, instead of performing a new TLS handshake on every request.
+     *
+     * @return Shared {@link HttpConnector}
+     * @since 2.9
+     */
+    protected synchronized HttpConnector getHttpConnector() {
+        if (httpConnector == null) {
+            httpConnector = createHttpConnector();
+        }
+        return httpConnector;
+    }
+
+    /**
+     * Creates a {@link HttpConnector}. It is invoked once, and then shared by all
+     * connections of this provider.
      * <p>
      * Subclasses may override this method to configure the {@link HttpConnector}.
      */
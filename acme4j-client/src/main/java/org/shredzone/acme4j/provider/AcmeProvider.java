@@ -15,6 +15,8 @@ package org.shredzone.acme4j.provider;
 
 import java.net.URI;
 import java.net.URL;
+import java.util.Collections;
+import java.util.List;
 import java.util.ServiceLoader;
 
 import javax.annotation.CheckForNull;
@@ -24,6 +26,7 @@ import org.shredzone.acme4j.Login;
 import org.shredzone.acme4j.Session;
 import org.shredzone.acme4j.challenge.Challenge;
 import org.shredzone.acme4j.connector.Connection;
+import org.shredzone.acme4j.connector.RateLimit;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.toolbox.JSON;
 
@@ -94,4 +97,18 @@ public interface AcmeProvider {
     @CheckForNull
     Challenge createChallenge(Login login, JSON data);
 
+    /**
+     * Returns the rate limits of the ACME server. They are enforced on client side, so
+     * requests that would exceed a limit are not sent to the server.
+     * <p>
+     * The default implementation returns an empty list. Providers of CAs with known rate
+     * limits should override this method.
+     *
+     * @return List of {@link RateLimit}, may be empty but never {@code null}
+     * @since 2.9
+     */
+    default List<RateLimit> getRateLimits() {
+        return Collections.emptyList();
+    }
+
 }
@@ -16,9 +16,16 @@ package org.shredzone.acme4j.provider.letsencrypt;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
+import org.shredzone.acme4j.connector.RateLimit;
+import org.shredzone.acme4j.connector.RateLimit.Scope;
+import org.shredzone.acme4j.connector.Resource;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.provider.AbstractAcmeProvider;
 import org.shredzone.acme4j.provider.AcmeProvider;
@@ -30,8 +37,15 @@ import org.shredzone.acme4j.provider.AcmeProvider;
  * and {@code "acme://letsencrypt.org/staging"} for a testing server.
  * <p>
  * If you want to use <em>Let's Encrypt</em>, always prefer to use this provider.
+ * <p>
+ * The provider also knows the most important rate limits of <em>Let's Encrypt</em>, and
+ * enforces them on client side. Note that <em>Let's Encrypt</em> counts certificates
+ * per registered domain, while the client counts them per domain name, because it does
+ * not know the public suffix list. The client side limit is therefore less strict, and
+ * the server's limit may still be hit for many subdomains of the same domain.
  *
  * @see <a href="https://letsencrypt.org/">Let's Encrypt</a>
+ * @see <a href="https://letsencrypt.org/docs/rate-limits/">Rate Limits</a>
  */
 @ParametersAreNonnullByDefault
 public class LetsEncryptAcmeProvider extends AbstractAcmeProvider {
@@ -39,6 +53,15 @@ public class LetsEncryptAcmeProvider extends AbstractAcmeProvider {
     private static final String V02_DIRECTORY_URL = "https://acme-v02.api.letsencrypt.org/directory";
     private static final String STAGING_DIRECTORY_URL = "https://acme-staging-v02.api.letsencrypt.org/directory";
 
+    private static final List<RateLimit> RATE_LIMITS = Collections.unmodifiableList(Arrays.asList(
+            new RateLimit(Resource.NEW_ORDER, Scope.ACCOUNT, 300, Duration.ofHours(3)),
+            new RateLimit(Resource.NEW_ORDER, Scope.DOMAIN, 50, Duration.ofDays(7)),
+            new RateLimit(Resource.NEW_ACCOUNT, Scope.ENDPOINT, 10, Duration.ofHours(3)),
+            new RateLimit(Resource.NEW_ORDER, Scope.ENDPOINT, 20, Duration.ofSeconds(1)),
+            new RateLimit(Resource.NEW_ACCOUNT, Scope.ENDPOINT, 20, Duration.ofSeconds(1)),
+            new RateLimit(Resource.REVOKE_CERT, Scope.ENDPOINT, 20, Duration.ofSeconds(1))
+    ));
+
     @Override
     public boolean accepts(URI serverUri) {
         return "acme".equals(serverUri.getScheme())
@@ -64,4 +87,9 @@ public class LetsEncryptAcmeProvider extends AbstractAcmeProvider {
         }
     }
 
+    @Override
+    public List<RateLimit> getRateLimits() {
+        return RATE_LIMITS;
+    }
+
 }
@@ -0,0 +1,44 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import java.util.List;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.shredzone.acme4j.exception.AcmeException;
+
+/**
+ * A service that signs a batch of JWS signing inputs in a single operation, e.g. a
+ * single round trip to a hardware security module or a remote key management service.
+ *
+ * @see BatchingSigner
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@FunctionalInterface
+public interface BatchSigningService {
+
+    /**
+     * Signs all of the given signing inputs.
+     *
+     * @param signingInputs
+     *         JWS signing inputs to sign
+     * @return Signatures in JWS representation, in the same order as the signing inputs
+     * @throws AcmeException
+     *         if the batch could not be signed
+     */
+    List<byte[]> signAll(List<byte[]> signingInputs) throws AcmeException;
+
+}
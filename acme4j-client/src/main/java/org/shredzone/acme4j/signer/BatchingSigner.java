@@ -0,0 +1,286 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.connector.NetworkSettings;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.toolbox.JoseUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link JwsSigner} that collects concurrent sign requests, and passes them to a
+ * {@link BatchSigningService} in batches.
+ * <p>
+ * A batch is sent as soon as it is full, or when the first request of the batch has
+ * waited for the maximum delay. This is useful if each sign operation is expensive,
+ * e.g. because it requires a round trip to a remote signing service, but many requests
+ * are signed concurrently.
+ * <p>
+ * {@link #sign(byte[])} waits for the signature at most for the timeout set by
+ * {@link #setTimeout(Duration)}, so a stalled service does not block the requesting
+ * threads forever.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class BatchingSigner implements JwsSigner, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingSigner.class);
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final PublicKey publicKey;
+    private final String algorithm;
+    private final BatchSigningService service;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final ScheduledExecutorService scheduler;
+    private volatile Duration timeout;
+
+    @GuardedBy("this")
+    private List<Request> pending = new ArrayList<>();
+
+    /**
+     * Creates a new {@link BatchingSigner}.
+     *
+     * @param publicKey
+     *         {@link PublicKey} of the account key that is used by the service
+     * @param service
+     *         {@link BatchSigningService} that signs the batches
+     * @param maxBatchSize
+     *         Maximum number of signing inputs per batch
+     * @param maxDelay
+     *         Maximum time a request waits for further requests to join its batch
+     */
+    public BatchingSigner(PublicKey publicKey, BatchSigningService service,
+                int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        if (maxDelay.isNegative()) {
+            throw new IllegalArgumentException("maxDelay must not be negative");
+        }
+        this.publicKey = requireNonNull(publicKey, "publicKey");
+        this.algorithm = JoseUtils.keyAlgorithm(publicKey);
+        this.service = requireNonNull(service, "service");
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.timeout = maxDelay.plus(new NetworkSettings().getTimeout());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "acme4j-signer-" + COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the maximum number of signing inputs per batch.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Returns the maximum time a request waits for further requests to join its batch.
+     */
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Returns the maximum time {@link #sign(byte[])} waits for the signature.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the maximum time {@link #sign(byte[])} waits for the signature. Defaults to
+     * the maximum delay plus the default network timeout of {@link NetworkSettings}.
+     *
+     * @param timeout
+     *         Timeout, must be positive
+     */
+    public void setTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Signs the input, and waits for the signature.
+     *
+     * @throws AcmeException
+     *         if the input could not be signed, or if the signature was not received
+     *         within the timeout
+     */
+    @Override
+    public byte[] sign(byte[] signingInput) throws AcmeException {
+        Duration wait = timeout;
+        CompletableFuture<byte[]> future = signAsync(signingInput);
+        try {
+            return future.get(wait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            AcmeException failure = new AcmeException("Signing service did not respond within "
+                    + wait.toMillis() + " ms", ex);
+            future.completeExceptionally(failure);
+            throw failure;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof AcmeException) {
+                throw (AcmeException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AcmeException("Could not sign the request", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AcmeException("Interrupted while signing the request", ex);
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> signAsync(byte[] signingInput) {
+        Request request = new Request(requireNonNull(signingInput, "signingInput"));
+        boolean first;
+        boolean full;
+        synchronized (this) {
+            pending.add(request);
+            first = pending.size() == 1;
+            full = pending.size() >= maxBatchSize;
+        }
+
+        try {
+            if (full) {
+                scheduler.execute(this::flush);
+            } else if (first) {
+                scheduler.schedule(this::flush, maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException ex) {
+            synchronized (this) {
+                pending.remove(request);
+            }
+            request.future.completeExceptionally(new AcmeException("Signer is closed", ex));
+        }
+
+        return request.future;
+    }
+
+    /**
+     * Shuts down the signer. Requests that are still waiting for their batch fail.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        List<Request> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        AcmeException ex = new AcmeException("Signer is closed");
+        batch.forEach(r -> r.future.completeExceptionally(ex));
+    }
+
+    /**
+     * Sends all pending requests to the service, in batches of the maximum size.
+     */
+    private void flush() {
+        while (true) {
+            List<Request> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                if (pending.size() <= maxBatchSize) {
+                    batch = pending;
+                    pending = new ArrayList<>();
+                } else {
+                    List<Request> head = pending.subList(0, maxBatchSize);
+                    batch = new ArrayList<>(head);
+                    head.clear();
+                }
+            }
+            signBatch(batch);
+        }
+    }
+
+    /**
+     * Signs a batch, and completes the futures of its requests.
+     */
+    private void signBatch(List<Request> batch) {
+        List<byte[]> inputs = new ArrayList<>(batch.size());
+        batch.forEach(r -> inputs.add(r.signingInput));
+
+        try {
+            LOG.debug("Signing a batch of {} requests", batch.size());
+            List<byte[]> signatures = service.signAll(inputs);
+            if (signatures == null || signatures.size() != batch.size()) {
+                throw new AcmeProtocolException("Signing service returned "
+                        + (signatures != null ? signatures.size() : 0)
+                        + " signatures for " + batch.size() + " requests");
+            }
+            for (int ix = 0; ix < batch.size(); ix++) {
+                batch.get(ix).future.complete(signatures.get(ix));
+            }
+        } catch (AcmeException | RuntimeException ex) {
+            batch.forEach(r -> r.future.completeExceptionally(ex));
+        }
+    }
+
+    /**
+     * A pending sign request.
+     */
+    private static final class Request {
+        private final byte[] signingInput;
+        private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        private Request(byte[] signingInput) {
+            this.signingInput = signingInput;
+        }
+    }
+
+}
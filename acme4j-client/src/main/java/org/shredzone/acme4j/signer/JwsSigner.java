@@ -0,0 +1,83 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import java.security.PublicKey;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.shredzone.acme4j.exception.AcmeException;
+
+/**
+ * Signs JWS requests with an account key.
+ * <p>
+ * The private key does not need to be accessible to acme4j. Implementations may keep it
+ * in a hardware security module, or delegate the signing to a remote key management
+ * service. Implementations must be thread-safe.
+ *
+ * @see KeyPairSigner
+ * @see BatchingSigner
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+public interface JwsSigner {
+
+    /**
+     * Returns the {@link PublicKey} of the account key. It is used for the "jwk" header
+     * and for key authorizations.
+     */
+    PublicKey getPublicKey();
+
+    /**
+     * Returns the JWS algorithm identifier of the signatures, e.g. "RS256" or "ES256".
+     */
+    String getAlgorithm();
+
+    /**
+     * Signs the JWS signing input.
+     *
+     * @param signingInput
+     *         ASCII representation of the encoded protected header and payload,
+     *         separated by a dot
+     * @return Signature in JWS representation. For ECDSA, this is the concatenation of
+     * R and S, and not a DER structure.
+     * @throws AcmeException
+     *         if the signature could not be computed
+     */
+    byte[] sign(byte[] signingInput) throws AcmeException;
+
+    /**
+     * Signs the JWS signing input asynchronously.
+     * <p>
+     * The default implementation invokes {@link #sign(byte[])} synchronously.
+     *
+     * @param signingInput
+     *         ASCII representation of the encoded protected header and payload,
+     *         separated by a dot
+     * @return {@link CompletableFuture} that is completed with the signature, or that is
+     * completed exceptionally with an {@link AcmeException} if the signature could not
+     * be computed
+     */
+    default CompletableFuture<byte[]> signAsync(byte[] signingInput) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        try {
+            result.complete(sign(signingInput));
+        } catch (AcmeException | RuntimeException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.jose4j.jca.ProviderContext;
+import org.jose4j.jwa.AlgorithmFactoryFactory;
+import org.jose4j.jws.JsonWebSignatureAlgorithm;
+import org.jose4j.lang.JoseException;
+import org.shredzone.acme4j.toolbox.JoseUtils;
+
+/**
+ * A {@link JwsSigner} that signs with a {@link KeyPair} that is kept in memory. This is
+ * the default signer of a {@link org.shredzone.acme4j.Login}.
+ * <p>
+ * RSA, ECDSA (P-256, P-384, P-521) and EdDSA (Ed25519, Ed448) keys are supported. EdDSA
+ * requires Java 15 or higher, or a security provider like Bouncy Castle.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public class KeyPairSigner implements JwsSigner {
+    private static final ProviderContext PROVIDER_CONTEXT = new ProviderContext();
+
+    private final KeyPair keyPair;
+    private final String algorithm;
+    private final JsonWebSignatureAlgorithm signatureAlgorithm;
+    private final String edDsaCurve;
+
+    /**
+     * Creates a new {@link KeyPairSigner}.
+     *
+     * @param keyPair
+     *         {@link KeyPair} to sign with
+     * @throws IllegalArgumentException
+     *         if the key pair cannot be used for signing
+     */
+    public KeyPairSigner(KeyPair keyPair) {
+        this.keyPair = requireNonNull(keyPair, "keyPair");
+        this.algorithm = JoseUtils.keyAlgorithm(keyPair.getPublic());
+        this.edDsaCurve = JoseUtils.edDsaCurve(keyPair.getPublic());
+
+        if (edDsaCurve != null) {
+            // jose4j does not support EdDSA yet, so the JCA is used directly
+            this.signatureAlgorithm = null;
+            try {
+                Signature.getInstance(edDsaCurve).initSign(keyPair.getPrivate());
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalArgumentException("Cannot sign with " + edDsaCurve
+                        + " key pair", ex);
+            }
+            return;
+        }
+
+        try {
+            this.signatureAlgorithm = AlgorithmFactoryFactory.getInstance()
+                    .getJwsAlgorithmFactory().getAlgorithm(algorithm);
+            signatureAlgorithm.validateSigningKey(keyPair.getPrivate());
+        } catch (JoseException ex) {
+            throw new IllegalArgumentException("Bad key pair", ex);
+        }
+    }
+
+    /**
+     * Returns the {@link KeyPair} of this signer.
+     */
+    public KeyPair getKeyPair() {
+        return keyPair;
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return keyPair.getPublic();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public byte[] sign(byte[] signingInput) {
+        if (edDsaCurve != null) {
+            try {
+                Signature signature = Signature.getInstance(edDsaCurve);
+                signature.initSign(keyPair.getPrivate());
+                signature.update(signingInput);
+                return signature.sign();
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalArgumentException("Could not sign with the key pair", ex);
+            }
+        }
+
+        try {
+            return signatureAlgorithm.sign(keyPair.getPrivate(), signingInput, PROVIDER_CONTEXT);
+        } catch (JoseException ex) {
+            throw new IllegalArgumentException("Could not sign with the key pair", ex);
+        }
+    }
+
+}
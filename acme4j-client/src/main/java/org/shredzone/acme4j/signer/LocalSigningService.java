@@ -0,0 +1,112 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.exception.AcmeException;
+
+/**
+ * An in-process stand-in for a remote {@link BatchSigningService}. It signs with a local
+ * {@link KeyPair}, and can simulate the latency of a round trip.
+ * <p>
+ * It is meant for testing {@link BatchingSigner} setups without access to the actual
+ * signing service. It also counts the batches and signatures, so the effect of batching
+ * can be observed.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class LocalSigningService implements BatchSigningService {
+
+    private final KeyPairSigner signer;
+    private final Duration latency;
+    private final AtomicInteger batchCount = new AtomicInteger();
+    private final AtomicInteger signatureCount = new AtomicInteger();
+
+    /**
+     * Creates a new {@link LocalSigningService} without latency.
+     *
+     * @param keyPair
+     *         {@link KeyPair} to sign with
+     */
+    public LocalSigningService(KeyPair keyPair) {
+        this(keyPair, Duration.ZERO);
+    }
+
+    /**
+     * Creates a new {@link LocalSigningService}.
+     *
+     * @param keyPair
+     *         {@link KeyPair} to sign with
+     * @param latency
+     *         Simulated latency of each batch
+     */
+    public LocalSigningService(KeyPair keyPair, Duration latency) {
+        this.signer = new KeyPairSigner(keyPair);
+        this.latency = latency;
+    }
+
+    /**
+     * Returns the {@link PublicKey} of the key pair.
+     */
+    public PublicKey getPublicKey() {
+        return signer.getPublicKey();
+    }
+
+    /**
+     * Returns the number of batches that have been signed.
+     */
+    public int getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Returns the number of signatures that have been computed.
+     */
+    public int getSignatureCount() {
+        return signatureCount.get();
+    }
+
+    @Override
+    public List<byte[]> signAll(List<byte[]> signingInputs) throws AcmeException {
+        batchCount.incrementAndGet();
+
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new AcmeException("Interrupted while signing", ex);
+            }
+        }
+
+        List<byte[]> result = new ArrayList<>(signingInputs.size());
+        for (byte[] input : signingInputs) {
+            result.add(signer.sign(input));
+            signatureCount.incrementAndGet();
+        }
+        return result;
+    }
+
+}
@@ -24,8 +24,14 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -185,6 +191,33 @@ public final class AcmeUtils {
         return IDN.toASCII(domain.trim()).toLowerCase();
     }
 
+    /**
+     * Returns the domain name and all of its parent domains, starting with the domain
+     * name itself. The top level domain is not included, unless the domain name
+     * consists of a single label.
+     * <p>
+     * The public suffix list is not consulted, so the result may contain public
+     * suffixes like {@code "co.uk"}. It can be used for finding out whether a domain is
+     * affected by a limit that was imposed on any of its parent domains.
+     *
+     * @param domain
+     *            ACE encoded domain name
+     * @return List of the domain and its parent domains, e.g. {@code "www.example.org"}
+     *         and {@code "example.org"} for {@code "www.example.org"}
+     * @since 2.9
+     */
+    public static List<String> domainHierarchy(String domain) {
+        List<String> result = new ArrayList<>();
+        result.add(domain);
+        int last = domain.lastIndexOf('.');
+        int pos = domain.indexOf('.');
+        while (pos >= 0 && pos < last) {
+            result.add(domain.substring(pos + 1));
+            pos = domain.indexOf('.', pos + 1);
+        }
+        return result;
+    }
+
     /**
      * Parses a RFC 3339 formatted date.
      *
@@ -307,4 +340,36 @@ public final class AcmeUtils {
         }
     }
 
+    /**
+     * Invokes a blocking operation asynchronously, using the given {@link Executor}.
+     * <p>
+     * The operation occupies a thread of the executor while it is running. If the
+     * executor rejects the operation, the returned future completes exceptionally with
+     * the {@link RejectedExecutionException}.
+     *
+     * @param operation
+     *            Operation to invoke
+     * @param executor
+     *            {@link Executor} that invokes the operation
+     * @return {@link CompletableFuture} that completes with the result of the operation.
+     *         If the operation failed, it completes exceptionally with the thrown
+     *         exception.
+     * @since 2.9
+     */
+    public static <T> CompletableFuture<T> invokeAsync(Callable<T> operation, Executor executor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(operation.call());
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
 }
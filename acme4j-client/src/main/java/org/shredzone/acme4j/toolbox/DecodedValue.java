@@ -0,0 +1,102 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Supplier;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+
+/**
+ * A value that has been decoded from a JSON structure, or the reason why it could not be
+ * decoded.
+ * <p>
+ * The value is decoded once, but a failure is only thrown when the value is accessed. So
+ * a field with an invalid content does not affect the other fields of the same
+ * structure.
+ *
+ * @param <T>
+ *            Type of the decoded value
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public final class DecodedValue<T> {
+
+    private final String key;
+    private final T value;
+    private final AcmeProtocolException failure;
+
+    private DecodedValue(String key, @Nullable T value,
+                @Nullable AcmeProtocolException failure) {
+        this.key = key;
+        this.value = value;
+        this.failure = failure;
+    }
+
+    /**
+     * Decodes a value.
+     *
+     * @param key
+     *            Name of the field, used in error messages
+     * @param decoder
+     *            Decodes the value. It may return {@code null} if the field is not set.
+     * @return {@link DecodedValue} containing the value or the failure
+     */
+    public static <T> DecodedValue<T> decode(String key, Supplier<T> decoder) {
+        requireNonNull(key, "key");
+        try {
+            return new DecodedValue<>(key, decoder.get(), null);
+        } catch (AcmeProtocolException ex) {
+            return new DecodedValue<>(key, null, ex);
+        }
+    }
+
+    /**
+     * Returns the decoded value.
+     *
+     * @return Decoded value, or {@code null} if the field was not set
+     * @throws AcmeProtocolException
+     *             if the field could not be decoded
+     */
+    @CheckForNull
+    public T get() {
+        if (failure != null) {
+            throw new AcmeProtocolException(key + ": invalid value", failure);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the decoded value, which is required to be set.
+     *
+     * @return Decoded value
+     * @throws AcmeProtocolException
+     *             if the field could not be decoded, or was not set
+     */
+    public T getRequired() {
+        T result = get();
+        if (result == null) {
+            throw new AcmeProtocolException(key + ": required, but not set");
+        }
+        return result;
+    }
+
+}
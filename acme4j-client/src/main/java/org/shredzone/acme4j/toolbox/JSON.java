@@ -13,16 +13,15 @@
  */
 package org.shredzone.acme4j.toolbox;
 
-import static java.util.stream.Collectors.joining;
 import static org.shredzone.acme4j.toolbox.AcmeUtils.parseTimestamp;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -55,6 +54,8 @@ import org.shredzone.acme4j.Identifier;
 import org.shredzone.acme4j.Problem;
 import org.shredzone.acme4j.Status;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.jfr.JfrSupport;
+import org.shredzone.acme4j.jfr.JsonParseEvent;
 
 /**
  * A model containing a JSON result. The content is immutable.
@@ -65,8 +66,15 @@ public final class JSON implements Serializable {
     private static final long serialVersionUID = 3091273044605709204L;
 
     private static final JSON EMPTY_JSON = new JSON(new HashMap<>());
+    private static final int MAX_UTF_LENGTH = 65535;
 
-    private final String path;
+    // The path is still serialized as String, for compatibility
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("path", String.class)
+    };
+
+    @SuppressFBWarnings("JCIP_FIELD_ISNT_FINAL_IN_IMMUTABLE_CLASS")
+    private transient Path path; // Must not be final for deserialization
 
     @SuppressFBWarnings("JCIP_FIELD_ISNT_FINAL_IN_IMMUTABLE_CLASS")
     private transient Map<String, Object> data; // Must not be final for deserialization
@@ -78,18 +86,18 @@ public final class JSON implements Serializable {
      *            {@link Map} containing the parsed JSON data
      */
     private JSON(Map<String, Object> data) {
-        this("", data);
+        this(Path.ROOT, data);
     }
 
     /**
      * Creates a new {@link JSON} branch object.
      *
      * @param path
-     *            Path leading to this branch.
+     *            {@link Path} leading to this branch.
      * @param data
      *            {@link Map} containing the parsed JSON data
      */
-    private JSON(String path, Map<String, Object> data) {
+    private JSON(Path path, Map<String, Object> data) {
         this.path = path;
         this.data = data;
     }
@@ -102,12 +110,28 @@ public final class JSON implements Serializable {
      * @return {@link JSON} of the read content.
      */
     public static JSON parse(@WillClose InputStream in) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "utf-8"))) {
-            String json = reader.lines().map(String::trim).collect(joining());
-            return parse(json);
+        try (InputStream jsonIn = in) {
+            return new JSON(readDocument(new JSONReader(jsonIn)));
         }
     }
 
+    /**
+     * Parses JSON from a UTF-8 encoded byte array. The array is not copied, so it can
+     * be reused after this method has returned.
+     *
+     * @param data
+     *            Byte array containing the JSON
+     * @param offset
+     *            Offset of the JSON in the array
+     * @param length
+     *            Length of the JSON
+     * @return {@link JSON} of the read content.
+     * @since 2.9
+     */
+    public static JSON parse(byte[] data, int offset, int length) {
+        return new JSON(parseBytes(data, offset, length));
+    }
+
     /**
      * Parses JSON from a String.
      *
@@ -116,9 +140,10 @@ public final class JSON implements Serializable {
      * @return {@link JSON} of the read content.
      */
     public static JSON parse(String json) {
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
         try {
-            return new JSON(JsonUtil.parseJson(json));
-        } catch (JoseException ex) {
+            return new JSON(parseBytes(data, 0, data.length));
+        } catch (AcmeProtocolException ex) {
             throw new AcmeProtocolException("Bad JSON: " + json, ex);
         }
     }
@@ -132,6 +157,36 @@ public final class JSON implements Serializable {
         return EMPTY_JSON;
     }
 
+    /**
+     * Reads the JSON document of a {@link JSONReader}, and emits a
+     * {@link JsonParseEvent}.
+     */
+    private static Map<String, Object> readDocument(JSONReader reader) throws IOException {
+        JsonParseEvent event = JfrSupport.isAvailable() ? new JsonParseEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
+        Map<String, Object> result = reader.readDocument();
+
+        if (event != null && event.shouldCommit()) {
+            event.commit(reader.getPosition());
+        }
+        return result;
+    }
+
+    /**
+     * Parses a UTF-8 encoded JSON object from a byte array.
+     */
+    private static Map<String, Object> parseBytes(byte[] data, int offset, int length) {
+        try {
+            return readDocument(new JSONReader(data, offset, length));
+        } catch (IOException ex) {
+            // cannot happen, as there is no I/O involved
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     /**
      * Returns a set of all keys of this object.
      *
@@ -160,9 +215,7 @@ public final class JSON implements Serializable {
      * @return {@link Value} of the key
      */
     public Value get(String key) {
-        return new Value(
-                path.isEmpty() ? key : path + '.' + key,
-                data.get(key));
+        return new Value(path, key, -1, data.get(key));
     }
 
     /**
@@ -184,10 +237,25 @@ public final class JSON implements Serializable {
 
     /**
      * Serialize the data map in JSON.
+     * <p>
+     * {@link ObjectOutputStream#writeUTF(String)} is limited to 65535 bytes. Larger
+     * documents are written as an empty string, followed by the length and the UTF-8
+     * encoded document. An empty string is never a valid JSON document, so this format
+     * is still compatible with the serialized form of earlier versions.
      */
     private void writeObject(ObjectOutputStream out) throws IOException {
-        out.writeUTF(JsonUtil.toJson(data));
-        out.defaultWriteObject();
+        String json = JsonUtil.toJson(data);
+        if (modifiedUtfLength(json) <= MAX_UTF_LENGTH) {
+            out.writeUTF(json);
+        } else {
+            byte[] encoded = json.getBytes(StandardCharsets.UTF_8);
+            out.writeUTF("");
+            out.writeInt(encoded.length);
+            out.write(encoded);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("path", path.toString());
+        out.writeFields();
     }
 
     /**
@@ -195,31 +263,57 @@ public final class JSON implements Serializable {
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         try {
-            data = new HashMap<>(JsonUtil.parseJson(in.readUTF()));
-            in.defaultReadObject();
+            String json = in.readUTF();
+            if (json.isEmpty()) {
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                json = new String(encoded, StandardCharsets.UTF_8);
+            }
+            data = new HashMap<>(JsonUtil.parseJson(json));
+            ObjectInputStream.GetField fields = in.readFields();
+            path = Path.parse((String) fields.get("path", ""));
         } catch (JoseException ex) {
             throw new AcmeProtocolException("Cannot deserialize", ex);
         }
     }
 
+    /**
+     * Returns the number of bytes that {@link ObjectOutputStream#writeUTF(String)} needs
+     * for encoding the given string.
+     */
+    private static long modifiedUtfLength(String str) {
+        long length = 0;
+        for (int ix = 0; ix < str.length(); ix++) {
+            char c = str.charAt(ix);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
     /**
      * Represents a JSON array.
      */
     @ParametersAreNonnullByDefault
     @Immutable
     public static final class Array implements Iterable<Value> {
-        private final String path;
+        private final Path path;
         private final List<Object> data;
 
         /**
          * Creates a new {@link Array} object.
          *
          * @param path
-         *            JSON path to this array.
+         *            JSON {@link Path} to this array.
          * @param data
          *            Array data
          */
-        private Array(String path, List<Object> data) {
+        private Array(Path path, List<Object> data) {
             this.path = path;
             this.data = data;
         }
@@ -248,7 +342,7 @@ public final class JSON implements Serializable {
          * @return {@link Value} at this index
          */
         public Value get(int index) {
-            return new Value(path + '[' + index + ']', data.get(index));
+            return new Value(path, null, index, data.get(index));
         }
 
         /**
@@ -278,19 +372,31 @@ public final class JSON implements Serializable {
     @ParametersAreNonnullByDefault
     @Immutable
     public static final class Value {
-        private final String path;
+        private final Path parent;
+        private final String key;
+        private final int index;
         private final Object val;
 
         /**
          * Creates a new {@link Value}.
+         * <p>
+         * The path of the value is only assembled when it is actually needed, e.g. for
+         * an error message.
          *
-         * @param path
-         *            JSON path to this value
+         * @param parent
+         *            JSON {@link Path} of the object or array containing this value
+         * @param key
+         *            Key of this value in the parent object, or {@code null} if the
+         *            parent is an array
+         * @param index
+         *            Index of this value in the parent array, if the key is {@code null}
          * @param val
          *            Value, may be {@code null}
          */
-        private Value(String path, @Nullable Object val) {
-            this.path = path;
+        private Value(Path parent, @Nullable String key, int index, @Nullable Object val) {
+            this.parent = parent;
+            this.key = key;
+            this.index = index;
             this.val = val;
         }
 
@@ -342,9 +448,9 @@ public final class JSON implements Serializable {
         public JSON asObject() {
             required();
             try {
-                return new JSON(path, (Map<String, Object>) val);
+                return new JSON(path(), (Map<String, Object>) val);
             } catch (ClassCastException ex) {
-                throw new AcmeProtocolException(path + ": expected an object", ex);
+                throw new AcmeProtocolException(path() + ": expected an object", ex);
             }
         }
 
@@ -357,9 +463,9 @@ public final class JSON implements Serializable {
             required();
             try {
                 byte[] raw = AcmeUtils.base64UrlDecode(val.toString());
-                return new JSON(path, JsonUtil.parseJson(new String(raw, StandardCharsets.UTF_8)));
-            } catch (IllegalArgumentException | JoseException ex) {
-                throw new AcmeProtocolException(path + ": expected an encoded object", ex);
+                return new JSON(path(), parseBytes(raw, 0, raw.length));
+            } catch (IllegalArgumentException | AcmeProtocolException ex) {
+                throw new AcmeProtocolException(path() + ": expected an encoded object", ex);
             }
         }
 
@@ -392,13 +498,13 @@ public final class JSON implements Serializable {
          */
         public Array asArray() {
             if (val == null) {
-                return new Array(path, Collections.emptyList());
+                return new Array(path(), Collections.emptyList());
             }
 
             try {
-                return new Array(path, (List<Object>) val);
+                return new Array(path(), (List<Object>) val);
             } catch (ClassCastException ex) {
-                throw new AcmeProtocolException(path + ": expected an array", ex);
+                throw new AcmeProtocolException(path() + ": expected an array", ex);
             }
         }
 
@@ -410,7 +516,7 @@ public final class JSON implements Serializable {
             try {
                 return ((Number) val).intValue();
             } catch (ClassCastException ex) {
-                throw new AcmeProtocolException(path + ": bad number " + val, ex);
+                throw new AcmeProtocolException(path() + ": bad number " + val, ex);
             }
         }
 
@@ -422,7 +528,7 @@ public final class JSON implements Serializable {
             try {
                 return (Boolean) val;
             } catch (ClassCastException ex) {
-                throw new AcmeProtocolException(path + ": bad boolean " + val, ex);
+                throw new AcmeProtocolException(path() + ": bad boolean " + val, ex);
             }
         }
 
@@ -434,7 +540,7 @@ public final class JSON implements Serializable {
             try {
                 return new URI(val.toString());
             } catch (URISyntaxException ex) {
-                throw new AcmeProtocolException(path + ": bad URI " + val, ex);
+                throw new AcmeProtocolException(path() + ": bad URI " + val, ex);
             }
         }
 
@@ -446,7 +552,7 @@ public final class JSON implements Serializable {
             try {
                 return new URL(val.toString());
             } catch (MalformedURLException ex) {
-                throw new AcmeProtocolException(path + ": bad URL " + val, ex);
+                throw new AcmeProtocolException(path() + ": bad URL " + val, ex);
             }
         }
 
@@ -458,7 +564,7 @@ public final class JSON implements Serializable {
             try {
                 return parseTimestamp(val.toString());
             } catch (IllegalArgumentException ex) {
-                throw new AcmeProtocolException(path + ": bad date " + val, ex);
+                throw new AcmeProtocolException(path() + ": bad date " + val, ex);
             }
         }
 
@@ -472,7 +578,7 @@ public final class JSON implements Serializable {
             try {
                 return Duration.ofSeconds(((Number) val).longValue());
             } catch (ClassCastException ex) {
-                throw new AcmeProtocolException(path + ": bad duration " + val, ex);
+                throw new AcmeProtocolException(path() + ": bad duration " + val, ex);
             }
         }
 
@@ -498,10 +604,17 @@ public final class JSON implements Serializable {
          */
         private void required() {
             if (!isPresent()) {
-                throw new AcmeProtocolException(path + ": required, but not set");
+                throw new AcmeProtocolException(path() + ": required, but not set");
             }
         }
 
+        /**
+         * Returns the {@link Path} of this value.
+         */
+        private Path path() {
+            return new Path(parent, key, index);
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (obj == null || !(obj instanceof Value)) {
@@ -547,4 +660,55 @@ public final class JSON implements Serializable {
         }
     }
 
+    /**
+     * The path of a JSON value, as a chain of keys and indexes. It is only rendered as
+     * string when it is needed for an error message.
+     */
+    @ParametersAreNonnullByDefault
+    @Immutable
+    private static final class Path {
+        private static final Path ROOT = new Path(null, null, -1);
+
+        private final Path parent;
+        private final String key;
+        private final int index;
+
+        /**
+         * Creates a new {@link Path} element.
+         *
+         * @param parent
+         *            Parent {@link Path}, or {@code null} for the root
+         * @param key
+         *            Key of the element, or {@code null} if it is an array element
+         * @param index
+         *            Array index of the element, if the key is {@code null}
+         */
+        private Path(@Nullable Path parent, @Nullable String key, int index) {
+            this.parent = parent;
+            this.key = key;
+            this.index = index;
+        }
+
+        /**
+         * Restores a deserialized path. It is stored as a single key, as the path
+         * string is only used for messages.
+         */
+        private static Path parse(String path) {
+            return path.isEmpty() ? ROOT : new Path(ROOT, path, -1);
+        }
+
+        @Override
+        public String toString() {
+            if (parent == null) {
+                return key != null ? key : "";
+            }
+
+            String parentPath = parent.toString();
+            if (key == null) {
+                return parentPath + '[' + index + ']';
+            }
+            return parentPath.isEmpty() ? key : parentPath + '.' + key;
+        }
+    }
+
 }
@@ -0,0 +1,500 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+
+/**
+ * A streaming JSON reader that decodes UTF-8 directly from an {@link InputStream} or a
+ * byte array.
+ * <p>
+ * The result uses the same types as jose4j's {@code JsonUtil}: objects are
+ * {@link LinkedHashMap}, arrays are {@link ArrayList}, integers are {@link Long},
+ * decimals are {@link Double}, and {@code true}, {@code false} and {@code null} are
+ * {@link Boolean} and {@code null}. Duplicate keys are rejected, like in jose4j.
+ * <p>
+ * The input is read through a single buffer, and the only objects that are created are
+ * the ones of the result. The reader is strict and follows RFC 8259.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@NotThreadSafe
+final class JSONReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_DEPTH = 256;
+    private static final int EOF = -1;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private final StringBuilder sb = new StringBuilder(64);
+    private int pos;
+    private int limit;
+    private long consumed;
+    private int depth;
+
+    /**
+     * Creates a {@link JSONReader} that reads from an {@link InputStream}.
+     *
+     * @param in
+     *            {@link InputStream} to read from. It is not closed.
+     */
+    JSONReader(@WillNotClose InputStream in) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Creates a {@link JSONReader} that reads from a byte array. The array is not
+     * copied, and must not be changed while reading.
+     *
+     * @param data
+     *            UTF-8 encoded JSON
+     * @param offset
+     *            Offset of the JSON in the array
+     * @param length
+     *            Length of the JSON
+     */
+    JSONReader(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.in = null;
+        this.buffer = data;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.consumed = -offset;
+    }
+
+    /**
+     * Reads a JSON document that consists of a single JSON object.
+     *
+     * @return {@link Map} of the JSON object
+     * @throws AcmeProtocolException
+     *             if the input is not a valid JSON object
+     */
+    Map<String, Object> readDocument() throws IOException {
+        if (nextToken() != '{') {
+            throw error("JSON object expected");
+        }
+        Map<String, Object> result = readObject();
+        if (nextToken() != EOF) {
+            throw error("Unexpected content after the JSON object");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes that have been read so far.
+     */
+    long getPosition() {
+        return consumed + pos;
+    }
+
+    /**
+     * Reads a JSON value, after its first character was consumed.
+     */
+    @Nullable
+    private Object readValue(int ch) throws IOException {
+        switch (ch) {
+            case '{':
+                return readObject();
+
+            case '[':
+                return readArray();
+
+            case '"':
+                return readString();
+
+            case 't':
+                expectLiteral("rue");
+                return Boolean.TRUE;
+
+            case 'f':
+                expectLiteral("alse");
+                return Boolean.FALSE;
+
+            case 'n':
+                expectLiteral("ull");
+                return null;
+
+            case EOF:
+                throw error("Unexpected end of JSON");
+
+            default:
+                if (ch == '-' || (ch >= '0' && ch <= '9')) {
+                    return readNumber(ch);
+                }
+                throw error("Unexpected character '" + (char) ch + "'");
+        }
+    }
+
+    /**
+     * Reads a JSON object, after the opening brace was consumed.
+     */
+    private Map<String, Object> readObject() throws IOException {
+        enter();
+        Map<String, Object> result = new LinkedHashMap<>();
+        int ch = nextToken();
+        if (ch == '}') {
+            depth--;
+            return result;
+        }
+
+        while (true) {
+            if (ch != '"') {
+                throw error("Key expected");
+            }
+            String key = readString();
+            if (nextToken() != ':') {
+                throw error("':' expected");
+            }
+            Object value = readValue(nextToken());
+            if (result.containsKey(key)) {
+                throw error("Duplicate key '" + key + "'");
+            }
+            result.put(key, value);
+
+            ch = nextToken();
+            if (ch == '}') {
+                depth--;
+                return result;
+            }
+            if (ch != ',') {
+                throw error("',' or '}' expected");
+            }
+            ch = nextToken();
+        }
+    }
+
+    /**
+     * Reads a JSON array, after the opening bracket was consumed.
+     */
+    private List<Object> readArray() throws IOException {
+        enter();
+        List<Object> result = new ArrayList<>();
+        int ch = nextToken();
+        if (ch == ']') {
+            depth--;
+            return result;
+        }
+
+        while (true) {
+            result.add(readValue(ch));
+
+            ch = nextToken();
+            if (ch == ']') {
+                depth--;
+                return result;
+            }
+            if (ch != ',') {
+                throw error("',' or ']' expected");
+            }
+            ch = nextToken();
+        }
+    }
+
+    /**
+     * Reads a JSON string, after the opening quote was consumed.
+     */
+    private String readString() throws IOException {
+        sb.setLength(0);
+        while (true) {
+            // Fast path for plain ASCII characters in the buffer
+            while (pos < limit) {
+                int b = buffer[pos];
+                if (b < 0x20 || b == '"' || b == '\\') {
+                    break;
+                }
+                sb.append((char) b);
+                pos++;
+            }
+
+            int ch = read();
+            if (ch == '"') {
+                return sb.toString();
+            } else if (ch == '\\') {
+                readEscape();
+            } else if (ch == EOF) {
+                throw error("Unterminated string");
+            } else if (ch < 0x20) {
+                throw error("Control character in string");
+            } else if (ch < 0x80) {
+                sb.append((char) ch);
+            } else {
+                readUtf8(ch);
+            }
+        }
+    }
+
+    /**
+     * Reads an escape sequence, after the backslash was consumed.
+     */
+    private void readEscape() throws IOException {
+        int ch = read();
+        switch (ch) {
+            case '"':
+            case '\\':
+            case '/':
+                sb.append((char) ch);
+                break;
+
+            case 'b':
+                sb.append('\b');
+                break;
+
+            case 'f':
+                sb.append('\f');
+                break;
+
+            case 'n':
+                sb.append('\n');
+                break;
+
+            case 'r':
+                sb.append('\r');
+                break;
+
+            case 't':
+                sb.append('\t');
+                break;
+
+            case 'u':
+                int value = 0;
+                for (int ix = 0; ix < 4; ix++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw error("Bad unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                sb.append((char) value);
+                break;
+
+            default:
+                throw error("Bad escape sequence");
+        }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence, after its first byte was consumed.
+     */
+    private void readUtf8(int first) throws IOException {
+        int codePoint;
+        int min;
+        int continuations;
+        if (first >= 0xC2 && first <= 0xDF) {
+            codePoint = first & 0x1F;
+            min = 0x80;
+            continuations = 1;
+        } else if (first >= 0xE0 && first <= 0xEF) {
+            codePoint = first & 0x0F;
+            min = 0x800;
+            continuations = 2;
+        } else if (first >= 0xF0 && first <= 0xF4) {
+            codePoint = first & 0x07;
+            min = 0x10000;
+            continuations = 3;
+        } else {
+            throw error("Bad UTF-8 encoding");
+        }
+
+        for (int ix = 0; ix < continuations; ix++) {
+            int next = read();
+            if ((next & 0xC0) != 0x80) {
+                throw error("Bad UTF-8 encoding");
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            throw error("Bad UTF-8 encoding");
+        }
+        sb.appendCodePoint(codePoint);
+    }
+
+    /**
+     * Reads a JSON number, after its first character was consumed.
+     *
+     * @return {@link Long} for integers, {@link Double} for decimals and for integers
+     *         that exceed the {@link Long} range
+     */
+    private Number readNumber(int first) throws IOException {
+        sb.setLength(0);
+        sb.append((char) first);
+        boolean decimal = false;
+
+        int ch = first;
+        if (ch == '-') {
+            ch = read();
+            if (ch < '0' || ch > '9') {
+                throw error("Bad number");
+            }
+            sb.append((char) ch);
+        }
+        if (ch != '0') {
+            appendDigits();
+        }
+
+        if (peek() == '.') {
+            decimal = true;
+            sb.append((char) read());
+            if (appendDigits() == 0) {
+                throw error("Bad number");
+            }
+        }
+
+        int exp = peek();
+        if (exp == 'e' || exp == 'E') {
+            decimal = true;
+            sb.append((char) read());
+            int sign = peek();
+            if (sign == '+' || sign == '-') {
+                sb.append((char) read());
+            }
+            if (appendDigits() == 0) {
+                throw error("Bad number");
+            }
+        }
+
+        String number = sb.toString();
+        if (!decimal) {
+            try {
+                return Long.valueOf(number);
+            } catch (NumberFormatException ex) {
+                // too large for a long, use a double instead
+            }
+        }
+        return Double.valueOf(number);
+    }
+
+    /**
+     * Appends all following digits.
+     *
+     * @return Number of digits that were appended
+     */
+    private int appendDigits() throws IOException {
+        int count = 0;
+        int ch = peek();
+        while (ch >= '0' && ch <= '9') {
+            sb.append((char) read());
+            count++;
+            ch = peek();
+        }
+        return count;
+    }
+
+    /**
+     * Consumes the rest of a literal.
+     */
+    private void expectLiteral(String rest) throws IOException {
+        for (int ix = 0; ix < rest.length(); ix++) {
+            if (read() != rest.charAt(ix)) {
+                throw error("Bad literal");
+            }
+        }
+    }
+
+    /**
+     * Increases the nesting depth, and makes sure it does not exceed the limit.
+     */
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("JSON is nested too deeply");
+        }
+    }
+
+    /**
+     * Skips whitespaces, and consumes the next character.
+     *
+     * @return Next character, or {@link #EOF} if the end of input was reached
+     */
+    private int nextToken() throws IOException {
+        while (true) {
+            int ch = read();
+            if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\r') {
+                return ch;
+            }
+        }
+    }
+
+    /**
+     * Consumes the next byte.
+     *
+     * @return Next byte, or {@link #EOF} if the end of input was reached
+     */
+    private int read() throws IOException {
+        if (pos >= limit && !fill()) {
+            return EOF;
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    /**
+     * Returns the next byte without consuming it.
+     *
+     * @return Next byte, or {@link #EOF} if the end of input was reached
+     */
+    private int peek() throws IOException {
+        if (pos >= limit && !fill()) {
+            return EOF;
+        }
+        return buffer[pos] & 0xFF;
+    }
+
+    /**
+     * Refills the buffer from the {@link InputStream}.
+     *
+     * @return {@code true} if more bytes are available, {@code false} on end of input
+     */
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int len;
+        do {
+            len = in.read(buffer, 0, buffer.length);
+        } while (len == 0);
+        if (len < 0) {
+            return false;
+        }
+        limit = len;
+        return true;
+    }
+
+    /**
+     * Creates an exception for a syntax error at the current position.
+     */
+    private AcmeProtocolException error(String message) {
+        return new AcmeProtocolException("Bad JSON: " + message + " at position "
+                + (consumed + pos));
+    }
+
+}
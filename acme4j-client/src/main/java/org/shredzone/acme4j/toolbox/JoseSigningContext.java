@@ -0,0 +1,209 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.net.URL;
+import java.security.KeyPair;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+import org.jose4j.json.JsonUtil;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.jfr.JfrSupport;
+import org.shredzone.acme4j.jfr.SignEvent;
+import org.shredzone.acme4j.signer.JwsSigner;
+import org.shredzone.acme4j.signer.KeyPairSigner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Signs ACME JOSE requests with a {@link JwsSigner}.
+ * <p>
+ * The JWK of the public key, the signature algorithm, and the static part of the
+ * protected header are computed only once, when the context is created. Only the nonce
+ * and the URL are added for each request. A context can be used for any number of
+ * requests, and by multiple threads at the same time.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@Immutable
+public final class JoseSigningContext {
+    private static final Logger LOG = LoggerFactory.getLogger(JoseSigningContext.class);
+
+    private final JwsSigner signer;
+    private final String kid;
+    private final String headerPrefix;
+
+    /**
+     * Creates a new {@link JoseSigningContext} for a {@link KeyPair}.
+     *
+     * @param keyPair
+     *         {@link KeyPair} to sign the requests with
+     * @param kid
+     *         kid to be used in the JOSE header. If {@code null}, a jwk header of the
+     *         given key is used instead.
+     * @throws IllegalArgumentException
+     *         if the key pair cannot be used for signing
+     */
+    public JoseSigningContext(KeyPair keyPair, @Nullable String kid) {
+        this(new KeyPairSigner(keyPair), kid);
+    }
+
+    /**
+     * Creates a new {@link JoseSigningContext}.
+     *
+     * @param signer
+     *         {@link JwsSigner} to sign the requests with
+     * @param kid
+     *         kid to be used in the JOSE header. If {@code null}, a jwk header of the
+     *         signer's public key is used instead.
+     * @throws IllegalArgumentException
+     *         if the signer's public key is not supported
+     */
+    public JoseSigningContext(JwsSigner signer, @Nullable String kid) {
+        this.signer = requireNonNull(signer, "signer");
+        this.kid = kid;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"alg\":");
+        appendQuoted(sb, signer.getAlgorithm());
+        if (kid != null) {
+            sb.append(",\"kid\":");
+            appendQuoted(sb, kid);
+        } else {
+            sb.append(",\"jwk\":");
+            sb.append(JsonUtil.toJson(JoseUtils.publicKeyToJWK(signer.getPublicKey())));
+        }
+        this.headerPrefix = sb.toString();
+    }
+
+    /**
+     * Returns the {@link JwsSigner} that is used for signing.
+     */
+    public JwsSigner getSigner() {
+        return signer;
+    }
+
+    /**
+     * Returns the kid that is used in the JOSE header, or {@code null} if a jwk header
+     * is used instead.
+     */
+    @CheckForNull
+    public String getKeyIdentifier() {
+        return kid;
+    }
+
+    /**
+     * Returns the JWS algorithm identifier of the signer.
+     */
+    public String getAlgorithm() {
+        return signer.getAlgorithm();
+    }
+
+    /**
+     * Creates an ACME JOSE request.
+     *
+     * @param url
+     *         {@link URL} of the ACME call
+     * @param payload
+     *         ACME JSON payload. If {@code null}, a POST-as-GET request is generated
+     *         instead.
+     * @param nonce
+     *         Nonce to be used. {@code null} if no nonce is to be used in the JOSE
+     *         header.
+     * @return JSON structure of the JOSE request, ready to be sent.
+     * @throws AcmeException
+     *         if the signer failed to sign the request
+     */
+    public JSONBuilder createJoseRequest(URL url, @Nullable JSONBuilder payload,
+                @Nullable String nonce) throws AcmeException {
+        StringBuilder header = new StringBuilder(headerPrefix.length() + 160);
+        header.append(headerPrefix);
+        if (nonce != null) {
+            header.append(",\"nonce\":");
+            appendQuoted(header, nonce);
+        }
+        header.append(",\"url\":");
+        appendQuoted(header, url.toString());
+        header.append('}');
+
+        String encodedHeader = AcmeUtils.base64UrlEncode(header.toString().getBytes(UTF_8));
+        String encodedPayload = payload != null
+                ? AcmeUtils.base64UrlEncode(payload.toString().getBytes(UTF_8))
+                : "";
+
+        byte[] signingInput = (encodedHeader + '.' + encodedPayload).getBytes(US_ASCII);
+
+        SignEvent event = JfrSupport.isAvailable() ? new SignEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
+        byte[] signature = signer.sign(signingInput);
+
+        if (event != null && event.shouldCommit()) {
+            event.commit(url, signer.getAlgorithm());
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} {}", payload != null ? "POST" : "POST-as-GET", url);
+            if (payload != null) {
+                LOG.debug("  Payload: {}", payload);
+            }
+            LOG.debug("  JWS Header: {}", header);
+        }
+
+        JSONBuilder jb = new JSONBuilder();
+        jb.put("protected", encodedHeader);
+        jb.put("payload", encodedPayload);
+        jb.put("signature", AcmeUtils.base64UrlEncode(signature));
+        return jb;
+    }
+
+    /**
+     * Appends a string as quoted and escaped JSON string.
+     */
+    private static void appendQuoted(StringBuilder sb, String str) {
+        sb.append('"');
+        for (int ix = 0; ix < str.length(); ix++) {
+            char ch = str.charAt(ix);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+}
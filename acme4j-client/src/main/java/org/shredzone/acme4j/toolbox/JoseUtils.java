@@ -14,14 +14,21 @@
 package org.shredzone.acme4j.toolbox;
 
 import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.crypto.SecretKey;
 
+import org.jose4j.json.JsonUtil;
 import org.jose4j.jwk.EllipticCurveJsonWebKey;
 import org.jose4j.jwk.JsonWebKey;
 import org.jose4j.jwk.PublicJsonWebKey;
@@ -29,8 +36,8 @@ import org.jose4j.jwk.RsaJsonWebKey;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.lang.JoseException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.signer.KeyPairSigner;
 
 /**
  * Utility class that takes care of all the JOSE stuff.
@@ -40,7 +47,27 @@ import org.slf4j.LoggerFactory;
 @ParametersAreNonnullByDefault
 public final class JoseUtils {
 
-    private static final Logger LOG = LoggerFactory.getLogger(JoseUtils.class);
+    /**
+     * Algorithm identifier of EdDSA signatures, see RFC 8037.
+     *
+     * @since 2.9
+     */
+    public static final String EDDSA = "EdDSA";
+
+    private static final String KTY_OKP = "OKP";
+    private static final String CRV_ED25519 = "Ed25519";
+    private static final String CRV_ED448 = "Ed448";
+
+    // X.509 SubjectPublicKeyInfo prefixes of Ed25519 and Ed448 keys (RFC 8410),
+    // followed by the raw public key
+    private static final byte[] ED25519_PREFIX = {
+            0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00
+    };
+    private static final byte[] ED448_PREFIX = {
+            0x30, 0x43, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x71, 0x03, 0x3a, 0x00
+    };
+    private static final int ED25519_KEY_SIZE = 32;
+    private static final int ED448_KEY_SIZE = 57;
 
     private JoseUtils() {
         // Utility class without constructor
@@ -63,44 +90,14 @@ public final class JoseUtils {
      *         kid to be used in the JOSE header. If {@code null}, a jwk header of the
      *         given key is used instead.
      * @return JSON structure of the JOSE request, ready to be sent.
+     * @see JoseSigningContext
      */
     public static JSONBuilder createJoseRequest(URL url, KeyPair keypair,
             @Nullable JSONBuilder payload, @Nullable String nonce, @Nullable String kid) {
         try {
-            PublicJsonWebKey jwk = PublicJsonWebKey.Factory.newPublicJwk(keypair.getPublic());
-
-            JsonWebSignature jws = new JsonWebSignature();
-            jws.getHeaders().setObjectHeaderValue("url", url);
-
-            if (kid != null) {
-                jws.getHeaders().setObjectHeaderValue("kid", kid);
-            } else {
-                jws.getHeaders().setJwkHeaderValue("jwk", jwk);
-            }
-
-            if (nonce != null) {
-                jws.getHeaders().setObjectHeaderValue("nonce", nonce);
-            }
-
-            jws.setPayload(payload != null ? payload.toString() : "");
-            jws.setAlgorithmHeaderValue(keyAlgorithm(jwk));
-            jws.setKey(keypair.getPrivate());
-            jws.sign();
-
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("{} {}", payload != null ? "POST" : "POST-as-GET", url);
-                if (payload != null) {
-                    LOG.debug("  Payload: {}", payload);
-                }
-                LOG.debug("  JWS Header: {}", jws.getHeaders().getFullHeaderAsJsonString());
-            }
-
-            JSONBuilder jb = new JSONBuilder();
-            jb.put("protected", jws.getHeaders().getEncodedHeader());
-            jb.put("payload", jws.getEncodedPayload());
-            jb.put("signature", jws.getEncodedSignature());
-            return jb;
-        } catch (JoseException ex) {
+            return new JoseSigningContext(new KeyPairSigner(keypair), kid)
+                    .createJoseRequest(url, payload, nonce);
+        } catch (AcmeException ex) {
             throw new IllegalArgumentException("Could not create a JOSE request", ex);
         }
     }
@@ -121,10 +118,8 @@ public final class JoseUtils {
     public static Map<String, Object> createExternalAccountBinding(String kid,
             PublicKey accountKey, SecretKey macKey, URL resource) {
         try {
-            PublicJsonWebKey keyJwk = PublicJsonWebKey.Factory.newPublicJwk(accountKey);
-
             JsonWebSignature innerJws = new JsonWebSignature();
-            innerJws.setPayload(keyJwk.toJson());
+            innerJws.setPayload(JsonUtil.toJson(publicKeyToJWK(accountKey)));
             innerJws.getHeaders().setObjectHeaderValue("url", resource);
             innerJws.getHeaders().setObjectHeaderValue("kid", kid);
             innerJws.setAlgorithmHeaderValue(macKeyAlgorithm(macKey));
@@ -150,6 +145,15 @@ public final class JoseUtils {
      * @return JSON map containing the JWK structure
      */
     public static Map<String, Object> publicKeyToJWK(PublicKey key) {
+        String crv = edDsaCurve(key);
+        if (crv != null) {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", KTY_OKP);
+            jwk.put("crv", crv);
+            jwk.put("x", AcmeUtils.base64UrlEncode(rawEdDsaKey(key)));
+            return jwk;
+        }
+
         try {
             return PublicJsonWebKey.Factory.newPublicJwk(key)
                     .toParams(JsonWebKey.OutputControlLevel.PUBLIC_ONLY);
@@ -166,6 +170,10 @@ public final class JoseUtils {
      * @return the extracted {@link PublicKey}
      */
     public static PublicKey jwkToPublicKey(Map<String, Object> jwk) {
+        if (KTY_OKP.equals(jwk.get("kty"))) {
+            return okpToPublicKey(jwk);
+        }
+
         try {
             return PublicJsonWebKey.Factory.newPublicJwk(jwk).getPublicKey();
         } catch (JoseException ex) {
@@ -181,6 +189,14 @@ public final class JoseUtils {
      * @return Thumbprint of the key
      */
     public static byte[] thumbprint(PublicKey key) {
+        String crv = edDsaCurve(key);
+        if (crv != null) {
+            // RFC 7638: required members only, in lexicographic order
+            return AcmeUtils.sha256hash("{\"crv\":\"" + crv
+                    + "\",\"kty\":\"" + KTY_OKP
+                    + "\",\"x\":\"" + AcmeUtils.base64UrlEncode(rawEdDsaKey(key)) + "\"}");
+        }
+
         try {
             PublicJsonWebKey jwk = PublicJsonWebKey.Factory.newPublicJwk(key);
             return jwk.calculateThumbprint("SHA-256");
@@ -189,6 +205,29 @@ public final class JoseUtils {
         }
     }
 
+    /**
+     * Analyzes the {@link PublicKey}, and returns the key algorithm identifier for
+     * {@link JsonWebSignature}.
+     *
+     * @param key
+     *         {@link PublicKey} to analyze
+     * @return algorithm identifier
+     * @throws IllegalArgumentException
+     *         there is no corresponding algorithm identifier for the key
+     * @since 2.9
+     */
+    public static String keyAlgorithm(PublicKey key) {
+        if (edDsaCurve(key) != null) {
+            return EDDSA;
+        }
+
+        try {
+            return keyAlgorithm(PublicJsonWebKey.Factory.newPublicJwk(key));
+        } catch (JoseException ex) {
+            throw new IllegalArgumentException("Bad public key", ex);
+        }
+    }
+
     /**
      * Analyzes the key used in the {@link JsonWebKey}, and returns the key algorithm
      * identifier for {@link JsonWebSignature}.
@@ -226,6 +265,96 @@ public final class JoseUtils {
         }
     }
 
+    /**
+     * Returns the curve name of an EdDSA public key.
+     *
+     * @param key
+     *         {@link PublicKey} to analyze
+     * @return "Ed25519" or "Ed448", or {@code null} if the key is not an EdDSA key
+     * @since 2.9
+     */
+    @CheckForNull
+    public static String edDsaCurve(PublicKey key) {
+        if (!"X.509".equals(key.getFormat())) {
+            return null;
+        }
+        byte[] encoded = key.getEncoded();
+        if (encoded == null) {
+            return null;
+        }
+        if (hasPrefix(encoded, ED25519_PREFIX, ED25519_KEY_SIZE)) {
+            return CRV_ED25519;
+        }
+        if (hasPrefix(encoded, ED448_PREFIX, ED448_KEY_SIZE)) {
+            return CRV_ED448;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the raw public key of an EdDSA key, as used in the "x" parameter of the JWK.
+     */
+    private static byte[] rawEdDsaKey(PublicKey key) {
+        byte[] encoded = key.getEncoded();
+        int prefixLength = ED25519_PREFIX.length;
+        return Arrays.copyOfRange(encoded, prefixLength, encoded.length);
+    }
+
+    /**
+     * Converts an OKP JWK structure to an EdDSA {@link PublicKey}.
+     * <p>
+     * The key is created by the "Ed25519" or "Ed448" {@link KeyFactory}. It is available
+     * in Java 15 and higher, or if a security provider like Bouncy Castle is installed.
+     */
+    private static PublicKey okpToPublicKey(Map<String, Object> jwk) {
+        Object crv = jwk.get("crv");
+        Object x = jwk.get("x");
+        if (!(x instanceof String)) {
+            throw new IllegalArgumentException("Bad JWK, missing x: " + jwk);
+        }
+        byte[] raw = AcmeUtils.base64UrlDecode((String) x);
+
+        byte[] prefix;
+        int keySize;
+        if (CRV_ED25519.equals(crv)) {
+            prefix = ED25519_PREFIX;
+            keySize = ED25519_KEY_SIZE;
+        } else if (CRV_ED448.equals(crv)) {
+            prefix = ED448_PREFIX;
+            keySize = ED448_KEY_SIZE;
+        } else {
+            throw new IllegalArgumentException("Unknown OKP curve " + crv);
+        }
+        if (raw.length != keySize) {
+            throw new IllegalArgumentException("Bad " + crv + " key size: " + raw.length);
+        }
+
+        byte[] encoded = Arrays.copyOf(prefix, prefix.length + raw.length);
+        System.arraycopy(raw, 0, encoded, prefix.length, raw.length);
+        try {
+            return KeyFactory.getInstance((String) crv)
+                    .generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalArgumentException("Cannot create " + crv + " key", ex);
+        }
+    }
+
+    /**
+     * Checks if the encoded key consists of the prefix, followed by a key of the given
+     * size.
+     */
+    private static boolean hasPrefix(byte[] encoded, byte[] prefix, int keySize) {
+        if (encoded.length != prefix.length + keySize) {
+            return false;
+        }
+        for (int ix = 0; ix < prefix.length; ix++) {
+            if (encoded[ix] != prefix[ix]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Analyzes the {@link SecretKey}, and returns the key algorithm identifier for {@link
      * JsonWebSignature}.
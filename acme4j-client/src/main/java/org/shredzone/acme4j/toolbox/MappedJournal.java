@@ -0,0 +1,501 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A durable key-value store that is kept in an append-only, memory-mapped journal file.
+ * <p>
+ * Every change is appended to the journal as a record with a checksum. The journal is
+ * mapped into memory, so appending a record does not need a system call. When the
+ * journal is opened, all records are replayed to rebuild the index. A record that was
+ * only partially written (e.g. because the process crashed) is discarded, along with
+ * everything after it.
+ * <p>
+ * As soon as more than half of the journal consists of outdated records, it is
+ * compacted. The live records are copied to a new file, which then atomically replaces
+ * the journal.
+ * <p>
+ * Java offers no way to unmap a file explicitly. A mapping is released when its buffer is
+ * garbage collected, so the memory of previous mappings stays reserved for a while after
+ * the mapping was enlarged or the journal was compacted. On some platforms (e.g.
+ * Windows), a file cannot be replaced while it is still mapped. If the compacted file
+ * cannot replace the journal, the journal continues with the uncompacted file, and the
+ * next automatic compaction is postponed until the journal has doubled in size.
+ * <p>
+ * Records that have been appended survive a crash of the process. Use {@link #sync()}
+ * to make sure they also survive a crash of the operating system.
+ *
+ * @since 2.9
+ */
+@ParametersAreNonnullByDefault
+@ThreadSafe
+public class MappedJournal implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedJournal.class);
+
+    private static final int MAGIC = 0x41434D4A; // "ACMJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int MIN_MAPPING_SIZE = 1 << 20;
+    private static final long MIN_COMPACTION_SIZE = 1L << 20;
+
+    private final Path file;
+
+    @GuardedBy("this")
+    private final Map<String, Entry> index = new HashMap<>();
+
+    @GuardedBy("this")
+    private FileChannel channel;
+
+    @GuardedBy("this")
+    private MappedByteBuffer buffer;
+
+    @GuardedBy("this")
+    private int position;
+
+    @GuardedBy("this")
+    private long liveSize;
+
+    @GuardedBy("this")
+    private long compactionSize = MIN_COMPACTION_SIZE;
+
+    /**
+     * Opens a {@link MappedJournal}. If the file does not exist, a new journal is
+     * created.
+     *
+     * @param file
+     *            {@link Path} of the journal file
+     * @throws IOException
+     *             if the journal could not be opened, or if the file is not a journal
+     */
+    public MappedJournal(Path file) throws IOException {
+        this.file = requireNonNull(file, "file");
+        synchronized (this) {
+            // Left over from an interrupted compaction
+            Files.deleteIfExists(getCompactionFile());
+            open();
+        }
+    }
+
+    /**
+     * Returns the value of the given key.
+     *
+     * @param key
+     *            Key to look up
+     * @return Value, or {@code null} if there is no such key
+     */
+    @CheckForNull
+    public synchronized byte[] get(String key) {
+        checkOpen();
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        byte[] value = new byte[entry.valueLength];
+        ByteBuffer src = buffer.duplicate();
+        src.position(entry.valuePosition);
+        src.get(value);
+        return value;
+    }
+
+    /**
+     * Returns all keys of the journal.
+     *
+     * @return Set of all keys, in no specific order
+     */
+    public synchronized Set<String> keys() {
+        checkOpen();
+        return Collections.unmodifiableSet(new HashSet<>(index.keySet()));
+    }
+
+    /**
+     * Returns the number of keys in the journal.
+     */
+    public synchronized int size() {
+        checkOpen();
+        return index.size();
+    }
+
+    /**
+     * Returns the number of bytes that are used by the journal, including outdated
+     * records.
+     */
+    public synchronized long getLength() {
+        checkOpen();
+        return position;
+    }
+
+    /**
+     * Stores a value, replacing any previous value of the key.
+     *
+     * @param key
+     *            Key
+     * @param value
+     *            Value to store
+     */
+    public synchronized void put(String key, byte[] value) throws IOException {
+        checkOpen();
+        append(OP_PUT, key, requireNonNull(value, "value"));
+        compactIfWasteful();
+    }
+
+    /**
+     * Removes a key. Does nothing if there is no such key.
+     *
+     * @param key
+     *            Key to remove
+     */
+    public synchronized void remove(String key) throws IOException {
+        checkOpen();
+        if (index.containsKey(key)) {
+            append(OP_REMOVE, key, new byte[0]);
+            compactIfWasteful();
+        }
+    }
+
+    /**
+     * Forces all changes to be written to the storage device.
+     */
+    public synchronized void sync() {
+        checkOpen();
+        buffer.force();
+    }
+
+    /**
+     * Compacts the journal, by removing all outdated records.
+     *
+     * @throws IOException
+     *             if the journal could not be compacted. The journal is still usable
+     *             then, and contains all records.
+     */
+    public synchronized void compact() throws IOException {
+        checkOpen();
+        LOG.debug("Compacting journal {}, {} of {} bytes are live", file, liveSize, position);
+
+        Path compacted = getCompactionFile();
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(out, header);
+
+            for (Entry entry : index.values()) {
+                ByteBuffer record = buffer.duplicate();
+                record.position(entry.recordPosition);
+                record.limit(entry.recordPosition + entry.recordLength);
+                writeFully(out, record);
+            }
+            out.force(true);
+        }
+
+        // The old mapping is only released on garbage collection, see class comment
+        closeChannel();
+        try {
+            try {
+                Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            compactionSize = MIN_COMPACTION_SIZE;
+        } catch (IOException ex) {
+            Files.deleteIfExists(compacted);
+            throw ex;
+        } finally {
+            // Reopens the compacted journal, or the original one if it was not replaced
+            open();
+        }
+    }
+
+    /**
+     * Closes the journal. All changes are written to the storage device.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            closeChannel();
+        }
+    }
+
+    /**
+     * Returns the file that is used while the journal is compacted.
+     */
+    private Path getCompactionFile() {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+    /**
+     * Opens and maps the journal file, and replays all records.
+     */
+    @GuardedBy("this")
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        try {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Journal " + file + " is too large");
+            }
+            map((int) fileSize);
+
+            if (fileSize == 0L) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+            } else if (fileSize < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a journal");
+            } else if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported version of journal " + file);
+            }
+
+            replay();
+        } catch (IOException | RuntimeException ex) {
+            closeChannel();
+            throw ex;
+        }
+    }
+
+    /**
+     * Replays all records of the journal, and rebuilds the index.
+     */
+    @GuardedBy("this")
+    private void replay() {
+        index.clear();
+        liveSize = 0L;
+
+        int pos = HEADER_SIZE;
+        int limit = buffer.capacity();
+        while (pos + RECORD_HEADER_SIZE <= limit) {
+            int length = buffer.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+
+            int end = pos + RECORD_HEADER_SIZE + length;
+            if (length < 5 || end < 0 || end > limit || !isChecksumValid(pos, length)
+                        || !isKeyLengthValid(pos, length)) {
+                LOG.warn("Discarding incomplete record at position {} of journal {}", pos, file);
+                ByteBuffer tail = buffer.duplicate();
+                tail.position(pos);
+                while (tail.hasRemaining()) {
+                    tail.put((byte) 0);
+                }
+                break;
+            }
+
+            apply(pos, length);
+            pos = end;
+        }
+
+        position = pos;
+    }
+
+    /**
+     * Applies the record at the given position to the index.
+     */
+    @GuardedBy("this")
+    private void apply(int pos, int length) {
+        int body = pos + RECORD_HEADER_SIZE;
+        byte op = buffer.get(body);
+        int keyLength = buffer.getInt(body + 1);
+
+        byte[] keyBytes = new byte[keyLength];
+        ByteBuffer src = buffer.duplicate();
+        src.position(body + 5);
+        src.get(keyBytes);
+        String key = new String(keyBytes, UTF_8);
+
+        Entry previous;
+        if (op == OP_PUT) {
+            int valuePosition = body + 5 + keyLength;
+            Entry entry = new Entry(pos, RECORD_HEADER_SIZE + length, valuePosition,
+                        length - 5 - keyLength);
+            previous = index.put(key, entry);
+            liveSize += entry.recordLength;
+        } else {
+            previous = index.remove(key);
+        }
+
+        if (previous != null) {
+            liveSize -= previous.recordLength;
+        }
+    }
+
+    /**
+     * Appends a record to the journal. The length of the record is written last, so
+     * the record becomes visible only after it has been written completely.
+     */
+    @GuardedBy("this")
+    private void append(byte op, String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(UTF_8);
+        long length = 5L + keyBytes.length + value.length;
+        ensureCapacity(RECORD_HEADER_SIZE + length);
+
+        ByteBuffer body = ByteBuffer.allocate((int) length);
+        body.put(op).putInt(keyBytes.length).put(keyBytes).put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        ByteBuffer dst = buffer.duplicate();
+        dst.position(position + RECORD_HEADER_SIZE);
+        dst.put(body.array());
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, (int) length);
+
+        int pos = position;
+        position += RECORD_HEADER_SIZE + (int) length;
+        apply(pos, (int) length);
+    }
+
+    /**
+     * Checks the checksum of the record at the given position.
+     */
+    @GuardedBy("this")
+    private boolean isChecksumValid(int pos, int length) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(pos + RECORD_HEADER_SIZE);
+        body.limit(pos + RECORD_HEADER_SIZE + length);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue() == buffer.getInt(pos + 4);
+    }
+
+    /**
+     * Checks that the key of the record at the given position fits into the record.
+     */
+    @GuardedBy("this")
+    private boolean isKeyLengthValid(int pos, int length) {
+        int keyLength = buffer.getInt(pos + RECORD_HEADER_SIZE + 1);
+        return keyLength >= 0 && keyLength <= length - 5;
+    }
+
+    /**
+     * Makes sure that the mapping has room for the given number of bytes, and enlarges
+     * it if necessary.
+     */
+    @GuardedBy("this")
+    private void ensureCapacity(long bytes) throws IOException {
+        long required = position + bytes;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Journal " + file + " is full");
+        }
+        map((int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity())));
+    }
+
+    /**
+     * Maps the journal file. The file is extended if it is smaller than the mapping. A
+     * previous mapping is not unmapped, but released on garbage collection.
+     */
+    @GuardedBy("this")
+    private void map(int size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.max(size, MIN_MAPPING_SIZE));
+    }
+
+    /**
+     * Compacts the journal if more than half of it consists of outdated records.
+     */
+    @GuardedBy("this")
+    private void compactIfWasteful() throws IOException {
+        if (position > compactionSize && liveSize * 2L < position) {
+            try {
+                compact();
+            } catch (IOException ex) {
+                if (channel == null) {
+                    // The journal could not even be reopened
+                    throw ex;
+                }
+                compactionSize = 2L * position;
+                LOG.warn("Could not compact journal {}, postponing until it has {} bytes",
+                        file, compactionSize, ex);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void closeChannel() throws IOException {
+        index.clear();
+        buffer = null;
+        try {
+            channel.close();
+        } finally {
+            channel = null;
+        }
+    }
+
+    @GuardedBy("this")
+    private void checkOpen() {
+        if (channel == null) {
+            throw new IllegalStateException("Journal " + file + " is closed");
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Position of a live record in the journal.
+     */
+    private static final class Entry {
+        private final int recordPosition;
+        private final int recordLength;
+        private final int valuePosition;
+        private final int valueLength;
+
+        private Entry(int recordPosition, int recordLength, int valuePosition, int valueLength) {
+            this.recordPosition = recordPosition;
+            this.recordLength = recordLength;
+            this.valuePosition = valuePosition;
+            this.valueLength = valueLength;
+        }
+    }
+
+}
@@ -25,6 +25,8 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
@@ -32,6 +34,8 @@ import org.shredzone.acme4j.challenge.Challenge;
 import org.shredzone.acme4j.challenge.Dns01Challenge;
 import org.shredzone.acme4j.challenge.Http01Challenge;
 import org.shredzone.acme4j.challenge.TlsAlpn01Challenge;
+import org.shredzone.acme4j.connector.AuthorizationCache;
+import org.shredzone.acme4j.connector.CachedAuthorization;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.exception.AcmeRetryAfterException;
@@ -110,6 +114,27 @@ public class AuthorizationTest {
         authorization.findChallenge(DUPLICATE_TYPE);
     }
 
+    /**
+     * Test that the challenges are created only once, and returned from the snapshot.
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+        Authorization authorization = createChallengeAuthorization();
+
+        AuthorizationSnapshot snapshot = authorization.getSnapshot();
+        assertThat(authorization.getSnapshot(), is(sameInstance(snapshot)));
+        assertThat(authorization.getChallenges(), is(sameInstance(snapshot.getChallenges())));
+
+        Http01Challenge c1 = authorization.findChallenge(Http01Challenge.class);
+        assertThat(authorization.findChallenge(Http01Challenge.TYPE), is(sameInstance(c1)));
+        assertThat(snapshot.getChallenges(), hasItem(sameInstance(c1)));
+        assertThat(c1.getSnapshot(), is(sameInstance(c1.getSnapshot())));
+
+        authorization.setJSON(getJSON("authorizationChallenges"));
+        assertThat(authorization.getSnapshot(), is(not(sameInstance(snapshot))));
+        assertThat(authorization.findChallenge(Http01Challenge.class), is(not(sameInstance(c1))));
+    }
+
     /**
      * Test that authorization is properly updated.
      */
@@ -335,6 +360,111 @@ public class AuthorizationTest {
         provider.close();
     }
 
+    /**
+     * Test that valid authorizations are kept in the {@link AuthorizationCache}.
+     */
+    @Test
+    public void testAuthorizationCache() throws Exception {
+        Instant expires = Instant.now().plus(Duration.ofDays(30)).truncatedTo(ChronoUnit.SECONDS);
+
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            private String status = "valid";
+
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) {
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public int sendSignedRequest(URL url, JSONBuilder claims, Login login) {
+                status = "deactivated";
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                JSONBuilder jb = new JSONBuilder();
+                jb.put("status", status);
+                jb.put("expires", expires);
+                jb.put("wildcard", true);
+                jb.object("identifier").put("type", "dns").put("value", "example.org");
+                jb.array("challenges", Collections.emptyList());
+                return jb.toJSON();
+            }
+
+            @Override
+            public void handleRetryAfter(String message) {
+                // do nothing
+            }
+        };
+
+        Login login = provider.createLogin();
+        AuthorizationCache cache = login.getSession().getAuthorizationCache();
+        Identifier wildcard = Identifier.dns("*.example.org");
+
+        Authorization auth = new Authorization(login, locationUrl);
+        auth.update();
+
+        CachedAuthorization cached = cache.get(login.getAccountLocation(), wildcard);
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getLocation(), is(locationUrl));
+        assertThat(cached.getExpires(), is(expires));
+        assertThat(cache.get(login.getAccountLocation(), Identifier.dns("example.org")), is(nullValue()));
+
+        auth.deactivate();
+        assertThat(cache.get(login.getAccountLocation(), wildcard), is(nullValue()));
+
+        provider.close();
+    }
+
+    /**
+     * Test that an authorization with an invalid field can be updated, but is not
+     * cached.
+     */
+    @Test
+    public void testAuthorizationCacheInvalidField() throws Exception {
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) {
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                JSONBuilder jb = new JSONBuilder();
+                jb.put("status", "valid");
+                jb.put("expires", "garbage");
+                jb.object("identifier").put("type", "dns").put("value", "example.org");
+                jb.array("challenges", Collections.emptyList());
+                return jb.toJSON();
+            }
+
+            @Override
+            public void handleRetryAfter(String message) {
+                // do nothing
+            }
+        };
+
+        Login login = provider.createLogin();
+        AuthorizationCache cache = login.getSession().getAuthorizationCache();
+
+        Authorization auth = new Authorization(login, locationUrl);
+        auth.update();
+
+        assertThat(auth.getIdentifier(), is(Identifier.dns("example.org")));
+        assertThat(auth.getStatus(), is(Status.VALID));
+        assertThat(cache.get(login.getAccountLocation(), Identifier.dns("example.org")), is(nullValue()));
+
+        try {
+            auth.getExpires();
+            fail("invalid expires was accepted");
+        } catch (AcmeProtocolException ex) {
+            assertThat(ex.getMessage(), containsString("expires"));
+        }
+
+        provider.close();
+    }
+
     /**
      * Creates an {@link Authorization} instance with a set of challenges.
      */
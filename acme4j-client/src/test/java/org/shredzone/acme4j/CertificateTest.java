@@ -32,6 +32,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.shredzone.acme4j.connector.Resource;
@@ -116,6 +117,43 @@ public class CertificateTest {
         provider.close();
     }
 
+    /**
+     * Test that a certificate can be downloaded asynchronously.
+     */
+    @Test
+    public void testDownloadAsync() throws Exception {
+        final List<X509Certificate> originalCert = TestUtils.createCertificate();
+
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            @Override
+            public int sendCertificateRequest(URL url, Login login) {
+                assertThat(url, is(locationUrl));
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public List<X509Certificate> readCertificates() {
+                return originalCert;
+            }
+
+            @Override
+            public Collection<URL> getLinks(String relation) {
+                return Collections.emptyList();
+            }
+        };
+
+        Certificate cert = new Certificate(provider.createLogin(), locationUrl);
+        List<X509Certificate> downloadedChain = cert.downloadAsync().get(10, TimeUnit.SECONDS);
+
+        assertThat(downloadedChain.size(), is(originalCert.size()));
+        for (int ix = 0; ix < downloadedChain.size(); ix++) {
+            assertThat(downloadedChain.get(ix).getEncoded(), is(originalCert.get(ix).getEncoded()));
+        }
+        assertThat(cert.getCertificate().getEncoded(), is(originalCert.get(0).getEncoded()));
+
+        provider.close();
+    }
+
     /**
      * Test that a certificate can be revoked.
      */
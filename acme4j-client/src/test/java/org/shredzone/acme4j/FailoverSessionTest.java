@@ -0,0 +1,205 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.shredzone.acme4j.connector.CircuitBreaker;
+import org.shredzone.acme4j.exception.AcmeCircuitOpenException;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeHttpException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
+import org.shredzone.acme4j.exception.AcmeServerException;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+import org.shredzone.acme4j.toolbox.TestUtils;
+
+/**
+ * Unit tests for {@link FailoverSession}.
+ */
+public class FailoverSessionTest {
+
+    private Login primary;
+    private Login secondary;
+    private FailoverSession failover;
+
+    @Before
+    public void setup() throws IOException {
+        KeyPair keyPair = TestUtils.createKeyPair();
+        primary = new Session(URI.create("https://ca1.example.com/acme"))
+                .login(url("https://ca1.example.com/acme/acct/1"), keyPair);
+        secondary = new Session(URI.create("https://ca2.example.com:8443/acme"))
+                .login(url("https://ca2.example.com:8443/acme/acct/2"), keyPair);
+        failover = new FailoverSession(primary, secondary);
+    }
+
+    /**
+     * Test that the first available CA is selected.
+     */
+    @Test
+    public void testGetLogin() throws AcmeException {
+        assertThat(failover.getLogins(), contains(primary, secondary));
+        assertThat(failover.getLogin(), is(sameInstance(primary)));
+
+        open(primary);
+        assertThat(failover.getLogin(), is(sameInstance(secondary)));
+
+        open(secondary);
+        try {
+            failover.getLogin();
+            fail("no CA is available");
+        } catch (AcmeCircuitOpenException ex) {
+            assertThat(ex.getRetryAfter(), is(notNullValue()));
+        }
+    }
+
+    /**
+     * Test that resources are pinned to the CA that created them.
+     */
+    @Test
+    public void testPinning() {
+        assertThat(failover.getLogin(url("https://ca1.example.com/acme/order/123")),
+                is(sameInstance(primary)));
+        assertThat(failover.getLogin(url("https://ca2.example.com:8443/acme/order/456")),
+                is(sameInstance(secondary)));
+
+        Order order = failover.bindOrder(url("https://ca2.example.com:8443/acme/order/456"));
+        assertThat(order.getLogin(), is(sameInstance(secondary)));
+
+        // the CA stays pinned, even if it is unavailable
+        open(secondary);
+        assertThat(failover.getLogin(url("https://ca2.example.com:8443/acme/order/456")),
+                is(sameInstance(secondary)));
+
+        try {
+            failover.getLogin(url("https://ca2.example.com/acme/order/456"));
+            fail("found a CA for an unknown resource");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that an operation fails over to the next CA if a CA is unavailable.
+     */
+    @Test
+    public void testExecute() throws AcmeException {
+        List<Login> invoked = new ArrayList<>();
+
+        String result = failover.execute(login -> {
+            invoked.add(login);
+            if (login == primary) {
+                throw new AcmeNetworkException(new IOException("Connection timed out"));
+            }
+            return "ok";
+        });
+        assertThat(result, is("ok"));
+        assertThat(invoked, contains(primary, secondary));
+
+        // unavailable CAs are skipped
+        invoked.clear();
+        open(primary);
+        failover.execute(invoked::add);
+        assertThat(invoked, contains(secondary));
+    }
+
+    /**
+     * Test that an operation fails over to the next CA if a CA responds with a plain
+     * HTTP error that shows that it is unavailable.
+     */
+    @Test
+    public void testExecuteHttpError() throws AcmeException {
+        List<Login> invoked = new ArrayList<>();
+
+        String result = failover.execute(login -> {
+            invoked.add(login);
+            if (login == primary) {
+                throw new AcmeHttpException(HttpURLConnection.HTTP_UNAVAILABLE, "Service Unavailable");
+            }
+            return "ok";
+        });
+        assertThat(result, is("ok"));
+        assertThat(invoked, contains(primary, secondary));
+
+        // client errors do not fail over
+        invoked.clear();
+        try {
+            failover.execute(login -> {
+                invoked.add(login);
+                throw new AcmeHttpException(HttpURLConnection.HTTP_NOT_FOUND, "Not Found");
+            });
+            fail("operation did not fail");
+        } catch (AcmeHttpException ex) {
+            assertThat(ex.getStatus(), is(HttpURLConnection.HTTP_NOT_FOUND));
+        }
+        assertThat(invoked, contains(primary));
+    }
+
+    /**
+     * Test that an operation does not fail over if the CA rejected it.
+     */
+    @Test
+    public void testExecuteRejected() {
+        List<Login> invoked = new ArrayList<>();
+
+        try {
+            failover.execute(login -> {
+                invoked.add(login);
+                throw new AcmeServerException(new Problem(new JSONBuilder()
+                        .put("type", "urn:ietf:params:acme:error:rejectedIdentifier")
+                        .put("detail", "Domain is forbidden")
+                        .toJSON(), url("https://ca1.example.com/acme/new-order")));
+            });
+            fail("operation did not fail");
+        } catch (AcmeException ex) {
+            assertThat(ex.getMessage(), is("Domain is forbidden"));
+        }
+        assertThat(invoked, contains(primary));
+    }
+
+    /**
+     * Test that all failures are reported if the operation failed at all CAs.
+     */
+    @Test
+    public void testExecuteAllFailed() {
+        try {
+            failover.execute(login -> {
+                throw new AcmeNetworkException(new IOException(login.getSession().getServerUri().getHost()));
+            });
+            fail("operation did not fail");
+        } catch (AcmeException ex) {
+            assertThat(ex.getCause().getMessage(), is("ca1.example.com"));
+            assertThat(ex.getSuppressed().length, is(1));
+        }
+    }
+
+    private static void open(Login login) {
+        CircuitBreaker breaker = login.getSession().getCircuitBreaker();
+        for (int ix = 0; ix < breaker.getFailureThreshold(); ix++) {
+            breaker.onFailure();
+        }
+    }
+
+}
@@ -15,6 +15,7 @@ package org.shredzone.acme4j;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 import static org.shredzone.acme4j.toolbox.TestUtils.getJSON;
 import static org.shredzone.acme4j.toolbox.TestUtils.url;
@@ -30,8 +31,10 @@ import org.shredzone.acme4j.challenge.Challenge;
 import org.shredzone.acme4j.challenge.Http01Challenge;
 import org.shredzone.acme4j.provider.AcmeProvider;
 import org.shredzone.acme4j.provider.TestableConnectionProvider;
+import org.shredzone.acme4j.signer.JwsSigner;
 import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
+import org.shredzone.acme4j.toolbox.JoseSigningContext;
 import org.shredzone.acme4j.toolbox.TestUtils;
 
 /**
@@ -61,6 +64,31 @@ public class LoginTest {
         assertThat(login.getAccount().getSession(), is(session));
     }
 
+    /**
+     * Test a login that uses a {@link JwsSigner} instead of a key pair.
+     */
+    @Test
+    public void testSignerConstructor() throws IOException {
+        URL location = url(TestUtils.ACCOUNT_URL);
+        KeyPair keypair = TestUtils.createKeyPair();
+        Session session = TestUtils.session();
+        JwsSigner signer = mock(JwsSigner.class);
+        when(signer.getPublicKey()).thenReturn(keypair.getPublic());
+        when(signer.getAlgorithm()).thenReturn("RS256");
+
+        Login login = session.login(location, signer);
+        assertThat(login.getAccountLocation(), is(location));
+        assertThat(login.getSigner(), is(sameInstance(signer)));
+        assertThat(login.getSigningContext().getSigner(), is(sameInstance(signer)));
+
+        try {
+            login.getKeyPair();
+            fail("key pair of an external signer was returned");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
     /**
      * Test the simple binders.
      */
@@ -105,6 +133,30 @@ public class LoginTest {
         assertThat(login.getKeyPair(), is(keypair2));
     }
 
+    /**
+     * Test that the signing context is reused, and replaced when the keypair changes.
+     */
+    @Test
+    public void testSigningContext() throws IOException {
+        URL location = url(TestUtils.ACCOUNT_URL);
+        KeyPair keypair = TestUtils.createKeyPair();
+        Session session = TestUtils.session();
+
+        Login login = new Login(location, keypair, session);
+        JoseSigningContext context = login.getSigningContext();
+        assertThat(context.getSigner(), is(sameInstance(login.getSigner())));
+        assertThat(context.getSigner().getPublicKey(), is(keypair.getPublic()));
+        assertThat(context.getKeyIdentifier(), is(TestUtils.ACCOUNT_URL));
+        assertThat(login.getSigningContext(), is(sameInstance(context)));
+
+        KeyPair keypair2 = TestUtils.createDomainKeyPair();
+        login.setKeyPair(keypair2);
+        JoseSigningContext context2 = login.getSigningContext();
+        assertThat(context2, is(not(sameInstance(context))));
+        assertThat(context2.getSigner().getPublicKey(), is(keypair2.getPublic()));
+        assertThat(login.getSigningContext(), is(sameInstance(context2)));
+    }
+
     /**
      * Test that challenges are correctly created via provider.
      */
@@ -13,8 +13,10 @@
  */
 package org.shredzone.acme4j;
 
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.shredzone.acme4j.toolbox.AcmeUtils.parseTimestamp;
 import static org.shredzone.acme4j.toolbox.TestUtils.getJSON;
 import static org.shredzone.acme4j.toolbox.TestUtils.url;
@@ -24,10 +26,24 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.challenge.Http01Challenge;
+import org.shredzone.acme4j.connector.AuthorizationCache;
+import org.shredzone.acme4j.connector.CachedAuthorization;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.provider.TestableConnectionProvider;
 import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.JSONBuilder;
@@ -211,6 +227,52 @@ public class OrderTest {
         provider.close();
     }
 
+    /**
+     * Test that order can be finalized asynchronously.
+     */
+    @Test
+    public void testFinalizeAsync() throws Exception {
+        byte[] csr = TestUtils.getResourceAsByteArray("/csr.der");
+
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            private boolean isFinalized = false;
+
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) {
+                assertThat(url, is(locationUrl));
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public int sendSignedRequest(URL url, JSONBuilder claims, Login login) {
+                assertThat(url, is(finalizeUrl));
+                assertThat(claims.toString(), sameJSONAs(getJSON("finalizeRequest").toString()));
+                isFinalized = true;
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                return getJSON(isFinalized ? "finalizeResponse" : "updateOrderResponse");
+            }
+
+            @Override
+            public void handleRetryAfter(String message) {
+                assertThat(message, not(nullValue()));
+            }
+        };
+
+        Login login = provider.createLogin();
+
+        Order order = new Order(login, locationUrl);
+        order.executeAsync(csr).get(10, TimeUnit.SECONDS);
+
+        assertThat(order.getStatus(), is(Status.VALID));
+        assertThat(order.getCertificate().getLocation(), is(url("https://example.com/acme/cert/1234")));
+
+        provider.close();
+    }
+
     /**
      * Test that order is properly updated.
      */
@@ -326,4 +388,315 @@ public class OrderTest {
         provider.close();
     }
 
+    /**
+     * Test that the order data is decoded only once, and decoded again after an update.
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) {
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                return getJSON("updateOrderResponse");
+            }
+
+            @Override
+            public void handleRetryAfter(String message) {
+                assertThat(message, not(nullValue()));
+            }
+        };
+
+        Login login = provider.createLogin();
+
+        Order order = new Order(login, locationUrl);
+        order.update();
+
+        OrderSnapshot snapshot = order.getSnapshot();
+        assertThat(snapshot.getStatus(), is(Status.PENDING));
+        assertThat(order.getSnapshot(), is(sameInstance(snapshot)));
+        assertThat(order.getAuthorizations(), is(sameInstance(snapshot.getAuthorizations())));
+        assertThat(order.getIdentifiers(), is(sameInstance(snapshot.getIdentifiers())));
+        assertThat(order.getCertificate(), is(sameInstance(order.getCertificate())));
+
+        order.update();
+
+        OrderSnapshot updated = order.getSnapshot();
+        assertThat(updated, is(not(sameInstance(snapshot))));
+        assertThat(updated.getAuthorizations(), is(not(sameInstance(snapshot.getAuthorizations()))));
+
+        provider.close();
+    }
+
+    /**
+     * Test that a field that cannot be decoded does not affect the other fields.
+     */
+    @Test
+    public void testSnapshotInvalidField() throws Exception {
+        TestableConnectionProvider provider = new TestableConnectionProvider();
+        Login login = provider.createLogin();
+
+        Order order = new Order(login, locationUrl);
+        order.setJSON(JSON.parse("{\"status\":\"pending\",\"notAfter\":\"tomorrow\","
+                + "\"identifiers\":[],\"authorizations\":[]}"));
+
+        OrderSnapshot snapshot = order.getSnapshot();
+        assertThat(snapshot.getStatus(), is(Status.PENDING));
+        assertThat(snapshot.getNotBefore(), is(nullValue()));
+        assertThat(snapshot.getAuthorizations(), is(empty()));
+
+        try {
+            snapshot.getNotAfter();
+            fail("invalid notAfter was accepted");
+        } catch (AcmeProtocolException ex) {
+            assertThat(ex.getMessage(), containsString("notAfter"));
+        }
+
+        provider.close();
+    }
+
+    /**
+     * Test that all authorizations are fetched concurrently.
+     */
+    @Test
+    public void testFetchAuthorizations() throws Exception {
+        AuthorizationProvider provider = new AuthorizationProvider(8, -1);
+        Login login = provider.createLogin();
+
+        Order order = new Order(login, locationUrl);
+        List<Authorization> auths = order.fetchAuthorizations(3);
+
+        assertThat(auths, hasSize(8));
+        assertThat(auths, is(sameInstance(order.getAuthorizations())));
+        assertThat(provider.fetched, hasSize(8));
+        assertThat(provider.maxRunning.get(), is(both(greaterThan(0)).and(lessThanOrEqualTo(3))));
+
+        provider.fetched.clear();
+        for (int ix = 0; ix < auths.size(); ix++) {
+            assertThat(auths.get(ix).getIdentifier().getDomain(), is(ix + ".example.com"));
+        }
+        assertThat(provider.fetched, is(empty()));
+
+        provider.close();
+    }
+
+    /**
+     * Test that failures of fetching the authorizations are reported.
+     */
+    @Test
+    public void testFetchAuthorizationsFailure() throws Exception {
+        AuthorizationProvider provider = new AuthorizationProvider(4, 1);
+        Login login = provider.createLogin();
+
+        Order order = new Order(login, locationUrl);
+        try {
+            order.fetchAuthorizations(2);
+            fail("failure was not reported");
+        } catch (AcmeException ex) {
+            assertThat(ex.getMessage(), is("authz 1 failed"));
+        }
+
+        assertThat(provider.fetched, hasSize(4));
+
+        provider.close();
+    }
+
+    /**
+     * Test that authorizations can be fetched by tasks of the session executor, even if
+     * all of its threads are busy.
+     */
+    @Test
+    public void testFetchAuthorizationsOnSaturatedExecutor() throws Exception {
+        AuthorizationProvider provider = new AuthorizationProvider(4, -1);
+        Login login = provider.createLogin();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            login.getSession().setExecutor(executor);
+
+            List<CompletableFuture<List<Authorization>>> results = new ArrayList<>();
+            for (int ix = 0; ix < 4; ix++) {
+                Order order = new Order(login, locationUrl);
+                results.add(order.invokeAsync(() -> order.fetchAuthorizations(4)));
+            }
+
+            for (CompletableFuture<List<Authorization>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS), hasSize(4));
+            }
+            assertThat(provider.fetched, hasSize(16));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        provider.close();
+    }
+
+    /**
+     * Test that the challenges of all pending authorizations are triggered.
+     */
+    @Test
+    public void testTriggerChallenges() throws Exception {
+        AuthorizationProvider provider = new AuthorizationProvider(6, -1);
+        Login login = provider.createLogin();
+
+        List<Authorization> selected = new ArrayList<>();
+
+        Order order = new Order(login, locationUrl);
+        List<Challenge> challenges = order.triggerChallenges(4, auth -> {
+            selected.add(auth);
+            return auth.findChallenge(Http01Challenge.class);
+        });
+
+        // only the authorizations with an even index are pending
+        assertThat(selected, hasSize(3));
+        assertThat(challenges, hasSize(3));
+        assertThat(provider.triggered, containsInAnyOrder(
+                url("https://example.com/acme/chall/0"),
+                url("https://example.com/acme/chall/2"),
+                url("https://example.com/acme/chall/4")));
+        for (Challenge challenge : challenges) {
+            assertThat(challenge.getStatus(), is(Status.PROCESSING));
+        }
+
+        provider.close();
+    }
+
+    /**
+     * Test that authorizations known by the {@link AuthorizationCache} are skipped.
+     */
+    @Test
+    public void testAuthorizationCache() throws Exception {
+        AuthorizationProvider provider = new AuthorizationProvider(4, -1);
+        Login login = provider.createLogin();
+
+        Instant expires = Instant.now().plus(Duration.ofDays(1));
+        AuthorizationCache cache = login.getSession().getAuthorizationCache();
+        // reused by the CA for this order
+        cache.put(login.getAccountLocation(), new CachedAuthorization(Identifier.dns("0.example.com"),
+                url("https://example.com/acme/authz/0"), expires));
+        // not reused by the CA, so it must be validated again
+        cache.put(login.getAccountLocation(), new CachedAuthorization(Identifier.dns("2.example.com"),
+                url("https://example.com/acme/authz/99"), expires));
+
+        Order order = new Order(login, locationUrl);
+        assertThat(order.getAuthorizedIdentifiers(), contains(Identifier.dns("0.example.com")));
+        assertThat(order.getAuthorizationsToValidate().stream()
+                .map(Authorization::getLocation)
+                .collect(toList()), contains(
+                        url("https://example.com/acme/authz/1"),
+                        url("https://example.com/acme/authz/2"),
+                        url("https://example.com/acme/authz/3")));
+        assertThat(provider.fetched, is(empty()));
+
+        List<Challenge> challenges = order.triggerChallenges(2,
+                auth -> auth.findChallenge(Http01Challenge.class));
+        assertThat(challenges, hasSize(1));
+        assertThat(provider.fetched, hasSize(3));
+        assertThat(provider.fetched, not(hasItem(url("https://example.com/acme/authz/0"))));
+        assertThat(provider.triggered, contains(url("https://example.com/acme/chall/2")));
+
+        provider.close();
+    }
+
+    /**
+     * A {@link TestableConnectionProvider} that serves an order with the given number of
+     * authorizations. The requests may be sent concurrently.
+     */
+    private class AuthorizationProvider extends TestableConnectionProvider {
+        private final ThreadLocal<URL> request = new ThreadLocal<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final List<URL> fetched = Collections.synchronizedList(new ArrayList<>());
+        private final List<URL> triggered = Collections.synchronizedList(new ArrayList<>());
+        private final int count;
+        private final int failing;
+
+        AuthorizationProvider(int count, int failing) {
+            this.count = count;
+            this.failing = failing;
+            putTestChallenge(Http01Challenge.TYPE, Http01Challenge::new);
+        }
+
+        @Override
+        public int sendSignedPostAsGetRequest(URL url, Login login) throws AcmeException {
+            request.set(url);
+            if (url.equals(locationUrl)) {
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            fetched.add(url);
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5L);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+
+            if (index(url) == failing) {
+                throw new AcmeException("authz " + failing + " failed");
+            }
+            return HttpURLConnection.HTTP_OK;
+        }
+
+        @Override
+        public int sendSignedRequest(URL url, JSONBuilder claims, Login login) {
+            request.set(url);
+            triggered.add(url);
+            return HttpURLConnection.HTTP_OK;
+        }
+
+        @Override
+        public JSON readJsonResponse() {
+            URL url = request.get();
+            if (url.equals(locationUrl)) {
+                List<URL> auths = new ArrayList<>();
+                List<Identifier> identifiers = new ArrayList<>();
+                for (int ix = 0; ix < count; ix++) {
+                    auths.add(url("https://example.com/acme/authz/" + ix));
+                    identifiers.add(Identifier.dns(ix + ".example.com"));
+                }
+                return new JSONBuilder()
+                        .put("status", "pending")
+                        .array("identifiers", identifiers.stream().map(Identifier::toMap).collect(toList()))
+                        .array("authorizations", auths)
+                        .toJSON();
+            }
+
+            int ix = index(url);
+            if (url.getPath().startsWith("/acme/chall/")) {
+                return challenge(ix, "processing").toJSON();
+            }
+
+            JSONBuilder cb = new JSONBuilder();
+            cb.put("status", ix % 2 == 0 ? "pending" : "valid");
+            cb.object("identifier").put("type", "dns").put("value", ix + ".example.com");
+            cb.array("challenges", Collections.singletonList(challenge(ix, "pending").toMap()));
+            return cb.toJSON();
+        }
+
+        @Override
+        public void handleRetryAfter(String message) {
+            // do nothing
+        }
+
+        private int index(URL url) {
+            String path = url.getPath();
+            return Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+        }
+
+        private JSONBuilder challenge(int ix, String status) {
+            return new JSONBuilder()
+                    .put("type", Http01Challenge.TYPE)
+                    .put("status", status)
+                    .put("url", "https://example.com/acme/chall/" + ix)
+                    .put("token", "IlirfxKKXAsHtmzK29Pj8A");
+        }
+    }
+
 }
@@ -25,13 +25,36 @@ import java.net.URL;
 import java.security.KeyPair;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
+import org.shredzone.acme4j.connector.AuthorizationCache;
+import org.shredzone.acme4j.connector.CachedDirectory;
+import org.shredzone.acme4j.connector.DirectoryCache;
+import org.shredzone.acme4j.connector.DummyConnection;
+import org.shredzone.acme4j.connector.MemoryAuthorizationCache;
+import org.shredzone.acme4j.connector.MemoryDirectoryCache;
+import org.shredzone.acme4j.connector.CircuitBreaker;
+import org.shredzone.acme4j.connector.MetricsAggregator;
+import org.shredzone.acme4j.connector.MetricsListener;
+import org.shredzone.acme4j.connector.RateLimiter;
 import org.shredzone.acme4j.connector.Resource;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.provider.AcmeProvider;
 import org.shredzone.acme4j.provider.GenericAcmeProvider;
+import org.shredzone.acme4j.toolbox.JSON;
 import org.shredzone.acme4j.toolbox.TestUtils;
 
 /**
@@ -39,6 +62,8 @@ import org.shredzone.acme4j.toolbox.TestUtils;
  */
 public class SessionTest {
 
+    private static final int THREADS = 32;
+
     /**
      * Test constructor
      */
@@ -92,6 +117,40 @@ public class SessionTest {
         assertThat(session.getNonce(), is(nullValue()));
         session.setNonce(DUMMY_NONCE);
         assertThat(session.getNonce(), is(equalTo(DUMMY_NONCE)));
+        assertThat(session.noncePool().size(), is(1));
+        session.setNonce(null);
+        assertThat(session.getNonce(), is(nullValue()));
+        assertThat(session.noncePool().size(), is(0));
+
+        assertThat(session.getExecutor(), is(notNullValue()));
+        Executor executor = Runnable::run;
+        session.setExecutor(executor);
+        assertThat(session.getExecutor(), is(sameInstance(executor)));
+        session.setExecutor(null);
+        assertThat(session.getExecutor(), is(not(sameInstance(executor))));
+
+        assertThat(session.getRateLimiter().getLimits(), is(empty()));
+        assertThat(session.getRateLimiter(), is(sameInstance(session.getRateLimiter())));
+        RateLimiter limiter = new RateLimiter();
+        session.setRateLimiter(limiter);
+        assertThat(session.getRateLimiter(), is(sameInstance(limiter)));
+
+        assertThat(session.getCircuitBreaker().getState(), is(CircuitBreaker.State.CLOSED));
+        CircuitBreaker breaker = new CircuitBreaker();
+        session.setCircuitBreaker(breaker);
+        assertThat(session.getCircuitBreaker(), is(sameInstance(breaker)));
+
+        assertThat(session.getMetricsListener(), is(sameInstance(MetricsListener.NONE)));
+        MetricsAggregator aggregator = new MetricsAggregator();
+        session.setMetricsListener(aggregator);
+        assertThat(session.getMetricsListener(), is(sameInstance(aggregator)));
+        session.setMetricsListener(null);
+        assertThat(session.getMetricsListener(), is(sameInstance(MetricsListener.NONE)));
+
+        assertThat(session.getAuthorizationCache(), is(instanceOf(MemoryAuthorizationCache.class)));
+        AuthorizationCache authCache = new MemoryAuthorizationCache();
+        session.setAuthorizationCache(authCache);
+        assertThat(session.getAuthorizationCache(), is(sameInstance(authCache)));
 
         assertThat(session.getServerUri(), is(serverUri));
         assertThat(session.networkSettings(), is(notNullValue()));
@@ -119,6 +178,7 @@ public class SessionTest {
      * Test that the directory is properly read and cached.
      */
     @Test
+    @SuppressWarnings("deprecation")
     public void testDirectory() throws AcmeException, IOException {
         URI serverUri = URI.create(TestUtils.ACME_SERVER_URI);
 
@@ -143,13 +203,325 @@ public class SessionTest {
                         ArgumentMatchers.any(URI.class));
 
         // Simulate a cache expiry
-        session.directoryCacheExpiry = Instant.now();
+        session.getDirectoryCache().remove(serverUri);
 
         // Make sure directory is read once again
         assertSession(session);
         verify(mockProvider, times(2)).directory(
                         ArgumentMatchers.any(Session.class),
                         ArgumentMatchers.any(URI.class));
+
+        // Simulate a cache expiry, the deprecated way
+        session.directoryCacheExpiry = Instant.now();
+
+        // Make sure directory is read once again
+        assertSession(session);
+        verify(mockProvider, times(3)).directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.any(URI.class));
+        assertThat(session.directoryCacheExpiry, is(greaterThan(Instant.now())));
+    }
+
+    /**
+     * Test that sessions sharing a {@link DirectoryCache} read the directory only once.
+     */
+    @Test
+    public void testSharedDirectoryCache() throws AcmeException, IOException {
+        URI serverUri = URI.create(TestUtils.ACME_SERVER_URI);
+        DirectoryCache cache = new MemoryDirectoryCache();
+
+        final AcmeProvider mockProvider = mock(AcmeProvider.class);
+        when(mockProvider.directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.eq(serverUri)))
+                .thenAnswer(inv -> getJSON("directory"));
+
+        Session session1 = new Session(serverUri) {
+            @Override
+            public AcmeProvider provider() {
+                return mockProvider;
+            }
+        };
+        session1.setDirectoryCache(cache);
+        assertThat(session1.getDirectoryCache(), is(sameInstance(cache)));
+
+        Session session2 = new Session(serverUri) {
+            @Override
+            public AcmeProvider provider() {
+                return mockProvider;
+            }
+        };
+        session2.setDirectoryCache(cache);
+
+        assertSession(session1);
+        assertSession(session2);
+
+        verify(mockProvider, times(1)).directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.any(URI.class));
+
+        // A directory that was refreshed by one session is used by the other one
+        JSON changed = getJSON("directory");
+        cache.put(serverUri, new CachedDirectory(changed,
+                Instant.now().plus(Duration.ofHours(1)), null, null));
+        assertSession(session2);
+        assertSession(session1);
+
+        verify(mockProvider, times(1)).directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.any(URI.class));
+    }
+
+    /**
+     * Test that the session warm-up reads the directory, and fetches nonces in parallel.
+     */
+    @Test
+    public void testWarmUp() throws Exception {
+        URI serverUri = URI.create(TestUtils.ACME_SERVER_URI);
+        int connections = 4;
+        AtomicInteger nonceFetches = new AtomicInteger();
+        CountDownLatch parallel = new CountDownLatch(connections);
+
+        final AcmeProvider mockProvider = mock(AcmeProvider.class);
+        when(mockProvider.directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.eq(serverUri)))
+                .thenReturn(getJSON("directory"));
+        when(mockProvider.connect(serverUri)).thenAnswer(inv -> new DummyConnection() {
+            @Override
+            public void resetNonce(Session session) throws AcmeException {
+                int count = nonceFetches.incrementAndGet();
+                parallel.countDown();
+                try {
+                    // all connections must be opened at the same time
+                    assertThat(parallel.await(10, TimeUnit.SECONDS), is(true));
+                } catch (InterruptedException ex) {
+                    throw new AcmeException("interrupted", ex);
+                }
+                session.setNonce("nonce" + count);
+            }
+        });
+
+        Session session = new Session(serverUri) {
+            @Override
+            public AcmeProvider provider() {
+                return mockProvider;
+            }
+        };
+
+        WarmUpReport report = session.warmUp(connections);
+        assertThat(report.getConnections(), is(connections));
+        assertThat(report.getNonces(), is(connections));
+        assertThat(report.getDirectoryTime(), is(notNullValue()));
+        assertThat(report.getConnectionTime(), is(notNullValue()));
+        assertThat(report.getTotalTime(),
+                is(report.getDirectoryTime().plus(report.getConnectionTime())));
+        assertThat(report.toString(), containsString(connections + " connections"));
+
+        assertThat(nonceFetches.get(), is(connections));
+        assertThat(session.noncePool().size(), is(connections));
+        verify(mockProvider, times(1)).directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.any(URI.class));
+
+        try {
+            session.warmUp(0);
+            fail("accepted 0 connections");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that a failed warm-up is reported.
+     */
+    @Test
+    public void testWarmUpFailure() throws Exception {
+        URI serverUri = URI.create(TestUtils.ACME_SERVER_URI);
+
+        final AcmeProvider mockProvider = mock(AcmeProvider.class);
+        when(mockProvider.directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.eq(serverUri)))
+                .thenReturn(getJSON("directory"));
+        when(mockProvider.connect(serverUri)).thenAnswer(inv -> new DummyConnection() {
+            @Override
+            public void resetNonce(Session session) throws AcmeException {
+                throw new AcmeException("no nonce");
+            }
+        });
+
+        Session session = new Session(serverUri) {
+            @Override
+            public AcmeProvider provider() {
+                return mockProvider;
+            }
+        };
+
+        try {
+            session.warmUp(2);
+            fail("warm-up did not fail");
+        } catch (AcmeException ex) {
+            assertThat(ex.getMessage(), is("no nonce"));
+        }
+    }
+
+    /**
+     * Stress test that many threads sharing a {@link Session} fetch the directory only
+     * once.
+     */
+    @Test
+    public void testConcurrentDirectory() throws Exception {
+        URI serverUri = URI.create(TestUtils.ACME_SERVER_URI);
+        AtomicInteger fetches = new AtomicInteger();
+
+        AcmeProvider mockProvider = mock(AcmeProvider.class);
+        when(mockProvider.directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.eq(serverUri)))
+                .thenAnswer(inv -> {
+                    fetches.incrementAndGet();
+                    Thread.sleep(100L); // widen the window for races
+                    return getJSON("directory");
+                });
+
+        Session session = new Session(serverUri) {
+            @Override
+            public AcmeProvider provider() {
+                return mockProvider;
+            }
+        };
+
+        runConcurrently(THREADS, () -> {
+            for (int ix = 0; ix < 100; ix++) {
+                assertThat(session.resourceUrl(Resource.NEW_ORDER),
+                        is(url("https://example.com/acme/new-order")));
+                assertThat(session.getMetadata().isStarEnabled(), is(true));
+            }
+            return null;
+        });
+
+        assertThat(fetches.get(), is(1));
+
+        // Simulate a cache expiry, the directory must be refreshed exactly once
+        session.getDirectoryCache().remove(serverUri);
+
+        runConcurrently(THREADS, () -> {
+            assertThat(session.resourceUrl(Resource.NEW_ORDER),
+                    is(url("https://example.com/acme/new-order")));
+            return null;
+        });
+
+        assertThat(fetches.get(), is(2));
+    }
+
+    /**
+     * Test that a failed directory fetch is reported to all waiting threads, and is
+     * retried on the next access.
+     */
+    @Test
+    public void testConcurrentDirectoryFailure() throws Exception {
+        URI serverUri = URI.create(TestUtils.ACME_SERVER_URI);
+        AtomicInteger fetches = new AtomicInteger();
+
+        AcmeProvider mockProvider = mock(AcmeProvider.class);
+        when(mockProvider.directory(
+                        ArgumentMatchers.any(Session.class),
+                        ArgumentMatchers.eq(serverUri)))
+                .thenAnswer(inv -> {
+                    Thread.sleep(100L);
+                    if (fetches.incrementAndGet() == 1) {
+                        throw new AcmeException("Server is down");
+                    }
+                    return getJSON("directory");
+                });
+
+        Session session = new Session(serverUri) {
+            @Override
+            public AcmeProvider provider() {
+                return mockProvider;
+            }
+        };
+
+        List<Object> results = runConcurrently(THREADS, () -> {
+            try {
+                return session.resourceUrl(Resource.NEW_ORDER);
+            } catch (AcmeException ex) {
+                return ex;
+            }
+        });
+
+        assertThat(fetches.get(), is(lessThanOrEqualTo(2)));
+        assertThat(results, hasItem(instanceOf(AcmeException.class)));
+
+        assertThat(session.resourceUrl(Resource.NEW_ORDER),
+                is(url("https://example.com/acme/new-order")));
+    }
+
+    /**
+     * Stress test that a nonce is never handed out twice, even if many threads are
+     * taking and harvesting nonces of the same {@link Session} at the same time.
+     */
+    @Test
+    public void testConcurrentNonces() throws Exception {
+        Session session = new Session(URI.create(TestUtils.ACME_SERVER_URI));
+        AtomicInteger serverNonces = new AtomicInteger();
+        Set<String> usedNonces = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(THREADS, () -> {
+            for (int ix = 0; ix < 1000; ix++) {
+                String nonce = session.noncePool().poll();
+                if (nonce == null) {
+                    // simulate a HEAD request to newNonce
+                    session.setNonce("nonce-" + serverNonces.incrementAndGet());
+                    continue;
+                }
+
+                if (!usedNonces.add(nonce)) {
+                    fail("nonce " + nonce + " was used twice");
+                }
+
+                // simulate the Replay-Nonce header of the response
+                session.setNonce("nonce-" + serverNonces.incrementAndGet());
+            }
+            return null;
+        });
+
+        assertThat(usedNonces.size(), is(greaterThan(0)));
+        assertThat(usedNonces.size() + session.noncePool().size(),
+                is(lessThanOrEqualTo(serverNonces.get())));
+    }
+
+    /**
+     * Runs a task in many threads at the same time, and waits for all of them to finish.
+     *
+     * @param threads
+     *            Number of threads
+     * @param task
+     *            Task to run
+     * @return List of the results of all tasks
+     */
+    private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int ix = 0; ix < threads; ix++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
@@ -172,6 +544,9 @@ public class SessionTest {
             }
         };
 
+        assertThat(session.findResource(new URL("https://example.com/acme/new-order")),
+                        is(nullValue()));
+
         assertThat(session.resourceUrl(Resource.NEW_ACCOUNT),
                         is(new URL("https://example.com/acme/new-account")));
         assertThat(session.resourceUrl(Resource.NEW_AUTHZ),
@@ -179,6 +554,11 @@ public class SessionTest {
         assertThat(session.resourceUrl(Resource.NEW_ORDER),
                         is(new URL("https://example.com/acme/new-order")));
 
+        assertThat(session.findResource(new URL("https://example.com/acme/new-order")),
+                        is(Resource.NEW_ORDER));
+        assertThat(session.findResource(new URL("https://example.com/acme/order/1")),
+                        is(nullValue()));
+
         Metadata meta = session.getMetadata();
         assertThat(meta, not(nullValue()));
         assertThat(meta.getTermsOfService(), is(nullValue()));
@@ -0,0 +1,173 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.shredzone.acme4j.toolbox.TestUtils.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.shredzone.acme4j.toolbox.MappedJournal;
+
+/**
+ * Unit tests for {@link StateJournal}.
+ */
+public class StateJournalTest {
+
+    private final URL orderUrl = url("https://example.com/acme/order/1234");
+    private final URL authUrl = url("https://example.com/acme/authz/1234");
+    private final URL certUrl = url("https://example.com/acme/cert/1234");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that logins and resources can be restored from the journal.
+     */
+    @Test
+    public void testRestore() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("state");
+        Login login = login();
+
+        try (StateJournal journal = new StateJournal(file)) {
+            Order order = new Order(login, orderUrl);
+            order.setJSON(getJSON("updateOrderResponse"));
+            Authorization auth = new Authorization(login, authUrl);
+            auth.setJSON(getJSON("updateAuthorizationResponse"));
+
+            journal.putLogin(login);
+            journal.put(order);
+            journal.put(auth);
+            journal.put(new Certificate(login, certUrl));
+            journal.remove(certUrl);
+        }
+
+        KeyPair keyPair = createKeyPair();
+        try (StateJournal journal = new StateJournal(file)) {
+            URL account = url(ACCOUNT_URL);
+            assertThat(journal.getAccounts(), contains(account));
+            assertThat(journal.getServerUri(account), is(URI.create(ACME_SERVER_URI)));
+            assertThat(journal.getServerUri(url("https://example.com/acme/account/2")), is(nullValue()));
+
+            Login restored = journal.restoreLogin(account, keyPair);
+            assertThat(restored.getAccountLocation(), is(account));
+            assertThat(restored.getKeyPair(), is(sameInstance(keyPair)));
+            assertThat(restored.getSession().getServerUri(), is(URI.create(ACME_SERVER_URI)));
+
+            List<AcmeResource> resources = journal.restore(restored);
+            assertThat(resources, hasSize(2));
+            for (AcmeResource resource : resources) {
+                assertThat(resource.getLogin(), is(sameInstance(restored)));
+            }
+
+            List<Order> orders = journal.restore(restored, Order.class);
+            assertThat(orders, hasSize(1));
+            Order order = orders.get(0);
+            assertThat(order.getLocation(), is(orderUrl));
+            assertThat(order.getStatus(), is(Status.PENDING));
+            assertThat(order.getAuthorizations().get(0).getLocation(), is(authUrl));
+
+            List<Authorization> auths = journal.restore(restored, Authorization.class);
+            assertThat(auths, hasSize(1));
+            assertThat(auths.get(0).getIdentifier().getDomain(), is("example.org"));
+
+            assertThat(journal.restore(restored, Certificate.class), is(empty()));
+
+            // Resources of other accounts are not restored
+            Login other = new Session(URI.create(ACME_SERVER_URI))
+                    .login(url("https://example.com/acme/account/2"), keyPair);
+            assertThat(journal.restore(other), is(empty()));
+        }
+    }
+
+    /**
+     * Test that only acme4j resources and the JDK classes they contain are deserialized.
+     */
+    @Test
+    public void testClassFilter() throws Exception {
+        List<X509Certificate> chain = createCertificate();
+        ArrayList<Object> accepted = new ArrayList<>(chain);
+        accepted.add(url(ACCOUNT_URL));
+        accepted.add(Instant.now());
+        assertThat(deserialize(accepted), is(accepted));
+        assertThat(deserialize(new byte[] {1, 2, 3}), is(new byte[] {1, 2, 3}));
+
+        try {
+            deserialize(new ArrayList<>(Collections.singletonList(new AtomicInteger(1))));
+            fail("accepted a class that is not contained in resources");
+        } catch (InvalidClassException ex) {
+            assertThat(ex.getMessage(), containsString(AtomicInteger.class.getName()));
+        }
+
+        Path file = folder.getRoot().toPath().resolve("state");
+        try (MappedJournal journal = new MappedJournal(file)) {
+            journal.put("resource " + orderUrl, serialize(ACCOUNT_URL, new AtomicInteger(1)));
+        }
+        try (StateJournal journal = new StateJournal(file)) {
+            assertThat(journal.restore(login()), is(empty()));
+        }
+    }
+
+    /**
+     * Test that an unknown login cannot be restored.
+     */
+    @Test
+    public void testUnknownLogin() throws IOException {
+        try (StateJournal journal = new StateJournal(folder.getRoot().toPath().resolve("state"))) {
+            assertThat(journal.getAccounts(), is(empty()));
+            journal.restoreLogin(url(ACCOUNT_URL), createKeyPair());
+            fail("restored an unknown login");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static byte[] serialize(String account, Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeUTF(account);
+            oos.writeObject(object);
+        }
+        return out.toByteArray();
+    }
+
+    private static Object deserialize(Object object) throws Exception {
+        byte[] data = serialize(ACCOUNT_URL, object);
+        try (ObjectInputStream ois = new StateJournal.ResourceInputStream(new ByteArrayInputStream(data))) {
+            ois.readUTF();
+            return ois.readObject();
+        }
+    }
+
+}
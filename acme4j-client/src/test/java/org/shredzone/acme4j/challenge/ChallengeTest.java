@@ -13,6 +13,7 @@
  */
 package org.shredzone.acme4j.challenge;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
@@ -27,6 +28,10 @@ import java.net.URI;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.shredzone.acme4j.Login;
@@ -199,6 +204,108 @@ public class ChallengeTest {
         provider.close();
     }
 
+    /**
+     * Test that a challenge can be triggered and updated asynchronously.
+     */
+    @Test
+    public void testAsync() throws Exception {
+        final Instant retryAfter = Instant.now().plus(Duration.ofSeconds(30));
+
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            private boolean isUpdated = false;
+
+            @Override
+            public int sendSignedRequest(URL url, JSONBuilder claims, Login login) {
+                assertThat(url, is(locationUrl));
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) {
+                assertThat(url, is(locationUrl));
+                isUpdated = true;
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                return getJSON(isUpdated ? "updateHttpChallengeResponse" : "triggerHttpChallengeResponse");
+            }
+
+            @Override
+            public void handleRetryAfter(String message) throws AcmeException {
+                throw new AcmeRetryAfterException(message, retryAfter);
+            }
+        };
+
+        Login login = provider.createLogin();
+
+        Challenge challenge = new Http01Challenge(login, getJSON("triggerHttpChallenge"));
+
+        challenge.triggerAsync().get(10, TimeUnit.SECONDS);
+        assertThat(challenge.getStatus(), is(Status.PENDING));
+
+        try {
+            challenge.updateAsync().get(10, TimeUnit.SECONDS);
+            fail("Expected AcmeRetryAfterException");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(AcmeRetryAfterException.class)));
+            assertThat(((AcmeRetryAfterException) ex.getCause()).getRetryAfter(), is(retryAfter));
+        }
+
+        assertThat(challenge.getStatus(), is(Status.VALID));
+
+        provider.close();
+    }
+
+    /**
+     * Test that asynchronous operations use the executor that was passed in.
+     */
+    @Test
+    public void testAsyncExecutor() throws Exception {
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            @Override
+            public int sendSignedRequest(URL url, JSONBuilder claims, Login login) {
+                assertThat(url, is(locationUrl));
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) {
+                assertThat(url, is(locationUrl));
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                return getJSON("updateHttpChallengeResponse");
+            }
+
+            @Override
+            public void handleRetryAfter(String message) {
+                // do nothing
+            }
+        };
+
+        Login login = provider.createLogin();
+        login.getSession().setExecutor(task -> fail("session executor was used"));
+
+        AtomicInteger executed = new AtomicInteger();
+        Executor executor = task -> {
+            executed.incrementAndGet();
+            task.run();
+        };
+
+        Challenge challenge = new Http01Challenge(login, getJSON("triggerHttpChallenge"));
+        challenge.triggerAsync(executor).get(10, TimeUnit.SECONDS);
+        challenge.updateAsync(executor).get(10, TimeUnit.SECONDS);
+
+        assertThat(executed.get(), is(2));
+        assertThat(challenge.getStatus(), is(Status.VALID));
+
+        provider.close();
+    }
+
     /**
      * Test that unmarshalling something different like a challenge fails.
      */
@@ -0,0 +1,197 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.Test;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
+import org.shredzone.acme4j.exception.AcmeServerException;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+
+/**
+ * Unit tests for {@link BackoffRetryPolicy}.
+ */
+public class BackoffRetryPolicyTest {
+
+    private static final URL URL = url("https://example.com/acme/new-order");
+
+    /**
+     * Test that idempotent requests are retried after transient failures, with an
+     * exponential backoff.
+     */
+    @Test
+    public void testIdempotentRetries() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setInitialDelay(Duration.ofSeconds(1));
+        policy.setMaxDelay(Duration.ofSeconds(3));
+        policy.setMaxAttempts(4);
+
+        AcmeException network = new AcmeNetworkException(new IOException("Connection reset"));
+
+        Duration d1 = policy.getRetryDelay(get(1, 0, null, network));
+        assertThat(d1, is(both(greaterThanOrEqualTo(Duration.ofMillis(500))).and(lessThan(Duration.ofSeconds(1)))));
+
+        Duration d2 = policy.getRetryDelay(get(2, HttpURLConnection.HTTP_BAD_GATEWAY, null, http(502)));
+        assertThat(d2, is(both(greaterThanOrEqualTo(Duration.ofSeconds(1))).and(lessThan(Duration.ofSeconds(2)))));
+
+        Duration d3 = policy.getRetryDelay(get(3, HttpURLConnection.HTTP_GATEWAY_TIMEOUT, null, http(504)));
+        assertThat(d3, is(both(greaterThanOrEqualTo(Duration.ofMillis(1500))).and(lessThan(Duration.ofSeconds(3)))));
+
+        // maximum number of attempts reached
+        assertThat(policy.getRetryDelay(get(4, 0, null, network)), is(nullValue()));
+    }
+
+    /**
+     * Test that permanent failures are not retried.
+     */
+    @Test
+    public void testPermanentFailures() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+
+        assertThat(policy.getRetryDelay(get(1, HttpURLConnection.HTTP_FORBIDDEN, null,
+                problem("urn:ietf:params:acme:error:unauthorized"))), is(nullValue()));
+        assertThat(policy.getRetryDelay(get(1, 429, null,
+                problem("urn:ietf:params:acme:error:rateLimited"))), is(nullValue()));
+        assertThat(policy.getRetryDelay(get(1, HttpURLConnection.HTTP_NOT_FOUND, null, http(404))),
+                is(nullValue()));
+
+        // serverInternal is transient, regardless of the status code
+        assertThat(policy.getRetryDelay(get(1, HttpURLConnection.HTTP_INTERNAL_ERROR, null,
+                problem("urn:ietf:params:acme:error:serverInternal"))), is(notNullValue()));
+    }
+
+    /**
+     * Test that requests that are not idempotent are only retried if the server has not
+     * processed them.
+     */
+    @Test
+    public void testNonIdempotentRetries() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+
+        assertThat(policy.getRetryDelay(post(HttpURLConnection.HTTP_INTERNAL_ERROR, http(500))),
+                is(nullValue()));
+        assertThat(policy.getRetryDelay(post(0,
+                new AcmeNetworkException(new IOException("Connection reset")))), is(nullValue()));
+
+        assertThat(policy.getRetryDelay(post(HttpURLConnection.HTTP_UNAVAILABLE, http(503))),
+                is(notNullValue()));
+        assertThat(policy.getRetryDelay(post(0,
+                new AcmeNetworkException(new ConnectException("Connection refused")))), is(notNullValue()));
+    }
+
+    /**
+     * Test that the Retry-After header is respected.
+     */
+    @Test
+    public void testRetryAfter() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setInitialDelay(Duration.ofMillis(100));
+        policy.setMaxRetryAfter(Duration.ofMinutes(1));
+
+        Instant retryAfter = Instant.now().plusSeconds(10L);
+        Duration delay = policy.getRetryDelay(get(1, HttpURLConnection.HTTP_UNAVAILABLE, retryAfter, http(503)));
+        assertThat(delay, is(both(greaterThan(Duration.ofSeconds(9))).and(lessThan(Duration.ofMillis(10100)))));
+
+        Instant tooLate = Instant.now().plus(Duration.ofMinutes(2));
+        assertThat(policy.getRetryDelay(get(1, HttpURLConnection.HTTP_UNAVAILABLE, tooLate, http(503))),
+                is(nullValue()));
+    }
+
+    /**
+     * Test that retries stop when the retry budget is exhausted.
+     */
+    @Test
+    public void testRetryBudget() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setRetryBudget(2, Duration.ofHours(1));
+
+        AcmeException failure = http(503);
+        assertThat(policy.getRetryDelay(get(1, 503, null, failure)), is(notNullValue()));
+        assertThat(policy.getRetryDelay(get(1, 503, null, failure)), is(notNullValue()));
+        assertThat(policy.getRetryDelay(get(1, 503, null, failure)), is(nullValue()));
+
+        policy.setRetryBudget(0, Duration.ofSeconds(1));
+        assertThat(policy.getRetryDelay(get(1, 503, null, failure)), is(nullValue()));
+    }
+
+    /**
+     * Test parameter validation.
+     */
+    @Test
+    public void testInvalidParameters() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+
+        try {
+            policy.setMaxAttempts(0);
+            fail("accepted 0 attempts");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        try {
+            policy.setInitialDelay(Duration.ZERO);
+            fail("accepted zero delay");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        try {
+            policy.setRetryBudget(-1, Duration.ofSeconds(1));
+            fail("accepted negative budget");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that {@link RetryPolicy#NONE} never retries.
+     */
+    @Test
+    public void testNone() {
+        assertThat(RetryPolicy.NONE.getRetryDelay(get(1, 503, null, http(503))), is(nullValue()));
+    }
+
+    private static FailedRequest get(int attempt, int status, Instant retryAfter, AcmeException failure) {
+        return new FailedRequest(URL, "GET", true, attempt, status, retryAfter, failure);
+    }
+
+    private static FailedRequest post(int status, AcmeException failure) {
+        return new FailedRequest(URL, "POST", false, 1, status, null, failure);
+    }
+
+    private static AcmeException http(int status) {
+        return new AcmeException("HTTP " + status);
+    }
+
+    private static AcmeServerException problem(String type) {
+        return new AcmeServerException(new Problem(new JSONBuilder()
+                .put("type", type)
+                .put("detail", "Something went wrong")
+                .toJSON(), URL));
+    }
+
+}
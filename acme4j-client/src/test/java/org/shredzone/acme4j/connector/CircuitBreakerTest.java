@@ -0,0 +1,209 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.shredzone.acme4j.connector.CircuitBreaker.State;
+import org.shredzone.acme4j.exception.AcmeCircuitOpenException;
+
+/**
+ * Unit tests for {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * Test that the circuit is opened after consecutive failures, half-opened after the
+     * open duration, and closed again on success.
+     */
+    @Test
+    public void testStates() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.setFailureThreshold(3);
+        breaker.setOpenDuration(Duration.ofMillis(100));
+
+        assertThat(breaker.getState(), is(State.CLOSED));
+        assertThat(breaker.isAvailable(), is(true));
+        assertThat(breaker.getOpenUntil(), is(nullValue()));
+
+        // a success resets the failure counter
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState(), is(State.CLOSED));
+        breaker.acquire();
+
+        breaker.onFailure();
+        assertThat(breaker.getState(), is(State.OPEN));
+        assertThat(breaker.isAvailable(), is(false));
+        assertThat(breaker.getOpenUntil(), is(greaterThan(Instant.now())));
+
+        try {
+            breaker.acquire();
+            fail("open circuit permitted a request");
+        } catch (AcmeCircuitOpenException ex) {
+            assertThat(ex.getRetryAfter(), is(breaker.getOpenUntil()));
+        }
+
+        Thread.sleep(150L);
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+        breaker.acquire();
+
+        // a failure while half-open opens the circuit again
+        breaker.onFailure();
+        assertThat(breaker.getState(), is(State.OPEN));
+
+        Thread.sleep(150L);
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+        breaker.onSuccess();
+        assertThat(breaker.getState(), is(State.CLOSED));
+    }
+
+    /**
+     * Test that only a single trial request is permitted while the circuit is half-open,
+     * even if several threads try to send a request at the same time.
+     */
+    @Test
+    public void testSingleTrialRequest() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.setFailureThreshold(1);
+        breaker.setOpenDuration(Duration.ofMillis(100));
+
+        breaker.onFailure();
+        assertThat(breaker.getState(), is(State.OPEN));
+        Thread.sleep(150L);
+
+        int threads = 8;
+        assertThat(concurrentAcquires(breaker, threads), is(1));
+        assertThat(breaker.getState(), is(State.HALF_OPEN));
+
+        // a failing trial request opens the circuit again
+        breaker.onFailure();
+        assertThat(breaker.getState(), is(State.OPEN));
+        Thread.sleep(150L);
+
+        // an aborted trial request permits another trial request
+        assertThat(concurrentAcquires(breaker, threads), is(1));
+        breaker.onAbort();
+        assertThat(concurrentAcquires(breaker, threads), is(1));
+
+        // a successful trial request closes the circuit for everyone
+        breaker.onSuccess();
+        assertThat(breaker.getState(), is(State.CLOSED));
+        assertThat(concurrentAcquires(breaker, threads), is(threads));
+    }
+
+    /**
+     * Test that a trial request that never reports its outcome does not block the
+     * circuit forever.
+     */
+    @Test
+    public void testTrialRequestExpires() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.setFailureThreshold(1);
+        breaker.setOpenDuration(Duration.ofMillis(100));
+
+        breaker.onFailure();
+        Thread.sleep(150L);
+        breaker.acquire();
+
+        try {
+            breaker.acquire();
+            fail("permitted a second trial request");
+        } catch (AcmeCircuitOpenException ex) {
+            assertThat(ex.getRetryAfter(), is(greaterThan(Instant.now())));
+        }
+
+        Thread.sleep(150L);
+        breaker.acquire();
+    }
+
+    /**
+     * Test parameter validation.
+     */
+    @Test
+    public void testInvalidParameters() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        assertThat(breaker.getFailureThreshold(), is(5));
+        assertThat(breaker.getOpenDuration(), is(Duration.ofSeconds(30)));
+
+        try {
+            breaker.setFailureThreshold(0);
+            fail("accepted threshold of 0");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        try {
+            breaker.setOpenDuration(Duration.ZERO);
+            fail("accepted zero duration");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Invokes {@link CircuitBreaker#acquire()} from several threads at the same time.
+     *
+     * @return Number of threads that were permitted to send a request
+     */
+    private static int concurrentAcquires(CircuitBreaker breaker, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int ix = 0; ix < threads; ix++) {
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    try {
+                        breaker.acquire();
+                        return true;
+                    } catch (AcmeCircuitOpenException ex) {
+                        return false;
+                    }
+                }));
+            }
+            ready.await();
+            go.countDown();
+
+            int permitted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    permitted++;
+                }
+            }
+            return permitted;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
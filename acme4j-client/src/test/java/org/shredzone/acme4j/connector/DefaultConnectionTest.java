@@ -34,6 +34,7 @@ import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
@@ -50,6 +51,8 @@ import org.mockito.ArgumentMatchers;
 import org.shredzone.acme4j.Login;
 import org.shredzone.acme4j.Session;
 import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeHttpException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.exception.AcmeRateLimitedException;
 import org.shredzone.acme4j.exception.AcmeRetryAfterException;
@@ -95,6 +98,9 @@ public class DefaultConnectionTest {
         session = TestUtils.session(mockProvider);
         session.setLocale(Locale.JAPAN);
 
+        // tests that need retries set their own policy
+        session.networkSettings().setRetryPolicy(RetryPolicy.NONE);
+
         keyPair = TestUtils.createKeyPair();
 
         login = session.login(accountUrl, keyPair);
@@ -545,6 +551,46 @@ public class DefaultConnectionTest {
         verify(mockUrlConnection, atLeastOnce()).getURL();
     }
 
+    /**
+     * Test that the {@code Retry-After} of a rate limited request is respected by
+     * further requests, without connecting to the server.
+     */
+    @Test
+    public void testRateLimitedRequestIsHeldBack() throws Exception {
+        String jsonData = "{\"type\":\"urn:ietf:params:acme:error:rateLimited\",\"detail\":\"Too many invocations\"}";
+
+        Instant retryAfter = Instant.now().plusSeconds(30L).truncatedTo(ChronoUnit.MILLIS);
+
+        when(mockUrlConnection.getHeaderField("Content-Type")).thenReturn("application/problem+json");
+        when(mockUrlConnection.getContentLength()).thenReturn(jsonData.length());
+        when(mockUrlConnection.getHeaderField("Retry-After")).thenReturn(retryAfter.toString());
+        when(mockUrlConnection.getHeaderFieldDate("Retry-After", 0L)).thenReturn(retryAfter.toEpochMilli());
+        when(mockUrlConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_FORBIDDEN);
+        when(mockUrlConnection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        when(mockUrlConnection.getErrorStream()).thenReturn(new ByteArrayInputStream(jsonData.getBytes("utf-8")));
+        when(mockUrlConnection.getURL()).thenReturn(url("https://example.com/acme/1"));
+
+        session.setNonce(TestUtils.DUMMY_NONCE);
+        session.getRateLimiter().setMaxWait(Duration.ZERO);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.sendSignedRequest(requestUrl, new JSONBuilder(), login);
+            fail("Expected to fail");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getMessage(), is("Too many invocations"));
+        }
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.sendSignedRequest(requestUrl, new JSONBuilder(), login);
+            fail("Expected to fail");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getMessage(), is("Rate limited by server"));
+            assertThat(ex.getRetryAfter(), is(greaterThan(retryAfter.minusSeconds(1L))));
+        }
+
+        verify(mockHttpConnection, times(1)).openConnection(any(), any());
+    }
+
     /**
      * Test if an {@link AcmeServerException} is thrown on another problem.
      */
@@ -638,8 +684,11 @@ public class DefaultConnectionTest {
         try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
             conn.sendSignedRequest(requestUrl, new JSONBuilder(), login);
             fail("Expected to fail");
-        } catch (AcmeException ex) {
+        } catch (AcmeHttpException ex) {
             assertThat(ex.getMessage(), is("HTTP 500: Infernal Server Error"));
+            assertThat(ex.getStatus(), is(HttpURLConnection.HTTP_INTERNAL_ERROR));
+        } catch (AcmeException ex) {
+            fail("Expected an AcmeHttpException");
         }
 
         verify(mockUrlConnection).getHeaderField("Content-Type");
@@ -672,6 +721,251 @@ public class DefaultConnectionTest {
         verify(mockUrlConnection).getResponseCode();
         verify(mockUrlConnection, atLeast(0)).getHeaderFields();
         verifyNoMoreInteractions(mockUrlConnection);
+        verify(mockHttpConnection).release(mockUrlConnection);
+    }
+
+    /**
+     * Test conditional GET requests.
+     */
+    @Test
+    public void testSendConditionalRequest() throws Exception {
+        Instant lastModified = Instant.parse("2020-01-10T14:15:00Z");
+
+        when(mockUrlConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_NOT_MODIFIED);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection) {
+            @Override
+            public String getNonce() {
+                return null;
+            }
+        }) {
+            int rc = conn.sendConditionalRequest(requestUrl, session, "\"abc123\"", lastModified);
+            assertThat(rc, is(HttpURLConnection.HTTP_NOT_MODIFIED));
+        }
+
+        verify(mockUrlConnection).setRequestMethod("GET");
+        verify(mockUrlConnection).setRequestProperty("Accept", "application/json");
+        verify(mockUrlConnection).setRequestProperty("Accept-Charset", "utf-8");
+        verify(mockUrlConnection).setRequestProperty("Accept-Language", "ja-JP");
+        verify(mockUrlConnection).setRequestProperty("If-None-Match", "\"abc123\"");
+        verify(mockUrlConnection).setIfModifiedSince(lastModified.toEpochMilli());
+        verify(mockUrlConnection).setDoOutput(false);
+        verify(mockUrlConnection).connect();
+        verify(mockUrlConnection).getResponseCode();
+        verify(mockUrlConnection, atLeast(0)).getHeaderFields();
+        verifyNoMoreInteractions(mockUrlConnection);
+    }
+
+    /**
+     * Test that the validators of a response are read.
+     */
+    @Test
+    public void testGetValidators() {
+        Instant lastModified = Instant.parse("2020-01-10T14:15:00Z");
+
+        when(mockUrlConnection.getHeaderField("ETag")).thenReturn(" \"abc123\" ");
+        when(mockUrlConnection.getHeaderFieldDate("Last-Modified", 0L))
+                .thenReturn(lastModified.toEpochMilli());
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.conn = mockUrlConnection;
+            assertThat(conn.getETag(), is("\"abc123\""));
+            assertThat(conn.getLastModified(), is(lastModified));
+        }
+
+        when(mockUrlConnection.getHeaderField("ETag")).thenReturn(null);
+        when(mockUrlConnection.getHeaderFieldDate("Last-Modified", 0L)).thenReturn(0L);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.conn = mockUrlConnection;
+            assertThat(conn.getETag(), is(nullValue()));
+            assertThat(conn.getLastModified(), is(nullValue()));
+        }
+    }
+
+    /**
+     * Test that the expiration date of a response is computed from the caching headers.
+     */
+    @Test
+    public void testGetExpiration() {
+        long now = System.currentTimeMillis();
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.conn = mockUrlConnection;
+
+            // No caching headers
+            assertThat(conn.getExpiration(), is(nullValue()));
+
+            // Cache-Control: max-age
+            when(mockUrlConnection.getHeaderField("Cache-Control"))
+                    .thenReturn("public, max-age=86400");
+            assertThat(conn.getExpiration(), is(both(
+                    greaterThan(Instant.ofEpochMilli(now).plusSeconds(86399)))
+                    .and(lessThan(Instant.now().plusSeconds(86401)))));
+
+            // Cache-Control: no-cache
+            when(mockUrlConnection.getHeaderField("Cache-Control"))
+                    .thenReturn("public, max-age=0, no-cache");
+            assertThat(conn.getExpiration(), is(lessThan(Instant.now().plusSeconds(1))));
+
+            // Cache-Control: invalid max-age
+            when(mockUrlConnection.getHeaderField("Cache-Control"))
+                    .thenReturn("max-age=foo");
+            assertThat(conn.getExpiration(), is(lessThan(Instant.now().plusSeconds(1))));
+
+            // Expires, relative to the server's Date
+            when(mockUrlConnection.getHeaderField("Cache-Control")).thenReturn(null);
+            when(mockUrlConnection.getHeaderField("Expires")).thenReturn("some date");
+            when(mockUrlConnection.getHeaderFieldDate("Expires", 0L))
+                    .thenReturn(now - 3600_000L + 7200_000L);
+            when(mockUrlConnection.getHeaderFieldDate(
+                            ArgumentMatchers.eq("Date"),
+                            ArgumentMatchers.anyLong()))
+                    .thenReturn(now - 3600_000L);
+            assertThat(conn.getExpiration(), is(both(
+                    greaterThan(Instant.ofEpochMilli(now).plusSeconds(7199)))
+                    .and(lessThan(Instant.now().plusSeconds(7201)))));
+
+            // Expires, invalid date
+            when(mockUrlConnection.getHeaderFieldDate("Expires", 0L)).thenReturn(0L);
+            assertThat(conn.getExpiration(), is(lessThan(Instant.now().plusSeconds(1))));
+        }
+    }
+
+    /**
+     * Test that a connection is not released for reuse after a network error.
+     */
+    @Test
+    public void testNoReleaseOnNetworkError() throws Exception {
+        doThrow(new IOException("Connection reset")).when(mockUrlConnection).connect();
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.sendRequest(requestUrl, session);
+            fail("Network error was not detected");
+        } catch (AcmeNetworkException ex) {
+            // expected
+        }
+
+        verify(mockHttpConnection, never()).release(any());
+    }
+
+    /**
+     * Test that an idempotent request is retried after a transient server error.
+     */
+    @Test
+    public void testRetryOnServerError() throws Exception {
+        HttpURLConnection failingConnection = mock(HttpURLConnection.class);
+        when(failingConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_UNAVAILABLE);
+        when(failingConnection.getResponseMessage()).thenReturn("Service Unavailable");
+        when(mockHttpConnection.openConnection(same(requestUrl), any()))
+                .thenReturn(failingConnection, mockUrlConnection);
+        when(mockUrlConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_OK);
+
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setInitialDelay(Duration.ofMillis(1));
+        session.networkSettings().setRetryPolicy(policy);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            int rc = conn.sendRequest(requestUrl, session, "application/json");
+            assertThat(rc, is(HttpURLConnection.HTTP_OK));
+        }
+
+        verify(mockHttpConnection, times(2)).openConnection(same(requestUrl), any());
+        verify(mockUrlConnection).connect();
+    }
+
+    /**
+     * Test that a nonce request within a signed request is not retried on its own, but
+     * only as a part of the signed request.
+     */
+    @Test
+    public void testNoNestedRetry() throws Exception {
+        URL newNonceUrl = new URL("https://example.com/acme/new-nonce");
+        HttpURLConnection nonceConnection = mock(HttpURLConnection.class);
+        doThrow(new IOException("Connection reset")).when(nonceConnection).connect();
+        when(mockHttpConnection.openConnection(eq(newNonceUrl), any())).thenReturn(nonceConnection);
+
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setInitialDelay(Duration.ofMillis(1));
+        policy.setMaxAttempts(3);
+        session.networkSettings().setRetryPolicy(policy);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.sendSignedPostAsGetRequest(requestUrl, login);
+            fail("Network error was not detected");
+        } catch (AcmeNetworkException ex) {
+            // expected
+        }
+
+        verify(mockHttpConnection, times(3)).openConnection(eq(newNonceUrl), any());
+        verify(mockHttpConnection, never()).openConnection(same(requestUrl), any());
+    }
+
+    /**
+     * Test that a request that is not idempotent is not retried after a server error.
+     */
+    @Test
+    public void testNoRetryOfNonIdempotentRequest() throws Exception {
+        when(mockUrlConnection.getHeaderField("Content-Type")).thenReturn("text/html");
+        when(mockUrlConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_INTERNAL_ERROR);
+        when(mockUrlConnection.getResponseMessage()).thenReturn("Internal Server Error");
+        when(mockUrlConnection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setInitialDelay(Duration.ofMillis(1));
+        session.networkSettings().setRetryPolicy(policy);
+        session.setNonce(TestUtils.DUMMY_NONCE);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection)) {
+            conn.sendSignedRequest(requestUrl, new JSONBuilder().put("foo", 123), login);
+            fail("Expected to fail");
+        } catch (AcmeException ex) {
+            assertThat(ex.getMessage(), is("HTTP 500: Internal Server Error"));
+        }
+
+        verify(mockHttpConnection, times(1)).openConnection(same(requestUrl), any());
+    }
+
+    /**
+     * Test that the metrics of a request are reported to the metrics listener.
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        when(mockUrlConnection.getResponseCode())
+                .thenReturn(HttpURLConnection.HTTP_BAD_REQUEST, HttpURLConnection.HTTP_CREATED);
+        when(mockUrlConnection.getHeaderField("Content-Type")).thenReturn("application/problem+json");
+        when(mockUrlConnection.getHeaderField("Replay-Nonce")).thenReturn(TestUtils.DUMMY_NONCE);
+        when(mockUrlConnection.getContentLengthLong()).thenReturn(100L);
+        when(mockUrlConnection.getOutputStream())
+                .thenReturn(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        when(mockUrlConnection.getURL()).thenReturn(requestUrl);
+
+        List<String> samples = new ArrayList<>();
+        session.setMetricsListener(sample -> samples.add(sample.getKind()
+                + " " + sample.getMethod()
+                + " " + sample.getStatus()
+                + " " + sample.getProblemType()
+                + " " + sample.getBadNonceRetries()
+                + " " + sample.getBytesIn()
+                + " " + (sample.getBytesOut() > 0L)
+                + " " + (sample.getSigningNanos() > 0L)
+                + " " + sample.isFailed()));
+        session.setNonce(TestUtils.DUMMY_NONCE);
+
+        try (DefaultConnection conn = new DefaultConnection(mockHttpConnection) {
+            @Override
+            public JSON readJsonResponse() {
+                return new JSONBuilder()
+                        .put("type", "urn:ietf:params:acme:error:badNonce")
+                        .put("detail", "Bad nonce")
+                        .toJSON();
+            }
+        }) {
+            int rc = conn.sendSignedRequest(requestUrl, new JSONBuilder(), login);
+            assertThat(rc, is(HttpURLConnection.HTTP_CREATED));
+        }
+
+        assertThat(samples, is(Arrays.asList("OTHER POST 201 null 1 200 true true false")));
     }
 
     /**
@@ -700,7 +994,8 @@ public class DefaultConnectionTest {
             @Override
             public String getNonce() {
                 assertThat(session, is(sameInstance(DefaultConnectionTest.this.session)));
-                if (session.getNonce() == nonce1) {
+                // nonce1 has been taken from the pool
+                if (session.getNonce() == null) {
                     return nonce2;
                 } else {
                     fail("unknown nonce");
@@ -713,6 +1008,8 @@ public class DefaultConnectionTest {
             conn.sendSignedRequest(requestUrl, cb, login);
         }
 
+        assertThat(session.getNonce(), is(nonce2));
+
         verify(mockUrlConnection).setRequestMethod("POST");
         verify(mockUrlConnection).setRequestProperty("Accept", "application/json");
         verify(mockUrlConnection).setRequestProperty("Accept-Charset", "utf-8");
@@ -775,7 +1072,8 @@ public class DefaultConnectionTest {
             @Override
             public String getNonce() {
                 assertThat(session, is(sameInstance(DefaultConnectionTest.this.session)));
-                if (session.getNonce() == nonce1) {
+                // nonce1 has been taken from the pool
+                if (session.getNonce() == null) {
                     return nonce2;
                 } else {
                     fail("unknown nonce");
@@ -848,7 +1146,8 @@ public class DefaultConnectionTest {
             @Override
             public String getNonce() {
                 assertThat(session, is(sameInstance(DefaultConnectionTest.this.session)));
-                if (session.getNonce() == nonce1) {
+                // nonce1 has been taken from the pool
+                if (session.getNonce() == null) {
                     return nonce2;
                 } else {
                     fail("unknown nonce");
@@ -899,7 +1198,8 @@ public class DefaultConnectionTest {
             @Override
             public String getNonce() {
                 assertThat(session, is(sameInstance(DefaultConnectionTest.this.session)));
-                if (session.getNonce() == nonce1) {
+                // nonce1 has been taken from the pool
+                if (session.getNonce() == null) {
                     return nonce2;
                 } else {
                     fail("unknown nonce");
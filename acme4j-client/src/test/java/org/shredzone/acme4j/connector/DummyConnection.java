@@ -16,6 +16,7 @@ package org.shredzone.acme4j.connector;
 import java.net.URL;
 import java.security.KeyPair;
 import java.security.cert.X509Certificate;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 
@@ -41,6 +42,12 @@ public class DummyConnection implements Connection {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int sendConditionalRequest(URL url, Session session, String eTag,
+                Instant lastModified) throws AcmeException {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public int sendCertificateRequest(URL url, Login login) throws AcmeException {
         throw new UnsupportedOperationException();
@@ -93,6 +100,21 @@ public class DummyConnection implements Connection {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public String getETag() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant getLastModified() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant getExpiration() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void close() {
         // closing is always safe
@@ -0,0 +1,112 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.shredzone.acme4j.toolbox.TestUtils.getJSON;
+import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONAs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.shredzone.acme4j.toolbox.JSON;
+
+/**
+ * Unit tests for {@link FileDirectoryCache}.
+ */
+public class FileDirectoryCacheTest {
+
+    private static final URI SERVER_URI = URI.create("https://example.com/acme");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that a directory survives a new cache instance.
+     */
+    @Test
+    public void testPersistence() throws IOException {
+        Path dir = folder.getRoot().toPath().resolve("cache");
+        JSON directory = getJSON("directory");
+        Instant expires = Instant.parse("2020-01-10T15:15:00Z");
+        Instant lastModified = Instant.parse("2020-01-10T14:15:00Z");
+
+        FileDirectoryCache cache = new FileDirectoryCache(dir);
+        assertThat(cache.get(SERVER_URI), is(nullValue()));
+
+        CachedDirectory cached = new CachedDirectory(directory, expires, "\"abc123\"", lastModified);
+        cache.put(SERVER_URI, cached);
+        assertThat(cache.get(SERVER_URI), is(sameInstance(cached)));
+        assertThat(Files.exists(cache.getCacheFile(SERVER_URI)), is(true));
+
+        FileDirectoryCache cache2 = new FileDirectoryCache(dir);
+        CachedDirectory read = cache2.get(SERVER_URI);
+        assertThat(read, not(nullValue()));
+        assertThat(read.getDirectory().toString(), sameJSONAs(directory.toString()));
+        assertThat(read.getExpires(), is(expires));
+        assertThat(read.getETag(), is("\"abc123\""));
+        assertThat(read.getLastModified(), is(lastModified));
+        assertThat(read.isExpired(), is(true));
+        assertThat(cache2.get(SERVER_URI), is(sameInstance(read)));
+
+        // Other servers are not affected
+        assertThat(cache2.get(URI.create("https://example.org/acme")), is(nullValue()));
+
+        cache2.remove(SERVER_URI);
+        assertThat(cache2.get(SERVER_URI), is(nullValue()));
+        assertThat(Files.exists(cache2.getCacheFile(SERVER_URI)), is(false));
+        assertThat(new FileDirectoryCache(dir).get(SERVER_URI), is(nullValue()));
+    }
+
+    /**
+     * Test that missing validators are restored as {@code null}.
+     */
+    @Test
+    public void testNoValidators() {
+        Path dir = folder.getRoot().toPath();
+        Instant expires = Instant.parse("2020-01-10T15:15:00Z");
+
+        new FileDirectoryCache(dir).put(SERVER_URI,
+                new CachedDirectory(getJSON("directory"), expires, null, null));
+
+        CachedDirectory read = new FileDirectoryCache(dir).get(SERVER_URI);
+        assertThat(read, not(nullValue()));
+        assertThat(read.getETag(), is(nullValue()));
+        assertThat(read.getLastModified(), is(nullValue()));
+    }
+
+    /**
+     * Test that broken cache files are ignored.
+     */
+    @Test
+    public void testCorruptFile() throws IOException {
+        FileDirectoryCache cache = new FileDirectoryCache(folder.getRoot().toPath());
+
+        Files.write(cache.getCacheFile(SERVER_URI), "{\"server\":".getBytes(UTF_8));
+        assertThat(cache.get(SERVER_URI), is(nullValue()));
+
+        Files.write(cache.getCacheFile(SERVER_URI),
+                "{\"server\":\"https://example.org/acme\"}".getBytes(UTF_8));
+        assertThat(cache.get(SERVER_URI), is(nullValue()));
+    }
+
+}
@@ -15,10 +15,10 @@ package org.shredzone.acme4j.connector;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.time.Duration;
@@ -52,6 +52,35 @@ public class HttpConnectorTest {
         verify(conn).setRequestProperty("User-Agent", HttpConnector.defaultUserAgent());
     }
 
+    /**
+     * Test that a connection is released by closing the response stream, without
+     * disconnecting it.
+     */
+    @Test
+    public void testRelease() throws IOException {
+        InputStream in = mock(InputStream.class);
+        HttpURLConnection conn = mock(HttpURLConnection.class);
+        when(conn.getResponseCode()).thenReturn(HttpURLConnection.HTTP_OK);
+        when(conn.getInputStream()).thenReturn(in);
+
+        HttpConnector connector = new HttpConnector();
+        connector.release(conn);
+
+        verify(in).close();
+        verify(conn, never()).disconnect();
+
+        InputStream err = mock(InputStream.class);
+        HttpURLConnection errConn = mock(HttpURLConnection.class);
+        when(errConn.getResponseCode()).thenReturn(HttpURLConnection.HTTP_BAD_REQUEST);
+        when(errConn.getErrorStream()).thenReturn(err);
+
+        connector.release(errConn);
+
+        verify(err).close();
+        verify(errConn, never()).getInputStream();
+        verify(errConn, never()).disconnect();
+    }
+
     /**
      * Test if a HTTP connection can be opened.
      * <p>
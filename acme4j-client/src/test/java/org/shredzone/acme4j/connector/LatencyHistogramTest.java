@@ -0,0 +1,91 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test that an empty histogram returns zero values.
+     */
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(Duration.ZERO));
+        assertThat(histogram.getMean(), is(Duration.ZERO));
+        assertThat(histogram.getPercentile(99.0), is(Duration.ZERO));
+    }
+
+    /**
+     * Test that short durations are recorded exactly.
+     */
+    @Test
+    public void testExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1L; micros <= 50L; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        histogram.record(-1L);
+
+        assertThat(histogram.getCount(), is(50L));
+        assertThat(histogram.getMax(), is(Duration.ofNanos(50_000L)));
+        assertThat(histogram.getMean(), is(Duration.ofNanos(25_000L)));
+        assertThat(histogram.getPercentile(50.0), is(Duration.ofNanos(25_000L)));
+        assertThat(histogram.getPercentile(100.0), is(Duration.ofNanos(50_000L)));
+        assertThat(histogram.getPercentile(0.0), is(Duration.ofNanos(1_000L)));
+    }
+
+    /**
+     * Test that percentiles of long durations are within the precision.
+     */
+    @Test
+    public void testPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1L; millis <= 1000L; millis++) {
+            histogram.record(Duration.ofMillis(millis).toNanos());
+        }
+        histogram.record(Duration.ofDays(2L).toNanos());
+
+        assertThat(histogram.getCount(), is(1001L));
+        assertPercentile(histogram.getPercentile(50.0), Duration.ofMillis(501L));
+        assertPercentile(histogram.getPercentile(90.0), Duration.ofMillis(901L));
+        assertPercentile(histogram.getPercentile(99.0), Duration.ofMillis(991L));
+
+        // too long durations are capped
+        assertThat(histogram.getMax(), is(both(greaterThan(Duration.ofHours(19L)))
+                .and(lessThan(Duration.ofHours(20L)))));
+        assertThat(histogram.getPercentile(100.0), is(histogram.getMax()));
+
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getPercentile(50.0), is(Duration.ZERO));
+    }
+
+    private static void assertPercentile(Duration actual, Duration expected) {
+        long tolerance = expected.toNanos() / 64L;
+        assertThat(actual.toNanos(), is(both(greaterThanOrEqualTo(expected.toNanos() - tolerance))
+                .and(lessThanOrEqualTo(expected.toNanos() + tolerance))));
+    }
+
+}
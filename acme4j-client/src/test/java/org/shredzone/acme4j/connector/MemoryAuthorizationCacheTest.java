@@ -0,0 +1,103 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.Test;
+import org.shredzone.acme4j.Identifier;
+
+/**
+ * Unit tests for {@link MemoryAuthorizationCache}.
+ */
+public class MemoryAuthorizationCacheTest {
+
+    private static final URL ACCOUNT = url("https://example.com/acme/acct/1");
+    private static final URL OTHER_ACCOUNT = url("https://example.com/acme/acct/2");
+    private static final Identifier IDENTIFIER = Identifier.dns("example.org");
+
+    /**
+     * Test that authorizations are stored per account and identifier.
+     */
+    @Test
+    public void testPutGetRemove() {
+        MemoryAuthorizationCache cache = new MemoryAuthorizationCache();
+        CachedAuthorization auth = authorization(IDENTIFIER, 1, Duration.ofDays(30));
+
+        assertThat(cache.get(ACCOUNT, IDENTIFIER), is(nullValue()));
+
+        cache.put(ACCOUNT, auth);
+        assertThat(cache.get(ACCOUNT, IDENTIFIER), is(sameInstance(auth)));
+        assertThat(cache.get(ACCOUNT, Identifier.dns("*.example.org")), is(nullValue()));
+        assertThat(cache.get(OTHER_ACCOUNT, IDENTIFIER), is(nullValue()));
+
+        CachedAuthorization newer = authorization(IDENTIFIER, 2, Duration.ofDays(30));
+        cache.put(ACCOUNT, newer);
+        assertThat(cache.get(ACCOUNT, IDENTIFIER), is(sameInstance(newer)));
+        assertThat(cache.size(), is(1));
+
+        cache.remove(ACCOUNT, IDENTIFIER);
+        assertThat(cache.get(ACCOUNT, IDENTIFIER), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    /**
+     * Test that expired authorizations are evicted.
+     */
+    @Test
+    public void testExpiry() {
+        MemoryAuthorizationCache cache = new MemoryAuthorizationCache();
+
+        cache.put(ACCOUNT, authorization(IDENTIFIER, 1, Duration.ofDays(-1)));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get(ACCOUNT, IDENTIFIER), is(nullValue()));
+        assertThat(cache.size(), is(0));
+
+        Identifier other = Identifier.dns("example.com");
+        cache.put(ACCOUNT, authorization(IDENTIFIER, 1, Duration.ofDays(-1)));
+        cache.put(ACCOUNT, authorization(other, 2, Duration.ofDays(1)));
+        cache.evictExpired();
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get(ACCOUNT, other), is(notNullValue()));
+    }
+
+    /**
+     * Test the {@link CachedAuthorization} getters.
+     */
+    @Test
+    public void testCachedAuthorization() {
+        Instant expires = Instant.now().plus(Duration.ofDays(1));
+        CachedAuthorization auth = new CachedAuthorization(IDENTIFIER,
+                url("https://example.com/acme/authz/1"), expires);
+
+        assertThat(auth.getIdentifier(), is(IDENTIFIER));
+        assertThat(auth.getLocation(), is(url("https://example.com/acme/authz/1")));
+        assertThat(auth.getExpires(), is(expires));
+        assertThat(auth.isExpired(), is(false));
+        assertThat(auth.isLocatedAt(url("https://example.com/acme/authz/1")), is(true));
+        assertThat(auth.isLocatedAt(url("https://example.com/acme/authz/2")), is(false));
+    }
+
+    private static CachedAuthorization authorization(Identifier identifier, int ix, Duration validity) {
+        return new CachedAuthorization(identifier, url("https://example.com/acme/authz/" + ix),
+                Instant.now().plus(validity));
+    }
+
+}
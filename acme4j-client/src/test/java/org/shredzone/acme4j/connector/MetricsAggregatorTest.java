@@ -0,0 +1,91 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MetricsAggregator}.
+ */
+public class MetricsAggregatorTest {
+
+    private static final URI BAD_NONCE = URI.create("urn:ietf:params:acme:error:badNonce");
+
+    /**
+     * Test that samples are aggregated per request kind.
+     */
+    @Test
+    public void testAggregate() {
+        MetricsAggregator aggregator = new MetricsAggregator();
+
+        RequestSample sample = new RequestSample();
+        sample.start(RequestKind.NEW_ORDER, url("https://example.com/acme/new-order"), "POST", 1);
+        sample.addSigning(Duration.ofMillis(2L).toNanos());
+        sample.addExchange(Duration.ofMillis(30L).toNanos(), Duration.ofMillis(100L).toNanos(), 500L, 300L);
+        sample.setProblemType(BAD_NONCE);
+        sample.addBadNonceRetry();
+        sample.addSigning(Duration.ofMillis(2L).toNanos());
+        sample.addExchange(0L, Duration.ofMillis(80L).toNanos(), 500L, 700L);
+        sample.finish(201, false, Duration.ofMillis(220L).toNanos());
+        aggregator.onRequest(sample);
+
+        sample.start(RequestKind.NEW_ORDER, url("https://example.com/acme/new-order"), "POST", 1);
+        sample.addExchange(0L, Duration.ofMillis(50L).toNanos(), 400L, -1L);
+        sample.setProblemType(BAD_NONCE);
+        sample.finish(400, true, Duration.ofMillis(60L).toNanos());
+        aggregator.onRequest(sample);
+
+        sample.start(RequestKind.NEW_NONCE, url("https://example.com/acme/new-nonce"), "HEAD", 1);
+        sample.finish(0, true, Duration.ofMillis(10L).toNanos());
+        aggregator.onRequest(sample);
+
+        assertThat(aggregator.getKinds(), contains(RequestKind.NEW_NONCE, RequestKind.NEW_ORDER));
+
+        MetricsAggregator.RequestMetrics newOrder = aggregator.get(RequestKind.NEW_ORDER);
+        assertThat(newOrder.getRequests(), is(2L));
+        assertThat(newOrder.getFailures(), is(1L));
+        assertThat(newOrder.getBadNonceRetries(), is(1L));
+        assertThat(newOrder.getBytesOut(), is(1400L));
+        assertThat(newOrder.getBytesIn(), is(1000L));
+        assertThat(newOrder.getStatusClassCount(2), is(1L));
+        assertThat(newOrder.getStatusClassCount(4), is(1L));
+        assertThat(newOrder.getStatusClassCount(5), is(0L));
+        assertThat(newOrder.getProblems(), is(aMapWithSize(1)));
+        assertThat(newOrder.getProblems(), hasEntry(BAD_NONCE, 1L));
+        assertThat(newOrder.getTotalTime().getMax(), is(Duration.ofMillis(220L)));
+        assertThat(newOrder.getConnectTime().getMax(), is(Duration.ofMillis(30L)));
+        assertThat(newOrder.getServerTime().getMax(), is(Duration.ofMillis(180L)));
+        assertThat(newOrder.getSigningTime().getCount(), is(1L));
+        assertThat(newOrder.getSigningTime().getMax(), is(Duration.ofMillis(4L)));
+
+        MetricsAggregator.RequestMetrics newNonce = aggregator.get(RequestKind.NEW_NONCE);
+        assertThat(newNonce.getRequests(), is(1L));
+        assertThat(newNonce.getStatusClassCount(0), is(1L));
+        assertThat(newNonce.getSigningTime().getCount(), is(0L));
+
+        assertThat(aggregator.toString(), containsString("NEW_ORDER: requests=2 failures=1"));
+
+        aggregator.reset();
+        assertThat(aggregator.getKinds(), is(empty()));
+        assertThat(aggregator.get(RequestKind.NEW_ORDER).getRequests(), is(0L));
+    }
+
+}
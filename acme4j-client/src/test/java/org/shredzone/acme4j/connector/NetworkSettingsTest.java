@@ -13,7 +13,7 @@
  */
 package org.shredzone.acme4j.connector;
 
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -45,6 +45,13 @@ public class NetworkSettingsTest {
         assertThat(settings.getTimeout(), is(Duration.ofSeconds(10)));
         settings.setTimeout(Duration.ofMillis(5120));
         assertThat(settings.getTimeout(), is(Duration.ofMillis(5120)));
+
+        assertThat(settings.getRetryPolicy(), is(instanceOf(BackoffRetryPolicy.class)));
+        RetryPolicy policy = request -> null;
+        settings.setRetryPolicy(policy);
+        assertThat(settings.getRetryPolicy(), is(sameInstance(policy)));
+        settings.setRetryPolicy(null);
+        assertThat(settings.getRetryPolicy(), is(sameInstance(RetryPolicy.NONE)));
     }
 
     @Test
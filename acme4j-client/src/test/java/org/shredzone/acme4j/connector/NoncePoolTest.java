@@ -0,0 +1,166 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
+
+/**
+ * Unit tests for {@link NoncePool}.
+ */
+public class NoncePoolTest {
+
+    /**
+     * Test that nonces are handed out only once, most recent first.
+     */
+    @Test
+    public void testOfferAndPoll() {
+        NoncePool pool = new NoncePool(mock(Session.class));
+        assertThat(pool.size(), is(0));
+        assertThat(pool.peek(), is(nullValue()));
+        assertThat(pool.poll(), is(nullValue()));
+
+        pool.offer("nonce-1");
+        pool.offer("nonce-2");
+        pool.offer("nonce-3");
+        assertThat(pool.size(), is(3));
+        assertThat(pool.peek(), is("nonce-3"));
+
+        assertThat(pool.poll(), is("nonce-3"));
+        assertThat(pool.poll(), is("nonce-2"));
+        assertThat(pool.size(), is(1));
+
+        pool.clear();
+        assertThat(pool.size(), is(0));
+        assertThat(pool.poll(), is(nullValue()));
+    }
+
+    /**
+     * Test that the oldest nonces are discarded if the capacity is exceeded.
+     */
+    @Test
+    public void testCapacity() {
+        NoncePool pool = new NoncePool(mock(Session.class));
+        assertThat(pool.getCapacity(), is(32));
+
+        pool.setCapacity(2);
+        pool.offer("nonce-1");
+        pool.offer("nonce-2");
+        pool.offer("nonce-3");
+        assertThat(pool.size(), is(2));
+        assertThat(pool.poll(), is("nonce-3"));
+        assertThat(pool.poll(), is("nonce-2"));
+        assertThat(pool.poll(), is(nullValue()));
+
+        try {
+            pool.setCapacity(0);
+            fail("accepted capacity of 0");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        try {
+            pool.setLowWaterMark(3);
+            fail("accepted low-water mark exceeding the capacity");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that the pool is topped up in the background when falling below the low-water
+     * mark.
+     */
+    @Test
+    public void testRefill() throws AcmeException {
+        AtomicInteger counter = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+
+        Session session = mock(Session.class);
+        NoncePool pool = new NoncePool(session);
+
+        Connection conn = mock(Connection.class);
+        doAnswer(inv -> {
+            pool.offer("prefetched-" + counter.incrementAndGet());
+            return null;
+        }).when(conn).resetNonce(session);
+
+        when(session.connect()).thenReturn(conn);
+        when(session.getExecutor()).thenReturn(tasks::add);
+
+        // Low-water mark is 0 by default, so nothing is prefetched
+        assertThat(pool.getLowWaterMark(), is(0));
+        assertThat(pool.poll(), is(nullValue()));
+        assertThat(tasks, is(empty()));
+
+        pool.setLowWaterMark(3);
+        pool.offer("nonce-1");
+        assertThat(pool.poll(), is("nonce-1"));
+
+        // Three nonces are missing, pending refills are not scheduled twice
+        assertThat(tasks, hasSize(3));
+        pool.refill();
+        assertThat(tasks, hasSize(3));
+
+        tasks.forEach(Runnable::run);
+        assertThat(pool.size(), is(3));
+        verify(conn, times(3)).resetNonce(session);
+        verify(conn, times(3)).close();
+
+        // Pool is filled, nothing to do
+        pool.refill();
+        assertThat(tasks, hasSize(3));
+    }
+
+    /**
+     * Test that a failing refill is handled gracefully.
+     */
+    @Test
+    public void testRefillFailure() throws AcmeException {
+        List<Runnable> tasks = new ArrayList<>();
+
+        Session session = mock(Session.class);
+        NoncePool pool = new NoncePool(session);
+
+        Connection conn = mock(Connection.class);
+        doThrow(new AcmeNetworkException(new IOException("Connection refused")))
+                .when(conn).resetNonce(session);
+
+        when(session.connect()).thenReturn(conn);
+        when(session.getExecutor()).thenReturn(tasks::add);
+
+        pool.setLowWaterMark(1);
+        pool.refill();
+        assertThat(tasks, hasSize(1));
+        tasks.get(0).run();
+        assertThat(pool.size(), is(0));
+
+        // The failed refill is not pending any more
+        pool.refill();
+        assertThat(tasks, hasSize(2));
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.shredzone.acme4j.Login;
+import org.shredzone.acme4j.Order;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.provider.TestableConnectionProvider;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+
+/**
+ * Unit test for {@link PrefetchingResourceIterator}.
+ */
+public class PrefetchingResourceIteratorTest {
+
+    private final int PAGES = 4;
+    private final int RESOURCES_PER_PAGE = 5;
+    private final String TYPE = "orders";
+
+    private List<URL> resourceURLs = new ArrayList<>(PAGES * RESOURCES_PER_PAGE);
+    private List<URL> pageURLs = new ArrayList<>(PAGES);
+    private AtomicInteger hydrating = new AtomicInteger();
+    private AtomicInteger maxHydrating = new AtomicInteger();
+    private List<URL> fetchedPages = new CopyOnWriteArrayList<>();
+    private int failingPage = -1;
+
+    @Before
+    public void setup() {
+        resourceURLs.clear();
+        for (int ix = 0; ix < RESOURCES_PER_PAGE * PAGES; ix++) {
+            resourceURLs.add(url("https://example.com/acme/order/" + ix));
+        }
+
+        pageURLs.clear();
+        for (int ix = 0; ix < PAGES; ix++) {
+            pageURLs.add(url("https://example.com/acme/batch/" + ix));
+        }
+
+        hydrating.set(0);
+        maxHydrating.set(0);
+        failingPage = -1;
+        fetchedPages.clear();
+    }
+
+    /**
+     * Test if the {@link PrefetchingResourceIterator} handles a {@code null} start URL.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void nullTest() throws IOException {
+        Iterator<Order> it = createIterator(null, false);
+
+        assertThat(it, not(nullValue()));
+        assertThat(it.hasNext(), is(false));
+        it.next(); // throws NoSuchElementException
+    }
+
+    /**
+     * Test if the {@link PrefetchingResourceIterator} returns all objects in the correct
+     * order.
+     */
+    @Test
+    public void iteratorTest() throws IOException {
+        List<URL> result = new ArrayList<>();
+
+        Iterator<Order> it = createIterator(pageURLs.get(0), false);
+        while (it.hasNext()) {
+            result.add(it.next().getLocation());
+        }
+
+        assertThat(result, is(equalTo(resourceURLs)));
+    }
+
+    /**
+     * Test unusual {@link Iterator#next()} and {@link Iterator#hasNext()} usage.
+     */
+    @Test
+    public void nextHasNextTest() throws IOException {
+        List<URL> result = new ArrayList<>();
+
+        Iterator<Order> it = createIterator(pageURLs.get(0), false);
+        assertThat(it.hasNext(), is(true));
+        assertThat(it.hasNext(), is(true));
+
+        try {
+            for (;;) {
+                result.add(it.next().getLocation());
+            }
+        } catch (NoSuchElementException ex) {
+            assertThat(it.hasNext(), is(false));
+            assertThat(it.hasNext(), is(false));
+        }
+
+        assertThat(result, is(equalTo(resourceURLs)));
+    }
+
+    /**
+     * Test that {@link Iterator#remove()} fails.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void removeTest() throws IOException {
+        Iterator<Order> it = createIterator(pageURLs.get(0), false);
+        it.next();
+        it.remove(); // throws UnsupportedOperationException
+    }
+
+    /**
+     * Test that the stream returns all resources hydrated, and that the parallelism is
+     * limited.
+     */
+    @Test
+    public void streamTest() throws IOException {
+        PrefetchingResourceIterator<Order> it = createIterator(pageURLs.get(0), true);
+
+        List<Order> result = it.stream().collect(toList());
+
+        assertThat(result.stream().map(Order::getLocation).collect(toList()),
+                is(equalTo(resourceURLs)));
+        // if the order had not been hydrated, it would fail to lazy load its status
+        for (Order order : result) {
+            assertThat(order.getStatus(), is(Status.VALID));
+        }
+        assertThat(maxHydrating.get(), is(both(greaterThan(0)).and(lessThanOrEqualTo(3))));
+    }
+
+    /**
+     * Test that no batch is fetched before the iterator is used, and that only the batch
+     * after the taken batch is fetched ahead.
+     */
+    @Test
+    public void lazyTest() throws Exception {
+        Iterator<Order> it = createIterator(pageURLs.get(0), false);
+        Thread.sleep(50L);
+        assertThat(fetchedPages, is(empty()));
+
+        assertThat(it.hasNext(), is(true));
+        awaitFetched(2);
+        Thread.sleep(50L);
+        assertThat(fetchedPages, contains(pageURLs.get(0), pageURLs.get(1)));
+
+        for (int ix = 0; ix < RESOURCES_PER_PAGE; ix++) {
+            it.next();
+        }
+        assertThat(it.hasNext(), is(true));
+        awaitFetched(3);
+        assertThat(fetchedPages, contains(pageURLs.get(0), pageURLs.get(1), pageURLs.get(2)));
+    }
+
+    /**
+     * Test that a failed batch is reported when it is reached.
+     */
+    @Test
+    public void failureTest() throws IOException {
+        failingPage = 2;
+
+        Iterator<Order> it = createIterator(pageURLs.get(0), false);
+        for (int ix = 0; ix < 2 * RESOURCES_PER_PAGE; ix++) {
+            assertThat(it.next().getLocation(), is(resourceURLs.get(ix)));
+        }
+
+        try {
+            it.hasNext();
+            fail("failed batch was not reported");
+        } catch (AcmeProtocolException ex) {
+            assertThat(ex.getCause(), is(instanceOf(AcmeException.class)));
+        }
+    }
+
+    /**
+     * Test that the parallelism must be positive.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelismTest() throws IOException {
+        Login login = new TestableConnectionProvider().createLogin();
+        new PrefetchingResourceIterator<>(login, TYPE, null, Login::bindOrder, Order::update, 0);
+    }
+
+    /**
+     * Waits until the given number of pages has been fetched.
+     */
+    private void awaitFetched(int pages) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (fetchedPages.size() < pages && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+    }
+
+    /**
+     * Creates a new {@link PrefetchingResourceIterator} of {@link Order} objects.
+     *
+     * @param first
+     *            URL of the first page
+     * @param hydrate
+     *            {@code true} to hydrate the orders
+     * @return Created {@link PrefetchingResourceIterator}
+     */
+    private PrefetchingResourceIterator<Order> createIterator(URL first, boolean hydrate)
+                throws IOException {
+        // The connection is shared by all threads, so the request is kept per thread
+        ThreadLocal<URL> request = new ThreadLocal<>();
+
+        TestableConnectionProvider provider = new TestableConnectionProvider() {
+            @Override
+            public int sendSignedPostAsGetRequest(URL url, Login login) throws AcmeException {
+                request.set(url);
+                if (failingPage >= 0 && pageURLs.indexOf(url) == failingPage) {
+                    throw new AcmeException("page " + failingPage + " is not available");
+                }
+                if (resourceURLs.contains(url)) {
+                    int current = hydrating.incrementAndGet();
+                    maxHydrating.accumulateAndGet(current, Math::max);
+                    try {
+                        Thread.sleep(5L);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        hydrating.decrementAndGet();
+                    }
+                    return HttpURLConnection.HTTP_OK;
+                }
+                assertThat(pageURLs, hasItem(url));
+                fetchedPages.add(url);
+                return HttpURLConnection.HTTP_OK;
+            }
+
+            @Override
+            public JSON readJsonResponse() {
+                URL url = request.get();
+                if (resourceURLs.contains(url)) {
+                    return new JSONBuilder().put("status", "valid").toJSON();
+                }
+
+                int ix = pageURLs.indexOf(url);
+                int start = ix * RESOURCES_PER_PAGE;
+                int end = (ix + 1) * RESOURCES_PER_PAGE;
+
+                JSONBuilder cb = new JSONBuilder();
+                cb.array(TYPE, resourceURLs.subList(start, end));
+
+                return JSON.parse(cb.toString());
+            }
+
+            @Override
+            public Collection<URL> getLinks(String relation) {
+                int ix = pageURLs.indexOf(request.get());
+                if ("next".equals(relation) && (ix + 1 < pageURLs.size())) {
+                    return Arrays.asList(pageURLs.get(ix + 1));
+                }
+                return Collections.emptyList();
+            }
+
+            @Override
+            public void handleRetryAfter(String message) {
+                // do nothing
+            }
+        };
+
+        Login login = provider.createLogin();
+
+        provider.close();
+
+        if (hydrate) {
+            return new PrefetchingResourceIterator<>(login, TYPE, first, Login::bindOrder,
+                    Order::update, 3);
+        }
+        return new PrefetchingResourceIterator<>(login, TYPE, first, Login::bindOrder);
+    }
+
+}
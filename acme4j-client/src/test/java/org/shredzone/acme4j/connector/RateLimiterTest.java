@@ -0,0 +1,252 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.shredzone.acme4j.Identifier;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.connector.RateLimit.Scope;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+
+/**
+ * Unit tests for {@link RateLimiter}.
+ */
+public class RateLimiterTest {
+
+    private static final String ACCOUNT1 = "https://example.com/acme/account/1";
+    private static final String ACCOUNT2 = "https://example.com/acme/account/2";
+
+    private final URL newOrderUrl = url("https://example.com/acme/new-order");
+    private final URL newAccountUrl = url("https://example.com/acme/new-account");
+    private Session session;
+
+    @Before
+    public void setup() throws AcmeException {
+        session = mock(Session.class);
+        when(session.getServerUri()).thenReturn(URI.create("https://example.com/acme"));
+        when(session.resourceUrl(Resource.NEW_ORDER)).thenReturn(newOrderUrl);
+        when(session.resourceUrl(Resource.NEW_ACCOUNT)).thenReturn(newAccountUrl);
+        when(session.resourceUrl(Resource.REVOKE_CERT)).thenThrow(new AcmeException("not offered"));
+    }
+
+    /**
+     * Test that an endpoint limit is enforced, and requests wait for the next token.
+     */
+    @Test
+    public void testEndpointLimit() throws AcmeException {
+        RateLimiter limiter = new RateLimiter(Arrays.asList(
+                new RateLimit(Resource.NEW_ORDER, Scope.ENDPOINT, 2, Duration.ofSeconds(1)),
+                new RateLimit(Resource.REVOKE_CERT, Scope.ENDPOINT, 1, Duration.ofHours(1))));
+        limiter.setMaxWait(Duration.ZERO);
+
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, null);
+        limiter.acquire(session, newOrderUrl, ACCOUNT2, null);
+
+        try {
+            limiter.acquire(session, newOrderUrl, ACCOUNT1, null);
+            fail("limit was not enforced");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getType(), is(URI.create("urn:ietf:params:acme:error:rateLimited")));
+            assertThat(ex.getMessage(), containsString("Client-side rate limit"));
+            assertThat(ex.getRetryAfter(), is(greaterThan(Instant.now())));
+            assertThat(ex.getProblem().getIdentifier(), is(nullValue()));
+        }
+
+        // other endpoints are not limited
+        for (int ix = 0; ix < 10; ix++) {
+            limiter.acquire(session, newAccountUrl, null, null);
+        }
+
+        // waits for the next token
+        limiter.setMaxWait(Duration.ofSeconds(10));
+        long start = System.nanoTime();
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, null);
+        assertThat(System.nanoTime() - start, is(greaterThan(Duration.ofMillis(100).toNanos())));
+    }
+
+    /**
+     * Test that account limits are counted per account.
+     */
+    @Test
+    public void testAccountLimit() throws AcmeException {
+        RateLimiter limiter = new RateLimiter(Collections.singletonList(
+                new RateLimit(Resource.NEW_ORDER, Scope.ACCOUNT, 1, Duration.ofHours(1))));
+        limiter.setMaxWait(Duration.ZERO);
+
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, null);
+        limiter.acquire(session, newOrderUrl, ACCOUNT2, null);
+
+        try {
+            limiter.acquire(session, newOrderUrl, ACCOUNT1, null);
+            fail("limit was not enforced");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getRetryAfter(), is(greaterThan(Instant.now().plusSeconds(3500L))));
+        }
+    }
+
+    /**
+     * Test that domain limits are counted per domain name.
+     */
+    @Test
+    public void testDomainLimit() throws AcmeException {
+        RateLimiter limiter = new RateLimiter(Collections.singletonList(
+                new RateLimit(Resource.NEW_ORDER, Scope.DOMAIN, 1, Duration.ofHours(1))));
+        limiter.setMaxWait(Duration.ZERO);
+
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("www.example.org"));
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("www.example.com"));
+
+        try {
+            limiter.acquire(session, newOrderUrl, ACCOUNT2, order("www.example.net", "www.example.org"));
+            fail("limit was not enforced");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getProblem().getIdentifier(), is(Identifier.dns("www.example.org")));
+        }
+
+        // the failed request did not consume a token of www.example.net
+        limiter.acquire(session, newOrderUrl, ACCOUNT2, order("www.example.net"));
+        limiter.acquire(session, newOrderUrl, ACCOUNT2, null);
+
+        // other domains below the same public suffix do not share a bucket
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("foo.example.org"));
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("example.co.uk"));
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("other.co.uk"));
+    }
+
+    /**
+     * Test that requests are held back after the server has rate limited the account.
+     */
+    @Test
+    public void testRateLimitedAccount() throws AcmeException {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setMaxWait(Duration.ZERO);
+        assertThat(limiter.getLimits(), is(empty()));
+
+        limiter.rateLimited(session, newOrderUrl, ACCOUNT1, order("www.example.org"),
+                rateLimited(null, Instant.now().plusSeconds(60L)));
+
+        try {
+            limiter.acquire(session, newOrderUrl, ACCOUNT1, order("www.example.com"));
+            fail("request was not held back");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getMessage(), is("Rate limited by server"));
+            assertThat(ex.getRetryAfter(), is(greaterThan(Instant.now().plusSeconds(50L))));
+        }
+
+        limiter.acquire(session, newOrderUrl, ACCOUNT2, order("www.example.com"));
+        limiter.acquire(session, newAccountUrl, ACCOUNT1, null);
+
+        // an expired Retry-After is ignored
+        limiter.rateLimited(session, newAccountUrl, null, null,
+                rateLimited(null, Instant.now().minusSeconds(1L)));
+        limiter.acquire(session, newAccountUrl, null, null);
+    }
+
+    /**
+     * Test that requests for a domain are held back after the server has rate limited
+     * that domain.
+     */
+    @Test
+    public void testRateLimitedDomain() throws AcmeException {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setMaxWait(Duration.ZERO);
+
+        limiter.rateLimited(session, newOrderUrl, ACCOUNT1, order("www.example.org"),
+                rateLimited("example.org", Instant.now().plusSeconds(60L)));
+        limiter.rateLimited(session, newOrderUrl, ACCOUNT1, order("www.example.co.uk"),
+                rateLimited("www.example.co.uk", Instant.now().plusSeconds(60L)));
+
+        try {
+            limiter.acquire(session, newOrderUrl, ACCOUNT2, order("foo.example.org"));
+            fail("request was not held back");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getProblem().getIdentifier(), is(Identifier.dns("example.org")));
+        }
+
+        try {
+            limiter.acquire(session, newOrderUrl, ACCOUNT2, order("www.example.co.uk"));
+            fail("request was not held back");
+        } catch (AcmeRateLimitedException ex) {
+            assertThat(ex.getProblem().getIdentifier(), is(Identifier.dns("www.example.co.uk")));
+        }
+
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("www.example.com"));
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("foo.example.co.uk"));
+        limiter.acquire(session, newOrderUrl, ACCOUNT1, order("other.co.uk"));
+    }
+
+    /**
+     * Test parameter validation.
+     */
+    @Test
+    public void testInvalidParameters() {
+        try {
+            new RateLimit(Resource.NEW_ORDER, Scope.ENDPOINT, 0, Duration.ofSeconds(1));
+            fail("accepted 0 permits");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        try {
+            new RateLimit(Resource.NEW_ORDER, Scope.ENDPOINT, 1, Duration.ZERO);
+            fail("accepted zero period");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        try {
+            new RateLimiter().setMaxWait(Duration.ofSeconds(-1));
+            fail("accepted negative maxWait");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static JSONBuilder order(String... domains) {
+        JSONBuilder claims = new JSONBuilder();
+        claims.array("identifiers", Arrays.stream(domains)
+                .map(d -> Identifier.dns(d).toMap())
+                .collect(toList()));
+        return claims;
+    }
+
+    private AcmeRateLimitedException rateLimited(String domain, Instant retryAfter) {
+        JSONBuilder jb = new JSONBuilder();
+        jb.put("type", "urn:ietf:params:acme:error:rateLimited");
+        jb.put("detail", "Too many requests");
+        if (domain != null) {
+            jb.put("identifier", Identifier.dns(domain).toMap());
+        }
+        return new AcmeRateLimitedException(new Problem(jb.toJSON(), newOrderUrl), retryAfter, null);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.connector;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.net.URI;
+
+import org.junit.Test;
+import org.shredzone.acme4j.Session;
+import org.shredzone.acme4j.provider.AcmeProvider;
+import org.shredzone.acme4j.toolbox.TestUtils;
+
+/**
+ * Unit tests for {@link RequestKind}.
+ */
+public class RequestKindTest {
+
+    private static final String JSON = "application/json";
+
+    /**
+     * Test that requests are classified.
+     */
+    @Test
+    public void testOf() throws Exception {
+        AcmeProvider provider = mock(AcmeProvider.class);
+        when(provider.directory(any(Session.class), eq(URI.create(TestUtils.ACME_SERVER_URI))))
+                .thenReturn(TestUtils.getJSON("directory"));
+        Session session = TestUtils.session(provider);
+
+        // directory was not read yet
+        assertThat(RequestKind.of(session, url("https://example.com/acme/new-order"), "POST", JSON),
+                is(RequestKind.ORDER));
+
+        session.resourceUrl(Resource.NEW_ORDER);
+
+        assertThat(RequestKind.of(session, url(TestUtils.ACME_SERVER_URI), "GET", JSON),
+                is(RequestKind.DIRECTORY));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/new-nonce"), "HEAD", null),
+                is(RequestKind.NEW_NONCE));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/new-order"), "POST", JSON),
+                is(RequestKind.NEW_ORDER));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/new-account"), "POST", JSON),
+                is(RequestKind.NEW_ACCOUNT));
+
+        // Boulder
+        assertThat(RequestKind.of(session, url("https://example.com/acme/acct/12"), "POST", JSON),
+                is(RequestKind.ACCOUNT));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/order/12/34"), "POST", JSON),
+                is(RequestKind.ORDER));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/finalize/12/34"), "POST", JSON),
+                is(RequestKind.FINALIZE));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/authz-v3/56"), "POST", JSON),
+                is(RequestKind.AUTHORIZATION));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/chall-v3/56/Xyz"), "POST", JSON),
+                is(RequestKind.CHALLENGE));
+        assertThat(RequestKind.of(session, url("https://example.com/acme/cert/78"), "POST",
+                "application/pem-certificate-chain"), is(RequestKind.CERTIFICATE));
+
+        // Pebble
+        assertThat(RequestKind.of(session, url("https://example.com/my-account/1"), "POST", JSON),
+                is(RequestKind.ACCOUNT));
+        assertThat(RequestKind.of(session, url("https://example.com/authZ/abc"), "POST", JSON),
+                is(RequestKind.AUTHORIZATION));
+        assertThat(RequestKind.of(session, url("https://example.com/chalZ/abc"), "POST", JSON),
+                is(RequestKind.CHALLENGE));
+        assertThat(RequestKind.of(session, url("https://example.com/finalize-order/abc"), "POST", JSON),
+                is(RequestKind.FINALIZE));
+
+        assertThat(RequestKind.of(session, url("https://example.com/acme/foo"), "POST", JSON),
+                is(RequestKind.OTHER));
+    }
+
+}
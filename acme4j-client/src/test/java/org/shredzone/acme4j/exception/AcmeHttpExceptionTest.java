@@ -0,0 +1,43 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2016 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.exception;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AcmeHttpException}.
+ */
+public class AcmeHttpExceptionTest {
+
+    @Test
+    public void testAcmeHttpException() {
+        AcmeHttpException ex = new AcmeHttpException(503, "Service Unavailable");
+
+        assertThat(ex.getMessage(), is("HTTP 503: Service Unavailable"));
+        assertThat(ex.getStatus(), is(503));
+        assertThat(ex.isServerUnavailable(), is(true));
+    }
+
+    @Test
+    public void testClientError() {
+        AcmeHttpException ex = new AcmeHttpException(404, "Not Found");
+
+        assertThat(ex.getStatus(), is(404));
+        assertThat(ex.isServerUnavailable(), is(false));
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.jfr;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.toolbox.JSON;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+import org.shredzone.acme4j.toolbox.JoseUtils;
+import org.shredzone.acme4j.toolbox.TestUtils;
+
+/**
+ * Unit tests for {@link JfrSupport} and the Flight Recorder events.
+ */
+public class JfrSupportTest {
+
+    private static final URL URL = url("https://example.com/acme/order/1");
+
+    /**
+     * Test that the events are recorded.
+     */
+    @Test
+    public void testEvents() throws Exception {
+        assertThat(JfrSupport.isAvailable(), is(true));
+
+        Path file = Files.createTempFile("acme4j", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("org.shredzone.acme4j.JsonParse");
+                recording.enable("org.shredzone.acme4j.Sign");
+                recording.enable("org.shredzone.acme4j.BadNonce");
+                recording.enable("org.shredzone.acme4j.Problem");
+                recording.start();
+
+                JSON.parse("{\"status\":\"valid\"}");
+                JoseUtils.createJoseRequest(URL, TestUtils.createKeyPair(),
+                        new JSONBuilder().put("foo", 1), TestUtils.DUMMY_NONCE, null);
+                JfrSupport.badNonce(URL, 2);
+                JfrSupport.problem(URL, 403, new Problem(new JSONBuilder()
+                        .put("type", "urn:ietf:params:acme:error:unauthorized")
+                        .put("detail", "Access denied")
+                        .toJSON(), URL));
+
+                recording.stop();
+                recording.dump(file);
+            }
+
+            Map<String, List<RecordedEvent>> events = readEvents(file);
+            assertThat(events.keySet(), containsInAnyOrder(
+                    "org.shredzone.acme4j.JsonParse",
+                    "org.shredzone.acme4j.Sign",
+                    "org.shredzone.acme4j.BadNonce",
+                    "org.shredzone.acme4j.Problem"));
+
+            assertThat(events.get("org.shredzone.acme4j.JsonParse").stream()
+                    .map(event -> event.getLong("size"))
+                    .collect(toList()), hasItem(18L));
+
+            RecordedEvent sign = find(events, "org.shredzone.acme4j.Sign");
+            assertThat(sign.getString("url"), is(URL.toString()));
+            assertThat(sign.getString("algorithm"), is("RS256"));
+
+            RecordedEvent badNonce = find(events, "org.shredzone.acme4j.BadNonce");
+            assertThat(badNonce.getInt("attempt"), is(2));
+
+            RecordedEvent problem = find(events, "org.shredzone.acme4j.Problem");
+            assertThat(problem.getInt("status"), is(403));
+            assertThat(problem.getString("type"), is("urn:ietf:params:acme:error:unauthorized"));
+            assertThat(problem.getString("detail"), is("Access denied"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Finds the event of the given name that refers to the test URL. Other tests might
+     * emit events while recording.
+     */
+    private static RecordedEvent find(Map<String, List<RecordedEvent>> events, String name) {
+        return events.get(name).stream()
+                .filter(event -> URL.toString().equals(event.getString("url")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event for " + URL));
+    }
+
+    /**
+     * Reads the acme4j events from a recording, grouped by their names.
+     */
+    private static Map<String, List<RecordedEvent>> readEvents(Path file) throws IOException {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("org.shredzone.acme4j."))
+                .collect(groupingBy(event -> event.getEventType().getName()));
+    }
+
+}
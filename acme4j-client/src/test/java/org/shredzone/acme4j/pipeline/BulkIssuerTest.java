@@ -0,0 +1,254 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.shredzone.acme4j.Account;
+import org.shredzone.acme4j.Identifier;
+import org.shredzone.acme4j.OrderBuilder;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+
+/**
+ * Unit tests for {@link BulkIssuer}.
+ */
+public class BulkIssuerTest {
+
+    private static final byte[] CSR = new byte[] { 1, 2, 3 };
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private OrderPipeline pipeline;
+
+    @Before
+    public void setup() {
+        scheduler = new ScheduledThreadPoolExecutor(8);
+        pipeline = new OrderPipeline(scheduler, 64);
+        pipeline.setPollInterval(Duration.ofMillis(10));
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.close();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Test that all requests of a stream are issued, and the results are passed to the
+     * consumer.
+     */
+    @Test
+    public void testIssue() throws Exception {
+        MockCa ca = new MockCa(1000, Duration.ofSeconds(1), Duration.ZERO);
+        List<IssuanceResult> results = new CopyOnWriteArrayList<>();
+
+        try (BulkIssuer issuer = new BulkIssuer(ca.getAccount(), mock(ChallengeHandler.class), pipeline)) {
+            assertThat(issuer.getParallelism(), is(64));
+            issuer.setParallelism(2);
+
+            BulkMetrics metrics = issuer.issue(requests(5), results::add).get(10, TimeUnit.SECONDS);
+            assertThat(metrics.getAccepted(), is(5L));
+            assertThat(metrics.getSucceeded(), is(5L));
+            assertThat(metrics.getFailed(), is(0L));
+            assertThat(metrics.getInFlight(), is(0));
+            assertThat(metrics.getElapsed(), is(greaterThan(Duration.ZERO)));
+            assertThat(metrics.getAverageDuration(), is(greaterThan(Duration.ZERO)));
+            assertThat(metrics.toString(), containsString("5 succeeded"));
+        }
+
+        assertThat(results, hasSize(5));
+        for (IssuanceResult result : results) {
+            assertThat(result.isSuccessful(), is(true));
+            assertThat(result.getCertificate(), is(notNullValue()));
+            assertThat(result.getFailure(), is(nullValue()));
+            assertThat(result.getAttempts(), is(1));
+        }
+        assertThat(ca.getIssued(), hasSize(5));
+        assertThat(ca.getMaxConcurrent(), is(lessThanOrEqualTo(2)));
+    }
+
+    /**
+     * Test that a rate limited domain is held back, while other domains are issued.
+     */
+    @Test
+    public void testDomainRateLimit() throws Exception {
+        MockCa ca = new MockCa(1000, Duration.ofMillis(200), Duration.ZERO);
+        ca.limit("limited.org");
+        List<IssuanceResult> results = new CopyOnWriteArrayList<>();
+
+        try (BulkIssuer issuer = new BulkIssuer(ca.getAccount(), mock(ChallengeHandler.class), pipeline)) {
+            Stream<IssuanceRequest> requests = Stream.of(
+                    request("www.limited.org"),
+                    request("www.example.org"),
+                    request("www.example.com"));
+
+            scheduler.schedule(() -> ca.unlimit("limited.org"), 100, TimeUnit.MILLISECONDS);
+            BulkMetrics metrics = issuer.issue(requests, results::add).get(10, TimeUnit.SECONDS);
+
+            assertThat(metrics.getSucceeded(), is(3L));
+            assertThat(metrics.getRateLimited(), is(greaterThanOrEqualTo(1L)));
+        }
+
+        // the other domains are completed first
+        assertThat(results.get(2).getRequest().getIdentifiers(),
+                contains(Identifier.dns("www.limited.org")));
+        assertThat(results.get(2).getAttempts(), is(greaterThan(1)));
+        assertThat(results.get(0).getAttempts(), is(1));
+        assertThat(results.get(1).getAttempts(), is(1));
+    }
+
+    /**
+     * Test that a request fails if it hits a rate limit too often.
+     */
+    @Test
+    public void testRateLimitRetriesExhausted() throws Exception {
+        MockCa ca = new MockCa(1000, Duration.ofMillis(10), Duration.ZERO);
+        ca.limit("limited.org");
+        List<IssuanceResult> results = new CopyOnWriteArrayList<>();
+
+        try (BulkIssuer issuer = new BulkIssuer(ca.getAccount(), mock(ChallengeHandler.class), pipeline)) {
+            issuer.setMaxRateLimitRetries(2);
+
+            BulkMetrics metrics = issuer.issue(Stream.of(request("www.limited.org")), results::add)
+                    .get(10, TimeUnit.SECONDS);
+            assertThat(metrics.getSucceeded(), is(0L));
+            assertThat(metrics.getFailed(), is(1L));
+            assertThat(metrics.getRateLimited(), is(3L));
+        }
+
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).isSuccessful(), is(false));
+        assertThat(results.get(0).getFailure(), is(instanceOf(AcmeRateLimitedException.class)));
+        assertThat(results.get(0).getAttempts(), is(3));
+    }
+
+    /**
+     * Test that requests waiting for a rate limit are cancelled when the issuer is
+     * closed.
+     */
+    @Test
+    public void testClose() throws Exception {
+        MockCa ca = new MockCa(1000, Duration.ofHours(1), Duration.ZERO);
+        ca.limit("limited.org");
+        List<IssuanceResult> results = new CopyOnWriteArrayList<>();
+
+        BulkIssuer issuer = new BulkIssuer(ca.getAccount(), mock(ChallengeHandler.class), pipeline);
+        issuer.setParallelism(1);
+
+        Stream<IssuanceRequest> requests = Stream.of(request("www.limited.org"), request("www.example.org"));
+        CompletableFuture<BulkMetrics> future = issuer.issue(requests, results::add);
+
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (issuer.getRateLimitedUntil("limited.org") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(issuer.getRateLimitedUntil("www.limited.org"), is(greaterThan(Instant.now())));
+        assertThat(issuer.getRateLimitedUntil("www.example.org"), is(nullValue()));
+        assertThat(issuer.getRateLimitedUntil("unlimited.org"), is(nullValue()));
+
+        issuer.close();
+        BulkMetrics metrics = future.get(10, TimeUnit.SECONDS);
+
+        // the second request is not taken from the stream anymore
+        assertThat(metrics.getAccepted(), is(1L));
+        assertThat(results, hasSize(1));
+        assertThat(results.get(0).getFailure(), is(instanceOf(CancellationException.class)));
+    }
+
+    /**
+     * Test that a large stream of requests that fail synchronously does not overflow
+     * the stack.
+     */
+    @Test
+    public void testSynchronousFailures() throws Exception {
+        int count = 20_000;
+        OrderBuilder builder = mock(OrderBuilder.class, withSettings().stubOnly());
+        when(builder.identifiers(any())).thenReturn(builder);
+        Account account = mock(Account.class, withSettings().stubOnly());
+        when(account.newOrder()).thenReturn(builder);
+        LongAdder failures = new LongAdder();
+
+        pipeline.close();
+        try (BulkIssuer issuer = new BulkIssuer(account, mock(ChallengeHandler.class), pipeline)) {
+            issuer.setParallelism(4);
+            BulkMetrics metrics = issuer.issue(requests(count), result -> {
+                if (result.getFailure() instanceof IllegalStateException) {
+                    failures.increment();
+                }
+            }).get(60, TimeUnit.SECONDS);
+
+            assertThat(metrics.getAccepted(), is((long) count));
+            assertThat(metrics.getFailed(), is((long) count));
+            assertThat(metrics.getInFlight(), is(0));
+        }
+        assertThat(failures.sum(), is((long) count));
+    }
+
+    /**
+     * Load test against a mock CA that enforces a rate limit on new orders.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        int count = 1000;
+        int parallelism = 32;
+        MockCa ca = new MockCa(100, Duration.ofMillis(100), Duration.ofMillis(1));
+        List<IssuanceResult> results = new CopyOnWriteArrayList<>();
+
+        BulkMetrics metrics;
+        try (BulkIssuer issuer = new BulkIssuer(ca.getAccount(), mock(ChallengeHandler.class), pipeline)) {
+            issuer.setParallelism(parallelism);
+            issuer.setMaxRateLimitRetries(100);
+            metrics = issuer.issue(requests(count), results::add).get(60, TimeUnit.SECONDS);
+        }
+
+        assertThat(metrics.getAccepted(), is((long) count));
+        assertThat(metrics.getSucceeded(), is((long) count));
+        assertThat(metrics.getFailed(), is(0L));
+        assertThat(metrics.getInFlight(), is(0));
+        assertThat(metrics.getThroughput(), is(greaterThan(0.0)));
+        assertThat(metrics.getRateLimited(), is((long) ca.getRejected()));
+
+        assertThat(results, hasSize(count));
+        assertThat(ca.getIssued(), hasSize(count));
+        assertThat(ca.getCreated(), is(count));
+        assertThat(ca.getMaxConcurrent(), is(lessThanOrEqualTo(parallelism)));
+    }
+
+    private static Stream<IssuanceRequest> requests(int count) {
+        return IntStream.range(0, count).mapToObj(ix -> request("host" + ix + ".example.org"));
+    }
+
+    private static IssuanceRequest request(String domain) {
+        return new IssuanceRequest(Collections.singletonList(Identifier.dns(domain)), CSR);
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.shredzone.acme4j.Account;
+import org.shredzone.acme4j.Certificate;
+import org.shredzone.acme4j.Identifier;
+import org.shredzone.acme4j.Order;
+import org.shredzone.acme4j.OrderBuilder;
+import org.shredzone.acme4j.Problem;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRateLimitedException;
+import org.shredzone.acme4j.toolbox.JSONBuilder;
+
+/**
+ * An in-process mock of a CA, for testing bulk issuance.
+ * <p>
+ * Orders are processed with a latency, and pass the {@code ready} and
+ * {@code processing} states before they become valid. The CA enforces a limit of new
+ * orders per time window for the entire account. Domains can be rate limited
+ * individually.
+ */
+public class MockCa {
+
+    private final int ordersPerWindow;
+    private final long windowMillis;
+    private final long latencyMillis;
+    private final Account account = mock(Account.class);
+    private final Set<String> limitedDomains = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final List<Collection<Identifier>> issued = Collections.synchronizedList(new ArrayList<>());
+
+    private long windowStart = System.currentTimeMillis();
+    private int windowOrders = 0;
+
+    /**
+     * Creates a new {@link MockCa}.
+     *
+     * @param ordersPerWindow
+     *         Number of new orders that are accepted per window
+     * @param window
+     *         Duration of the rate limit window
+     * @param latency
+     *         Time it takes to create an order
+     */
+    public MockCa(int ordersPerWindow, Duration window, Duration latency) {
+        this.ordersPerWindow = ordersPerWindow;
+        this.windowMillis = window.toMillis();
+        this.latencyMillis = latency.toMillis();
+
+        when(account.newOrder()).thenAnswer(inv -> newOrderBuilder());
+    }
+
+    /**
+     * Returns the {@link Account} to be used for ordering.
+     */
+    public Account getAccount() {
+        return account;
+    }
+
+    /**
+     * Rate limits the given domain and its subdomains, until {@link #unlimit(String)}
+     * is invoked.
+     */
+    public void limit(String domain) {
+        limitedDomains.add(domain);
+    }
+
+    /**
+     * Removes the rate limit of the given domain.
+     */
+    public void unlimit(String domain) {
+        limitedDomains.remove(domain);
+    }
+
+    /**
+     * Returns the number of orders that were created.
+     */
+    public int getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Returns the number of new orders that were rejected because of a rate limit.
+     */
+    public int getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the maximum number of orders that were created at the same time.
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent.get();
+    }
+
+    /**
+     * Returns the identifiers of all certificates that were issued.
+     */
+    public List<Collection<Identifier>> getIssued() {
+        return issued;
+    }
+
+    private OrderBuilder newOrderBuilder() throws AcmeException {
+        List<Identifier> identifiers = new ArrayList<>();
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.identifiers(any())).thenAnswer(inv -> {
+            identifiers.addAll(inv.getArgument(0));
+            return builder;
+        });
+        when(builder.create()).thenAnswer(inv -> createOrder(identifiers));
+        return builder;
+    }
+
+    private Order createOrder(List<Identifier> identifiers) throws Exception {
+        int now = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(now, Math::max);
+        try {
+            Thread.sleep(latencyMillis);
+
+            for (Identifier id : identifiers) {
+                for (String domain : limitedDomains) {
+                    if (id.getDomain().endsWith(domain)) {
+                        rejected.incrementAndGet();
+                        throw rateLimited("Too many certificates for " + domain,
+                                Instant.now().plusMillis(windowMillis));
+                    }
+                }
+            }
+
+            Instant retryAfter = checkWindow();
+            if (retryAfter != null) {
+                rejected.incrementAndGet();
+                throw rateLimited("Too many new orders", retryAfter);
+            }
+
+            created.incrementAndGet();
+            return order(identifiers);
+        } finally {
+            concurrent.decrementAndGet();
+        }
+    }
+
+    private synchronized Instant checkWindow() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= windowMillis) {
+            windowStart = now;
+            windowOrders = 0;
+        }
+        if (windowOrders >= ordersPerWindow) {
+            return Instant.ofEpochMilli(windowStart + windowMillis);
+        }
+        windowOrders++;
+        return null;
+    }
+
+    private Order order(List<Identifier> identifiers) throws AcmeException {
+        Certificate certificate = mock(Certificate.class);
+        doAnswer(inv -> issued.add(identifiers)).when(certificate).download();
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.emptyList());
+        when(order.getStatus()).thenReturn(Status.READY, Status.PROCESSING, Status.VALID);
+        when(order.getCertificate()).thenReturn(certificate);
+        return order;
+    }
+
+    private static AcmeRateLimitedException rateLimited(String detail, Instant retryAfter) {
+        Problem problem = new Problem(new JSONBuilder()
+                .put("type", "urn:ietf:params:acme:error:rateLimited")
+                .put("detail", detail)
+                .toJSON(), url("https://example.com/acme/new-order"));
+        return new AcmeRateLimitedException(problem, retryAfter, null);
+    }
+
+}
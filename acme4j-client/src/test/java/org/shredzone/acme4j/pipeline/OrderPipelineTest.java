@@ -0,0 +1,348 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.shredzone.acme4j.Authorization;
+import org.shredzone.acme4j.Certificate;
+import org.shredzone.acme4j.Order;
+import org.shredzone.acme4j.OrderBuilder;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.challenge.Challenge;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+
+/**
+ * Unit tests for {@link OrderPipeline}.
+ */
+public class OrderPipelineTest {
+
+    private static final byte[] CSR = new byte[] { 1, 2, 3 };
+
+    private OrderPipeline pipeline;
+
+    @Before
+    public void setup() {
+        pipeline = new OrderPipeline();
+        pipeline.setPollInterval(Duration.ofMillis(10));
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    /**
+     * Test that an order is driven through its entire life cycle.
+     */
+    @Test
+    public void testOrder() throws Exception {
+        Challenge challenge = mock(Challenge.class);
+        when(challenge.getStatus()).thenReturn(Status.PENDING);
+
+        Authorization validAuth = mock(Authorization.class);
+        when(validAuth.getStatus()).thenReturn(Status.VALID);
+
+        Authorization pendingAuth = mock(Authorization.class);
+        when(pendingAuth.getStatus()).thenReturn(Status.PENDING, Status.PENDING, Status.VALID);
+        doThrow(new AcmeRetryAfterException("retry", Instant.now().plusMillis(50)))
+                .doNothing()
+                .when(pendingAuth).update();
+
+        Certificate certificate = mock(Certificate.class);
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Arrays.asList(validAuth, pendingAuth));
+        when(order.getStatus()).thenReturn(Status.READY, Status.PROCESSING, Status.VALID);
+        when(order.getCertificate()).thenReturn(certificate);
+
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).thenReturn(order);
+
+        ChallengeHandler handler = mock(ChallengeHandler.class);
+        when(handler.prepare(pendingAuth)).thenReturn(challenge);
+
+        CompletableFuture<Certificate> future = pipeline.submit(builder, CSR, handler);
+        assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(certificate)));
+
+        verify(handler, never()).prepare(validAuth);
+        verify(challenge).trigger();
+        verify(pendingAuth, times(2)).update();
+        verify(handler).cleanup(challenge);
+        verify(order).execute(CSR);
+        verify(certificate).download();
+
+        assertThat(pipeline.getRunningOrders(), is(0));
+        assertThat(pipeline.getQueuedOrders(), is(0));
+    }
+
+    /**
+     * Test that a failed authorization fails the order, and that the challenge is
+     * cleaned up.
+     */
+    @Test
+    public void testFailedAuthorization() throws Exception {
+        Challenge challenge = mock(Challenge.class);
+        when(challenge.getStatus()).thenReturn(Status.PENDING);
+
+        Authorization auth = mock(Authorization.class);
+        when(auth.getStatus()).thenReturn(Status.PENDING, Status.INVALID);
+        when(auth.getChallenges()).thenReturn(Collections.singletonList(challenge));
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.singletonList(auth));
+
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).thenReturn(order);
+
+        ChallengeHandler handler = mock(ChallengeHandler.class);
+        when(handler.prepare(auth)).thenReturn(challenge);
+
+        try {
+            pipeline.submit(builder, CSR, handler).get(10, TimeUnit.SECONDS);
+            fail("order did not fail");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(AcmeException.class)));
+        }
+
+        verify(handler).cleanup(challenge);
+        verify(order, never()).execute(any());
+        assertThat(pipeline.getRunningOrders(), is(0));
+    }
+
+    /**
+     * Test that an order fails if it is not completed in time.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        Authorization auth = mock(Authorization.class);
+        when(auth.getStatus()).thenReturn(Status.VALID);
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.singletonList(auth));
+        when(order.getStatus()).thenReturn(Status.PENDING);
+
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).thenReturn(order);
+
+        pipeline.setTimeout(Duration.ofMillis(100));
+
+        try {
+            pipeline.submit(builder, CSR, mock(ChallengeHandler.class)).get(10, TimeUnit.SECONDS);
+            fail("order did not time out");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(AcmeException.class)));
+            assertThat(ex.getCause().getMessage(), containsString("was not completed"));
+        }
+    }
+
+    /**
+     * Test that the number of concurrently processed orders is limited.
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(4);
+        pipeline.close();
+        pipeline = new OrderPipeline(scheduler, 2);
+
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Certificate certificate = mock(Certificate.class);
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.emptyList());
+        when(order.getStatus()).thenReturn(Status.VALID);
+        when(order.getCertificate()).thenReturn(certificate);
+
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).then(inv -> {
+            latch.await();
+            return order;
+        });
+
+        List<CompletableFuture<Certificate>> futures = new ArrayList<>();
+        for (int ix = 0; ix < 5; ix++) {
+            futures.add(pipeline.submit(builder, CSR, mock(ChallengeHandler.class)));
+        }
+
+        assertThat(pipeline.getMaxConcurrentOrders(), is(2));
+        assertThat(pipeline.getRunningOrders(), is(2));
+        assertThat(pipeline.getQueuedOrders(), is(3));
+
+        latch.countDown();
+
+        for (CompletableFuture<Certificate> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS), is(sameInstance(certificate)));
+        }
+        assertThat(pipeline.getRunningOrders(), is(0));
+        assertThat(pipeline.getQueuedOrders(), is(0));
+
+        pipeline.close();
+        assertThat(scheduler.isShutdown(), is(false));
+        scheduler.shutdown();
+    }
+
+    /**
+     * Test that cancelling an order releases its concurrency slot right away, even if a
+     * request of the order is still in progress.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        pipeline.close();
+        pipeline = new OrderPipeline(executor, 1);
+
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderBuilder blocking = mock(OrderBuilder.class);
+        when(blocking.create()).then(inv -> {
+            creating.countDown();
+            release.await();
+            return mock(Order.class);
+        });
+
+        Certificate certificate = mock(Certificate.class);
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.emptyList());
+        when(order.getStatus()).thenReturn(Status.VALID);
+        when(order.getCertificate()).thenReturn(certificate);
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).thenReturn(order);
+
+        CompletableFuture<Certificate> blocked = pipeline.submit(blocking, CSR, mock(ChallengeHandler.class));
+        assertThat(creating.await(10, TimeUnit.SECONDS), is(true));
+
+        CompletableFuture<Certificate> next = pipeline.submit(builder, CSR, mock(ChallengeHandler.class));
+        assertThat(pipeline.getQueuedOrders(), is(1));
+
+        // The next order is started while the first one is still blocked
+        blocked.cancel(false);
+        assertThat(next.get(10, TimeUnit.SECONDS), is(sameInstance(certificate)));
+        assertThat(pipeline.getRunningOrders(), is(0));
+
+        release.countDown();
+        executor.shutdown();
+    }
+
+    /**
+     * Test that closing the pipeline does not wait for requests in progress.
+     */
+    @Test
+    public void testCloseDoesNotWait() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        pipeline.close();
+        pipeline = new OrderPipeline(executor, 4);
+
+        Challenge challenge = mock(Challenge.class);
+        when(challenge.getStatus()).thenReturn(Status.PENDING);
+
+        Authorization auth = mock(Authorization.class);
+        when(auth.getStatus()).thenReturn(Status.PENDING);
+
+        CountDownLatch triggered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            triggered.countDown();
+            release.await();
+            return null;
+        }).when(challenge).trigger();
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.singletonList(auth));
+
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).thenReturn(order);
+
+        ChallengeHandler handler = mock(ChallengeHandler.class);
+        when(handler.prepare(auth)).thenReturn(challenge);
+
+        CompletableFuture<Certificate> future = pipeline.submit(builder, CSR, handler);
+        assertThat(triggered.await(10, TimeUnit.SECONDS), is(true));
+
+        // The order is blocked in the trigger request, close must return anyway
+        pipeline.close();
+        assertThat(future.isCancelled(), is(true));
+        assertThat(pipeline.getRunningOrders(), is(0));
+        verify(handler, never()).cleanup(challenge);
+
+        // The challenge is cleaned up as soon as the request has returned
+        release.countDown();
+        verify(handler, timeout(10000L)).cleanup(challenge);
+        verify(auth, never()).update();
+        executor.shutdown();
+    }
+
+    /**
+     * Test that closing the pipeline cancels all orders.
+     */
+    @Test
+    public void testClose() throws Exception {
+        Challenge challenge = mock(Challenge.class);
+        when(challenge.getStatus()).thenReturn(Status.PENDING);
+
+        Authorization auth = mock(Authorization.class);
+        when(auth.getStatus()).thenReturn(Status.PENDING);
+
+        Order order = mock(Order.class);
+        when(order.getAuthorizationsToValidate()).thenReturn(Collections.singletonList(auth));
+
+        OrderBuilder builder = mock(OrderBuilder.class);
+        when(builder.create()).thenReturn(order);
+
+        CountDownLatch prepared = new CountDownLatch(1);
+        ChallengeHandler handler = mock(ChallengeHandler.class);
+        when(handler.prepare(auth)).then(inv -> {
+            prepared.countDown();
+            return challenge;
+        });
+
+        CompletableFuture<Certificate> future = pipeline.submit(builder, CSR, handler);
+        assertThat(prepared.await(10, TimeUnit.SECONDS), is(true));
+
+        pipeline.close();
+
+        assertThat(future.isCancelled(), is(true));
+        verify(handler, timeout(10000L)).cleanup(challenge);
+
+        try {
+            pipeline.submit(builder, CSR, handler);
+            fail("accepted an order after close");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+}
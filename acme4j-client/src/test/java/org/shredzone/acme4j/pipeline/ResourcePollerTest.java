@@ -0,0 +1,168 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.shredzone.acme4j.AcmeJsonResource;
+import org.shredzone.acme4j.Authorization;
+import org.shredzone.acme4j.Status;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeNetworkException;
+import org.shredzone.acme4j.exception.AcmeRetryAfterException;
+import org.shredzone.acme4j.toolbox.JSON;
+
+/**
+ * Unit tests for {@link ResourcePoller}.
+ */
+public class ResourcePollerTest {
+
+    private static final JSON PENDING = JSON.parse("{\"status\":\"pending\"}");
+    private static final JSON VALID = JSON.parse("{\"status\":\"valid\"}");
+
+    private ResourcePoller poller;
+
+    @Before
+    public void setup() {
+        poller = new ResourcePoller(Duration.ofMillis(5));
+        poller.setMinInterval(Duration.ofMillis(10));
+        poller.setMaxInterval(Duration.ofMillis(40));
+    }
+
+    @After
+    public void tearDown() {
+        poller.close();
+    }
+
+    /**
+     * Test that a resource is polled until its status has changed, and that the
+     * Retry-After instant is respected.
+     */
+    @Test
+    public void testWatch() throws Exception {
+        Instant retryAfter = Instant.now().plusMillis(100);
+
+        Authorization auth = mock(Authorization.class);
+        mockUpdateAsync(auth);
+        when(auth.getJSON()).thenReturn(PENDING, PENDING, PENDING, VALID);
+        doThrow(new AcmeRetryAfterException("retry", retryAfter))
+                .doNothing()
+                .when(auth).update();
+
+        List<Status> changes = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        poller.addStatusListener((resource, oldStatus, newStatus) -> {
+            assertThat(resource, is(sameInstance(auth)));
+            changes.add(oldStatus);
+            changes.add(newStatus);
+            changes.add(Instant.now().isBefore(retryAfter) ? Status.INVALID : Status.VALID);
+            latch.countDown();
+        });
+
+        poller.watch(auth);
+        assertThat(poller.isWatching(auth), is(true));
+        assertThat(poller.getWatchCount(), is(1));
+
+        assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(changes, contains(Status.PENDING, Status.VALID, Status.VALID));
+        verify(auth, times(3)).update();
+        assertThat(poller.isWatching(auth), is(false));
+    }
+
+    /**
+     * Test that a resource is not watched any more if it could not be updated.
+     */
+    @Test
+    public void testFailure() throws Exception {
+        AcmeException failure = new AcmeNetworkException(new IOException("Connection refused"));
+
+        Authorization auth = mock(Authorization.class);
+        mockUpdateAsync(auth);
+        when(auth.getJSON()).thenReturn(PENDING);
+        doThrow(failure).when(auth).update();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        poller.addStatusListener(new StatusListener() {
+            @Override
+            public void onStatusChanged(AcmeJsonResource resource, Status oldStatus, Status newStatus) {
+                throw new IllegalStateException("unexpected status change");
+            }
+
+            @Override
+            public void onFailure(AcmeJsonResource resource, AcmeException ex) {
+                assertThat(ex, is(sameInstance(failure)));
+                latch.countDown();
+            }
+        });
+
+        poller.watch(auth);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(poller.isWatching(auth), is(false));
+    }
+
+    /**
+     * Test that an unwatched resource is not updated any more.
+     */
+    @Test
+    public void testUnwatch() throws Exception {
+        Authorization auth = mock(Authorization.class);
+        mockUpdateAsync(auth);
+        when(auth.getJSON()).thenReturn(PENDING);
+
+        poller.setMaxInterval(Duration.ofMinutes(1));
+        poller.setMinInterval(Duration.ofMinutes(1));
+
+        poller.watch(auth);
+        poller.watch(auth);
+        assertThat(poller.getWatchCount(), is(1));
+
+        poller.unwatch(auth);
+        assertThat(poller.isWatching(auth), is(false));
+        assertThat(poller.getWatchCount(), is(0));
+        verify(auth, never()).update();
+    }
+
+    /**
+     * Lets {@link AcmeJsonResource#updateAsync()} of the mock invoke its
+     * {@link AcmeJsonResource#update()} method.
+     */
+    private static void mockUpdateAsync(AcmeJsonResource resource) {
+        when(resource.updateAsync()).then(inv -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            try {
+                resource.update();
+                future.complete(null);
+            } catch (AcmeException ex) {
+                future.completeExceptionally(ex);
+            }
+            return future;
+        });
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.pipeline;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TimerWheel}.
+ */
+public class TimerWheelTest {
+
+    /**
+     * Test that tasks are executed in order, and never before their delay has passed.
+     * The wheel is kept small, so some of the tasks need more than one revolution.
+     */
+    @Test
+    public void testSchedule() throws InterruptedException {
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 4)) {
+            long start = System.nanoTime();
+            long[] elapsed = new long[3];
+            int[] delays = new int[] { 150, 10, 60 };
+
+            for (int ix = 0; ix < delays.length; ix++) {
+                int index = ix;
+                wheel.schedule(() -> {
+                    elapsed[index] = System.nanoTime() - start;
+                    executed.add(delays[index]);
+                    latch.countDown();
+                }, Duration.ofMillis(delays[ix]));
+            }
+
+            assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(executed, contains(10, 60, 150));
+            for (int ix = 0; ix < delays.length; ix++) {
+                assertThat(elapsed[ix], greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(delays[ix])));
+            }
+        }
+    }
+
+    /**
+     * Test that cancelled tasks are not executed.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 16)) {
+            TimerWheel.Timeout cancelled = wheel.schedule(() -> executed.add("cancelled"),
+                    Duration.ofMillis(20));
+            wheel.schedule(() -> {
+                executed.add("executed");
+                latch.countDown();
+            }, Duration.ofMillis(50));
+
+            cancelled.cancel();
+            assertThat(cancelled.isCancelled(), is(true));
+
+            assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(executed, contains("executed"));
+        }
+    }
+
+    /**
+     * Test that the worker thread parks while no timeouts are scheduled, and wakes up
+     * when a new timeout is scheduled.
+     */
+    @Test
+    public void testIdle() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 16)) {
+            awaitIdle(wheel);
+
+            for (int ix = 0; ix < 2; ix++) {
+                CountDownLatch latch = new CountDownLatch(1);
+                long start = System.nanoTime();
+                wheel.schedule(latch::countDown, Duration.ofMillis(20));
+                assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+                assertThat(System.nanoTime() - start,
+                        is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20))));
+
+                // the wheel is idle again after the timeout has expired
+                awaitIdle(wheel);
+                Thread.sleep(50L);
+                assertThat(wheel.isIdle(), is(true));
+            }
+        }
+    }
+
+    /**
+     * Test that no tasks are accepted after the wheel was closed.
+     */
+    @Test
+    public void testClose() {
+        TimerWheel wheel = new TimerWheel(Duration.ofMillis(5), 16);
+        wheel.close();
+
+        try {
+            wheel.schedule(() -> {}, Duration.ZERO);
+            fail("accepted a task after close");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private static void awaitIdle(TimerWheel wheel) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (!wheel.isIdle() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertThat(wheel.isIdle(), is(true));
+    }
+
+}
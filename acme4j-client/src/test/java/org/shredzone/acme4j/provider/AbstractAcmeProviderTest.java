@@ -20,9 +20,12 @@ import static org.mockito.Mockito.*;
 import static org.shredzone.acme4j.toolbox.TestUtils.getJSON;
 import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONAs;
 
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.shredzone.acme4j.Login;
@@ -32,9 +35,12 @@ import org.shredzone.acme4j.challenge.Dns01Challenge;
 import org.shredzone.acme4j.challenge.Http01Challenge;
 import org.shredzone.acme4j.challenge.TlsAlpn01Challenge;
 import org.shredzone.acme4j.challenge.TokenChallenge;
+import org.shredzone.acme4j.connector.CachedDirectory;
 import org.shredzone.acme4j.connector.Connection;
 import org.shredzone.acme4j.connector.DefaultConnection;
+import org.shredzone.acme4j.connector.DirectoryCache;
 import org.shredzone.acme4j.connector.HttpConnector;
+import org.shredzone.acme4j.connector.MemoryDirectoryCache;
 import org.shredzone.acme4j.exception.AcmeException;
 import org.shredzone.acme4j.exception.AcmeProtocolException;
 import org.shredzone.acme4j.toolbox.JSON;
@@ -53,7 +59,7 @@ public class AbstractAcmeProviderTest {
     public void testConnect() {
         final URI testServerUri = URI.create("http://example.com/acme");
 
-        final AtomicBoolean invoked = new AtomicBoolean();
+        final AtomicInteger invoked = new AtomicInteger();
 
         AbstractAcmeProvider provider = new AbstractAcmeProvider() {
             @Override
@@ -68,7 +74,7 @@ public class AbstractAcmeProviderTest {
 
             @Override
             protected HttpConnector createHttpConnector() {
-                invoked.set(true);
+                invoked.incrementAndGet();
                 return super.createHttpConnector();
             }
         };
@@ -76,7 +82,12 @@ public class AbstractAcmeProviderTest {
         Connection connection = provider.connect(testServerUri);
         assertThat(connection, not(nullValue()));
         assertThat(connection, instanceOf(DefaultConnection.class));
-        assertThat(invoked.get(), is(true));
+        assertThat(invoked.get(), is(1));
+
+        // the HttpConnector is shared by all connections
+        Connection connection2 = provider.connect(testServerUri);
+        assertThat(connection2, not(sameInstance(connection)));
+        assertThat(invoked.get(), is(1));
     }
 
     /**
@@ -86,12 +97,128 @@ public class AbstractAcmeProviderTest {
     public void testResources() throws AcmeException {
         final URI testServerUri = URI.create("http://example.com/acme");
         final URL testResolvedUrl = TestUtils.url("http://example.com/acme/directory");
+        final Instant lastModified = Instant.parse("2020-01-10T14:15:00Z");
         final Connection connection = mock(Connection.class);
         final Session session = mock(Session.class);
+        final DirectoryCache cache = new MemoryDirectoryCache();
 
+        when(session.getDirectoryCache()).thenReturn(cache);
+        when(connection.sendConditionalRequest(testResolvedUrl, session, null, null))
+                .thenReturn(HttpURLConnection.HTTP_OK);
         when(connection.readJsonResponse()).thenReturn(getJSON("directory"));
+        when(connection.getETag()).thenReturn("\"abc123\"");
+        when(connection.getLastModified()).thenReturn(lastModified);
 
-        AbstractAcmeProvider provider = new AbstractAcmeProvider() {
+        AbstractAcmeProvider provider = createDirectoryProvider(testServerUri,
+                testResolvedUrl, connection);
+
+        JSON map = provider.directory(session, testServerUri);
+        assertThat(map.toString(), sameJSONAs(TestUtils.getJSON("directory").toString()));
+
+        CachedDirectory cached = cache.get(testServerUri);
+        assertThat(cached, not(nullValue()));
+        assertThat(cached.getDirectory(), is(sameInstance(map)));
+        assertThat(cached.getETag(), is("\"abc123\""));
+        assertThat(cached.getLastModified(), is(lastModified));
+        assertThat(cached.isExpired(), is(false));
+
+        verify(connection).sendConditionalRequest(testResolvedUrl, session, null, null);
+        verify(connection).getNonce();
+        verify(connection).getExpiration();
+        verify(connection).getETag();
+        verify(connection).getLastModified();
+        verify(connection).readJsonResponse();
+        verify(connection).close();
+        verifyNoMoreInteractions(connection);
+    }
+
+    /**
+     * Verify that an expired directory is revalidated, and reused if it was not
+     * modified.
+     */
+    @Test
+    public void testResourcesNotModified() throws AcmeException {
+        final URI testServerUri = URI.create("http://example.com/acme");
+        final URL testResolvedUrl = TestUtils.url("http://example.com/acme/directory");
+        final Instant lastModified = Instant.parse("2020-01-10T14:15:00Z");
+        final Connection connection = mock(Connection.class);
+        final Session session = mock(Session.class);
+        final DirectoryCache cache = new MemoryDirectoryCache();
+        final JSON directory = getJSON("directory");
+
+        cache.put(testServerUri, new CachedDirectory(directory, Instant.now(),
+                "\"abc123\"", lastModified));
+
+        when(session.getDirectoryCache()).thenReturn(cache);
+        when(connection.sendConditionalRequest(testResolvedUrl, session, "\"abc123\"", lastModified))
+                .thenReturn(HttpURLConnection.HTTP_NOT_MODIFIED);
+        when(connection.getExpiration()).thenReturn(Instant.now().plus(Duration.ofDays(1)));
+
+        AbstractAcmeProvider provider = createDirectoryProvider(testServerUri,
+                testResolvedUrl, connection);
+
+        JSON map = provider.directory(session, testServerUri);
+        assertThat(map, is(sameInstance(directory)));
+
+        CachedDirectory cached = cache.get(testServerUri);
+        assertThat(cached, not(nullValue()));
+        assertThat(cached.getDirectory(), is(sameInstance(directory)));
+        assertThat(cached.getETag(), is("\"abc123\""));
+        assertThat(cached.getLastModified(), is(lastModified));
+        assertThat(cached.getExpires(), is(greaterThan(Instant.now().plus(Duration.ofHours(23)))));
+
+        verify(connection, never()).readJsonResponse();
+    }
+
+    /**
+     * Verify that the directory expiration sent by the server is kept within sane
+     * limits.
+     */
+    @Test
+    public void testResourcesExpiration() throws AcmeException {
+        final URI testServerUri = URI.create("http://example.com/acme");
+        final URL testResolvedUrl = TestUtils.url("http://example.com/acme/directory");
+        final Connection connection = mock(Connection.class);
+        final Session session = mock(Session.class);
+        final DirectoryCache cache = new MemoryDirectoryCache();
+
+        when(session.getDirectoryCache()).thenReturn(cache);
+        when(connection.sendConditionalRequest(testResolvedUrl, session, null, null))
+                .thenReturn(HttpURLConnection.HTTP_OK);
+        when(connection.readJsonResponse()).thenReturn(getJSON("directory"));
+
+        AbstractAcmeProvider provider = createDirectoryProvider(testServerUri,
+                testResolvedUrl, connection);
+
+        // no caching headers
+        when(connection.getExpiration()).thenReturn(null);
+        provider.directory(session, testServerUri);
+        assertThat(cache.get(testServerUri).getExpires(),
+                is(both(greaterThan(Instant.now().plus(Duration.ofMinutes(59))))
+                        .and(lessThan(Instant.now().plus(Duration.ofMinutes(61))))));
+
+        // "Cache-Control: no-cache"
+        cache.remove(testServerUri);
+        when(connection.getExpiration()).thenReturn(Instant.now());
+        provider.directory(session, testServerUri);
+        assertThat(cache.get(testServerUri).getExpires(),
+                is(greaterThan(Instant.now().plus(Duration.ofMinutes(9)))));
+
+        // far future
+        cache.remove(testServerUri);
+        when(connection.getExpiration()).thenReturn(Instant.now().plus(Duration.ofDays(365)));
+        provider.directory(session, testServerUri);
+        assertThat(cache.get(testServerUri).getExpires(),
+                is(lessThan(Instant.now().plus(Duration.ofDays(8)))));
+    }
+
+    /**
+     * Creates an {@link AbstractAcmeProvider} that reads the directory from the given
+     * {@link Connection}.
+     */
+    private static AbstractAcmeProvider createDirectoryProvider(URI testServerUri,
+                URL testResolvedUrl, Connection connection) {
+        return new AbstractAcmeProvider() {
             @Override
             public Connection connect(URI serverUri) {
                 assertThat(serverUri, is(testServerUri));
@@ -110,15 +237,6 @@ public class AbstractAcmeProviderTest {
                 return testResolvedUrl;
             }
         };
-
-        JSON map = provider.directory(session, testServerUri);
-        assertThat(map.toString(), sameJSONAs(TestUtils.getJSON("directory").toString()));
-
-        verify(connection).sendRequest(testResolvedUrl, session);
-        verify(connection).getNonce();
-        verify(connection).readJsonResponse();
-        verify(connection).close();
-        verifyNoMoreInteractions(connection);
     }
 
     /**
@@ -13,15 +13,18 @@
  */
 package org.shredzone.acme4j.provider.letsencrypt;
 
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.shredzone.acme4j.toolbox.TestUtils.url;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 
 import org.junit.Test;
+import org.shredzone.acme4j.connector.RateLimit;
+import org.shredzone.acme4j.connector.Resource;
 
 /**
  * Unit tests for {@link LetsEncryptAcmeProvider}.
@@ -67,4 +70,20 @@ public class LetsEncryptAcmeProviderTest {
         }
     }
 
+    /**
+     * Test that the rate limits of Let's Encrypt are provided.
+     */
+    @Test
+    public void testRateLimits() {
+        LetsEncryptAcmeProvider provider = new LetsEncryptAcmeProvider();
+
+        List<RateLimit> limits = provider.getRateLimits();
+        assertThat(limits, is(not(empty())));
+        assertThat(limits.stream()
+                .filter(l -> l.getResource() == Resource.NEW_ORDER)
+                .filter(l -> l.getScope() == RateLimit.Scope.DOMAIN)
+                .mapToInt(RateLimit::getPermits)
+                .findFirst().getAsInt(), is(50));
+    }
+
 }
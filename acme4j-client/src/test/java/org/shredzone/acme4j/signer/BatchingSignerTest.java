@@ -0,0 +1,202 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.security.KeyPair;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.shredzone.acme4j.exception.AcmeException;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+import org.shredzone.acme4j.toolbox.TestUtils;
+
+/**
+ * Unit tests for {@link BatchingSigner}.
+ */
+public class BatchingSignerTest {
+
+    /**
+     * Test that concurrent requests are signed in batches, and that all signatures are
+     * valid.
+     */
+    @Test
+    public void testBatching() throws Exception {
+        KeyPair keypair = TestUtils.createKeyPair();
+        LocalSigningService service = new LocalSigningService(keypair, Duration.ofMillis(50));
+
+        try (BatchingSigner signer = new BatchingSigner(service.getPublicKey(), service,
+                    4, Duration.ofMillis(200))) {
+            assertThat(signer.getPublicKey(), is(keypair.getPublic()));
+            assertThat(signer.getAlgorithm(), is("RS256"));
+            assertThat(signer.getMaxBatchSize(), is(4));
+            assertThat(signer.getMaxDelay(), is(Duration.ofMillis(200)));
+
+            List<byte[]> inputs = new ArrayList<>();
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            for (int ix = 0; ix < 10; ix++) {
+                byte[] input = ("header." + ix).getBytes(US_ASCII);
+                inputs.add(input);
+                futures.add(signer.signAsync(input));
+            }
+
+            for (int ix = 0; ix < inputs.size(); ix++) {
+                byte[] signature = futures.get(ix).get(5, TimeUnit.SECONDS);
+                assertThat(verify(keypair, inputs.get(ix), signature), is(true));
+            }
+        }
+
+        assertThat(service.getSignatureCount(), is(10));
+        assertThat(service.getBatchCount(), is(both(greaterThanOrEqualTo(3)).and(lessThan(10))));
+    }
+
+    /**
+     * Test that a single request is signed after the maximum delay.
+     */
+    @Test
+    public void testSingle() throws Exception {
+        KeyPair keypair = TestUtils.createKeyPair();
+        LocalSigningService service = new LocalSigningService(keypair);
+
+        try (BatchingSigner signer = new BatchingSigner(service.getPublicKey(), service,
+                    10, Duration.ofMillis(50))) {
+            byte[] input = "header.payload".getBytes(US_ASCII);
+            byte[] signature = signer.sign(input);
+            assertThat(verify(keypair, input, signature), is(true));
+        }
+
+        assertThat(service.getBatchCount(), is(1));
+        assertThat(service.getSignatureCount(), is(1));
+    }
+
+    /**
+     * Test that all requests of a batch fail if the service returns a wrong number of
+     * signatures.
+     */
+    @Test
+    public void testMismatch() throws Exception {
+        KeyPair keypair = TestUtils.createKeyPair();
+        BatchSigningService service = inputs -> Collections.singletonList(new byte[0]);
+
+        try (BatchingSigner signer = new BatchingSigner(keypair.getPublic(), service,
+                    2, Duration.ofSeconds(10))) {
+            CompletableFuture<byte[]> f1 = signer.signAsync("a.b".getBytes(US_ASCII));
+            CompletableFuture<byte[]> f2 = signer.signAsync("c.d".getBytes(US_ASCII));
+
+            for (CompletableFuture<byte[]> f : Arrays.asList(f1, f2)) {
+                try {
+                    f.get(5, TimeUnit.SECONDS);
+                    fail("signature mismatch was accepted");
+                } catch (ExecutionException ex) {
+                    assertThat(ex.getCause(), is(instanceOf(AcmeProtocolException.class)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that {@link BatchingSigner#sign(byte[])} does not wait forever for a service
+     * that never responds.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        KeyPair keypair = TestUtils.createKeyPair();
+        CountDownLatch release = new CountDownLatch(1);
+        BatchSigningService service = inputs -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AcmeException("Service was shut down");
+        };
+
+        try (BatchingSigner signer = new BatchingSigner(keypair.getPublic(), service,
+                    10, Duration.ofMillis(10))) {
+            assertThat(signer.getTimeout(), is(Duration.ofMillis(10).plusSeconds(10)));
+            signer.setTimeout(Duration.ofMillis(200));
+            assertThat(signer.getTimeout(), is(Duration.ofMillis(200)));
+
+            long start = System.nanoTime();
+            try {
+                signer.sign("a.b".getBytes(US_ASCII));
+                fail("stalled service did not time out");
+            } catch (AcmeException ex) {
+                assertThat(ex.getMessage(), containsString("did not respond"));
+                assertThat(ex.getCause(), is(instanceOf(TimeoutException.class)));
+            }
+            assertThat(System.nanoTime() - start, is(lessThan(TimeUnit.SECONDS.toNanos(5))));
+
+            try {
+                signer.setTimeout(Duration.ZERO);
+                fail("accepted zero timeout");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Test that pending and new requests fail when the signer is closed.
+     */
+    @Test
+    public void testClose() throws Exception {
+        KeyPair keypair = TestUtils.createKeyPair();
+        LocalSigningService service = new LocalSigningService(keypair);
+
+        BatchingSigner signer = new BatchingSigner(keypair.getPublic(), service,
+                    10, Duration.ofMinutes(1));
+        CompletableFuture<byte[]> pending = signer.signAsync("a.b".getBytes(US_ASCII));
+        signer.close();
+
+        assertThat(pending.isCompletedExceptionally(), is(true));
+
+        try {
+            signer.sign("c.d".getBytes(US_ASCII));
+            fail("closed signer accepted a request");
+        } catch (AcmeException ex) {
+            assertThat(ex.getMessage(), is("Signer is closed"));
+        }
+
+        assertThat(service.getBatchCount(), is(0));
+    }
+
+    /**
+     * Verifies a RS256 signature.
+     */
+    private static boolean verify(KeyPair keypair, byte[] input, byte[] signature)
+                throws Exception {
+        Signature sig = Signature.getInstance("SHA256withRSA");
+        sig.initVerify(keypair.getPublic());
+        sig.update(input);
+        return sig.verify(signature);
+    }
+
+}
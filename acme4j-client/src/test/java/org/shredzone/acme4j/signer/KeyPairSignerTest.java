@@ -0,0 +1,64 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.signer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.security.KeyPair;
+
+import org.junit.Test;
+import org.shredzone.acme4j.toolbox.AcmeUtils;
+import org.shredzone.acme4j.toolbox.TestUtils;
+
+/**
+ * Unit tests for {@link KeyPairSigner}.
+ */
+public class KeyPairSignerTest {
+
+    /**
+     * Test that the algorithm is derived from the key type.
+     */
+    @Test
+    public void testAlgorithm() throws Exception {
+        KeyPair rsaKeyPair = TestUtils.createKeyPair();
+        KeyPairSigner rsaSigner = new KeyPairSigner(rsaKeyPair);
+        assertThat(rsaSigner.getKeyPair(), is(sameInstance(rsaKeyPair)));
+        assertThat(rsaSigner.getPublicKey(), is(rsaKeyPair.getPublic()));
+        assertThat(rsaSigner.getAlgorithm(), is("RS256"));
+
+        KeyPairSigner ecSigner = new KeyPairSigner(TestUtils.createECKeyPair("secp384r1"));
+        assertThat(ecSigner.getAlgorithm(), is("ES384"));
+        assertThat(ecSigner.sign("a.b".getBytes(US_ASCII)).length, is(96));
+
+        KeyPairSigner edSigner = new KeyPairSigner(TestUtils.createEd25519KeyPair());
+        assertThat(edSigner.getAlgorithm(), is("EdDSA"));
+    }
+
+    /**
+     * Test Ed25519 signatures against the test vector of RFC 8037, Appendix A.4.
+     */
+    @Test
+    public void testEd25519Signature() throws Exception {
+        KeyPairSigner signer = new KeyPairSigner(TestUtils.createEd25519KeyPair());
+
+        byte[] signature = signer.sign(
+                "eyJhbGciOiJFZERTQSJ9.RXhhbXBsZSBvZiBFZDI1NTE5IHNpZ25pbmc".getBytes(US_ASCII));
+
+        assertThat(AcmeUtils.base64UrlEncode(signature), is("hgyY0il_MGCjP0JzlnLWG1PPOt7-"
+                + "09PGcvMg3AIbQR6dWbhijcNR4ki4iylGjg5BhVsPt9g7sVvpAr_MuM0KAg"));
+    }
+
+}
@@ -13,8 +13,11 @@
  */
 package org.shredzone.acme4j.toolbox;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.shredzone.acme4j.toolbox.AcmeUtils.*;
@@ -35,6 +38,10 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.hamcrest.BaseMatcher;
@@ -133,6 +140,18 @@ public class AcmeUtilsTest {
                                   is("xn--exmle-hra7p.xn--m-7ba6w"));
     }
 
+    /**
+     * Test that the domain hierarchy is returned.
+     */
+    @Test
+    public void testDomainHierarchy() {
+        assertThat(domainHierarchy("example.org"), contains("example.org"));
+        assertThat(domainHierarchy("www.example.org"), contains("www.example.org", "example.org"));
+        assertThat(domainHierarchy("a.b.example.co.uk"), contains(
+                "a.b.example.co.uk", "b.example.co.uk", "example.co.uk", "co.uk"));
+        assertThat(domainHierarchy("localhost"), contains("localhost"));
+    }
+
     /**
      * Test valid strings.
      */
@@ -297,6 +316,38 @@ public class AcmeUtilsTest {
         }
     }
 
+    /**
+     * Test that {@link AcmeUtils#invokeAsync(java.util.concurrent.Callable, Executor)}
+     * completes the future with the result or the failure of the operation.
+     */
+    @Test
+    public void testInvokeAsync() throws Exception {
+        Executor direct = Runnable::run;
+
+        assertThat(invokeAsync(() -> "foo", direct).get(), is("foo"));
+
+        IOException failure = new IOException("bad");
+        CompletableFuture<String> failed = invokeAsync(() -> {
+            throw failure;
+        }, direct);
+        try {
+            failed.get();
+            fail("failure was not passed on");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), is(sameInstance(failure)));
+        }
+
+        CompletableFuture<String> rejected = invokeAsync(() -> "foo", command -> {
+            throw new RejectedExecutionException();
+        });
+        try {
+            rejected.get();
+            fail("rejection was not passed on");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(RejectedExecutionException.class)));
+        }
+    }
+
     /**
      * Matches the given time.
      */
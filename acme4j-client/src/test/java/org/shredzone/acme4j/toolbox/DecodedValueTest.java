@@ -0,0 +1,69 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+
+/**
+ * Unit tests for {@link DecodedValue}.
+ */
+public class DecodedValueTest {
+
+    /**
+     * Test that decoded values are returned.
+     */
+    @Test
+    public void testValue() {
+        DecodedValue<String> value = DecodedValue.decode("foo", () -> "bar");
+        assertThat(value.get(), is("bar"));
+        assertThat(value.getRequired(), is("bar"));
+
+        DecodedValue<String> empty = DecodedValue.decode("foo", () -> null);
+        assertThat(empty.get(), is(nullValue()));
+
+        try {
+            empty.getRequired();
+            fail("missing value was accepted");
+        } catch (AcmeProtocolException ex) {
+            assertThat(ex.getMessage(), is("foo: required, but not set"));
+        }
+    }
+
+    /**
+     * Test that a decoding failure is only thrown on access.
+     */
+    @Test
+    public void testFailure() {
+        AcmeProtocolException failure = new AcmeProtocolException("bad value");
+        DecodedValue<String> value = DecodedValue.decode("foo", () -> {
+            throw failure;
+        });
+
+        for (int ix = 0; ix < 2; ix++) {
+            try {
+                value.get();
+                fail("failure was not thrown");
+            } catch (AcmeProtocolException ex) {
+                assertThat(ex.getMessage(), is("foo: invalid value"));
+                assertThat(ex.getCause(), is(sameInstance(failure)));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.jose4j.json.JsonUtil;
+import org.junit.Test;
+import org.shredzone.acme4j.exception.AcmeProtocolException;
+
+/**
+ * Unit tests for {@link JSONReader}.
+ */
+public class JSONReaderTest {
+
+    /**
+     * Test that all JSON types are read into the expected Java types.
+     */
+    @Test
+    public void testTypes() throws IOException {
+        Map<String, Object> map = read("{\"str\": \"a  b \", \"int\": -42, \"zero\": 0,"
+                + " \"dec\": 1.5e2, \"big\": 12345678901234567890, \"t\": true,"
+                + " \"f\": false, \"n\": null, \"arr\": [1, \"two\", [], {}],"
+                + " \"obj\": {\"x\": {\"y\": []}}}");
+
+        assertThat(map.keySet(), contains("str", "int", "zero", "dec", "big", "t", "f",
+                "n", "arr", "obj"));
+        assertThat(map.get("str"), is("a  b "));
+        assertThat(map.get("int"), is(-42L));
+        assertThat(map.get("zero"), is(0L));
+        assertThat(map.get("dec"), is(150.0));
+        assertThat(map.get("big"), is(instanceOf(Double.class)));
+        assertThat(map.get("t"), is(Boolean.TRUE));
+        assertThat(map.get("f"), is(Boolean.FALSE));
+        assertThat(map.containsKey("n"), is(true));
+        assertThat(map.get("n"), is(nullValue()));
+
+        List<?> arr = (List<?>) map.get("arr");
+        assertThat(arr.size(), is(4));
+        assertThat(arr.get(0), is(1L));
+        assertThat(arr.get(1), is("two"));
+        assertThat((List<?>) arr.get(2), is(empty()));
+        assertThat(((Map<?, ?>) arr.get(3)).isEmpty(), is(true));
+
+        Map<?, ?> obj = (Map<?, ?>) map.get("obj");
+        assertThat((List<?>) ((Map<?, ?>) obj.get("x")).get("y"), is(empty()));
+    }
+
+    /**
+     * Test escape sequences and UTF-8 decoding.
+     */
+    @Test
+    public void testStrings() throws IOException {
+        Map<String, Object> map = read("{\"esc\": \"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e4\\uD83D\\uDE00\","
+                + " \"utf\": \"Körber \u20ac \uD83D\uDE00\"}");
+
+        assertThat(map.get("esc"), is("\"\\/\b\f\n\r\t\u00e4\uD83D\uDE00"));
+        assertThat(map.get("utf"), is("Körber \u20ac \uD83D\uDE00"));
+    }
+
+    /**
+     * Test that the result is identical to the jose4j parser on a real ACME document.
+     */
+    @Test
+    public void testSameAsJose4j() throws Exception {
+        String json = TestUtils.getJSON("updateOrderResponse").toString();
+        assertThat(read(json), is(JsonUtil.parseJson(json)));
+    }
+
+    /**
+     * Test that a document larger than the buffer is read correctly, even if the stream
+     * only returns a few bytes at a time.
+     */
+    @Test
+    public void testBufferBoundaries() throws IOException {
+        StringBuilder sb = new StringBuilder("{\"list\":[");
+        for (int ix = 0; ix < 2000; ix++) {
+            if (ix > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"n\":").append(ix).append(",\"s\":\"\u00e4\u20ac\uD83D\uDE00\"}");
+        }
+        sb.append("]}");
+        byte[] data = sb.toString().getBytes(UTF_8);
+        assertThat(data.length, is(greaterThan(8192 * 2)));
+
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        List<?> list = (List<?>) new JSONReader(in).readDocument().get("list");
+        assertThat(list.size(), is(2000));
+        Map<?, ?> last = (Map<?, ?>) list.get(1999);
+        assertThat(last.get("n"), is(1999L));
+        assertThat(last.get("s"), is("\u00e4\u20ac\uD83D\uDE00"));
+    }
+
+    /**
+     * Test reading from a part of a byte array.
+     */
+    @Test
+    public void testByteArrayRange() throws IOException {
+        byte[] data = "xx{\"a\":1}yy".getBytes(UTF_8);
+        Map<String, Object> map = new JSONReader(data, 2, 7).readDocument();
+        assertThat(map.get("a"), is(1L));
+    }
+
+    /**
+     * Test that invalid JSON is rejected.
+     */
+    @Test
+    public void testInvalid() throws IOException {
+        for (String json : Arrays.asList(
+                    "", "[]", "\"str\"", "{", "{\"a\"}", "{\"a\":}", "{\"a\":1,}",
+                    "{\"a\":1 \"b\":2}", "{a:1}", "{\"a\":[1,]}", "{\"a\":01}",
+                    "{\"a\":-}", "{\"a\":1.}", "{\"a\":1e}", "{\"a\":tru}",
+                    "{\"a\":\"\\x\"}", "{\"a\":\"\\u12G4\"}", "{\"a\":\"\n\"}",
+                    "{\"a\":\"open}", "{\"a\":1,\"a\":2}", "{} {}", "{\"a\":1} x")) {
+            try {
+                read(json);
+                fail("accepted invalid JSON: " + json);
+            } catch (AcmeProtocolException ex) {
+                assertThat(ex.getMessage(), containsString("Bad JSON"));
+            }
+        }
+    }
+
+    /**
+     * Test that invalid UTF-8 sequences are rejected.
+     */
+    @Test
+    public void testInvalidUtf8() throws IOException {
+        byte[][] sequences = {
+            {(byte) 0xC0, (byte) 0xAF},                           // overlong
+            {(byte) 0xE0, (byte) 0x80, (byte) 0xAF},              // overlong
+            {(byte) 0xED, (byte) 0xA0, (byte) 0x80},              // surrogate
+            {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, // beyond U+10FFFF
+            {(byte) 0xC3, (byte) 0x28},                           // bad continuation
+            {(byte) 0x80},                                        // lone continuation
+            {(byte) 0xE2, (byte) 0x82},                           // truncated
+        };
+
+        for (byte[] seq : sequences) {
+            byte[] data = new byte[seq.length + 9];
+            System.arraycopy("{\"a\":\"".getBytes(UTF_8), 0, data, 0, 6);
+            System.arraycopy(seq, 0, data, 6, seq.length);
+            System.arraycopy("\"}".getBytes(UTF_8), 0, data, 6 + seq.length, 2);
+            data[data.length - 1] = ' ';
+            try {
+                new JSONReader(data, 0, data.length).readDocument();
+                fail("accepted invalid UTF-8: " + Arrays.toString(seq));
+            } catch (AcmeProtocolException ex) {
+                assertThat(ex.getMessage(), containsString("Bad JSON"));
+            }
+        }
+    }
+
+    /**
+     * Test that the position of the error is reported.
+     */
+    @Test
+    public void testErrorPosition() throws IOException {
+        try {
+            read("{\"a\": 1,\n \"b\" 2}");
+            fail("accepted invalid JSON");
+        } catch (AcmeProtocolException ex) {
+            assertThat(ex.getMessage(), is("Bad JSON: ':' expected at position 15"));
+        }
+    }
+
+    /**
+     * Reads the given JSON string via an {@link InputStream}.
+     */
+    private static Map<String, Object> read(String json) throws IOException {
+        try (InputStream in = new ByteArrayInputStream(json.getBytes(UTF_8))) {
+            return new JSONReader(in).readDocument();
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ import java.io.ObjectOutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -411,6 +412,37 @@ public class JSONTest {
         }
     }
 
+    /**
+     * Test that error messages contain the path of the value.
+     */
+    @Test
+    public void testPath() throws IOException, ClassNotFoundException {
+        JSON json = TestUtils.getJSON("datatypes");
+
+        assertPathMessage(() -> json.get("none").asString(), "none: required, but not set");
+        assertPathMessage(() -> json.get("text").asInt(), "text: bad number lorem ipsum");
+
+        JSON.Array array = json.get("array").asArray();
+        assertPathMessage(() -> array.get(0).asInt(), "array[0]: bad number foo");
+        assertPathMessage(() -> array.get(2).asArray().get(1).asURL(), "array[2][1]: bad URL 2");
+
+        JSON nested = array.get(3).asObject();
+        assertPathMessage(() -> nested.get("test").asInstant(), "array[3].test: bad date ok");
+
+        // Path survives serialization
+        JSON restored;
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(nested);
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(
+                        new ByteArrayInputStream(out.toByteArray()))) {
+                restored = (JSON) ois.readObject();
+            }
+        }
+        assertPathMessage(() -> restored.get("test").asInstant(), "array[3].test: bad date ok");
+    }
+
     /**
      * Test that serialization works correctly.
      */
@@ -440,4 +472,48 @@ public class JSONTest {
         assertThat(testJson.toString(), is(sameJSONAs(originalJson.toString())));
     }
 
+    /**
+     * Test that documents exceeding the size limit of
+     * {@link ObjectOutputStream#writeUTF(String)} can be serialized.
+     */
+    @Test
+    public void testLargeSerialization() throws IOException, ClassNotFoundException {
+        List<String> identifiers = new ArrayList<>();
+        for (int ix = 0; ix < 5000; ix++) {
+            identifiers.add("\u00e4\u20ac" + ix + ".example.com");
+        }
+        JSON originalJson = new JSONBuilder().array("identifiers", identifiers).toJSON();
+        assertThat(originalJson.toString().getBytes(StandardCharsets.UTF_8).length, is(greaterThan(65535)));
+
+        byte[] data;
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(originalJson);
+            }
+            data = out.toByteArray();
+        }
+
+        JSON testJson;
+        try (ByteArrayInputStream in = new ByteArrayInputStream(data)) {
+            try (ObjectInputStream ois = new ObjectInputStream(in)) {
+                testJson = (JSON) ois.readObject();
+            }
+        }
+
+        assertThat(testJson.toString(), is(sameJSONAs(originalJson.toString())));
+    }
+
+    /**
+     * Asserts that the operation fails with an {@link AcmeProtocolException} having the
+     * given message.
+     */
+    private static void assertPathMessage(Runnable operation, String message) {
+        try {
+            operation.run();
+            fail("no exception was thrown");
+        } catch (AcmeProtocolException ex) {
+            assertThat(ex.getMessage(), is(message));
+        }
+    }
+
 }
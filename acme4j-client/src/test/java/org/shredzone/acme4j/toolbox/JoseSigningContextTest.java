@@ -0,0 +1,117 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.shredzone.acme4j.toolbox.TestUtils.url;
+import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONAs;
+
+import java.net.URL;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.Map;
+
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.CompactSerializer;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link JoseSigningContext}.
+ */
+public class JoseSigningContextTest {
+
+    private static final Base64.Decoder URL_DECODER = Base64.getUrlDecoder();
+
+    /**
+     * Test that a context can be used for multiple requests with an EC key.
+     */
+    @Test
+    public void testEcRequests() throws Exception {
+        KeyPair keypair = TestUtils.createECKeyPair("secp256r1");
+        JoseSigningContext context = new JoseSigningContext(keypair, TestUtils.ACCOUNT_URL);
+
+        assertThat(context.getSigner().getPublicKey(), is(keypair.getPublic()));
+        assertThat(context.getKeyIdentifier(), is(TestUtils.ACCOUNT_URL));
+        assertThat(context.getAlgorithm(), is("ES256"));
+
+        for (int ix = 1; ix <= 3; ix++) {
+            URL resourceUrl = url("https://example.com/acme/resource/" + ix);
+            JSONBuilder payload = new JSONBuilder();
+            payload.put("count", ix);
+
+            Map<String, Object> jose = context
+                    .createJoseRequest(resourceUrl, payload, "nonce-" + ix)
+                    .toMap();
+
+            StringBuilder expectedHeader = new StringBuilder();
+            expectedHeader.append('{');
+            expectedHeader.append("\"nonce\":\"nonce-").append(ix).append("\",");
+            expectedHeader.append("\"url\":\"").append(resourceUrl).append("\",");
+            expectedHeader.append("\"alg\":\"ES256\",");
+            expectedHeader.append("\"kid\":\"").append(TestUtils.ACCOUNT_URL).append('"');
+            expectedHeader.append('}');
+
+            assertThat(decode(jose.get("protected")), sameJSONAs(expectedHeader.toString()));
+            assertThat(decode(jose.get("payload")), sameJSONAs("{\"count\":" + ix + "}"));
+            assertValidSignature(jose, keypair);
+        }
+    }
+
+    /**
+     * Test that a jwk header is used if there is no kid, and that header values are
+     * properly escaped.
+     */
+    @Test
+    public void testJwkRequest() throws Exception {
+        KeyPair keypair = TestUtils.createKeyPair();
+        JoseSigningContext context = new JoseSigningContext(keypair, null);
+        assertThat(context.getKeyIdentifier(), is(nullValue()));
+        assertThat(context.getAlgorithm(), is("RS256"));
+
+        URL resourceUrl = url("https://example.com/acme/\"resource\"");
+        Map<String, Object> jose = context.createJoseRequest(resourceUrl, null, null).toMap();
+
+        StringBuilder expectedHeader = new StringBuilder();
+        expectedHeader.append('{');
+        expectedHeader.append("\"url\":\"https://example.com/acme/\\\"resource\\\"\",");
+        expectedHeader.append("\"alg\":\"RS256\",");
+        expectedHeader.append("\"jwk\":{");
+        expectedHeader.append("\"kty\":\"").append(TestUtils.KTY).append("\",");
+        expectedHeader.append("\"e\":\"").append(TestUtils.E).append("\",");
+        expectedHeader.append("\"n\":\"").append(TestUtils.N).append("\"");
+        expectedHeader.append("}}");
+
+        assertThat(decode(jose.get("protected")), sameJSONAs(expectedHeader.toString()));
+        assertThat(decode(jose.get("payload")), is(""));
+        assertValidSignature(jose, keypair);
+    }
+
+    private static String decode(Object encoded) {
+        return new String(URL_DECODER.decode(encoded.toString()), UTF_8);
+    }
+
+    private static void assertValidSignature(Map<String, Object> jose, KeyPair keypair)
+                throws Exception {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setCompactSerialization(CompactSerializer.serialize(
+                jose.get("protected").toString(),
+                jose.get("payload").toString(),
+                jose.get("signature").toString()));
+        jws.setKey(keypair.getPublic());
+        assertThat(jws.verifySignature(), is(true));
+    }
+
+}
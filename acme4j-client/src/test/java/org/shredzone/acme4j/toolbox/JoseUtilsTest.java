@@ -13,6 +13,7 @@
  */
 package org.shredzone.acme4j.toolbox;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -23,6 +24,7 @@ import static uk.co.datumedge.hamcrest.json.SameJSONAs.sameJSONAs;
 import java.net.URL;
 import java.security.KeyPair;
 import java.security.PublicKey;
+import java.security.Signature;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -263,6 +265,93 @@ public class JoseUtilsTest {
         assertThat(type, is("ES512"));
     }
 
+    /**
+     * Test if Ed25519 keys are properly detected, and converted to and from OKP JWKs.
+     */
+    @Test
+    public void testEd25519Key() throws Exception {
+        PublicKey key = TestUtils.createEd25519KeyPair().getPublic();
+
+        assertThat(JoseUtils.keyAlgorithm(key), is("EdDSA"));
+        assertThat(JoseUtils.edDsaCurve(key), is("Ed25519"));
+        assertThat(JoseUtils.edDsaCurve(TestUtils.createKeyPair().getPublic()), is(nullValue()));
+
+        Map<String, Object> json = JoseUtils.publicKeyToJWK(key);
+        assertThat(json.size(), is(3));
+        assertThat(json.get("kty"), is("OKP"));
+        assertThat(json.get("crv"), is("Ed25519"));
+        assertThat(json.get("x"), is(TestUtils.ED_X));
+
+        PublicKey converted = JoseUtils.jwkToPublicKey(json);
+        assertThat(converted.getEncoded(), is(key.getEncoded()));
+
+        byte[] thumb = JoseUtils.thumbprint(key);
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(thumb);
+        assertThat(encoded, is(TestUtils.ED_THUMBPRINT));
+    }
+
+    /**
+     * Test that OKP JWKs with an unknown curve or a bad key are rejected.
+     */
+    @Test
+    public void testBadOkpJWK() {
+        Map<String, Object> json = new HashMap<>();
+        json.put("kty", "OKP");
+        json.put("crv", "X25519");
+        json.put("x", TestUtils.ED_X);
+        try {
+            JoseUtils.jwkToPublicKey(json);
+            fail("X25519 key was accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        json.put("crv", "Ed25519");
+        json.put("x", "AAAA");
+        try {
+            JoseUtils.jwkToPublicKey(json);
+            fail("short Ed25519 key was accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that requests are signed with Ed25519 keys, using the RFC 8037 test vector.
+     */
+    @Test
+    public void testCreateJoseEd25519Request() throws Exception {
+        URL resourceUrl = url("http://example.com/acme/resource");
+        KeyPair keypair = TestUtils.createEd25519KeyPair();
+        JSONBuilder payload = new JSONBuilder();
+        payload.put("foo", "bar");
+
+        Map<String, Object> jose = JoseUtils.createJoseRequest(resourceUrl, keypair,
+                payload, TestUtils.DUMMY_NONCE, null).toMap();
+
+        String encodedHeader = jose.get("protected").toString();
+        StringBuilder expectedHeader = new StringBuilder();
+        expectedHeader.append('{');
+        expectedHeader.append("\"alg\":\"EdDSA\",");
+        expectedHeader.append("\"jwk\":{");
+        expectedHeader.append("\"kty\":\"OKP\",");
+        expectedHeader.append("\"crv\":\"Ed25519\",");
+        expectedHeader.append("\"x\":\"").append(TestUtils.ED_X).append("\"},");
+        expectedHeader.append("\"nonce\":\"").append(TestUtils.DUMMY_NONCE).append("\",");
+        expectedHeader.append("\"url\":\"").append(resourceUrl).append("\"");
+        expectedHeader.append('}');
+        assertThat(new String(URL_DECODER.decode(encodedHeader), UTF_8),
+                sameJSONAs(expectedHeader.toString()));
+
+        byte[] signature = URL_DECODER.decode(jose.get("signature").toString());
+        assertThat(signature.length, is(64));
+
+        Signature verifier = Signature.getInstance("Ed25519");
+        verifier.initVerify(keypair.getPublic());
+        verifier.update((encodedHeader + '.' + jose.get("payload")).getBytes(US_ASCII));
+        assertThat(verifier.verify(signature), is(true));
+    }
+
     /**
      * Test if MAC key algorithms are properly detected.
      */
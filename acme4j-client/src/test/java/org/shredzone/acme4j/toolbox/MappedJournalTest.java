@@ -0,0 +1,260 @@
+/*
+ * acme4j - Java ACME client
+ *
+ * Copyright (C) 2020 Richard "Shred" Körber
+ *   http://acme4j.shredzone.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ */
+package org.shredzone.acme4j.toolbox;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedJournal}.
+ */
+public class MappedJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setup() {
+        file = folder.getRoot().toPath().resolve("journal");
+    }
+
+    /**
+     * Test that values can be stored, replaced and removed.
+     */
+    @Test
+    public void testPutGetRemove() throws IOException {
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.get("foo"), is(nullValue()));
+            assertThat(journal.size(), is(0));
+
+            journal.put("foo", bytes("value 1"));
+            journal.put("bar", bytes("value 2"));
+            journal.put("foo", bytes("value 3"));
+            journal.put("empty", new byte[0]);
+
+            assertThat(journal.get("foo"), is(bytes("value 3")));
+            assertThat(journal.get("bar"), is(bytes("value 2")));
+            assertThat(journal.get("empty"), is(new byte[0]));
+            assertThat(journal.keys(), containsInAnyOrder("foo", "bar", "empty"));
+
+            journal.remove("bar");
+            journal.remove("unknown");
+            assertThat(journal.get("bar"), is(nullValue()));
+            assertThat(journal.size(), is(2));
+        }
+    }
+
+    /**
+     * Test that the journal is replayed when it is opened again.
+     */
+    @Test
+    public void testReplay() throws IOException {
+        try (MappedJournal journal = new MappedJournal(file)) {
+            journal.put("foo", bytes("value 1"));
+            journal.put("bär", bytes("value 2"));
+            journal.put("baz", bytes("value 3"));
+            journal.put("foo", bytes("value 4"));
+            journal.remove("baz");
+        }
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.keys(), containsInAnyOrder("foo", "bär"));
+            assertThat(journal.get("foo"), is(bytes("value 4")));
+            assertThat(journal.get("bär"), is(bytes("value 2")));
+
+            journal.put("baz", bytes("value 5"));
+        }
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.get("baz"), is(bytes("value 5")));
+            assertThat(journal.size(), is(3));
+        }
+    }
+
+    /**
+     * Test that a record that was only partially written is discarded, and that the
+     * journal can be continued after it.
+     */
+    @Test
+    public void testTornRecord() throws IOException {
+        long tornPosition;
+        try (MappedJournal journal = new MappedJournal(file)) {
+            journal.put("foo", bytes("value 1"));
+            tornPosition = journal.getLength();
+            journal.put("bar", bytes("value 2"));
+        }
+
+        // Corrupt the value of the last record, as if it was not completely written
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes("X")), tornPosition + 16L);
+        }
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.keys(), contains("foo"));
+            assertThat(journal.getLength(), is(tornPosition));
+
+            journal.put("baz", bytes("value 3"));
+        }
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.keys(), containsInAnyOrder("foo", "baz"));
+            assertThat(journal.get("baz"), is(bytes("value 3")));
+        }
+    }
+
+    /**
+     * Test that compaction removes outdated records, but keeps the live ones.
+     */
+    @Test
+    public void testCompact() throws IOException {
+        try (MappedJournal journal = new MappedJournal(file)) {
+            for (int ix = 0; ix < 100; ix++) {
+                journal.put("foo", bytes("value " + ix));
+                journal.put("bar" + ix, bytes("bar " + ix));
+                journal.remove("bar" + ix);
+            }
+            journal.put("baz", bytes("value baz"));
+
+            long length = journal.getLength();
+            journal.compact();
+            assertThat(journal.getLength(), is(lessThan(length)));
+            assertThat(journal.keys(), containsInAnyOrder("foo", "baz"));
+            assertThat(journal.get("foo"), is(bytes("value 99")));
+
+            journal.put("bar", bytes("value bar"));
+        }
+
+        assertThat(Files.exists(file.resolveSibling("journal.compact")), is(false));
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.keys(), containsInAnyOrder("foo", "bar", "baz"));
+            assertThat(journal.get("baz"), is(bytes("value baz")));
+        }
+    }
+
+    /**
+     * Test that the journal is compacted automatically, and grows beyond the initial
+     * mapping.
+     */
+    @Test
+    public void testAutoCompactAndGrow() throws IOException {
+        byte[] large = new byte[100 * 1024];
+        Arrays.fill(large, (byte) 42);
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            for (int ix = 0; ix < 30; ix++) {
+                journal.put("large", large);
+                journal.put("small" + ix, bytes("small " + ix));
+            }
+            assertThat(journal.getLength(), is(lessThan(2L * 1024L * 1024L)));
+            assertThat(journal.size(), is(31));
+            assertThat(journal.get("large"), is(large));
+
+            for (int ix = 0; ix < 20; ix++) {
+                journal.put("large" + ix, large);
+            }
+            assertThat(journal.getLength(), is(greaterThan(2L * 1024L * 1024L)));
+        }
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            assertThat(journal.size(), is(51));
+            assertThat(journal.get("large19"), is(large));
+        }
+    }
+
+    /**
+     * Test that the journal stays usable if it cannot be compacted, and that automatic
+     * compaction is postponed then.
+     */
+    @Test
+    public void testCompactionFailure() throws IOException {
+        byte[] large = new byte[100 * 1024];
+        Arrays.fill(large, (byte) 42);
+
+        try (MappedJournal journal = new MappedJournal(file)) {
+            // blocks the compaction file
+            Path blocker = file.resolveSibling("journal.compact");
+            Files.createDirectory(blocker);
+            Files.write(blocker.resolve("blocker"), bytes("blocker"));
+
+            for (int ix = 0; ix < 30; ix++) {
+                journal.put("large", large);
+            }
+            assertThat(journal.getLength(), is(greaterThan(2L * 1024L * 1024L)));
+            assertThat(journal.get("large"), is(large));
+
+            try {
+                journal.compact();
+                fail("compaction did not fail");
+            } catch (IOException ex) {
+                // expected
+            }
+            journal.put("small", bytes("small"));
+            assertThat(journal.keys(), containsInAnyOrder("large", "small"));
+
+            Files.delete(blocker.resolve("blocker"));
+            Files.delete(blocker);
+            journal.compact();
+            assertThat(journal.getLength(), is(lessThan(1024L * 1024L)));
+            assertThat(journal.get("large"), is(large));
+        }
+    }
+
+    /**
+     * Test that other files are not accepted, and closed journals cannot be used.
+     */
+    @Test
+    public void testInvalid() throws IOException {
+        Files.write(file, bytes("This is not a journal file"));
+        try {
+            new MappedJournal(file).close();
+            fail("accepted a non-journal file");
+        } catch (IOException ex) {
+            // expected
+        }
+
+        Files.delete(file);
+        MappedJournal journal = new MappedJournal(file);
+        journal.close();
+        journal.close();
+        try {
+            journal.get("foo");
+            fail("closed journal was accessible");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(UTF_8);
+    }
+
+}
@@ -33,6 +33,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
+import java.security.Security;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
@@ -40,6 +41,7 @@ import java.security.spec.ECGenParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +49,7 @@ import java.util.TreeMap;
 
 import javax.crypto.SecretKey;
 
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.jose4j.json.JsonUtil;
 import org.jose4j.jwk.JsonWebKey;
 import org.jose4j.jwk.JsonWebKey.OutputControlLevel;
@@ -71,6 +74,11 @@ public final class TestUtils {
     public static final String D_KTY = "RSA";
     public static final String D_THUMBPRINT = "0VPbh7-I6swlkBu0TrNKSQp6d69bukzeQA0ksuX3FFs";
 
+    // Ed25519 test vector of RFC 8037, Appendix A
+    public static final String ED_D = "nWGxne_9WmC6hEr0kuwsxERJxWl7MmkZcDusAxyuf2A";
+    public static final String ED_X = "11qYAYKxCrfVS_7TyWQHOg7hcvPapiMlrwIaaPcHURo";
+    public static final String ED_THUMBPRINT = "kPrK_qmxVWaYVA9wwBF6Iuo3vVzz7TxHCTwXBygrS4k";
+
     public static final String ACME_SERVER_URI = "https://example.com/acme";
     public static final String ACCOUNT_URL = "https://example.com/acme/account/1";
 
@@ -242,6 +250,48 @@ public final class TestUtils {
         }
     }
 
+    /**
+     * Creates the Ed25519 key pair of the RFC 8037 test vector.
+     * <p>
+     * Bouncy Castle is registered as fallback provider, so EdDSA keys are also available
+     * on Java versions before 15.
+     *
+     * @return {@link KeyPair} for testing
+     */
+    public static KeyPair createEd25519KeyPair() throws IOException {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        try {
+            byte[] publicPrefix = {
+                    0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00
+            };
+            byte[] privatePrefix = {
+                    0x30, 0x2e, 0x02, 0x01, 0x00, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70,
+                    0x04, 0x22, 0x04, 0x20
+            };
+
+            KeyFactory keyFactory = KeyFactory.getInstance("Ed25519");
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(
+                    concat(publicPrefix, Base64.getUrlDecoder().decode(ED_X))));
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(
+                    concat(privatePrefix, Base64.getUrlDecoder().decode(ED_D))));
+            return new KeyPair(publicKey, privateKey);
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Concatenates two byte arrays.
+     */
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
     /**
      * Creates a HMAC key using the given hash algorithm.
      *
@@ -21,11 +21,19 @@ import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
 import java.security.SecureRandom;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.WillClose;
 
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.Ed448PrivateKeyParameters;
+import org.bouncycastle.crypto.util.PrivateKeyFactory;
+import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
 import org.bouncycastle.jce.ECNamedCurveTable;
 import org.bouncycastle.jce.spec.ECParameterSpec;
 import org.bouncycastle.openssl.PEMException;
@@ -33,6 +41,7 @@ import org.bouncycastle.openssl.PEMKeyPair;
 import org.bouncycastle.openssl.PEMParser;
 import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
 import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.openssl.jcajce.JcaPKCS8Generator;
 
 /**
  * Utility class offering convenience methods for {@link KeyPair}.
@@ -96,8 +105,34 @@ public class KeyPairUtils {
         }
     }
 
+    /**
+     * Creates a new EdDSA {@link KeyPair}.
+     * <p>
+     * EdDSA keys are small, and signing is considerably faster than with RSA or ECDSA
+     * keys. However, not all CAs accept EdDSA account keys yet.
+     *
+     * @param curve
+     *            EdDSA curve name, either "Ed25519" or "Ed448"
+     * @return Generated {@link KeyPair}
+     * @since 2.9
+     */
+    public static KeyPair createEdDSAKeyPair(String curve) {
+        if (!"Ed25519".equals(curve) && !"Ed448".equals(curve)) {
+            throw new IllegalArgumentException("Invalid curve name " + curve);
+        }
+        try {
+            KeyPairGenerator g = KeyPairGenerator.getInstance(curve, "BC");
+            return g.generateKeyPair();
+        } catch (NoSuchAlgorithmException | NoSuchProviderException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     /**
      * Reads a {@link KeyPair} from a PEM file.
+     * <p>
+     * Since v2.9, PKCS#8 files ("BEGIN PRIVATE KEY") of EdDSA keys are also accepted. The
+     * public key is then derived from the private key.
      *
      * @param r
      *            {@link Reader} to read the PEM file from. The {@link Reader} is closed
@@ -106,8 +141,32 @@ public class KeyPairUtils {
      */
     public static KeyPair readKeyPair(@WillClose Reader r) throws IOException {
         try (PEMParser parser = new PEMParser(r)) {
-            PEMKeyPair keyPair = (PEMKeyPair) parser.readObject();
-            return new JcaPEMKeyConverter().getKeyPair(keyPair);
+            Object pem = parser.readObject();
+            JcaPEMKeyConverter converter = new JcaPEMKeyConverter();
+
+            if (pem instanceof PrivateKeyInfo) {
+                PrivateKeyInfo keyInfo = (PrivateKeyInfo) pem;
+                AsymmetricKeyParameter privateKey = PrivateKeyFactory.createKey(keyInfo);
+                AsymmetricKeyParameter publicKey;
+                if (privateKey instanceof Ed25519PrivateKeyParameters) {
+                    publicKey = ((Ed25519PrivateKeyParameters) privateKey).generatePublicKey();
+                } else if (privateKey instanceof Ed448PrivateKeyParameters) {
+                    publicKey = ((Ed448PrivateKeyParameters) privateKey).generatePublicKey();
+                } else {
+                    throw new IOException("Unsupported private key "
+                            + keyInfo.getPrivateKeyAlgorithm().getAlgorithm());
+                }
+                SubjectPublicKeyInfo publicKeyInfo =
+                        SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(publicKey);
+                converter.setProvider("BC");
+                return new KeyPair(converter.getPublicKey(publicKeyInfo),
+                        converter.getPrivateKey(keyInfo));
+            }
+
+            if (!(pem instanceof PEMKeyPair)) {
+                throw new IOException("PEM file does not contain a key pair");
+            }
+            return converter.getKeyPair((PEMKeyPair) pem);
         } catch (PEMException ex) {
             throw new IOException("Invalid PEM file", ex);
         }
@@ -115,6 +174,9 @@ public class KeyPairUtils {
 
     /**
      * Writes a {@link KeyPair} PEM file.
+     * <p>
+     * RSA and ECDSA key pairs are written in their traditional format. EdDSA key pairs
+     * are written as PKCS#8 private key.
      *
      * @param keypair
      *            {@link KeyPair} to write
@@ -124,8 +186,21 @@ public class KeyPairUtils {
      */
     public static void writeKeyPair(KeyPair keypair, @WillClose Writer w) throws IOException {
         try (JcaPEMWriter jw = new JcaPEMWriter(w)) {
-            jw.writeObject(keypair);
+            if (isEdDSA(keypair.getPrivate())) {
+                jw.writeObject(new JcaPKCS8Generator(keypair.getPrivate(), null));
+            } else {
+                jw.writeObject(keypair);
+            }
         }
     }
 
+    /**
+     * Checks if the given key is an EdDSA key.
+     */
+    private static boolean isEdDSA(PrivateKey key) {
+        String algorithm = key.getAlgorithm();
+        return "Ed25519".equals(algorithm) || "Ed448".equals(algorithm)
+                || "EdDSA".equals(algorithm);
+    }
+
 }